@@ -0,0 +1,230 @@
+package com.arcbank.cbs.transaccion.client;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import com.arcbank.cbs.transaccion.config.ResilienciaProperties;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException.Motivo;
+
+/**
+ * Bulkhead y circuit breaker de un método remoto. El bulkhead limita las
+ * llamadas en curso; el circuito mira las últimas {@code ventana} llamadas y
+ * se abre cuando los fallos o las lentas superan su porcentaje. Abierto,
+ * rechaza sin llamar durante {@code abiertoMs}; luego deja pasar
+ * {@code pruebas} llamadas (semiabierto) y se cierra si todas salen bien.
+ */
+class CircuitoDependencia {
+
+    enum Estado {
+        CERRADO, ABIERTO, SEMIABIERTO
+    }
+
+    private static final byte BIEN = 0;
+    private static final byte FALLO = 1;
+    private static final byte LENTA = 2;
+
+    private final String codigo;
+    private final String dependencia;
+    private final ResilienciaProperties.Ajustes ajustes;
+    private final LongSupplier relojMs;
+    private final Semaphore permisos;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final byte[] ventana;
+    private int posicion;
+    private int registradas;
+    private int fallos;
+    private int lentas;
+
+    private Estado estado = Estado.CERRADO;
+    private long abiertoHasta;
+    private int generacion;
+    private int pruebasEnCurso;
+    private int pruebasExitosas;
+
+    CircuitoDependencia(String codigo, String dependencia, ResilienciaProperties.Ajustes ajustes,
+            LongSupplier relojMs) {
+        this.codigo = codigo;
+        this.dependencia = dependencia;
+        this.ajustes = ajustes;
+        this.relojMs = relojMs;
+        this.permisos = new Semaphore(ajustes.getConcurrencia());
+        this.ventana = new byte[ajustes.getVentana()];
+    }
+
+    /** Llamada autorizada; se devuelve con {@link #liberar}. */
+    record Permiso(int generacion, boolean prueba) {
+    }
+
+    /**
+     * Reserva lugar para una llamada o lanza
+     * {@link DependenciaNoDisponibleException} sin llamar a la dependencia.
+     */
+    Permiso adquirir() {
+        Permiso permiso = autorizar();
+        boolean adquirido;
+        try {
+            adquirido = permisos.tryAcquire(ajustes.getEsperaMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            adquirido = false;
+        }
+        if (!adquirido) {
+            devolverPrueba(permiso);
+            throw rechazo(Motivo.SATURADA, 0);
+        }
+        return permiso;
+    }
+
+    /** Lanza si el circuito está abierto; no ocupa lugar en el bulkhead. */
+    void verificar() {
+        lock.lock();
+        try {
+            long ahora = relojMs.getAsLong();
+            if (estado == Estado.ABIERTO && ahora < abiertoHasta) {
+                throw rechazo(Motivo.CIRCUITO_ABIERTO, abiertoHasta - ahora);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void liberar(Permiso permiso, boolean fallo, long duracionMs) {
+        permisos.release();
+        byte resultado = fallo ? FALLO : duracionMs > ajustes.getLentaMs() ? LENTA : BIEN;
+        lock.lock();
+        try {
+            if (permiso.generacion() != generacion) {
+                return;
+            }
+            if (permiso.prueba()) {
+                pruebasEnCurso--;
+                if (resultado != BIEN) {
+                    abrir();
+                } else if (++pruebasExitosas >= ajustes.getPruebas()) {
+                    cerrar();
+                }
+                return;
+            }
+            if (estado == Estado.CERRADO) {
+                registrar(resultado);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Devuelve el permiso sin registrar resultado: la llamada se canceló desde afuera. */
+    void abandonar(Permiso permiso) {
+        permisos.release();
+        devolverPrueba(permiso);
+    }
+
+    /** La llamada no llegó a hacerse (bulkhead lleno). */
+    private void devolverPrueba(Permiso permiso) {
+        if (!permiso.prueba()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (permiso.generacion() == generacion) {
+                pruebasEnCurso--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permiso autorizar() {
+        lock.lock();
+        try {
+            long ahora = relojMs.getAsLong();
+            if (estado == Estado.ABIERTO) {
+                if (ahora < abiertoHasta) {
+                    throw rechazo(Motivo.CIRCUITO_ABIERTO, abiertoHasta - ahora);
+                }
+                estado = Estado.SEMIABIERTO;
+                generacion++;
+                pruebasEnCurso = 0;
+                pruebasExitosas = 0;
+            }
+            if (estado == Estado.SEMIABIERTO) {
+                if (pruebasEnCurso + pruebasExitosas >= ajustes.getPruebas()) {
+                    throw rechazo(Motivo.CIRCUITO_ABIERTO, 0);
+                }
+                pruebasEnCurso++;
+                return new Permiso(generacion, true);
+            }
+            return new Permiso(generacion, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void registrar(byte resultado) {
+        if (registradas == ventana.length) {
+            quitar(ventana[posicion]);
+        } else {
+            registradas++;
+        }
+        ventana[posicion] = resultado;
+        posicion = (posicion + 1) % ventana.length;
+        if (resultado == FALLO) {
+            fallos++;
+        } else if (resultado == LENTA) {
+            lentas++;
+        }
+        if (registradas >= ajustes.getMinimoLlamadas()
+                && (fallos * 100 >= ajustes.getUmbralFallos() * registradas
+                        || lentas * 100 >= ajustes.getUmbralLentas() * registradas)) {
+            abrir();
+        }
+    }
+
+    private void quitar(byte resultado) {
+        if (resultado == FALLO) {
+            fallos--;
+        } else if (resultado == LENTA) {
+            lentas--;
+        }
+    }
+
+    private void abrir() {
+        estado = Estado.ABIERTO;
+        abiertoHasta = relojMs.getAsLong() + ajustes.getAbiertoMs();
+        generacion++;
+    }
+
+    private void cerrar() {
+        estado = Estado.CERRADO;
+        generacion++;
+        posicion = 0;
+        registradas = 0;
+        fallos = 0;
+        lentas = 0;
+    }
+
+    private DependenciaNoDisponibleException rechazo(Motivo motivo, long reintentarEnMs) {
+        return new DependenciaNoDisponibleException(codigo, dependencia, motivo, reintentarEnMs);
+    }
+
+    Estado estado() {
+        lock.lock();
+        try {
+            return estado;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int enCurso() {
+        return ajustes.getConcurrencia() - permisos.availablePermits();
+    }
+
+    ResilienciaProperties.Ajustes ajustes() {
+        return ajustes;
+    }
+}
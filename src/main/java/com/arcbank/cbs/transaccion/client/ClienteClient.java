@@ -1,13 +1,23 @@
 package com.arcbank.cbs.transaccion.client;
 
+import java.util.List;
 import java.util.Map;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
 @FeignClient(name = "ms-clientes", url = "${app.feign.clientes-url:http://micro-clientes:8080}")
 public interface ClienteClient {
 
     @GetMapping("/api/v1/clientes/{id}")
     Map<String, Object> obtenerCliente(@PathVariable("id") Integer id);
+
+    /**
+     * Consulta varios clientes en una sola llamada. Los que no existen se
+     * omiten de la respuesta.
+     */
+    @PostMapping("/api/v1/clientes/lote")
+    List<Map<String, Object>> obtenerClientes(@RequestBody List<Integer> ids);
 }
@@ -1,14 +1,17 @@
 package com.arcbank.cbs.transaccion.client;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import com.arcbank.cbs.transaccion.dto.MovimientoSaldoDTO;
 import com.arcbank.cbs.transaccion.dto.SaldoDTO;
 
 @FeignClient(name = "ms-cuentas", url = "${app.feign.cuentas-url:http://localhost:8081}")
@@ -20,9 +23,24 @@ public interface CuentaCliente {
     @PutMapping("/api/v1/cuentas/ahorros/{id}/saldo")
     void actualizarSaldo(@PathVariable("id") Integer id, @RequestBody SaldoDTO saldoDTO);
 
+    /**
+     * Aplica un delta sobre el saldo en una sola operación atómica del lado de
+     * ms-cuentas y retorna el saldo resultante. Responde 409 si el saldo
+     * quedaría por debajo de {@code saldoMinimo}.
+     */
+    @PostMapping("/api/v1/cuentas/ahorros/{id}/saldo/movimientos")
+    SaldoDTO aplicarMovimiento(@PathVariable("id") Integer id, @RequestBody MovimientoSaldoDTO movimiento);
+
     @GetMapping("/api/v1/cuentas/ahorros/{id}")
     Map<String, Object> obtenerCuenta(@PathVariable("id") Integer id);
 
+    /**
+     * Consulta varias cuentas en una sola llamada. Las que no existen se
+     * omiten de la respuesta.
+     */
+    @PostMapping("/api/v1/cuentas/ahorros/lote")
+    List<Map<String, Object>> obtenerCuentas(@RequestBody List<Integer> ids);
+
     @GetMapping("/api/v1/cuentas/ahorros/buscar/{numeroCuenta}")
     Map<String, Object> buscarPorNumero(@PathVariable("numeroCuenta") String numeroCuenta);
-}
\ No newline at end of file
+}
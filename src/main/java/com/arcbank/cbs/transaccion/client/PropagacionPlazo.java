@@ -0,0 +1,59 @@
+package com.arcbank.cbs.transaccion.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+import com.arcbank.cbs.transaccion.service.PlazoOperacion;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+
+/**
+ * Lleva el {@link PlazoOperacion} del hilo a cada llamada Feign: el
+ * connectTimeout y el readTimeout se acotan a lo que queda del plazo, el
+ * restante viaja en {@link PlazoOperacion#CABECERA} y, vencido, la llamada
+ * no sale. Sin plazo activo no cambia nada.
+ */
+@Component
+public class PropagacionPlazo implements Capability, RequestInterceptor {
+
+    @Override
+    public void apply(RequestTemplate template) {
+        if (PlazoOperacion.activo()) {
+            template.header(PlazoOperacion.CABECERA, String.valueOf(PlazoOperacion.restanteMs()));
+        }
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, opciones) -> {
+            if (!PlazoOperacion.activo()) {
+                return client.execute(request, opciones);
+            }
+            long restanteMs = PlazoOperacion.restanteMs();
+            if (restanteMs <= 0) {
+                throw DependenciaNoDisponibleException.plazoAgotado(dependencia(request));
+            }
+            return client.execute(request, acotar(opciones, restanteMs));
+        };
+    }
+
+    private static Request.Options acotar(Request.Options opciones, long restanteMs) {
+        long connectMs = Math.min(opciones.connectTimeoutMillis(), restanteMs);
+        long readMs = Math.min(opciones.readTimeoutMillis(), restanteMs);
+        return new Request.Options(connectMs, TimeUnit.MILLISECONDS, readMs, TimeUnit.MILLISECONDS,
+                opciones.isFollowRedirects());
+    }
+
+    private static String dependencia(Request request) {
+        if (request.requestTemplate() != null && request.requestTemplate().feignTarget() != null) {
+            return request.requestTemplate().feignTarget().name();
+        }
+        return request.url();
+    }
+}
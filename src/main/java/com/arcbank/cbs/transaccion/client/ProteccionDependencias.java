@@ -0,0 +1,183 @@
+package com.arcbank.cbs.transaccion.client;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+
+import com.arcbank.cbs.transaccion.config.ResilienciaProperties;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Aísla cada método de SwitchClient, CuentaCliente y ClienteClient con su
+ * propio {@link CircuitoDependencia}: una dependencia lenta llena solo sus
+ * bulkheads y, con el circuito abierto, sus llamadas fallan al instante con
+ * {@link DependenciaNoDisponibleException} en vez de esperar el readTimeout.
+ * Se aplica como {@link Capability} a todos los clientes Feign; los que no
+ * están en {@code app.resiliencia.clientes} pasan sin cambios, igual que
+ * las compensaciones ({@link #sinProteccion}).
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(ResilienciaProperties.class)
+public class ProteccionDependencias implements Capability {
+
+    /** Marca del hilo mientras corre una compensación; nulo fuera de ella. */
+    private static final ThreadLocal<Boolean> COMPENSACION = new ThreadLocal<>();
+
+    private final ResilienciaProperties propiedades;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier relojMs;
+    private final Map<String, CircuitoDependencia> circuitos = new ConcurrentHashMap<>();
+
+    public ProteccionDependencias(ResilienciaProperties propiedades, MeterRegistry meterRegistry) {
+        this(propiedades, meterRegistry, System::currentTimeMillis);
+    }
+
+    ProteccionDependencias(ResilienciaProperties propiedades, MeterRegistry meterRegistry, LongSupplier relojMs) {
+        this.propiedades = propiedades;
+        this.meterRegistry = meterRegistry;
+        this.relojMs = relojMs;
+    }
+
+    /**
+     * Ejecuta la acción sin circuito ni bulkhead y con el timeout normal de
+     * Feign. Para movimientos que compensan dinero ya movido (reembolsos,
+     * devoluciones): rechazarlos porque el circuito está abierto dejaría el
+     * débito aplicado. Tampoco cuentan para el circuito.
+     */
+    public static <T> T sinProteccion(Supplier<T> accion) {
+        Boolean anterior = COMPENSACION.get();
+        COMPENSACION.set(Boolean.TRUE);
+        try {
+            return accion.get();
+        } finally {
+            if (anterior == null) {
+                COMPENSACION.remove();
+            }
+        }
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, opciones) -> {
+            CircuitoDependencia circuito = COMPENSACION.get() != null ? null : circuito(request);
+            if (circuito == null) {
+                return client.execute(request, opciones);
+            }
+            CircuitoDependencia.Permiso permiso = adquirir(circuito, request);
+            long inicio = System.nanoTime();
+            boolean fallo = true;
+            try {
+                Response respuesta = client.execute(request, conTimeout(opciones, circuito));
+                fallo = respuesta.status() >= 500 || respuesta.status() == 408 || respuesta.status() == 429;
+                return respuesta;
+            } finally {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Cancelada por quien llama (p. ej. la cobertura perdedora): no dice nada de la dependencia
+                    circuito.abandonar(permiso);
+                } else {
+                    circuito.liberar(permiso, fallo, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+                }
+            }
+        };
+    }
+
+    /**
+     * Falla rápido antes de mover dinero: lanza si el circuito del método
+     * está abierto. No ocupa lugar en el bulkhead.
+     */
+    public void verificarDisponible(Class<?> tipoCliente, String metodo) {
+        FeignClient feignClient = AnnotationUtils.findAnnotation(tipoCliente, FeignClient.class);
+        CircuitoDependencia circuito = feignClient != null ? circuito(feignClient.name(), metodo) : null;
+        if (circuito != null) {
+            circuito.verificar();
+        }
+    }
+
+    private CircuitoDependencia.Permiso adquirir(CircuitoDependencia circuito, Request request) throws IOException {
+        try {
+            return circuito.adquirir();
+        } catch (DependenciaNoDisponibleException e) {
+            Counter.builder("transaccion.dependencia.rechazos")
+                    .description("Llamadas rechazadas sin salir del servicio")
+                    .tag("cliente", request.requestTemplate().feignTarget().name())
+                    .tag("metodo", request.requestTemplate().methodMetadata().method().getName())
+                    .tag("motivo", e.getMotivo().name())
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("{} {} rechazada: {}", request.requestTemplate().feignTarget().name(),
+                    request.requestTemplate().methodMetadata().configKey(), e.getMotivo());
+            throw e;
+        }
+    }
+
+    private CircuitoDependencia circuito(Request request) {
+        if (request.requestTemplate() == null || request.requestTemplate().feignTarget() == null
+                || request.requestTemplate().methodMetadata() == null) {
+            return null;
+        }
+        return circuito(request.requestTemplate().feignTarget().name(),
+                request.requestTemplate().methodMetadata().method().getName());
+    }
+
+    private CircuitoDependencia circuito(String cliente, String metodo) {
+        ResilienciaProperties.Cliente config = propiedades.getClientes().get(cliente);
+        if (config == null) {
+            return null;
+        }
+        return circuitos.computeIfAbsent(cliente + "#" + metodo, k -> crear(cliente, metodo, config));
+    }
+
+    private CircuitoDependencia crear(String cliente, String metodo, ResilienciaProperties.Cliente config) {
+        ResilienciaProperties.Ajustes base = propiedades.getDefecto().sobre(ResilienciaProperties.valoresBase());
+        ResilienciaProperties.Ajustes propios = config.getMetodos().get(kebab(metodo));
+        ResilienciaProperties.Ajustes ajustes = config.sobre(base);
+        if (propios != null) {
+            ajustes = propios.sobre(ajustes);
+        }
+        CircuitoDependencia circuito = new CircuitoDependencia(config.getCodigo(), cliente, ajustes, relojMs);
+        Gauge.builder("transaccion.dependencia.circuito", circuito, c -> c.estado().ordinal())
+                .description("Estado del circuito: 0 cerrado, 1 abierto, 2 semiabierto")
+                .tag("cliente", cliente)
+                .tag("metodo", metodo)
+                .register(meterRegistry);
+        Gauge.builder("transaccion.dependencia.en.curso", circuito, CircuitoDependencia::enCurso)
+                .description("Llamadas en curso dentro del bulkhead")
+                .tag("cliente", cliente)
+                .tag("metodo", metodo)
+                .register(meterRegistry);
+        return circuito;
+    }
+
+    private static Request.Options conTimeout(Request.Options opciones, CircuitoDependencia circuito) {
+        long timeoutMs = circuito.ajustes().getTimeoutMs();
+        // Solo acorta: un readTimeout menor (p. ej. el acotado por PropagacionPlazo) se respeta
+        if (timeoutMs <= 0 || timeoutMs >= opciones.readTimeoutMillis()) {
+            return opciones;
+        }
+        return new Request.Options(opciones.connectTimeout(), opciones.connectTimeoutUnit(),
+                timeoutMs, TimeUnit.MILLISECONDS, opciones.isFollowRedirects());
+    }
+
+    static String kebab(String metodo) {
+        return metodo.replaceAll("([a-z0-9])([A-Z])", "$1-$2").toLowerCase(Locale.ROOT);
+    }
+}
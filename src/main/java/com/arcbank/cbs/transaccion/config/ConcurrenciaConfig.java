@@ -0,0 +1,20 @@
+package com.arcbank.cbs.transaccion.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ConcurrenciaConfig {
+
+    /**
+     * Hilos virtuales para llamadas remotas que se lanzan en paralelo dentro
+     * de una petición: bloquear uno no cuesta un hilo de plataforma.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService ejecutorVirtual() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -41,6 +41,12 @@ public class MTLSConfig {
     @Value("${app.switch.apikey:}")
     private String apiKey;
 
+    @Value("${app.feign.pool.max-total:400}")
+    private int maxConexiones;
+
+    @Value("${app.feign.pool.max-por-ruta:200}")
+    private int maxConexionesPorRuta;
+
     @org.springframework.beans.factory.annotation.Autowired
     private com.arcbank.cbs.transaccion.service.JwsService jwsService;
 
@@ -124,8 +130,11 @@ public class MTLSConfig {
         SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(sslContext,
                 org.apache.hc.client5.http.ssl.NoopHostnameVerifier.INSTANCE);
 
+        // Los valores por defecto (25 en total, 5 por ruta) harían esperar a los hilos virtuales por conexión
         HttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
                 .setSSLSocketFactory(sslSocketFactory)
+                .setMaxConnTotal(maxConexiones)
+                .setMaxConnPerRoute(maxConexionesPorRuta)
                 .build();
 
         CloseableHttpClient httpClient = HttpClients.custom()
@@ -0,0 +1,51 @@
+package com.arcbank.cbs.transaccion.config;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Plazo total de {@code crearTransaccion} ({@code app.plazos}) por tipo de
+ * operación en kebab-case ({@code transferencia-salida}) y, dentro de cada
+ * tipo, por canal en minúsculas. Lo que no esté configurado usa
+ * {@code defecto-ms}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.plazos")
+public class PlazosProperties {
+
+    private boolean enabled = true;
+    private long defectoMs = 10000;
+    private Map<String, Operacion> operaciones = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Operacion {
+        private Long ms;
+        private Map<String, Long> canales = new HashMap<>();
+    }
+
+    /** Plazo en milisegundos; 0 cuando los plazos están desactivados. */
+    public long presupuestoMs(String tipoOperacion, String canal) {
+        if (!enabled) {
+            return 0;
+        }
+        Operacion operacion = tipoOperacion != null
+                ? operaciones.get(tipoOperacion.toLowerCase(Locale.ROOT).replace('_', '-'))
+                : null;
+        if (operacion == null) {
+            return defectoMs;
+        }
+        Long porCanal = canal != null ? operacion.getCanales().get(canal.toLowerCase(Locale.ROOT)) : null;
+        if (porCanal != null) {
+            return porCanal;
+        }
+        return operacion.getMs() != null ? operacion.getMs() : defectoMs;
+    }
+}
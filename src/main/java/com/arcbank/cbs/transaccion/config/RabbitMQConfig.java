@@ -1,12 +1,23 @@
 package com.arcbank.cbs.transaccion.config;
 
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig {
 
@@ -29,4 +40,28 @@ public class RabbitMQConfig {
         template.setMessageConverter(jsonMessageConverter());
         return template;
     }
+
+    /**
+     * Cola temporal por instancia para los avisos de cambio de cuentas y
+     * clientes; se borra sola cuando la instancia se desconecta.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.invalidacion.enabled", havingValue = "true", matchIfMissing = true)
+    public Queue colaInvalidacionMetadatos() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.invalidacion.enabled", havingValue = "true", matchIfMissing = true)
+    public Declarables enlacesInvalidacionMetadatos(Queue colaInvalidacionMetadatos,
+            @Value("${app.cache.invalidacion.exchange:x.metadatos.cambios}") String exchange,
+            @Value("${app.cache.invalidacion.claves:cuenta.#,cliente.#}") List<String> claves) {
+        TopicExchange topic = new TopicExchange(exchange, true, false);
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(topic);
+        for (String clave : claves) {
+            declarables.add(BindingBuilder.bind(colaInvalidacionMetadatos).to(topic).with(clave.trim()));
+        }
+        return new Declarables(declarables);
+    }
 }
@@ -0,0 +1,90 @@
+package com.arcbank.cbs.transaccion.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Bulkhead y circuit breaker de los clientes Feign ({@code app.resiliencia}).
+ * Cada método hereda los valores de su cliente y el cliente los de
+ * {@code defecto}; los métodos se nombran en kebab-case
+ * ({@code aplicar-movimiento}) bajo el nombre del {@code @FeignClient}.
+ * Los clientes que no aparecen en {@code clientes} no se protegen.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.resiliencia")
+public class ResilienciaProperties {
+
+    private Ajustes defecto = new Ajustes();
+    private Map<String, Cliente> clientes = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Ajustes {
+        /** Llamadas simultáneas permitidas (bulkhead). */
+        private Integer concurrencia;
+        /** Espera máxima por un lugar en el bulkhead; 0 rechaza de inmediato. */
+        private Long esperaMs;
+        /** readTimeout propio del método; 0 usa el de Feign. */
+        private Long timeoutMs;
+        /** Últimas llamadas que mira el circuito. */
+        private Integer ventana;
+        /** Llamadas en la ventana antes de evaluar los umbrales. */
+        private Integer minimoLlamadas;
+        /** Porcentaje de fallos (5xx, 408, 429, errores de E/S) que abre el circuito. */
+        private Integer umbralFallos;
+        /** Una llamada más lenta que esto cuenta como lenta. */
+        private Long lentaMs;
+        /** Porcentaje de llamadas lentas que abre el circuito. */
+        private Integer umbralLentas;
+        /** Tiempo abierto antes de dejar pasar llamadas de prueba. */
+        private Long abiertoMs;
+        /** Llamadas de prueba que deben salir bien para cerrar el circuito. */
+        private Integer pruebas;
+
+        /** Estos ajustes con los vacíos tomados de {@code base}. */
+        public Ajustes sobre(Ajustes base) {
+            Ajustes r = new Ajustes();
+            r.concurrencia = concurrencia != null ? concurrencia : base.concurrencia;
+            r.esperaMs = esperaMs != null ? esperaMs : base.esperaMs;
+            r.timeoutMs = timeoutMs != null ? timeoutMs : base.timeoutMs;
+            r.ventana = ventana != null ? ventana : base.ventana;
+            r.minimoLlamadas = minimoLlamadas != null ? minimoLlamadas : base.minimoLlamadas;
+            r.umbralFallos = umbralFallos != null ? umbralFallos : base.umbralFallos;
+            r.lentaMs = lentaMs != null ? lentaMs : base.lentaMs;
+            r.umbralLentas = umbralLentas != null ? umbralLentas : base.umbralLentas;
+            r.abiertoMs = abiertoMs != null ? abiertoMs : base.abiertoMs;
+            r.pruebas = pruebas != null ? pruebas : base.pruebas;
+            return r;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Cliente extends Ajustes {
+        /** Código de {@code DependenciaNoDisponibleException} para este cliente. */
+        private String codigo = "DEPENDENCIA_NO_DISPONIBLE";
+        private Map<String, Ajustes> metodos = new HashMap<>();
+    }
+
+    /** Valores de respaldo de {@code defecto}, para lo que no venga configurado. */
+    public static Ajustes valoresBase() {
+        Ajustes a = new Ajustes();
+        a.concurrencia = 100;
+        a.esperaMs = 0L;
+        a.timeoutMs = 0L;
+        a.ventana = 50;
+        a.minimoLlamadas = 20;
+        a.umbralFallos = 50;
+        a.lentaMs = 5000L;
+        a.umbralLentas = 80;
+        a.abiertoMs = 30000L;
+        a.pruebas = 5;
+        return a;
+    }
+}
@@ -0,0 +1,85 @@
+package com.arcbank.cbs.transaccion.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * El esquema lo mantienen los scripts de db/migration aplicados a mano
+ * (ddl-auto: update no cambia tipos ni crea lo que no es una entidad). Al
+ * arrancar se comprueba lo que este código da por hecho de V8 y de V10 a V13;
+ * si falta algo la aplicación no levanta, en lugar de fallar después en
+ * cada escritura o de mover saldo sin poder registrarlo.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.esquema.verificar", havingValue = "true", matchIfMissing = true)
+public class VerificacionEsquema {
+
+    /** Igual al allocationSize de la secuencia en {@code Transaccion}. */
+    static final long INCREMENTO_SECUENCIA = 50;
+
+    private final JdbcTemplate jdbc;
+
+    @PostConstruct
+    public void verificar() {
+        List<String> faltantes = new ArrayList<>();
+
+        Long incremento = jdbc.query("""
+                SELECT increment_by FROM pg_sequences
+                WHERE schemaname = 'public' AND sequencename = 'Transaccion_IdTransaccion_seq'
+                """, rs -> rs.next() ? rs.getLong(1) : null);
+        if (incremento == null || incremento != INCREMENTO_SECUENCIA) {
+            faltantes.add("V8__secuencia_transaccion (Transaccion_IdTransaccion_seq con INCREMENT BY "
+                    + INCREMENTO_SECUENCIA + ", actual: " + incremento + ")");
+        }
+
+        if (!existe("ReferenciaTransaccion")) {
+            faltantes.add("V10__particiones_transaccion (no existe ReferenciaTransaccion)");
+        }
+
+        for (String columna : List.of("Estado", "TipoOperacion")) {
+            List<String> tipo = jdbc.queryForList("""
+                    SELECT data_type FROM information_schema.columns
+                    WHERE table_schema = 'public' AND table_name = 'Transaccion' AND column_name = ?
+                    """, String.class, columna);
+            if (tipo.isEmpty() || !"smallint".equals(tipo.get(0))) {
+                faltantes.add("V11__estado_tipo_smallint (Transaccion.\"" + columna + "\" es "
+                        + (tipo.isEmpty() ? "inexistente" : tipo.get(0)) + ", se espera smallint)");
+            }
+        }
+
+        // Las consultas de estado leen MensajeSwitch aunque la bandeja esté apagada
+        for (String indice : List.of("IX_MensajeSwitch_ProximoIntento", "IX_MensajeSwitch_Clave",
+                "IX_MensajeSwitch_Referencia")) {
+            if (!existe(indice)) {
+                faltantes.add("V12__mensajes_switch (no existe " + indice + ")");
+            }
+        }
+
+        // Sin V13 las claves vencidas se seguirían borrando y una referencia reutilizada no se detectaría
+        if (!existe("IX_ClaveIdempotencia_ConRespuesta")) {
+            faltantes.add("V13__claves_idempotencia_permanentes (no existe IX_ClaveIdempotencia_ConRespuesta)");
+        }
+
+        if (!faltantes.isEmpty()) {
+            throw new IllegalStateException("El esquema de base de datos no está al día. Aplique en orden los "
+                    + "scripts de db/migration (V8 a V13) antes de desplegar esta versión. Pendiente: "
+                    + String.join("; ", faltantes));
+        }
+        log.info("Esquema de base de datos verificado (V8, V10 a V13)");
+    }
+
+    private boolean existe(String relacion) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT to_regclass('public.\"" + relacion + "\"') IS NOT NULL", Boolean.class));
+    }
+}
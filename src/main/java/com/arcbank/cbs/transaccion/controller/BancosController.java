@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.arcbank.cbs.transaccion.client.SwitchClient;
+import com.arcbank.cbs.transaccion.service.CoberturaSwitch;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -23,6 +24,7 @@ import lombok.extern.slf4j.Slf4j;
 public class BancosController {
 
     private final SwitchClient switchClient;
+    private final CoberturaSwitch cobertura;
 
     private static final List<Map<String, Object>> BANCOS_DISPONIBLES = List.of(
             Map.of("id", "ARCBANK", "nombre", "Banco Arcbank", "codigo", "ARCBANK"),
@@ -34,7 +36,7 @@ public class BancosController {
     public ResponseEntity<?> listarBancos() {
         try {
             log.info("[BANTEC] Consultando lista de bancos al Switch via APIM");
-            List<Map<String, Object>> bancos = switchClient.obtenerBancos();
+            List<Map<String, Object>> bancos = cobertura.ejecutar("obtener-bancos", switchClient::obtenerBancos);
             return ResponseEntity.ok(Map.of(
                     "bancos", bancos,
                     "total", bancos.size()));
@@ -1,17 +1,28 @@
 package com.arcbank.cbs.transaccion.controller;
 
+import com.arcbank.cbs.transaccion.dto.FiltroHistorialDTO;
+import com.arcbank.cbs.transaccion.dto.PaginaHistorialDTO;
 import com.arcbank.cbs.transaccion.dto.RefoundRequestDTO;
 import com.arcbank.cbs.transaccion.dto.TransaccionRequestDTO;
 import com.arcbank.cbs.transaccion.dto.TransaccionResponseDTO;
+import com.arcbank.cbs.transaccion.service.ExtractoCuentaService;
+import com.arcbank.cbs.transaccion.service.PlazoOperacion;
 import com.arcbank.cbs.transaccion.service.TransaccionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @CrossOrigin(origins = "*")
@@ -22,11 +33,19 @@ import java.util.List;
 public class Controller {
 
     private final TransaccionService transaccionService;
+    private final ExtractoCuentaService extractoCuentaService;
 
     @PostMapping
     @Operation(summary = "Ejecutar transacción financiera")
-    public ResponseEntity<TransaccionResponseDTO> crear(@Valid @RequestBody TransaccionRequestDTO request) {
-        return new ResponseEntity<>(transaccionService.crearTransaccion(request), HttpStatus.CREATED);
+    public ResponseEntity<TransaccionResponseDTO> crear(@Valid @RequestBody TransaccionRequestDTO request,
+            @RequestHeader(value = PlazoOperacion.CABECERA, required = false) Long plazoMs) {
+        // El plazo de quien llama acota el configurado para la operación
+        TransaccionResponseDTO respuesta = PlazoOperacion.ejecutar(plazoMs,
+                () -> transaccionService.crearTransaccion(request));
+        // Enviada por la bandeja o el completador: aceptada, el estado final se consulta por referencia.
+        // Una PENDIENTE del camino síncrono conserva el 201 de siempre.
+        HttpStatus status = respuesta.isAsincrona() ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+        return new ResponseEntity<>(respuesta, status);
     }
 
     @GetMapping("/cuenta/{idCuenta}")
@@ -35,6 +54,49 @@ public class Controller {
         return ResponseEntity.ok(transaccionService.obtenerPorCuenta(idCuenta));
     }
 
+    @GetMapping("/cuenta/{idCuenta}/historial")
+    @Operation(summary = "Historial paginado por cuenta, del más reciente al más antiguo")
+    public ResponseEntity<PaginaHistorialDTO> historialPorCuenta(@PathVariable Integer idCuenta,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) String tipoOperacion,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) BigDecimal montoMinimo,
+            @RequestParam(required = false) BigDecimal montoMaximo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamano) {
+        FiltroHistorialDTO filtro = FiltroHistorialDTO.builder()
+                .desde(desde)
+                .hasta(hasta)
+                .tipoOperacion(tipoOperacion)
+                .estado(estado)
+                .montoMinimo(montoMinimo)
+                .montoMaximo(montoMaximo)
+                .build();
+        return ResponseEntity.ok(transaccionService.obtenerHistorial(idCuenta, filtro, cursor, tamano));
+    }
+
+    @GetMapping("/cuenta/{idCuenta}/extracto")
+    @Operation(summary = "Extracto de la cuenta en CSV o NDJSON, transmitido por streaming")
+    public ResponseEntity<StreamingResponseBody> extractoPorCuenta(@PathVariable Integer idCuenta,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(defaultValue = "CSV") ExtractoCuentaService.Formato formato) {
+        // Validar antes de empezar a escribir: después ya no se puede responder 400
+        extractoCuentaService.validar(idCuenta, desde, hasta);
+
+        boolean csv = formato == ExtractoCuentaService.Formato.CSV;
+        String archivo = "extracto-" + idCuenta + "-" + desde.toLocalDate() + "-" + hasta.toLocalDate()
+                + (csv ? ".csv" : ".ndjson");
+        StreamingResponseBody cuerpo = salida -> extractoCuentaService.exportar(idCuenta, desde, hasta, formato,
+                salida);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archivo + "\"")
+                .body(cuerpo);
+    }
+
     @PostMapping("/reverso")
     @Operation(summary = "Solicitar reverso de transacción")
     public ResponseEntity<Object> solicitarReverso(@Valid @RequestBody RefoundRequestDTO request) {
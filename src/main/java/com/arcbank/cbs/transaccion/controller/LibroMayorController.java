@@ -0,0 +1,50 @@
+package com.arcbank.cbs.transaccion.controller;
+
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.arcbank.cbs.transaccion.dto.AsientoContableDTO;
+import com.arcbank.cbs.transaccion.dto.SaldoLocalDTO;
+import com.arcbank.cbs.transaccion.service.LibroMayorService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/libro-mayor")
+@RequiredArgsConstructor
+@Tag(name = "Libro Mayor", description = "Asientos contables y saldos materializados localmente")
+public class LibroMayorController {
+
+    private final LibroMayorService libroMayorService;
+
+    @GetMapping("/cuentas/{idCuenta}/saldo")
+    @Operation(summary = "Saldo materializado de la cuenta")
+    public ResponseEntity<SaldoLocalDTO> obtenerSaldo(@PathVariable Integer idCuenta) {
+        return ResponseEntity.ok(libroMayorService.obtenerSaldo(idCuenta));
+    }
+
+    @GetMapping("/cuentas/{idCuenta}/asientos")
+    @Operation(summary = "Asientos de la cuenta, del más reciente al más antiguo")
+    public ResponseEntity<Page<AsientoContableDTO>> obtenerAsientos(@PathVariable Integer idCuenta,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "50") int tamano) {
+        return ResponseEntity.ok(libroMayorService.obtenerAsientos(idCuenta, pagina, tamano));
+    }
+
+    @GetMapping("/saldos")
+    @Operation(summary = "Saldos materializados por bloques para conciliación con ms-cuentas")
+    public ResponseEntity<List<SaldoLocalDTO>> listarSaldos(
+            @RequestParam(required = false) Integer desdeIdCuenta,
+            @RequestParam(defaultValue = "500") int limite) {
+        return ResponseEntity.ok(libroMayorService.listarSaldos(desdeIdCuenta, limite));
+    }
+}
@@ -2,6 +2,7 @@ package com.arcbank.cbs.transaccion.controller;
 
 import com.arcbank.cbs.transaccion.client.SwitchClient;
 import com.arcbank.cbs.transaccion.dto.SwitchTransferResponse;
+import com.arcbank.cbs.transaccion.service.ConsultaEstadoSwitch;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -16,12 +17,13 @@ import org.springframework.web.bind.annotation.*;
 public class SwitchProxyController {
 
     private final SwitchClient switchClient;
+    private final ConsultaEstadoSwitch consultaEstadoSwitch;
 
     @GetMapping("/transfers/{instructionId}")
     @Operation(summary = "Consultar estado de transferencia en Switch")
     public ResponseEntity<SwitchTransferResponse> consultarEstadoTransferencia(@PathVariable String instructionId) {
-        // Delegamos la consulta al Feign Client que ya tiene mTLS configurado
-        SwitchTransferResponse response = switchClient.consultarEstadoTransferencia(instructionId);
+        // Consultas simultáneas del mismo instructionId comparten una sola llamada al Switch
+        SwitchTransferResponse response = consultaEstadoSwitch.consultar(instructionId);
         return ResponseEntity.ok(response);
     }
 
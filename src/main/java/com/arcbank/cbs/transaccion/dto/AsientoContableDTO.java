@@ -0,0 +1,23 @@
+package com.arcbank.cbs.transaccion.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsientoContableDTO {
+    private Long idAsiento;
+    private Integer idTransaccion;
+    private Integer idCuenta;
+    private String tipo;
+    private BigDecimal monto;
+    private BigDecimal saldoResultante;
+    private LocalDateTime fechaCreacion;
+}
@@ -0,0 +1,26 @@
+package com.arcbank.cbs.transaccion.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filtros opcionales del historial por cuenta. Los campos nulos no filtran;
+ * los rangos son inclusivos.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroHistorialDTO {
+    private LocalDateTime desde;
+    private LocalDateTime hasta;
+    private String tipoOperacion;
+    private String estado;
+    private BigDecimal montoMinimo;
+    private BigDecimal montoMaximo;
+}
@@ -0,0 +1,23 @@
+package com.arcbank.cbs.transaccion.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Movimiento atómico sobre el saldo de una cuenta en ms-cuentas.
+ * El monto es un delta (positivo = crédito, negativo = débito) y ms-cuentas
+ * lo aplica solo si el saldo resultante no queda por debajo de saldoMinimo;
+ * en caso contrario responde 409 sin modificar la cuenta.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovimientoSaldoDTO {
+    private BigDecimal monto;
+    private BigDecimal saldoMinimo;
+}
@@ -0,0 +1,22 @@
+package com.arcbank.cbs.transaccion.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página del historial, de la más reciente a la más antigua. Para la
+ * siguiente página se envía {@code siguienteCursor} tal cual; es null en la
+ * última.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaHistorialDTO {
+    private List<TransaccionResponseDTO> transacciones;
+    private String siguienteCursor;
+}
@@ -0,0 +1,20 @@
+package com.arcbank.cbs.transaccion.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoLocalDTO {
+    private Integer idCuenta;
+    private BigDecimal saldo;
+    private Long idUltimoAsiento;
+    private LocalDateTime fechaActualizacion;
+}
@@ -3,6 +3,8 @@ package com.arcbank.cbs.transaccion.dto;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -38,4 +40,8 @@ public class TransaccionResponseDTO {
     private String nombreOrigen;
     private String numeroCuentaDestino;
     private String nombreDestino;
+
+    // El resultado llega después de responder (bandeja o completador): el controlador responde 202
+    @JsonIgnore
+    private boolean asincrona;
 }
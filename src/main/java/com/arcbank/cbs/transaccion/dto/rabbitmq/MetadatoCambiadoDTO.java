@@ -0,0 +1,14 @@
+package com.arcbank.cbs.transaccion.dto.rabbitmq;
+
+import lombok.Data;
+
+/**
+ * Aviso de ms-cuentas / ms-clientes de que una cuenta o un cliente cambió.
+ * Basta con los identificadores; el dato nuevo se vuelve a consultar.
+ */
+@Data
+public class MetadatoCambiadoDTO {
+    private Integer idCuenta;
+    private String numeroCuenta;
+    private Integer idCliente;
+}
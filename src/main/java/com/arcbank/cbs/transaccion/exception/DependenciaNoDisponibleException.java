@@ -0,0 +1,50 @@
+package com.arcbank.cbs.transaccion.exception;
+
+/**
+ * Llamada rechazada sin salir del servicio: el circuito de la dependencia
+ * está abierto, su bulkhead está lleno o el plazo de la operación ya se
+ * agotó. Nada llegó al otro lado, así que la operación se puede reintentar
+ * sin riesgo de duplicarla.
+ */
+public class DependenciaNoDisponibleException extends BusinessException {
+
+    public enum Motivo {
+        CIRCUITO_ABIERTO,
+        SATURADA,
+        PLAZO_AGOTADO
+    }
+
+    public static final String PLAZO_AGOTADO = "PLAZO_AGOTADO";
+
+    private final String dependencia;
+    private final Motivo motivo;
+    private final long reintentarEnMs;
+
+    public DependenciaNoDisponibleException(String code, String dependencia, Motivo motivo, long reintentarEnMs) {
+        super(code, switch (motivo) {
+            case CIRCUITO_ABIERTO -> "Servicio " + dependencia + " no disponible temporalmente. Intente nuevamente.";
+            case SATURADA -> "Servicio " + dependencia + " saturado. Intente nuevamente.";
+            case PLAZO_AGOTADO -> "Plazo de la operación agotado antes de llamar a " + dependencia + ".";
+        });
+        this.dependencia = dependencia;
+        this.motivo = motivo;
+        this.reintentarEnMs = reintentarEnMs;
+    }
+
+    /** El plazo de la operación venció antes de llamar a {@code dependencia}. */
+    public static DependenciaNoDisponibleException plazoAgotado(String dependencia) {
+        return new DependenciaNoDisponibleException(PLAZO_AGOTADO, dependencia, Motivo.PLAZO_AGOTADO, 0);
+    }
+
+    public String getDependencia() {
+        return dependencia;
+    }
+
+    public Motivo getMotivo() {
+        return motivo;
+    }
+
+    public long getReintentarEnMs() {
+        return reintentarEnMs;
+    }
+}
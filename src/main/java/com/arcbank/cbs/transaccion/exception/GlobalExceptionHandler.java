@@ -1,6 +1,7 @@
 package com.arcbank.cbs.transaccion.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -24,6 +25,23 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(DependenciaNoDisponibleException.class)
+    public ResponseEntity<ErrorResponse> handleDependenciaNoDisponible(DependenciaNoDisponibleException ex) {
+        log.warn("Dependencia no disponible ({}): {}", ex.getMotivo(), ex.getMessage());
+        ErrorResponse error = ErrorResponse.builder()
+                .mensaje(ex.getMessage())
+                .codigo(ex.getCode())
+                .fecha(LocalDateTime.now())
+                .build();
+        if (ex.getMotivo() == DependenciaNoDisponibleException.Motivo.PLAZO_AGOTADO) {
+            return new ResponseEntity<>(error, HttpStatus.GATEWAY_TIMEOUT);
+        }
+        long segundos = Math.max(1, (ex.getReintentarEnMs() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(segundos))
+                .body(error);
+    }
+
     @ExceptionHandler(NoResourceFoundException.class)
     public ResponseEntity<ErrorResponse> handleResourceNotFound(NoResourceFoundException ex) {
         log.debug("Recurso no encontrado: {}", ex.getResourcePath());
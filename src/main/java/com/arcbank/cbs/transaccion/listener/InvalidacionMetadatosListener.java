@@ -0,0 +1,31 @@
+package com.arcbank.cbs.transaccion.listener;
+
+import com.arcbank.cbs.transaccion.dto.rabbitmq.MetadatoCambiadoDTO;
+import com.arcbank.cbs.transaccion.service.CacheMetadatosCuenta;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Descarta de {@link CacheMetadatosCuenta} las cuentas y clientes que sus
+ * dueños anuncian como modificados. Cada instancia tiene su propia cola
+ * temporal, así que todas reciben el aviso.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.cache.invalidacion.enabled", havingValue = "true", matchIfMissing = true)
+public class InvalidacionMetadatosListener {
+
+    private final CacheMetadatosCuenta cacheMetadatosCuenta;
+
+    @RabbitListener(queues = "#{colaInvalidacionMetadatos.name}")
+    public void alCambiarMetadato(MetadatoCambiadoDTO evento) {
+        log.debug("Invalidando metadatos: cuenta={} numero={} cliente={}",
+                evento.getIdCuenta(), evento.getNumeroCuenta(), evento.getIdCliente());
+        cacheMetadatosCuenta.invalidarCuenta(evento.getIdCuenta(), evento.getNumeroCuenta());
+        cacheMetadatosCuenta.invalidarCliente(evento.getIdCliente());
+    }
+}
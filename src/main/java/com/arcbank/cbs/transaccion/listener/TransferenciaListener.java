@@ -4,6 +4,9 @@ import com.arcbank.cbs.transaccion.client.SwitchClient;
 import com.arcbank.cbs.transaccion.dto.MensajeISO;
 import com.arcbank.cbs.transaccion.dto.StatusReportDTO;
 import com.arcbank.cbs.transaccion.exception.BusinessException;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+import com.arcbank.cbs.transaccion.model.TipoMensajeSwitch;
+import com.arcbank.cbs.transaccion.service.BandejaSalidaSwitch;
 import com.arcbank.cbs.transaccion.service.TransaccionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +14,7 @@ import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -21,10 +25,15 @@ public class TransferenciaListener {
 
     private final TransaccionService transaccionService;
     private final SwitchClient switchClient;
+    private final BandejaSalidaSwitch bandejaSalidaSwitch;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${app.banco.codigo:BANTEC}")
     private String bancoCodigo;
 
+    @Value("${app.switch.bandeja.enabled:false}")
+    private boolean bandejaSwitch;
+
     @RabbitListener(queues = "${BANK_QUEUE_NAME:q.bank.BANTEC.in}")
     public void recibirTransferencia(MensajeISO mensaje) {
         String instructionId = mensaje.getBody().getInstructionId();
@@ -33,12 +42,18 @@ public class TransferenciaListener {
                 mensaje.getBody().getAmount().getValue());
 
         try {
+            if (bandejaSwitch) {
+                // El abono y su callback de ÉXITO se confirman en la misma transacción
+                transactionTemplate.executeWithoutResult(status -> {
+                    procesar(mensaje);
+                    encolarCallback(instructionId, construirCallback(instructionId, "COMPLETED", null, null));
+                });
+                log.info("Transacción procesada exitosamente: {}", instructionId);
+                return;
+            }
+
             // 1. Procesar la transferencia (Validación + Depósito)
-            transaccionService.procesarTransferenciaEntrante(
-                    instructionId,
-                    mensaje.getBody().getCreditor().getAccountId(),
-                    mensaje.getBody().getAmount().getValue(),
-                    mensaje.getHeader().getOriginatingBankId());
+            procesar(mensaje);
 
             log.info("Transacción procesada exitosamente: {}", instructionId);
 
@@ -46,6 +61,11 @@ public class TransferenciaListener {
             StatusReportDTO callback = construirCallback(instructionId, "COMPLETED", null, null);
             switchClient.enviarCallback(callback);
 
+        } catch (DependenciaNoDisponibleException e) {
+            // Nada se aplicó: no es un rechazo de negocio, RabbitMQ reintenta con backoff
+            log.warn("Transferencia {} en espera, dependencia no disponible: {}", instructionId, e.getMessage());
+            throw e;
+
         } catch (BusinessException e) {
             log.error("Error de negocio procesando transferencia: {}", e.getMessage());
 
@@ -58,7 +78,11 @@ public class TransferenciaListener {
             // 3. Enviar Callback de RECHAZO
             StatusReportDTO callback = construirCallback(instructionId, "REJECTED", reasonCode, e.getMessage());
             try {
-                switchClient.enviarCallback(callback);
+                if (bandejaSwitch) {
+                    transactionTemplate.executeWithoutResult(status -> encolarCallback(instructionId, callback));
+                } else {
+                    switchClient.enviarCallback(callback);
+                }
             } catch (Exception ex) {
                 log.error("Error enviando callback de rechazo al Switch: {}", ex.getMessage());
                 // No re-lanzamos excepción aquí para evitar bucle infinito si el switch está
@@ -80,6 +104,18 @@ public class TransferenciaListener {
         }
     }
 
+    private void procesar(MensajeISO mensaje) {
+        transaccionService.procesarTransferenciaEntrante(
+                mensaje.getBody().getInstructionId(),
+                mensaje.getBody().getCreditor().getAccountId(),
+                mensaje.getBody().getAmount().getValue(),
+                mensaje.getHeader().getOriginatingBankId());
+    }
+
+    private void encolarCallback(String instructionId, StatusReportDTO callback) {
+        bandejaSalidaSwitch.encolar(TipoMensajeSwitch.CALLBACK, instructionId, instructionId, callback);
+    }
+
     private StatusReportDTO construirCallback(String instructionId, String status,
             String reasonCode, String reasonDescription) {
         return StatusReportDTO.builder()
@@ -2,6 +2,7 @@ package com.arcbank.cbs.transaccion.mapper;
 
 import com.arcbank.cbs.transaccion.dto.TransaccionRequestDTO;
 import com.arcbank.cbs.transaccion.dto.TransaccionResponseDTO;
+import com.arcbank.cbs.transaccion.model.TipoOperacion;
 import com.arcbank.cbs.transaccion.model.Transaccion;
 import org.springframework.stereotype.Component;
 
@@ -13,7 +14,7 @@ public class TransaccionMapper {
         
         return Transaccion.builder()
                 .referencia(dto.getReferencia())
-                .tipoOperacion(dto.getTipoOperacion())
+                .tipoOperacion(TipoOperacion.desde(dto.getTipoOperacion()))
                 .idCuentaOrigen(dto.getIdCuentaOrigen())
                 .idCuentaDestino(dto.getIdCuentaDestino())
                 .cuentaExterna(dto.getCuentaExterna())
@@ -32,7 +33,7 @@ public class TransaccionMapper {
         return TransaccionResponseDTO.builder()
                 .idTransaccion(entity.getIdTransaccion())
                 .referencia(entity.getReferencia())
-                .tipoOperacion(entity.getTipoOperacion())
+                .tipoOperacion(entity.getTipoOperacion() != null ? entity.getTipoOperacion().name() : null)
                 .idCuentaOrigen(entity.getIdCuentaOrigen())
                 .idCuentaDestino(entity.getIdCuentaDestino())
                 .cuentaExterna(entity.getCuentaExterna())
@@ -42,7 +43,7 @@ public class TransaccionMapper {
                 .fechaCreacion(entity.getFechaCreacion())
                 .descripcion(entity.getDescripcion())
                 .canal(entity.getCanal())
-                .estado(entity.getEstado())
+                .estado(entity.getEstado() != null ? entity.getEstado().name() : null)
                 .build();
     }
 }
\ No newline at end of file
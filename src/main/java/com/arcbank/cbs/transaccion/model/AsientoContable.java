@@ -0,0 +1,60 @@
+package com.arcbank.cbs.transaccion.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Immutable
+@Table(name = "\"AsientoContable\"", schema = "public")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsientoContable {
+
+    public static final String DEBITO = "DEBITO";
+    public static final String CREDITO = "CREDITO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "\"IdAsiento\"")
+    private Long idAsiento;
+
+    @Column(name = "\"IdTransaccion\"", nullable = false)
+    private Integer idTransaccion;
+
+    @Column(name = "\"IdCuenta\"", nullable = false)
+    private Integer idCuenta;
+
+    @Column(name = "\"Tipo\"", nullable = false, length = 7)
+    private String tipo;
+
+    @Column(name = "\"Monto\"", nullable = false, precision = 15, scale = 2)
+    private BigDecimal monto;
+
+    @Column(name = "\"SaldoResultante\"", nullable = false, precision = 15, scale = 2)
+    private BigDecimal saldoResultante;
+
+    @Column(name = "\"FechaCreacion\"", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @PrePersist
+    public void prePersist() {
+        if (this.fechaCreacion == null)
+            this.fechaCreacion = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,45 @@
+package com.arcbank.cbs.transaccion.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Referencia o instructionId ya procesado. Se escribe solo mediante
+ * {@code ClaveIdempotenciaRepository.reclamar} (INSERT ... ON CONFLICT) y
+ * no se borra; al vencer solo se purga la respuesta.
+ */
+@Entity
+@Table(name = "\"ClaveIdempotencia\"", schema = "public")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaveIdempotencia {
+
+    @Id
+    @Column(name = "\"Clave\"", length = 100)
+    private String clave;
+
+    @Column(name = "\"Operacion\"", nullable = false, length = 30)
+    private String operacion;
+
+    @Column(name = "\"IdTransaccion\"")
+    private Integer idTransaccion;
+
+    @Column(name = "\"Respuesta\"", columnDefinition = "TEXT")
+    private String respuesta;
+
+    @Column(name = "\"FechaCreacion\"", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "\"FechaExpiracion\"", nullable = false)
+    private LocalDateTime fechaExpiracion;
+}
@@ -0,0 +1,51 @@
+package com.arcbank.cbs.transaccion.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Estado de una transferencia según el Switch, que responde en inglés o en
+ * español según la versión. Se clasifica una vez al recibir la respuesta en
+ * vez de comparar el texto en cada punto de decisión.
+ */
+public enum EstadoSwitch {
+    /** COMPLETED / EXITOSA. */
+    EXITOSA,
+    /** QUEUED / ACCEPTED: el Switch la aceptó pero aún no la liquidó. */
+    ACEPTADA,
+    /** FAILED / FALLIDA / RECHAZADA. */
+    RECHAZADA,
+    /** Cualquier otro valor, o sin estado. */
+    EN_CURSO;
+
+    private static final Map<String, EstadoSwitch> POR_TEXTO = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        POR_TEXTO.put("COMPLETED", EXITOSA);
+        POR_TEXTO.put("EXITOSA", EXITOSA);
+        POR_TEXTO.put("QUEUED", ACEPTADA);
+        POR_TEXTO.put("ACCEPTED", ACEPTADA);
+        POR_TEXTO.put("FAILED", RECHAZADA);
+        POR_TEXTO.put("FALLIDA", RECHAZADA);
+        POR_TEXTO.put("RECHAZADA", RECHAZADA);
+    }
+
+    public static EstadoSwitch de(String estado) {
+        return estado != null ? POR_TEXTO.getOrDefault(estado, EN_CURSO) : EN_CURSO;
+    }
+
+    /**
+     * EXITOSA o ACEPTADA: el Switch asumió la transferencia y se da por
+     * COMPLETADA. Es el único criterio de éxito en todos los caminos
+     * (envío, consultas, completador y conciliador); una aceptada nunca
+     * expira con reembolso.
+     */
+    public boolean confirmaEnvio() {
+        return this == EXITOSA || this == ACEPTADA;
+    }
+
+    /** EXITOSA o RECHAZADA: el Switch ya no cambiará de opinión (para la caché de consultas). */
+    public boolean esTerminal() {
+        return this == EXITOSA || this == RECHAZADA;
+    }
+}
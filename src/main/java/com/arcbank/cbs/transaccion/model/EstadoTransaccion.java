@@ -0,0 +1,52 @@
+package com.arcbank.cbs.transaccion.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Estado de una transacción. Se guarda como SMALLINT con {@link #codigo}
+ * (V11): los códigos son fijos, no dependen del orden de declaración.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum EstadoTransaccion {
+    PENDIENTE((short) 1),
+    COMPLETADA((short) 2),
+    FALLIDA((short) 3),
+    REVERTIDA((short) 4),
+    REVERSADA((short) 5),
+    DEVUELTA((short) 6);
+
+    private static final EstadoTransaccion[] POR_CODIGO = new EstadoTransaccion[7];
+    private static final Map<String, EstadoTransaccion> POR_NOMBRE = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        for (EstadoTransaccion e : values()) {
+            POR_CODIGO[e.codigo] = e;
+            POR_NOMBRE.put(e.name(), e);
+        }
+    }
+
+    private final short codigo;
+
+    public static EstadoTransaccion deCodigo(short codigo) {
+        EstadoTransaccion e = codigo >= 0 && codigo < POR_CODIGO.length ? POR_CODIGO[codigo] : null;
+        if (e == null) {
+            throw new IllegalArgumentException("Código de estado desconocido: " + codigo);
+        }
+        return e;
+    }
+
+    /** Nombre recibido por la API, sin distinguir mayúsculas; null si no existe. */
+    public static EstadoTransaccion desde(String nombre) {
+        return nombre != null ? POR_NOMBRE.get(nombre) : null;
+    }
+
+    /** Solo PENDIENTE puede cambiar todavía por una respuesta del Switch. */
+    public boolean esFinal() {
+        return this != PENDIENTE;
+    }
+}
@@ -0,0 +1,18 @@
+package com.arcbank.cbs.transaccion.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class EstadoTransaccionConverter implements AttributeConverter<EstadoTransaccion, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(EstadoTransaccion estado) {
+        return estado != null ? estado.getCodigo() : null;
+    }
+
+    @Override
+    public EstadoTransaccion convertToEntityAttribute(Short codigo) {
+        return codigo != null ? EstadoTransaccion.deCodigo(codigo) : null;
+    }
+}
@@ -0,0 +1,76 @@
+package com.arcbank.cbs.transaccion.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Llamada pendiente al Switch (V12), escrita en la misma transacción que
+ * el movimiento que la origina. La envía {@code DespachadorMensajesSwitch}
+ * y se borra al entregarse; mientras exista, los mensajes posteriores con
+ * la misma {@link #clave} esperan.
+ */
+@Entity
+@Table(name = "\"MensajeSwitch\"", schema = "public")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MensajeSwitch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "\"IdMensaje\"")
+    private Long idMensaje;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "\"Tipo\"", nullable = false, length = 20)
+    private TipoMensajeSwitch tipo;
+
+    /** Orden de entrega: un mensaje por clave a la vez (p. ej. la cuenta debitada). */
+    @Column(name = "\"Clave\"", nullable = false, length = 60)
+    private String clave;
+
+    /** Referencia de la transacción o instructionId al que corresponde. */
+    @Column(name = "\"Referencia\"", nullable = false, length = 100)
+    private String referencia;
+
+    /** Cuerpo JSON de la petición al Switch. */
+    @Column(name = "\"Contenido\"", nullable = false, columnDefinition = "TEXT")
+    private String contenido;
+
+    @Column(name = "\"Intentos\"", nullable = false)
+    private int intentos;
+
+    /** Hasta cuándo no se envía: reintento pendiente o reserva de un despachador. */
+    @Column(name = "\"ProximoIntento\"", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "\"UltimoError\"", length = 500)
+    private String ultimoError;
+
+    @Column(name = "\"FechaCreacion\"", nullable = false, updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @PrePersist
+    public void prePersist() {
+        if (this.fechaCreacion == null) {
+            this.fechaCreacion = LocalDateTime.now();
+        }
+        if (this.proximoIntento == null) {
+            this.proximoIntento = this.fechaCreacion;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.arcbank.cbs.transaccion.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "\"SaldoCuenta\"", schema = "public")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoCuenta {
+
+    @Id
+    @Column(name = "\"IdCuenta\"")
+    private Integer idCuenta;
+
+    @Column(name = "\"Saldo\"", nullable = false, precision = 15, scale = 2)
+    private BigDecimal saldo;
+
+    @Column(name = "\"IdUltimoAsiento\"", nullable = false)
+    private Long idUltimoAsiento;
+
+    @Column(name = "\"FechaActualizacion\"", nullable = false)
+    private LocalDateTime fechaActualizacion;
+}
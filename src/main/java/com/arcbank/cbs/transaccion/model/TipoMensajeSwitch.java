@@ -0,0 +1,11 @@
+package com.arcbank.cbs.transaccion.model;
+
+/** Llamada al Switch que representa un {@link MensajeSwitch}. */
+public enum TipoMensajeSwitch {
+    /** POST /transfers de una TRANSFERENCIA_SALIDA ya debitada. */
+    TRANSFERENCIA,
+    /** POST /returns automático tras una transferencia que no se pudo entregar. */
+    DEVOLUCION,
+    /** Callback de estado de una transferencia entrante. */
+    CALLBACK
+}
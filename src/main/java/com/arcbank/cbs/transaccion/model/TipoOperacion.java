@@ -0,0 +1,51 @@
+package com.arcbank.cbs.transaccion.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Tipo de operación de una transacción. Se guarda como SMALLINT con
+ * {@link #codigo} (V11): los códigos son fijos, no dependen del orden de
+ * declaración.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum TipoOperacion {
+    DEPOSITO((short) 1),
+    RETIRO((short) 2),
+    TRANSFERENCIA_INTERNA((short) 3),
+    TRANSFERENCIA_SALIDA((short) 4),
+    TRANSFERENCIA_ENTRADA((short) 5),
+    PAGO_SERVICIOS((short) 6),
+    REVERSO((short) 7),
+    DEVOLUCION_RECIBIDA((short) 8),
+    REVERSO_DEBITO((short) 9);
+
+    private static final TipoOperacion[] POR_CODIGO = new TipoOperacion[10];
+    private static final Map<String, TipoOperacion> POR_NOMBRE = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        for (TipoOperacion t : values()) {
+            POR_CODIGO[t.codigo] = t;
+            POR_NOMBRE.put(t.name(), t);
+        }
+    }
+
+    private final short codigo;
+
+    public static TipoOperacion deCodigo(short codigo) {
+        TipoOperacion t = codigo >= 0 && codigo < POR_CODIGO.length ? POR_CODIGO[codigo] : null;
+        if (t == null) {
+            throw new IllegalArgumentException("Código de tipo de operación desconocido: " + codigo);
+        }
+        return t;
+    }
+
+    /** Nombre recibido por la API, sin distinguir mayúsculas; null si no existe. */
+    public static TipoOperacion desde(String nombre) {
+        return nombre != null ? POR_NOMBRE.get(nombre) : null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.arcbank.cbs.transaccion.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class TipoOperacionConverter implements AttributeConverter<TipoOperacion, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(TipoOperacion tipo) {
+        return tipo != null ? tipo.getCodigo() : null;
+    }
+
+    @Override
+    public TipoOperacion convertToEntityAttribute(Short codigo) {
+        return codigo != null ? TipoOperacion.deCodigo(codigo) : null;
+    }
+}
@@ -4,11 +4,13 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -23,8 +25,15 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class Transaccion {
 
+    /**
+     * Secuencia del SERIAL original con optimizador pooled: un nextval cada
+     * 50 filas y los INSERT quedan diferidos al flush, donde se agrupan en
+     * lotes JDBC. El incremento de la secuencia debe coincidir (V8).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaccion_seq")
+    @SequenceGenerator(name = "transaccion_seq", schema = "public",
+            sequenceName = "\"Transaccion_IdTransaccion_seq\"", allocationSize = 50)
     @Column(name = "\"IdTransaccion\"")
     private Integer idTransaccion;
 
@@ -40,8 +49,9 @@ public class Transaccion {
     @Column(name = "\"IdTransaccionReversa\"")
     private Integer idTransaccionReversa;
 
-    @Column(name = "\"TipoOperacion\"", nullable = false, length = 30)
-    private String tipoOperacion;
+    @Convert(converter = TipoOperacionConverter.class)
+    @Column(name = "\"TipoOperacion\"", nullable = false)
+    private TipoOperacion tipoOperacion;
 
     @Column(name = "\"IdCuentaOrigen\"")
     private Integer idCuentaOrigen;
@@ -67,6 +77,18 @@ public class Transaccion {
     @Column(name = "\"Beneficiario\"", length = 100)
     private String beneficiario;
 
+    @Column(name = "\"NumeroCuentaOrigen\"", length = 50)
+    private String numeroCuentaOrigen;
+
+    @Column(name = "\"NombreOrigen\"", length = 150)
+    private String nombreOrigen;
+
+    @Column(name = "\"NumeroCuentaDestino\"", length = 50)
+    private String numeroCuentaDestino;
+
+    @Column(name = "\"NombreDestino\"", length = 150)
+    private String nombreDestino;
+
     @Column(name = "\"FechaCreacion\"", nullable = false, updatable = false)
     private LocalDateTime fechaCreacion;
 
@@ -79,13 +101,14 @@ public class Transaccion {
     @Column(name = "\"IdSucursal\"")
     private Integer idSucursal;
 
-    @Column(name = "\"Estado\"", nullable = false, length = 20)
-    private String estado;
+    @Convert(converter = EstadoTransaccionConverter.class)
+    @Column(name = "\"Estado\"", nullable = false)
+    private EstadoTransaccion estado;
 
     @PrePersist
     public void prePersist() {
         if (this.estado == null)
-            this.estado = "PENDIENTE";
+            this.estado = EstadoTransaccion.PENDIENTE;
         if (this.canal == null)
             this.canal = "WEB";
         if (this.fechaCreacion == null)
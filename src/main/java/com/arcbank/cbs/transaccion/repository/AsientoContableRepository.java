@@ -0,0 +1,12 @@
+package com.arcbank.cbs.transaccion.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.arcbank.cbs.transaccion.model.AsientoContable;
+
+public interface AsientoContableRepository extends JpaRepository<AsientoContable, Long> {
+
+    Page<AsientoContable> findByIdCuentaOrderByIdAsientoDesc(Integer idCuenta, Pageable pageable);
+}
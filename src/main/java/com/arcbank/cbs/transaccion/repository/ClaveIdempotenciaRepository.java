@@ -0,0 +1,53 @@
+package com.arcbank.cbs.transaccion.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.arcbank.cbs.transaccion.model.ClaveIdempotencia;
+
+public interface ClaveIdempotenciaRepository extends JpaRepository<ClaveIdempotencia, String> {
+
+    /**
+     * Ocupa la clave. Retorna 1 si quedó reclamada por esta transacción y 0
+     * si ya existía; si otra transacción la tiene sin confirmar, espera a
+     * que termine. Es la única comprobación de duplicados antes de mover
+     * saldo (las claves no se borran): no hay lectura previa que un filtro
+     * en memoria pudiera ahorrar.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO public."ClaveIdempotencia" ("Clave", "Operacion", "FechaCreacion", "FechaExpiracion")
+            VALUES (:clave, :operacion, CURRENT_TIMESTAMP, :expiracion)
+            ON CONFLICT ("Clave") DO NOTHING
+            """, nativeQuery = true)
+    int reclamar(@Param("clave") String clave, @Param("operacion") String operacion,
+            @Param("expiracion") LocalDateTime expiracion);
+
+    @Modifying
+    @Query("""
+            UPDATE ClaveIdempotencia c SET c.idTransaccion = :idTransaccion, c.respuesta = :respuesta
+            WHERE c.clave = :clave
+            """)
+    int registrarResultado(@Param("clave") String clave, @Param("idTransaccion") Integer idTransaccion,
+            @Param("respuesta") String respuesta);
+
+    /**
+     * Quita la respuesta guardada de hasta {@code lote} claves vencidas; la
+     * clave se conserva. Usa IX_ClaveIdempotencia_ConRespuesta.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE public."ClaveIdempotencia" SET "Respuesta" = NULL
+            WHERE "Clave" IN (
+                SELECT "Clave" FROM public."ClaveIdempotencia"
+                WHERE "FechaExpiracion" < :ahora AND "Respuesta" IS NOT NULL
+                LIMIT :lote)
+            """, nativeQuery = true)
+    int purgarRespuestasVencidas(@Param("ahora") LocalDateTime ahora, @Param("lote") int lote);
+}
@@ -0,0 +1,56 @@
+package com.arcbank.cbs.transaccion.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.arcbank.cbs.transaccion.model.MensajeSwitch;
+
+public interface MensajeSwitchRepository extends JpaRepository<MensajeSwitch, Long> {
+
+    /**
+     * Reserva hasta {@code lote} mensajes vencidos, solo el más antiguo de
+     * cada clave, corriendo su ProximoIntento hasta {@code hasta}. SKIP
+     * LOCKED deja a otros despachadores las filas que este tiene tomadas;
+     * la reserva vence sola si el proceso muere antes de resolverla.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE public."MensajeSwitch" m
+            SET "ProximoIntento" = :hasta, "Intentos" = m."Intentos" + 1
+            WHERE m."IdMensaje" IN (
+                SELECT c."IdMensaje" FROM public."MensajeSwitch" c
+                WHERE c."ProximoIntento" <= :ahora
+                  AND NOT EXISTS (SELECT 1 FROM public."MensajeSwitch" p
+                                  WHERE p."Clave" = c."Clave" AND p."IdMensaje" < c."IdMensaje")
+                ORDER BY c."IdMensaje"
+                LIMIT :lote
+                FOR UPDATE SKIP LOCKED)
+            RETURNING m.*
+            """, nativeQuery = true)
+    List<MensajeSwitch> reservar(@Param("ahora") LocalDateTime ahora, @Param("hasta") LocalDateTime hasta,
+            @Param("lote") int lote);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE MensajeSwitch m SET m.proximoIntento = :proximoIntento, m.ultimoError = :error
+            WHERE m.idMensaje = :id
+            """)
+    int reprogramar(@Param("id") Long id, @Param("proximoIntento") LocalDateTime proximoIntento,
+            @Param("error") String error);
+
+    /** Algún mensaje de la transacción sigue en la bandeja (en espera, en vuelo o reintentándose). */
+    boolean existsByReferencia(String referencia);
+
+    /** Entregado o descartado; dentro de la transacción que aplica su efecto. */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MensajeSwitch m WHERE m.idMensaje = :id")
+    int borrar(@Param("id") Long id);
+}
@@ -0,0 +1,35 @@
+package com.arcbank.cbs.transaccion.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.arcbank.cbs.transaccion.model.SaldoCuenta;
+
+public interface SaldoCuentaRepository extends JpaRepository<SaldoCuenta, Integer> {
+
+    /**
+     * Suma el delta al saldo materializado. La primera vez que aparece la
+     * cuenta se toma como saldo el resultante reportado por ms-cuentas.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO public."SaldoCuenta" ("IdCuenta", "Saldo", "IdUltimoAsiento", "FechaActualizacion")
+            VALUES (:idCuenta, :saldoResultante, :idAsiento, CURRENT_TIMESTAMP)
+            ON CONFLICT ("IdCuenta") DO UPDATE SET
+                "Saldo" = public."SaldoCuenta"."Saldo" + :delta,
+                "IdUltimoAsiento" = GREATEST(public."SaldoCuenta"."IdUltimoAsiento", EXCLUDED."IdUltimoAsiento"),
+                "FechaActualizacion" = EXCLUDED."FechaActualizacion"
+            """, nativeQuery = true)
+    void aplicarDelta(@Param("idCuenta") Integer idCuenta,
+            @Param("delta") BigDecimal delta,
+            @Param("saldoResultante") BigDecimal saldoResultante,
+            @Param("idAsiento") Long idAsiento);
+
+    List<SaldoCuenta> findByIdCuentaGreaterThanOrderByIdCuentaAsc(Integer idCuenta, Limit limit);
+}
@@ -0,0 +1,18 @@
+package com.arcbank.cbs.transaccion.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.arcbank.cbs.transaccion.dto.FiltroHistorialDTO;
+import com.arcbank.cbs.transaccion.model.Transaccion;
+
+public interface TransaccionHistorialRepository {
+
+    /**
+     * Movimientos de la cuenta (como origen o destino) ordenados por
+     * (FechaCreacion, IdTransaccion) descendente, estrictamente anteriores al
+     * cursor cuando se indica.
+     */
+    List<Transaccion> buscarHistorial(Integer idCuenta, FiltroHistorialDTO filtro,
+            LocalDateTime antesDeFecha, Integer antesDeId, int limite);
+}
@@ -0,0 +1,103 @@
+package com.arcbank.cbs.transaccion.repository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.arcbank.cbs.transaccion.dto.FiltroHistorialDTO;
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+import com.arcbank.cbs.transaccion.model.EstadoTransaccion;
+import com.arcbank.cbs.transaccion.model.TipoOperacion;
+import com.arcbank.cbs.transaccion.model.Transaccion;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+/**
+ * El OR entre origen y destino impide que Postgres use un índice por
+ * columna; cada rama del UNION ALL recorre su propio índice
+ * (IX_Transaccion_Origen_Fecha / IX_Transaccion_Destino_Fecha) en orden y se
+ * corta en el límite, así que el costo depende del tamaño de la página y no
+ * del histórico de la cuenta.
+ */
+public class TransaccionHistorialRepositoryImpl implements TransaccionHistorialRepository {
+
+    private static final String ORDEN = " ORDER BY \"FechaCreacion\" DESC, \"IdTransaccion\" DESC LIMIT :limite";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Transaccion> buscarHistorial(Integer idCuenta, FiltroHistorialDTO filtro,
+            LocalDateTime antesDeFecha, Integer antesDeId, int limite) {
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        parametros.put("idCuenta", idCuenta);
+        parametros.put("limite", limite);
+        String condiciones = condiciones(filtro, antesDeFecha, antesDeId, parametros);
+
+        // La segunda rama excluye las que ya trajo la primera (origen y destino iguales)
+        String sql = "SELECT * FROM ("
+                + "(SELECT * FROM public.\"Transaccion\" WHERE \"IdCuentaOrigen\" = :idCuenta"
+                + condiciones + ORDEN + ")"
+                + " UNION ALL "
+                + "(SELECT * FROM public.\"Transaccion\" WHERE \"IdCuentaDestino\" = :idCuenta"
+                + " AND \"IdCuentaOrigen\" IS DISTINCT FROM :idCuenta"
+                + condiciones + ORDEN + ")"
+                + ") h" + ORDEN;
+
+        Query query = entityManager.createNativeQuery(sql, Transaccion.class);
+        parametros.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    private static String condiciones(FiltroHistorialDTO filtro, LocalDateTime antesDeFecha, Integer antesDeId,
+            Map<String, Object> parametros) {
+        StringBuilder sql = new StringBuilder();
+        if (antesDeFecha != null && antesDeId != null) {
+            // la comparación de filas no poda particiones; la cota simple sí
+            sql.append(" AND \"FechaCreacion\" <= :antesDeFecha"
+                    + " AND (\"FechaCreacion\", \"IdTransaccion\") < (:antesDeFecha, :antesDeId)");
+            parametros.put("antesDeFecha", antesDeFecha);
+            parametros.put("antesDeId", antesDeId);
+        }
+        if (filtro == null) {
+            return sql.toString();
+        }
+        if (filtro.getDesde() != null) {
+            sql.append(" AND \"FechaCreacion\" >= :desde");
+            parametros.put("desde", filtro.getDesde());
+        }
+        if (filtro.getHasta() != null) {
+            sql.append(" AND \"FechaCreacion\" <= :hasta");
+            parametros.put("hasta", filtro.getHasta());
+        }
+        if (filtro.getTipoOperacion() != null) {
+            sql.append(" AND \"TipoOperacion\" = :tipoOperacion");
+            TipoOperacion tipo = TipoOperacion.desde(filtro.getTipoOperacion());
+            if (tipo == null) {
+                throw new BusinessException("Tipo de operación no válido: " + filtro.getTipoOperacion());
+            }
+            parametros.put("tipoOperacion", tipo.getCodigo());
+        }
+        if (filtro.getEstado() != null) {
+            sql.append(" AND \"Estado\" = :estado");
+            EstadoTransaccion estado = EstadoTransaccion.desde(filtro.getEstado());
+            if (estado == null) {
+                throw new BusinessException("Estado no válido: " + filtro.getEstado());
+            }
+            parametros.put("estado", estado.getCodigo());
+        }
+        if (filtro.getMontoMinimo() != null) {
+            sql.append(" AND \"Monto\" >= :montoMinimo");
+            parametros.put("montoMinimo", filtro.getMontoMinimo());
+        }
+        if (filtro.getMontoMaximo() != null) {
+            sql.append(" AND \"Monto\" <= :montoMaximo");
+            parametros.put("montoMaximo", filtro.getMontoMaximo());
+        }
+        return sql.toString();
+    }
+}
@@ -1,26 +1,203 @@
 package com.arcbank.cbs.transaccion.repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.Lock;
 
 import com.arcbank.cbs.transaccion.model.Transaccion;
 
-public interface TransaccionRepository extends JpaRepository<Transaccion, Integer> {
+public interface TransaccionRepository extends JpaRepository<Transaccion, Integer>, TransaccionHistorialRepository {
 
     @Query("SELECT t FROM Transaccion t WHERE t.idCuentaOrigen = :idCuenta OR t.idCuentaDestino = :idCuenta")
     List<Transaccion> findPorCuenta(@Param("idCuenta") Integer idCuenta);
 
     Optional<Transaccion> findByReferencia(String referencia);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(TransaccionResumen.SELECT + "WHERE t.idCuentaOrigen = :idCuenta OR t.idCuentaDestino = :idCuenta")
+    List<TransaccionResumen> findResumenPorCuenta(@Param("idCuenta") Integer idCuenta);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(TransaccionResumen.SELECT + "WHERE t.idTransaccion = :id")
+    Optional<TransaccionResumen> findResumenPorId(@Param("id") Integer id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(TransaccionResumen.SELECT + "WHERE t.referencia = :referencia")
+    Optional<TransaccionResumen> findResumenPorReferencia(@Param("referencia") String referencia);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(TransaccionResumen.SELECT + "WHERE t.codigoReferencia = :codigoReferencia")
+    Optional<TransaccionResumen> findResumenPorCodigoReferencia(@Param("codigoReferencia") String codigoReferencia);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT t FROM Transaccion t WHERE t.referencia = :referencia")
     Optional<Transaccion> findPorReferenciaForUpdate(@Param("referencia") String referencia);
 
     Optional<Transaccion> findByCodigoReferencia(String codigoReferencia);
+
+    /**
+     * Bloquea varias transacciones a la vez, siempre en el mismo orden para
+     * no cruzarse con otro lote que bloquee las mismas filas.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaccion t WHERE t.referencia IN :referencias ORDER BY t.idTransaccion")
+    List<Transaccion> findPorReferenciasForUpdate(@Param("referencias") Collection<String> referencias);
+
+    /**
+     * Transferencias de salida PENDIENTE por keyset (FechaCreacion, IdTransaccion);
+     * usa el índice parcial IX_Transaccion_Pendientes. La cota inferior de
+     * fecha descarta las particiones anteriores al cursor. Las que aún tienen
+     * su envío en la bandeja (MensajeSwitch) no se consultan: el Switch
+     * todavía no las conoce.
+     */
+    @Query("""
+            SELECT t.idTransaccion AS idTransaccion, t.referencia AS referencia, t.fechaCreacion AS fechaCreacion
+            FROM Transaccion t
+            WHERE t.estado = com.arcbank.cbs.transaccion.model.EstadoTransaccion.PENDIENTE
+              AND t.tipoOperacion = com.arcbank.cbs.transaccion.model.TipoOperacion.TRANSFERENCIA_SALIDA
+              AND t.fechaCreacion >= :desdeFecha
+              AND (t.fechaCreacion > :desdeFecha OR t.idTransaccion > :desdeId)
+              AND NOT EXISTS (SELECT 1 FROM MensajeSwitch m WHERE m.referencia = t.referencia)
+            ORDER BY t.fechaCreacion, t.idTransaccion
+            """)
+    List<PendienteSalida> findPendientesSalida(@Param("desdeFecha") LocalDateTime desdeFecha,
+            @Param("desdeId") Integer desdeId, Limit limit);
+
+    /**
+     * Filas que aún necesitan consultar ms-cuentas o ms-clientes para mostrar
+     * sus contrapartes, por keyset de IdTransaccion; usa
+     * IX_Transaccion_Sin_Contrapartes.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(TransaccionResumen.SELECT + """
+            WHERE t.idTransaccion > :desdeId
+              AND ((t.idCuentaOrigen IS NOT NULL AND t.numeroCuentaOrigen IS NULL)
+                OR (t.idCuentaDestino IS NOT NULL AND t.numeroCuentaDestino IS NULL))
+            ORDER BY t.idTransaccion
+            """)
+    List<TransaccionResumen> findResumenSinContrapartes(@Param("desdeId") Integer desdeId, Limit limit);
+
+    /**
+     * Completa las contrapartes de una fila sin pisar las que ya tenga. No
+     * toca el resto de columnas, así que no compite con cambios de estado
+     * concurrentes.
+     */
+    @Modifying
+    @Query("""
+            UPDATE Transaccion t
+            SET t.numeroCuentaOrigen = COALESCE(t.numeroCuentaOrigen, :numeroCuentaOrigen),
+                t.nombreOrigen = COALESCE(t.nombreOrigen, :nombreOrigen),
+                t.numeroCuentaDestino = COALESCE(t.numeroCuentaDestino, :numeroCuentaDestino),
+                t.nombreDestino = COALESCE(t.nombreDestino, :nombreDestino)
+            WHERE t.idTransaccion = :id
+            """)
+    int completarContrapartes(@Param("id") Integer id,
+            @Param("numeroCuentaOrigen") String numeroCuentaOrigen, @Param("nombreOrigen") String nombreOrigen,
+            @Param("numeroCuentaDestino") String numeroCuentaDestino, @Param("nombreDestino") String nombreDestino);
+
+    /**
+     * Movimientos de la cuenta en [desde, hasta) para el extracto, en orden
+     * cronológico. Proyección sin entidades administradas y lectura por
+     * cursor del servidor: hay que consumir el stream dentro de una
+     * transacción y cerrarlo.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query(value = """
+            SELECT * FROM (
+                SELECT t."IdTransaccion" AS "idTransaccion", t."Referencia" AS "referencia",
+                       t."TipoOperacion" AS "tipoOperacion", t."IdCuentaOrigen" AS "idCuentaOrigen",
+                       t."IdCuentaDestino" AS "idCuentaDestino", t."CuentaExterna" AS "cuentaExterna",
+                       t."IdBancoExterno" AS "idBancoExterno", t."Beneficiario" AS "beneficiario",
+                       t."Monto" AS "monto", t."SaldoResultante" AS "saldoResultante",
+                       t."SaldoResultanteDestino" AS "saldoResultanteDestino",
+                       t."FechaCreacion" AS "fechaCreacion", t."Descripcion" AS "descripcion",
+                       t."Canal" AS "canal", t."Estado" AS "estado",
+                       t."NumeroCuentaOrigen" AS "numeroCuentaOrigen", t."NombreOrigen" AS "nombreOrigen",
+                       t."NumeroCuentaDestino" AS "numeroCuentaDestino", t."NombreDestino" AS "nombreDestino"
+                FROM public."Transaccion" t
+                WHERE t."IdCuentaOrigen" = :idCuenta
+                  AND t."FechaCreacion" >= :desde AND t."FechaCreacion" < :hasta
+                UNION ALL
+                SELECT t."IdTransaccion", t."Referencia", t."TipoOperacion", t."IdCuentaOrigen",
+                       t."IdCuentaDestino", t."CuentaExterna", t."IdBancoExterno", t."Beneficiario",
+                       t."Monto", t."SaldoResultante", t."SaldoResultanteDestino", t."FechaCreacion",
+                       t."Descripcion", t."Canal", t."Estado", t."NumeroCuentaOrigen", t."NombreOrigen",
+                       t."NumeroCuentaDestino", t."NombreDestino"
+                FROM public."Transaccion" t
+                WHERE t."IdCuentaDestino" = :idCuenta AND t."IdCuentaOrigen" IS DISTINCT FROM :idCuenta
+                  AND t."FechaCreacion" >= :desde AND t."FechaCreacion" < :hasta
+            ) m
+            ORDER BY m."fechaCreacion", m."idTransaccion"
+            """, nativeQuery = true)
+    Stream<MovimientoExtracto> streamMovimientosExtracto(@Param("idCuenta") Integer idCuenta,
+            @Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
+    interface MovimientoExtracto {
+        Integer getIdTransaccion();
+
+        String getReferencia();
+
+        /** Código de {@link com.arcbank.cbs.transaccion.model.TipoOperacion}. */
+        Short getTipoOperacion();
+
+        Integer getIdCuentaOrigen();
+
+        Integer getIdCuentaDestino();
+
+        String getCuentaExterna();
+
+        String getIdBancoExterno();
+
+        String getBeneficiario();
+
+        BigDecimal getMonto();
+
+        BigDecimal getSaldoResultante();
+
+        BigDecimal getSaldoResultanteDestino();
+
+        LocalDateTime getFechaCreacion();
+
+        String getDescripcion();
+
+        String getCanal();
+
+        /** Código de {@link com.arcbank.cbs.transaccion.model.EstadoTransaccion}. */
+        Short getEstado();
+
+        String getNumeroCuentaOrigen();
+
+        String getNombreOrigen();
+
+        String getNumeroCuentaDestino();
+
+        String getNombreDestino();
+    }
+
+    interface PendienteSalida {
+        Integer getIdTransaccion();
+
+        String getReferencia();
+
+        LocalDateTime getFechaCreacion();
+    }
 }
\ No newline at end of file
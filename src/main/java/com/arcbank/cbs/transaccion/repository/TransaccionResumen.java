@@ -0,0 +1,55 @@
+package com.arcbank.cbs.transaccion.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.arcbank.cbs.transaccion.model.EstadoTransaccion;
+import com.arcbank.cbs.transaccion.model.TipoOperacion;
+import com.arcbank.cbs.transaccion.model.Transaccion;
+
+/**
+ * Columnas de {@link Transaccion} que se muestran al cliente. Las consultas
+ * de lectura la construyen directamente (constructor JPQL), sin entidades
+ * administradas ni copias para dirty checking.
+ */
+public record TransaccionResumen(
+        Integer idTransaccion,
+        String referencia,
+        String codigoReferencia,
+        TipoOperacion tipoOperacion,
+        Integer idCuentaOrigen,
+        Integer idCuentaDestino,
+        String cuentaExterna,
+        String idBancoExterno,
+        String beneficiario,
+        BigDecimal monto,
+        BigDecimal saldoResultante,
+        BigDecimal saldoResultanteDestino,
+        LocalDateTime fechaCreacion,
+        String descripcion,
+        String canal,
+        EstadoTransaccion estado,
+        String numeroCuentaOrigen,
+        String nombreOrigen,
+        String numeroCuentaDestino,
+        String nombreDestino) {
+
+    static final String SELECT = """
+            SELECT new com.arcbank.cbs.transaccion.repository.TransaccionResumen(
+                t.idTransaccion, t.referencia, t.codigoReferencia, t.tipoOperacion,
+                t.idCuentaOrigen, t.idCuentaDestino, t.cuentaExterna, t.idBancoExterno, t.beneficiario,
+                t.monto, t.saldoResultante, t.saldoResultanteDestino, t.fechaCreacion,
+                t.descripcion, t.canal, t.estado,
+                t.numeroCuentaOrigen, t.nombreOrigen, t.numeroCuentaDestino, t.nombreDestino)
+            FROM Transaccion t
+            """;
+
+    public static TransaccionResumen de(Transaccion t) {
+        return new TransaccionResumen(t.getIdTransaccion(), t.getReferencia(), t.getCodigoReferencia(),
+                t.getTipoOperacion(), t.getIdCuentaOrigen(), t.getIdCuentaDestino(), t.getCuentaExterna(),
+                t.getIdBancoExterno(), t.getBeneficiario(), t.getMonto(), t.getSaldoResultante(),
+                t.getSaldoResultanteDestino(), t.getFechaCreacion(), t.getDescripcion(), t.getCanal(),
+                t.getEstado(), t.getNumeroCuentaOrigen(), t.getNombreOrigen(), t.getNumeroCuentaDestino(),
+                t.getNombreDestino());
+    }
+}
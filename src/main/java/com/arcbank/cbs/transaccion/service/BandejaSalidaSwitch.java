@@ -0,0 +1,56 @@
+package com.arcbank.cbs.transaccion.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.arcbank.cbs.transaccion.model.MensajeSwitch;
+import com.arcbank.cbs.transaccion.model.TipoMensajeSwitch;
+import com.arcbank.cbs.transaccion.repository.MensajeSwitchRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Bandeja de salida hacia el Switch: las llamadas se guardan en la
+ * transacción del movimiento y las entrega {@link DespachadorMensajesSwitch}
+ * después del commit. Si la transacción se deshace, el mensaje tampoco
+ * existe; si el proceso cae tras el commit, el mensaje sigue en la tabla.
+ */
+@Component
+@RequiredArgsConstructor
+public class BandejaSalidaSwitch {
+
+    private final MensajeSwitchRepository mensajeSwitchRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void encolar(TipoMensajeSwitch tipo, String clave, String referencia, Object contenido) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(contenido);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el mensaje " + tipo + " de " + referencia, e);
+        }
+        mensajeSwitchRepository.save(MensajeSwitch.builder()
+                .tipo(tipo)
+                .clave(clave)
+                .referencia(referencia)
+                .contenido(json)
+                .build());
+    }
+
+    /**
+     * Mientras el envío sigue en la bandeja el Switch puede no conocer la
+     * transferencia todavía: un 404 o la expiración no significan rechazo.
+     */
+    public boolean enBandeja(String referencia) {
+        return mensajeSwitchRepository.existsByReferencia(referencia);
+    }
+
+    /** Los mensajes de una misma cuenta se entregan en el orden en que se escribieron. */
+    public static String claveCuenta(Integer idCuenta) {
+        return "CUENTA-" + idCuenta;
+    }
+}
@@ -0,0 +1,174 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.arcbank.cbs.transaccion.client.ClienteClient;
+import com.arcbank.cbs.transaccion.client.CuentaCliente;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caché local de los metadatos que casi no cambian: cuenta por id, id de
+ * cuenta por número y cliente por id. Las entradas se refrescan en segundo
+ * plano antes de vencer, así que una consulta caliente no espera a
+ * ms-cuentas ni a ms-clientes. Los números de cuenta inexistentes (AC01) se
+ * recuerdan por poco tiempo. Los errores de red no se guardan.
+ * {@code InvalidacionMetadatosListener} descarta entradas cuando el dueño
+ * del dato publica un cambio.
+ */
+@Slf4j
+@Component
+public class CacheMetadatosCuenta {
+
+    private final CuentaCliente cuentaCliente;
+    private final LoadingCache<Integer, Map<String, Object>> cuentas;
+    private final LoadingCache<String, Optional<Integer>> idsPorNumero;
+    private final LoadingCache<Integer, Map<String, Object>> clientes;
+
+    public CacheMetadatosCuenta(CuentaCliente cuentaCliente, ClienteClient clienteClient,
+            MeterRegistry meterRegistry,
+            @Value("${app.cache.metadatos.ttl-min:60}") long ttlMin,
+            @Value("${app.cache.metadatos.refresco-min:10}") long refrescoMin,
+            @Value("${app.cache.metadatos.max-entradas:50000}") long maxEntradas,
+            @Value("${app.cache.metadatos.ttl-negativo-s:60}") long ttlNegativoS) {
+        this.cuentaCliente = cuentaCliente;
+        Duration ttl = Duration.ofMinutes(ttlMin);
+        Duration refresco = Duration.ofMinutes(refrescoMin);
+
+        this.cuentas = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(ttl)
+                .refreshAfterWrite(refresco)
+                .recordStats()
+                .build(cuentaCliente::obtenerCuenta);
+        this.idsPorNumero = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfter(new ExpiracionNegativa(ttl.toNanos(), Duration.ofSeconds(ttlNegativoS).toNanos()))
+                .refreshAfterWrite(refresco)
+                .recordStats()
+                .build(this::buscarIdPorNumero);
+        this.clientes = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(ttl)
+                .refreshAfterWrite(refresco)
+                .recordStats()
+                .build(clienteClient::obtenerCliente);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cuentas, "metadatos.cuentas");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsPorNumero, "metadatos.cuentas-por-numero");
+        CaffeineCacheMetrics.monitor(meterRegistry, clientes, "metadatos.clientes");
+    }
+
+    /** Igual que {@link CuentaCliente#obtenerCuenta}; los errores remotos se propagan. */
+    public Map<String, Object> cuenta(Integer idCuenta) {
+        return cuentas.get(idCuenta);
+    }
+
+    /** Igual que {@link ClienteClient#obtenerCliente}; los errores remotos se propagan. */
+    public Map<String, Object> cliente(Integer idCliente) {
+        return clientes.get(idCliente);
+    }
+
+    /**
+     * Id de la cuenta con ese número, o null si ms-cuentas responde que no
+     * existe. Otros errores se propagan.
+     */
+    public Integer idPorNumero(String numeroCuenta) {
+        return idsPorNumero.get(numeroCuenta).orElse(null);
+    }
+
+    public Map<Integer, Map<String, Object>> cuentasEnCache(Collection<Integer> ids) {
+        return cuentas.getAllPresent(ids);
+    }
+
+    public Map<Integer, Map<String, Object>> clientesEnCache(Collection<Integer> ids) {
+        return clientes.getAllPresent(ids);
+    }
+
+    public void guardarCuenta(Integer idCuenta, Map<String, Object> cuenta) {
+        cuentas.put(idCuenta, cuenta);
+    }
+
+    public void guardarCliente(Integer idCliente, Map<String, Object> cliente) {
+        clientes.put(idCliente, cliente);
+    }
+
+    /**
+     * Descarta la cuenta por id y por número. Sin número se usa el que tenga
+     * la entrada guardada, si hay.
+     */
+    public void invalidarCuenta(Integer idCuenta, String numeroCuenta) {
+        if (idCuenta != null) {
+            Map<String, Object> anterior = cuentas.getIfPresent(idCuenta);
+            if (numeroCuenta == null && anterior != null && anterior.get("numeroCuenta") != null) {
+                idsPorNumero.invalidate(anterior.get("numeroCuenta").toString());
+            }
+            cuentas.invalidate(idCuenta);
+        }
+        if (numeroCuenta != null) {
+            idsPorNumero.invalidate(numeroCuenta);
+        }
+    }
+
+    public void invalidarCliente(Integer idCliente) {
+        if (idCliente != null) {
+            clientes.invalidate(idCliente);
+        }
+    }
+
+    private Optional<Integer> buscarIdPorNumero(String numeroCuenta) {
+        Map<String, Object> cuenta;
+        try {
+            cuenta = cuentaCliente.buscarPorNumero(numeroCuenta);
+        } catch (FeignException e) {
+            if (e.status() == 404) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+        if (cuenta == null) {
+            return Optional.empty();
+        }
+        Object id = cuenta.get("idCuenta") != null ? cuenta.get("idCuenta") : cuenta.get("id");
+        if (id == null) {
+            return Optional.empty();
+        }
+        Integer idCuenta = Integer.valueOf(id.toString());
+        // La respuesta ya trae la cuenta completa: evita la consulta por id que suele seguir
+        cuentas.asMap().putIfAbsent(idCuenta, cuenta);
+        return Optional.of(idCuenta);
+    }
+
+    private record ExpiracionNegativa(long ttlNanos, long ttlNegativoNanos)
+            implements Expiry<String, Optional<Integer>> {
+
+        @Override
+        public long expireAfterCreate(String key, Optional<Integer> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : ttlNegativoNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Optional<Integer> value, long currentTime,
+                long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Optional<Integer> value, long currentTime,
+                long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+/**
+ * Consultas idempotentes al Switch con cobertura (hedging): si la primera
+ * llamada no respondió dentro del percentil configurado de su latencia
+ * reciente, sale una segunda; la primera respuesta gana y la otra se
+ * cancela. Las coberturas se pagan con una cubeta de tokens que se llena
+ * con un porcentaje de las consultas, así que la carga extra sobre el
+ * Switch nunca pasa de ese porcentaje (más la ráfaga).
+ * Solo para GET sin efectos: estado de transferencia, instituciones y
+ * catálogo de errores.
+ */
+@Component
+public class CoberturaSwitch {
+
+    private static final long MILI_TOKENS = 1000;
+    private static final long RECALCULO_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ExecutorService ejecutorVirtual;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, Operacion> operaciones = new ConcurrentHashMap<>();
+    private final AtomicLong saldoMiliTokens = new AtomicLong();
+
+    private final boolean habilitada;
+    private final double percentil;
+    private final long retrasoInicialMs;
+    private final long retrasoMinMs;
+    private final long retrasoMaxMs;
+    private final long minimoMuestras;
+    private final long aporteMiliTokens;
+    private final long maxMiliTokens;
+
+    public CoberturaSwitch(ExecutorService ejecutorVirtual, MeterRegistry meterRegistry,
+            @Value("${app.switch.cobertura.enabled:true}") boolean habilitada,
+            @Value("${app.switch.cobertura.percentil:0.95}") double percentil,
+            @Value("${app.switch.cobertura.retraso-inicial-ms:500}") long retrasoInicialMs,
+            @Value("${app.switch.cobertura.retraso-min-ms:50}") long retrasoMinMs,
+            @Value("${app.switch.cobertura.retraso-max-ms:3000}") long retrasoMaxMs,
+            @Value("${app.switch.cobertura.minimo-muestras:50}") long minimoMuestras,
+            @Value("${app.switch.cobertura.presupuesto-porcentaje:10}") double presupuestoPorcentaje,
+            @Value("${app.switch.cobertura.rafaga:20}") int rafaga) {
+        this.ejecutorVirtual = ejecutorVirtual;
+        this.meterRegistry = meterRegistry;
+        this.habilitada = habilitada;
+        this.percentil = percentil;
+        this.retrasoInicialMs = retrasoInicialMs;
+        this.retrasoMinMs = retrasoMinMs;
+        this.retrasoMaxMs = retrasoMaxMs;
+        this.minimoMuestras = minimoMuestras;
+        this.aporteMiliTokens = Math.round(presupuestoPorcentaje / 100 * MILI_TOKENS);
+        this.maxMiliTokens = rafaga * MILI_TOKENS;
+    }
+
+    /**
+     * Ejecuta la consulta con cobertura. {@code operacion} agrupa la
+     * latencia (y por tanto el retraso) y las métricas.
+     */
+    public <T> T ejecutar(String operacion, Supplier<T> consulta) {
+        if (!habilitada) {
+            return consulta.get();
+        }
+        Operacion op = operaciones.computeIfAbsent(operacion, this::crear);
+        depositar();
+
+        Supplier<T> conPlazo = PlazoOperacion.heredar(consulta);
+        CompletableFuture<T> ganador = new CompletableFuture<>();
+        AtomicInteger enCurso = new AtomicInteger(1);
+        Future<?> primera = lanzar(op, conPlazo, ganador, enCurso, false);
+        Future<?> segunda = null;
+        try {
+            try {
+                return ganador.get(op.retrasoMs(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // La primera va lenta: se cubre si hay tokens
+            }
+            if (tomarToken()) {
+                enCurso.incrementAndGet();
+                op.emitidas.increment();
+                segunda = lanzar(op, conPlazo, ganador, enCurso, true);
+            } else {
+                op.sinTokens.increment();
+            }
+            return ganador.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Consulta al Switch interrumpida: " + operacion);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new BusinessException("Error consultando el Switch: " + operacion);
+        } finally {
+            primera.cancel(true);
+            if (segunda != null) {
+                segunda.cancel(true);
+            }
+        }
+    }
+
+    private <T> Future<?> lanzar(Operacion op, Supplier<T> consulta, CompletableFuture<T> ganador,
+            AtomicInteger enCurso, boolean cobertura) {
+        return ejecutorVirtual.submit(() -> {
+            long inicio = System.nanoTime();
+            try {
+                T valor = consulta.get();
+                op.latencia.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                if (ganador.complete(valor) && cobertura) {
+                    op.ganadas.increment();
+                }
+            } catch (RuntimeException | Error e) {
+                // Con la otra todavía en curso, su respuesta puede ganar
+                if (enCurso.decrementAndGet() == 0) {
+                    ganador.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private void depositar() {
+        saldoMiliTokens.accumulateAndGet(aporteMiliTokens, (saldo, aporte) -> Math.min(maxMiliTokens, saldo + aporte));
+    }
+
+    private boolean tomarToken() {
+        long saldo;
+        do {
+            saldo = saldoMiliTokens.get();
+            if (saldo < MILI_TOKENS) {
+                return false;
+            }
+        } while (!saldoMiliTokens.compareAndSet(saldo, saldo - MILI_TOKENS));
+        return true;
+    }
+
+    private Operacion crear(String operacion) {
+        Timer latencia = Timer.builder("transaccion.switch.cobertura.latencia")
+                .description("Latencia de cada llamada de las consultas con cobertura")
+                .tag("operacion", operacion)
+                .publishPercentiles(percentil)
+                .distributionStatisticExpiry(Duration.ofMinutes(2))
+                .register(meterRegistry);
+        return new Operacion(latencia,
+                contador("transaccion.switch.cobertura.emitidas", "Segundas llamadas enviadas", operacion),
+                contador("transaccion.switch.cobertura.ganadas", "Segundas llamadas que respondieron primero",
+                        operacion),
+                contador("transaccion.switch.cobertura.sin.tokens", "Coberturas omitidas por falta de tokens",
+                        operacion));
+    }
+
+    private Counter contador(String nombre, String descripcion, String operacion) {
+        return Counter.builder(nombre)
+                .description(descripcion)
+                .tag("operacion", operacion)
+                .register(meterRegistry);
+    }
+
+    private final class Operacion {
+        private final Timer latencia;
+        private final Counter emitidas;
+        private final Counter ganadas;
+        private final Counter sinTokens;
+        private volatile long retrasoMs = retrasoInicialMs;
+        private volatile long recalculadoEn = System.nanoTime();
+
+        private Operacion(Timer latencia, Counter emitidas, Counter ganadas, Counter sinTokens) {
+            this.latencia = latencia;
+            this.emitidas = emitidas;
+            this.ganadas = ganadas;
+            this.sinTokens = sinTokens;
+        }
+
+        /** Percentil reciente de la latencia, recalculado a lo sumo una vez por segundo. */
+        private long retrasoMs() {
+            long ahora = System.nanoTime();
+            if (ahora - recalculadoEn < RECALCULO_NANOS) {
+                return retrasoMs;
+            }
+            recalculadoEn = ahora;
+            long nuevo = retrasoInicialMs;
+            if (latencia.count() >= minimoMuestras) {
+                ValueAtPercentile[] valores = latencia.takeSnapshot().percentileValues();
+                if (valores.length > 0 && valores[0].value() > 0) {
+                    nuevo = (long) valores[0].value(TimeUnit.MILLISECONDS);
+                }
+            }
+            retrasoMs = Math.max(retrasoMinMs, Math.min(retrasoMaxMs, nuevo));
+            return retrasoMs;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.arcbank.cbs.transaccion.dto.SwitchTransferResponse;
+import com.arcbank.cbs.transaccion.model.EstadoSwitch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lleva a estado final las TRANSFERENCIA_SALIDA que quedaron PENDIENTE en
+ * modo asíncrono o tras su envío desde la bandeja. Consulta el Switch en
+ * segundo plano, sin transacción abierta, y solo toma la fila (con bloqueo)
+ * cuando hay un estado terminal. Si se agotan los intentos la transacción
+ * queda PENDIENTE y la resuelve {@link ConciliadorTransferenciasPendientes}.
+ */
+@Slf4j
+@Component
+public class CompletadorTransferenciasSalida {
+
+    private final ConsultaEstadoSwitch consultaEstadoSwitch;
+    private final TransaccionService transaccionService;
+    private final ScheduledExecutorService planificador;
+    private final long intervaloMs;
+    private final int maxIntentos;
+    private final Counter completadas;
+    private final Counter fallidas;
+    private final Counter agotadas;
+
+    public CompletadorTransferenciasSalida(ConsultaEstadoSwitch consultaEstadoSwitch,
+            TransaccionService transaccionService,
+            MeterRegistry meterRegistry,
+            @Value("${app.switch.completador.intervalo-ms:1500}") long intervaloMs,
+            @Value("${app.switch.completador.max-intentos:10}") int maxIntentos,
+            @Value("${app.switch.completador.hilos:4}") int hilos) {
+        this.consultaEstadoSwitch = consultaEstadoSwitch;
+        this.transaccionService = transaccionService;
+        this.intervaloMs = intervaloMs;
+        this.maxIntentos = maxIntentos;
+        AtomicInteger contador = new AtomicInteger();
+        this.planificador = Executors.newScheduledThreadPool(hilos, r -> {
+            Thread t = new Thread(r, "completador-salida-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.completadas = contador(meterRegistry, "COMPLETADA");
+        this.fallidas = contador(meterRegistry, "FALLIDA");
+        this.agotadas = contador(meterRegistry, "AGOTADA");
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void alGuardarPendiente(TransferenciaSalidaPendienteEvent evento) {
+        seguir(evento.referencia());
+    }
+
+    /** Empieza a consultar una transferencia que el Switch ya aceptó sin estado final. */
+    public void seguir(String referencia) {
+        programar(referencia, 1);
+    }
+
+    private void programar(String referencia, int intento) {
+        planificador.schedule(() -> consultar(referencia, intento), intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void consultar(String referencia, int intento) {
+        try {
+            SwitchTransferResponse resp = consultaEstadoSwitch.consultar(referencia);
+            if (resp != null && resp.getData() != null) {
+                EstadoSwitch estado = EstadoSwitch.de(resp.getData().getEstado());
+
+                if (estado.confirmaEnvio()) {
+                    if (transaccionService.aplicarEstadoFinalSalida(referencia, true, null)) {
+                        completadas.increment();
+                    }
+                    return;
+                }
+                if (estado == EstadoSwitch.RECHAZADA) {
+                    String motivo = resp.getError() != null ? resp.getError().getMessage() : "Rechazo desconocido";
+                    if (transaccionService.aplicarEstadoFinalSalida(referencia, false, motivo)) {
+                        fallidas.increment();
+                    }
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Consulta {} de la transferencia {} falló: {}", intento, referencia, e.getMessage());
+        }
+
+        if (intento >= maxIntentos) {
+            agotadas.increment();
+            log.info("Transferencia {} sigue PENDIENTE tras {} consultas", referencia, intento);
+            return;
+        }
+        programar(referencia, intento + 1);
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("transaccion.salida.completador")
+                .description("Transferencias de salida resueltas en segundo plano")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void detener() {
+        planificador.shutdown();
+    }
+}
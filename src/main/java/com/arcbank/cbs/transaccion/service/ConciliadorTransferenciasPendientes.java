@@ -0,0 +1,245 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.arcbank.cbs.transaccion.dto.SwitchTransferResponse;
+import com.arcbank.cbs.transaccion.model.EstadoSwitch;
+import com.arcbank.cbs.transaccion.repository.TransaccionRepository;
+import com.arcbank.cbs.transaccion.repository.TransaccionRepository.PendienteSalida;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resuelve las TRANSFERENCIA_SALIDA PENDIENTE sin depender de que alguien
+ * consulte su estado. Un barrido periódico las descubre por índice y las
+ * coloca en una rueda de temporización; cada tick consulta al Switch las
+ * vencidas con concurrencia acotada, reprograma las que siguen en curso con
+ * backoff exponencial y jitter, y aplica los estados finales (con reembolso)
+ * por lotes en una sola transacción de base de datos. Solo expira las que
+ * el Switch no conoce; las que aceptó se dan por completadas.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.switch.conciliador.enabled", havingValue = "true", matchIfMissing = true)
+public class ConciliadorTransferenciasPendientes {
+
+    private final TransaccionRepository transaccionRepository;
+    private final ConsultaEstadoSwitch consultaEstadoSwitch;
+    private final TransaccionService transaccionService;
+    private final RuedaTemporizacion<Seguimiento> rueda;
+    private final ConcurrentHashMap<String, Seguimiento> enSeguimiento = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<ResolucionSalida> resoluciones = new ConcurrentLinkedQueue<>();
+    private final ExecutorService consultas;
+    private final Counter completadas;
+    private final Counter fallidas;
+    private final Counter expiradas;
+
+    private final int loteBarrido;
+    private final int loteAplicacion;
+    private final int maxSeguimiento;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final double jitter;
+    private final Duration expiracion;
+
+    public ConciliadorTransferenciasPendientes(TransaccionRepository transaccionRepository,
+            ConsultaEstadoSwitch consultaEstadoSwitch,
+            TransaccionService transaccionService,
+            MeterRegistry meterRegistry,
+            @Value("${app.switch.conciliador.tick-ms:1000}") long tickMs,
+            @Value("${app.switch.conciliador.ranuras:512}") int ranuras,
+            @Value("${app.switch.conciliador.concurrencia:8}") int concurrencia,
+            @Value("${app.switch.conciliador.lote-barrido:1000}") int loteBarrido,
+            @Value("${app.switch.conciliador.lote-aplicacion:100}") int loteAplicacion,
+            @Value("${app.switch.conciliador.max-seguimiento:100000}") int maxSeguimiento,
+            @Value("${app.switch.conciliador.backoff-base-ms:2000}") long backoffBaseMs,
+            @Value("${app.switch.conciliador.backoff-max-ms:300000}") long backoffMaxMs,
+            @Value("${app.switch.conciliador.jitter:0.2}") double jitter,
+            @Value("${app.switch.pendiente-expiracion-min:3}") long expiracionMin) {
+        this.transaccionRepository = transaccionRepository;
+        this.consultaEstadoSwitch = consultaEstadoSwitch;
+        this.transaccionService = transaccionService;
+        this.rueda = new RuedaTemporizacion<>(tickMs, ranuras);
+        this.loteBarrido = loteBarrido;
+        this.loteAplicacion = loteAplicacion;
+        this.maxSeguimiento = maxSeguimiento;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.jitter = jitter;
+        this.expiracion = Duration.ofMinutes(expiracionMin);
+
+        AtomicInteger contador = new AtomicInteger();
+        this.consultas = Executors.newFixedThreadPool(concurrencia, r -> {
+            Thread t = new Thread(r, "conciliador-salida-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        meterRegistry.gauge("transaccion.conciliador.seguimiento", enSeguimiento, ConcurrentHashMap::size);
+        this.completadas = contador(meterRegistry, "COMPLETADA");
+        this.fallidas = contador(meterRegistry, "FALLIDA");
+        this.expiradas = contador(meterRegistry, "EXPIRADA");
+    }
+
+    /**
+     * Descubre PENDIENTE que aún no están en la rueda. Recorre por keyset
+     * para no cargar todas las filas a la vez.
+     */
+    @Scheduled(fixedDelayString = "${app.switch.conciliador.barrido-ms:30000}",
+            initialDelayString = "${app.switch.conciliador.barrido-inicial-ms:10000}")
+    public void barrer() {
+        LocalDateTime desdeFecha = LocalDateTime.of(1970, 1, 1, 0, 0);
+        Integer desdeId = 0;
+        int nuevas = 0;
+
+        while (enSeguimiento.size() < maxSeguimiento) {
+            List<PendienteSalida> pagina = transaccionRepository.findPendientesSalida(desdeFecha, desdeId,
+                    Limit.of(loteBarrido));
+            for (PendienteSalida p : pagina) {
+                Seguimiento s = new Seguimiento(p.getReferencia(), p.getFechaCreacion(), 0);
+                if (enSeguimiento.putIfAbsent(p.getReferencia(), s) == null) {
+                    rueda.programar(s, retraso(0));
+                    nuevas++;
+                }
+            }
+            if (pagina.size() < loteBarrido) {
+                break;
+            }
+            PendienteSalida ultima = pagina.get(pagina.size() - 1);
+            desdeFecha = ultima.getFechaCreacion();
+            desdeId = ultima.getIdTransaccion();
+        }
+
+        if (nuevas > 0) {
+            log.info("Conciliador: {} transferencias PENDIENTE nuevas en seguimiento ({} en total)", nuevas,
+                    enSeguimiento.size());
+        }
+    }
+
+    @Scheduled(fixedRateString = "${app.switch.conciliador.tick-ms:1000}")
+    public void tick() {
+        for (Seguimiento s : rueda.avanzar()) {
+            consultas.execute(() -> consultar(s));
+        }
+        aplicarResoluciones();
+    }
+
+    private void consultar(Seguimiento s) {
+        // Solo expira (con reembolso) lo que el Switch dice no conocer; si la tiene en curso
+        // o la consulta falló por un problema técnico se sigue consultando
+        boolean desconocida = false;
+        try {
+            SwitchTransferResponse resp = consultaEstadoSwitch.consultar(s.referencia());
+            if (resp != null && resp.getData() != null) {
+                EstadoSwitch estado = EstadoSwitch.de(resp.getData().getEstado());
+                if (estado.confirmaEnvio()) {
+                    resoluciones.add(new ResolucionSalida(s.referencia(), true, null));
+                    return;
+                }
+                if (estado == EstadoSwitch.RECHAZADA) {
+                    String motivo = resp.getError() != null ? resp.getError().getMessage()
+                            : "Fallo confirmado por Switch";
+                    resoluciones.add(new ResolucionSalida(s.referencia(), false, motivo));
+                    return;
+                }
+            } else {
+                desconocida = true;
+            }
+        } catch (Exception e) {
+            desconocida = noEncontrada(e);
+            log.debug("Conciliador: consulta de {} falló: {}", s.referencia(), e.getMessage());
+        }
+
+        if (desconocida && s.fechaCreacion() != null
+                && Duration.between(s.fechaCreacion(), LocalDateTime.now()).compareTo(expiracion) >= 0) {
+            expiradas.increment();
+            resoluciones.add(new ResolucionSalida(s.referencia(), false, "Expiró tiempo de validación"));
+            return;
+        }
+
+        Seguimiento siguiente = new Seguimiento(s.referencia(), s.fechaCreacion(), s.intento() + 1);
+        enSeguimiento.put(s.referencia(), siguiente);
+        rueda.programar(siguiente, retraso(siguiente.intento()));
+    }
+
+    private void aplicarResoluciones() {
+        while (!resoluciones.isEmpty()) {
+            List<ResolucionSalida> lote = new ArrayList<>(loteAplicacion);
+            ResolucionSalida r;
+            while (lote.size() < loteAplicacion && (r = resoluciones.poll()) != null) {
+                lote.add(r);
+            }
+            try {
+                int aplicadas = transaccionService.aplicarEstadosFinalesSalida(lote);
+                long exitosas = lote.stream().filter(ResolucionSalida::exitosa).count();
+                completadas.increment(Math.min(exitosas, aplicadas));
+                fallidas.increment(Math.max(0, aplicadas - exitosas));
+                // Resueltas aquí o ya resueltas por otra vía: en ambos casos salen de la rueda.
+                // Las que no se pudieron reembolsar las vuelve a encontrar el barrido.
+                lote.forEach(res -> enSeguimiento.remove(res.referencia()));
+            } catch (Exception e) {
+                log.warn("Conciliador: falló el lote de {} resoluciones, se reintentará: {}", lote.size(),
+                        e.getMessage());
+                lote.forEach(res -> {
+                    Seguimiento s = enSeguimiento.get(res.referencia());
+                    if (s != null) {
+                        rueda.programar(s, retraso(s.intento()));
+                    }
+                });
+                return;
+            }
+        }
+    }
+
+    /** El Switch respondió 404 a la consulta: no tiene la transferencia. */
+    static boolean noEncontrada(Exception e) {
+        if (e instanceof FeignException fe) {
+            return fe.status() == 404;
+        }
+        String msg = e.getMessage();
+        return msg != null && msg.contains("(404)");
+    }
+
+    /** Backoff exponencial acotado con jitter multiplicativo de ±{@code jitter}. */
+    long retraso(int intento) {
+        long base = backoffBaseMs << Math.min(intento, 20);
+        if (base <= 0 || base > backoffMaxMs) {
+            base = backoffMaxMs;
+        }
+        double factor = 1 + (ThreadLocalRandom.current().nextDouble() * 2 - 1) * jitter;
+        return Math.max(1, (long) (base * factor));
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("transaccion.conciliador.resueltas")
+                .description("Transferencias PENDIENTE resueltas por el conciliador")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void detener() {
+        consultas.shutdown();
+    }
+
+    private record Seguimiento(String referencia, LocalDateTime fechaCreacion, int intento) {
+    }
+}
@@ -0,0 +1,165 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.arcbank.cbs.transaccion.client.SwitchClient;
+import com.arcbank.cbs.transaccion.dto.SwitchTransferResponse;
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+import com.arcbank.cbs.transaccion.model.EstadoSwitch;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Punto único para consultar el estado de una transferencia en el Switch.
+ * Las consultas simultáneas del mismo instructionId comparten una sola
+ * llamada en vuelo y el resultado se reutiliza por un tiempo corto; los
+ * estados terminales no cambian, así que se guardan más tiempo. Los errores
+ * no se guardan: el siguiente llamador vuelve a consultar. La llamada lleva
+ * cobertura ({@link CoberturaSwitch}) contra la cola lenta del Switch.
+ * La llamada compartida corre en otro hilo sin plazo y cada llamador, el
+ * que la lanzó incluido, la espera dentro de su propio
+ * {@link PlazoOperacion}: el plazo de uno no acota la cobertura ni la
+ * respuesta de los demás.
+ */
+@Slf4j
+@Component
+public class ConsultaEstadoSwitch {
+
+    private final SwitchClient switchClient;
+    private final CoberturaSwitch cobertura;
+    private final ExecutorService ejecutorVirtual;
+    private final AsyncCache<String, SwitchTransferResponse> cache;
+    private final Counter aciertos;
+    private final Counter fallos;
+    private final Counter combinadas;
+
+    public ConsultaEstadoSwitch(SwitchClient switchClient, CoberturaSwitch cobertura, ExecutorService ejecutorVirtual,
+            MeterRegistry meterRegistry,
+            @Value("${app.switch.estado-cache.ttl-en-curso-ms:1000}") long ttlEnCursoMs,
+            @Value("${app.switch.estado-cache.ttl-terminal-ms:300000}") long ttlTerminalMs,
+            @Value("${app.switch.estado-cache.max-entradas:50000}") long maxEntradas) {
+        this.switchClient = switchClient;
+        this.cobertura = cobertura;
+        this.ejecutorVirtual = ejecutorVirtual;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfter(new ExpiracionPorEstado(Duration.ofMillis(ttlEnCursoMs).toNanos(),
+                        Duration.ofMillis(ttlTerminalMs).toNanos()))
+                .buildAsync();
+        this.aciertos = contador(meterRegistry, "hit");
+        this.fallos = contador(meterRegistry, "miss");
+        this.combinadas = contador(meterRegistry, "coalesced");
+    }
+
+    public SwitchTransferResponse consultar(String instructionId) {
+        CompletableFuture<SwitchTransferResponse> propio = new CompletableFuture<>();
+        CompletableFuture<SwitchTransferResponse> existente;
+        while ((existente = cache.asMap().putIfAbsent(instructionId, propio)) != null
+                && existente.isCompletedExceptionally()) {
+            // Caffeine la quita al fallar, pero desde otro hilo puede seguir visible un instante
+            cache.asMap().remove(instructionId, existente);
+        }
+
+        if (existente == null) {
+            fallos.increment();
+            lanzar(instructionId, propio);
+            return esperar(instructionId, propio);
+        }
+
+        if (existente.isDone()) {
+            aciertos.increment();
+        } else {
+            combinadas.increment();
+        }
+        return esperar(instructionId, existente);
+    }
+
+    /**
+     * El hilo nuevo no hereda el plazo de quien llegó primero. El futuro
+     * siempre se completa, para no dejar esperando a nadie; Caffeine
+     * descarta las entradas que terminan con error.
+     */
+    private void lanzar(String instructionId, CompletableFuture<SwitchTransferResponse> futuro) {
+        try {
+            ejecutorVirtual.execute(() -> {
+                try {
+                    futuro.complete(cobertura.ejecutar("consultar-estado",
+                            () -> switchClient.consultarEstadoTransferencia(instructionId)));
+                } catch (Throwable e) {
+                    futuro.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            futuro.completeExceptionally(e);
+        }
+    }
+
+    private SwitchTransferResponse esperar(String instructionId, CompletableFuture<SwitchTransferResponse> futuro) {
+        try {
+            if (!PlazoOperacion.activo()) {
+                return futuro.get();
+            }
+            return futuro.get(PlazoOperacion.restanteMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw DependenciaNoDisponibleException.plazoAgotado("digiconecu-switch");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Consulta de estado interrumpida: " + instructionId);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new BusinessException("Error consultando estado de la transferencia " + instructionId);
+        }
+    }
+
+    static boolean esTerminal(SwitchTransferResponse resp) {
+        if (resp == null || resp.getData() == null || resp.getData().getEstado() == null) {
+            return false;
+        }
+        return EstadoSwitch.de(resp.getData().getEstado()).esTerminal();
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("transaccion.switch.estado.consultas")
+                .description("Consultas de estado al Switch por resultado de caché")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    private record ExpiracionPorEstado(long enCursoNanos, long terminalNanos)
+            implements Expiry<String, SwitchTransferResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, SwitchTransferResponse value, long currentTime) {
+            return esTerminal(value) ? terminalNanos : enCursoNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, SwitchTransferResponse value, long currentTime,
+                long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, SwitchTransferResponse value, long currentTime,
+                long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serializa las mutaciones de saldo por cuenta dentro de esta instancia.
+ * Cada cuenta tiene su propio lock justo (FIFO), creado bajo demanda y
+ * liberado cuando nadie lo usa, de modo que cuentas distintas nunca se
+ * bloquean entre sí. Las métricas se agrupan en franjas (hash de la cuenta)
+ * para no crear una serie por cuenta.
+ */
+@Slf4j
+@Component
+public class CuentaLockManager {
+
+    private final ConcurrentHashMap<Integer, Bloqueo> bloqueos = new ConcurrentHashMap<>();
+    private final AtomicInteger[] enEspera;
+    private final Timer[] tiemposEspera;
+    private final long timeoutMs;
+
+    public CuentaLockManager(MeterRegistry meterRegistry,
+            @Value("${app.saldo.serializacion.franjas:16}") int franjas,
+            @Value("${app.saldo.serializacion.timeout-ms:10000}") long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        this.enEspera = new AtomicInteger[franjas];
+        this.tiemposEspera = new Timer[franjas];
+
+        for (int i = 0; i < franjas; i++) {
+            String franja = String.valueOf(i);
+            enEspera[i] = new AtomicInteger();
+            Gauge.builder("transaccion.saldo.cola", enEspera[i], AtomicInteger::get)
+                    .description("Mutaciones de saldo esperando el lock de su cuenta")
+                    .tag("franja", franja)
+                    .register(meterRegistry);
+            tiemposEspera[i] = Timer.builder("transaccion.saldo.espera")
+                    .description("Tiempo de espera por el lock de la cuenta")
+                    .tag("franja", franja)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Ejecuta la acción con acceso exclusivo a la cuenta. Si el lock no se
+     * obtiene dentro del timeout (o de lo que quede del plazo de la
+     * operación) se rechaza la operación en lugar de acumular hilos detrás de
+     * una cuenta caliente.
+     */
+    public <T> T ejecutar(Integer idCuenta, Supplier<T> accion) {
+        int franja = Math.floorMod(Integer.hashCode(idCuenta) * 0x9E3779B9, enEspera.length);
+        Bloqueo bloqueo = bloqueos.compute(idCuenta, (k, actual) -> {
+            Bloqueo b = actual != null ? actual : new Bloqueo();
+            b.usuarios++;
+            return b;
+        });
+
+        try {
+            boolean adquirido;
+            long esperaMs = PlazoOperacion.acotar(timeoutMs);
+            long inicio = System.nanoTime();
+            enEspera[franja].incrementAndGet();
+            try {
+                adquirido = bloqueo.lock.tryLock(esperaMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("Operación interrumpida esperando la cuenta ID: " + idCuenta);
+            } finally {
+                enEspera[franja].decrementAndGet();
+                tiemposEspera[franja].record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+
+            if (!adquirido) {
+                log.warn("Timeout esperando lock de saldo para cuenta {} ({} ms)", idCuenta, esperaMs);
+                throw new BusinessException("CUENTA_OCUPADA",
+                        "La cuenta ID: " + idCuenta + " está procesando otra operación. Intente nuevamente.");
+            }
+
+            try {
+                return accion.get();
+            } finally {
+                bloqueo.lock.unlock();
+            }
+        } finally {
+            bloqueos.computeIfPresent(idCuenta, (k, b) -> --b.usuarios == 0 ? null : b);
+        }
+    }
+
+    private static final class Bloqueo {
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private int usuarios;
+    }
+}
@@ -0,0 +1,280 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arcbank.cbs.transaccion.client.SwitchClient;
+import com.arcbank.cbs.transaccion.dto.StatusReportDTO;
+import com.arcbank.cbs.transaccion.dto.SwitchRefundRequest;
+import com.arcbank.cbs.transaccion.dto.SwitchTransferRequest;
+import com.arcbank.cbs.transaccion.dto.SwitchTransferResponse;
+import com.arcbank.cbs.transaccion.model.MensajeSwitch;
+import com.arcbank.cbs.transaccion.model.TipoMensajeSwitch;
+import com.arcbank.cbs.transaccion.repository.MensajeSwitchRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Entrega los mensajes de {@link BandejaSalidaSwitch}. Cada ciclo reserva
+ * un lote (el más antiguo de cada clave, con SKIP LOCKED) en una
+ * transacción corta, llama al Switch con concurrencia acotada y sin
+ * transacción abierta, y aplica el resultado junto con el borrado del
+ * mensaje. Los fallos técnicos se reintentan con backoff exponencial y
+ * jitter; una reserva abandonada vence sola y el mensaje se reenvía, por
+ * lo que el Switch debe tolerar el mismo instructionId dos veces. Una
+ * transferencia solo se envía si, con su fila bloqueada, sigue PENDIENTE;
+ * mientras su mensaje exista las consultas de estado no la resuelven.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.switch.bandeja.enabled", havingValue = "true")
+public class DespachadorMensajesSwitch {
+
+    private final MensajeSwitchRepository mensajeSwitchRepository;
+    private final SwitchClient switchClient;
+    private final TransaccionService transaccionService;
+    private final CompletadorTransferenciasSalida completador;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaccion;
+    private final ExecutorService envios;
+    private final Counter entregados;
+    private final Counter reintentos;
+    private final Counter descartados;
+
+    private final int lote;
+    private final Duration reserva;
+    private final int maxIntentos;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final double jitter;
+
+    public DespachadorMensajesSwitch(MensajeSwitchRepository mensajeSwitchRepository,
+            SwitchClient switchClient,
+            TransaccionService transaccionService,
+            CompletadorTransferenciasSalida completador,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.switch.bandeja.concurrencia:8}") int concurrencia,
+            @Value("${app.switch.bandeja.lote:50}") int lote,
+            @Value("${app.switch.bandeja.reserva-ms:120000}") long reservaMs,
+            @Value("${app.switch.bandeja.max-intentos:12}") int maxIntentos,
+            @Value("${app.switch.bandeja.backoff-base-ms:1000}") long backoffBaseMs,
+            @Value("${app.switch.bandeja.backoff-max-ms:300000}") long backoffMaxMs,
+            @Value("${app.switch.bandeja.jitter:0.2}") double jitter) {
+        this.mensajeSwitchRepository = mensajeSwitchRepository;
+        this.switchClient = switchClient;
+        this.transaccionService = transaccionService;
+        this.completador = completador;
+        this.objectMapper = objectMapper;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.lote = lote;
+        this.reserva = Duration.ofMillis(reservaMs);
+        this.maxIntentos = maxIntentos;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.jitter = jitter;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.envios = Executors.newFixedThreadPool(concurrencia, r -> {
+            Thread t = new Thread(r, "bandeja-switch-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.entregados = contador(meterRegistry, "ENTREGADO");
+        this.reintentos = contador(meterRegistry, "REINTENTO");
+        this.descartados = contador(meterRegistry, "DESCARTADO");
+    }
+
+    @Scheduled(fixedDelayString = "${app.switch.bandeja.intervalo-ms:200}",
+            initialDelayString = "${app.switch.bandeja.inicial-ms:5000}")
+    public void despachar() {
+        List<MensajeSwitch> reservados;
+        do {
+            LocalDateTime ahora = LocalDateTime.now();
+            reservados = mensajeSwitchRepository.reservar(ahora, ahora.plus(reserva), lote);
+            if (reservados.isEmpty()) {
+                return;
+            }
+            List<Callable<Void>> tareas = reservados.stream().<Callable<Void>>map(m -> () -> {
+                procesar(m);
+                return null;
+            }).toList();
+            try {
+                envios.invokeAll(tareas);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        } while (reservados.size() == lote);
+    }
+
+    void procesar(MensajeSwitch m) {
+        try {
+            switch (m.getTipo()) {
+                case TRANSFERENCIA -> enviarTransferencia(m);
+                case DEVOLUCION -> enviarDevolucion(m);
+                case CALLBACK -> enviarCallback(m);
+            }
+        } catch (Exception e) {
+            fallo(m, e);
+        }
+    }
+
+    private void enviarTransferencia(MensajeSwitch m) {
+        // Resuelta por otra vía (reembolsada, por ejemplo) mientras esperaba: ya no se envía
+        Boolean porEnviar = transaccion.execute(status -> {
+            if (transaccionService.salidaPorEnviar(m.getReferencia())) {
+                return true;
+            }
+            mensajeSwitchRepository.borrar(m.getIdMensaje());
+            return false;
+        });
+        if (!Boolean.TRUE.equals(porEnviar)) {
+            descartados.increment();
+            log.warn("Transferencia {} ya no está PENDIENTE; se descarta su envío al Switch", m.getReferencia());
+            return;
+        }
+        SwitchTransferResponse respuesta;
+        try {
+            respuesta = switchClient.enviarTransferencia(leer(m, SwitchTransferRequest.class));
+        } catch (FeignException.Conflict e) {
+            // Reenvío tras una reserva vencida: el Switch ya la tiene y su estado lo resuelve la consulta
+            log.info("Transferencia {} ya registrada en el Switch", m.getReferencia());
+            mensajeSwitchRepository.borrar(m.getIdMensaje());
+            entregados.increment();
+            completador.seguir(m.getReferencia());
+            return;
+        }
+        Boolean enCurso = transaccion.execute(status -> {
+            boolean pendiente = transaccionService.registrarRespuestaSalida(m.getReferencia(), respuesta);
+            mensajeSwitchRepository.borrar(m.getIdMensaje());
+            return pendiente;
+        });
+        entregados.increment();
+        if (Boolean.TRUE.equals(enCurso)) {
+            completador.seguir(m.getReferencia());
+        }
+    }
+
+    private void enviarDevolucion(MensajeSwitch m) {
+        try {
+            SwitchTransferResponse resp = switchClient.solicitarDevolucion(leer(m, SwitchRefundRequest.class));
+            if (resp != null && !resp.isSuccess()) {
+                log.warn("El Switch rechazó la devolución automática de {}: {}", m.getReferencia(),
+                        resp.getError() != null ? resp.getError().getMessage() : "sin detalle");
+            }
+        } catch (Exception e) {
+            if (!TransaccionServiceImpl.devolucionYaResuelta(e)) {
+                throw e;
+            }
+        }
+        mensajeSwitchRepository.borrar(m.getIdMensaje());
+        entregados.increment();
+    }
+
+    private void enviarCallback(MensajeSwitch m) {
+        switchClient.enviarCallback(leer(m, StatusReportDTO.class));
+        mensajeSwitchRepository.borrar(m.getIdMensaje());
+        entregados.increment();
+    }
+
+    /**
+     * Los 4xx (salvo 408 y 429) y un contenido ilegible no mejoran
+     * reintentando: se descartan de inmediato, igual que al agotar intentos.
+     */
+    private void fallo(MensajeSwitch m, Exception e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        boolean definitivo = e instanceof ContenidoIlegible
+                || (e instanceof FeignException fe && fe.status() >= 400 && fe.status() < 500
+                        && fe.status() != 408 && fe.status() != 429);
+        if (!definitivo && m.getIntentos() < maxIntentos) {
+            LocalDateTime proximo = LocalDateTime.now().plus(Duration.ofMillis(retraso(m.getIntentos() - 1)));
+            mensajeSwitchRepository.reprogramar(m.getIdMensaje(), proximo, recortar(error));
+            reintentos.increment();
+            log.warn("Mensaje {} {} de {} falló (intento {}), se reintenta a las {}: {}", m.getIdMensaje(),
+                    m.getTipo(), m.getReferencia(), m.getIntentos(), proximo, error);
+            return;
+        }
+        try {
+            descartar(m, error);
+        } catch (Exception ex) {
+            // El mensaje queda; al vencer la reserva se vuelve a intentar el descarte
+            log.error("No se pudo descartar el mensaje {} de {}: {}", m.getIdMensaje(), m.getReferencia(),
+                    ex.getMessage());
+        }
+    }
+
+    private void descartar(MensajeSwitch m, String error) {
+        if (m.getTipo() == TipoMensajeSwitch.TRANSFERENCIA) {
+            transaccion.executeWithoutResult(status -> {
+                transaccionService.cancelarEnvioSalida(m.getReferencia(), error);
+                mensajeSwitchRepository.borrar(m.getIdMensaje());
+            });
+        } else {
+            mensajeSwitchRepository.borrar(m.getIdMensaje());
+        }
+        descartados.increment();
+        log.error("Mensaje {} {} de {} descartado tras {} intentos: {}", m.getIdMensaje(), m.getTipo(),
+                m.getReferencia(), m.getIntentos(), error);
+    }
+
+    private <T> T leer(MensajeSwitch m, Class<T> tipo) {
+        try {
+            return objectMapper.readValue(m.getContenido(), tipo);
+        } catch (JsonProcessingException e) {
+            throw new ContenidoIlegible(e);
+        }
+    }
+
+    /** Backoff exponencial acotado con jitter multiplicativo de ±{@code jitter}. */
+    long retraso(int intento) {
+        long base = backoffBaseMs << Math.min(Math.max(intento, 0), 20);
+        if (base <= 0 || base > backoffMaxMs) {
+            base = backoffMaxMs;
+        }
+        double factor = 1 + (ThreadLocalRandom.current().nextDouble() * 2 - 1) * jitter;
+        return Math.max(1, (long) (base * factor));
+    }
+
+    private static String recortar(String error) {
+        return error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("transaccion.bandeja.mensajes")
+                .description("Mensajes de la bandeja de salida al Switch")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void detener() {
+        envios.shutdown();
+    }
+
+    private static class ContenidoIlegible extends RuntimeException {
+        ContenidoIlegible(Throwable causa) {
+            super("Contenido ilegible: " + causa.getMessage(), causa);
+        }
+    }
+}
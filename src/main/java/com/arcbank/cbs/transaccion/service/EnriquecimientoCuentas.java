@@ -0,0 +1,230 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.arcbank.cbs.transaccion.client.ClienteClient;
+import com.arcbank.cbs.transaccion.client.CuentaCliente;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resuelve número de cuenta y nombre del titular para un conjunto de
+ * cuentas: primero las cuentas distintas, luego los clientes distintos, y
+ * une los resultados en memoria. Solo se consulta lo que no está en
+ * {@link CacheMetadatosCuenta}. Con consulta por lote activa usa los
+ * endpoints bulk de ms-cuentas y ms-clientes; si no están disponibles cae a
+ * consultas por id con concurrencia acotada. Una cuenta que no se pudo
+ * resolver simplemente no aparece en el resultado.
+ */
+@Slf4j
+@Component
+public class EnriquecimientoCuentas {
+
+    private final CuentaCliente cuentaCliente;
+    private final ClienteClient clienteClient;
+    private final CacheMetadatosCuenta cacheMetadatos;
+    private final ExecutorService ejecutorVirtual;
+    private final boolean consultaLote;
+    private final int tamanoLote;
+    private final int concurrencia;
+
+    public EnriquecimientoCuentas(CuentaCliente cuentaCliente, ClienteClient clienteClient,
+            CacheMetadatosCuenta cacheMetadatos, ExecutorService ejecutorVirtual,
+            @Value("${app.enriquecimiento.consulta-lote:false}") boolean consultaLote,
+            @Value("${app.enriquecimiento.tamano-lote:200}") int tamanoLote,
+            @Value("${app.enriquecimiento.concurrencia:16}") int concurrencia) {
+        this.cuentaCliente = cuentaCliente;
+        this.clienteClient = clienteClient;
+        this.cacheMetadatos = cacheMetadatos;
+        this.ejecutorVirtual = ejecutorVirtual;
+        this.consultaLote = consultaLote;
+        this.tamanoLote = tamanoLote;
+        this.concurrencia = concurrencia;
+    }
+
+    public Map<Integer, InfoCuenta> resolver(Collection<Integer> idsCuenta) {
+        List<Integer> ids = distintos(idsCuenta);
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Integer, Map<String, Object>> cuentas = new HashMap<>(cacheMetadatos.cuentasEnCache(ids));
+        Map<Integer, Map<String, Object>> cuentasNuevas = consultar(faltantes(ids, cuentas), "idCuenta",
+                cuentaCliente::obtenerCuentas, cuentaCliente::obtenerCuenta);
+        cuentasNuevas.forEach(cacheMetadatos::guardarCuenta);
+        cuentas.putAll(cuentasNuevas);
+
+        List<Integer> idsCliente = distintos(cuentas.values().stream()
+                .map(c -> entero(c.get("idCliente")))
+                .toList());
+        Map<Integer, Map<String, Object>> clientes = new HashMap<>(cacheMetadatos.clientesEnCache(idsCliente));
+        Map<Integer, Map<String, Object>> clientesNuevos = consultar(faltantes(idsCliente, clientes), "idCliente",
+                clienteClient::obtenerClientes, clienteClient::obtenerCliente);
+        clientesNuevos.forEach(cacheMetadatos::guardarCliente);
+        clientes.putAll(clientesNuevos);
+
+        Map<Integer, InfoCuenta> info = new HashMap<>();
+        cuentas.forEach((id, cuenta) -> {
+            String numero = cuenta.get("numeroCuenta") != null ? cuenta.get("numeroCuenta").toString() : null;
+            Map<String, Object> cliente = clientes.get(entero(cuenta.get("idCliente")));
+            info.put(id, new InfoCuenta(numero, nombreCliente(cliente)));
+        });
+        return info;
+    }
+
+    private Map<Integer, Map<String, Object>> consultar(List<Integer> ids, String campoId,
+            Function<List<Integer>, List<Map<String, Object>>> porLote,
+            Function<Integer, Map<String, Object>> porId) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        if (consultaLote) {
+            try {
+                Map<Integer, Map<String, Object>> resultado = new HashMap<>();
+                for (int i = 0; i < ids.size(); i += tamanoLote) {
+                    List<Integer> lote = ids.subList(i, Math.min(i + tamanoLote, ids.size()));
+                    List<Map<String, Object>> respuesta = porLote.apply(lote);
+                    if (respuesta != null) {
+                        for (Map<String, Object> item : respuesta) {
+                            Integer id = entero(item.get(campoId) != null ? item.get(campoId) : item.get("id"));
+                            if (id != null) {
+                                resultado.put(id, item);
+                            }
+                        }
+                    }
+                }
+                return resultado;
+            } catch (Exception e) {
+                log.warn("Consulta por lote no disponible ({}); se consulta por id", e.getMessage());
+            }
+        }
+        return consultarPorId(ids, porId);
+    }
+
+    private Map<Integer, Map<String, Object>> consultarPorId(List<Integer> ids,
+            Function<Integer, Map<String, Object>> porId) {
+        Semaphore permisos = new Semaphore(concurrencia);
+        Map<Integer, CompletableFuture<Map<String, Object>>> futuros = new HashMap<>();
+        for (Integer id : ids) {
+            futuros.put(id, CompletableFuture.supplyAsync(() -> {
+                permisos.acquireUninterruptibly();
+                try {
+                    return porId.apply(id);
+                } catch (Exception e) {
+                    return null;
+                } finally {
+                    permisos.release();
+                }
+            }, ejecutorVirtual));
+        }
+
+        Map<Integer, Map<String, Object>> resultado = new HashMap<>();
+        futuros.forEach((id, f) -> {
+            Map<String, Object> valor = f.join();
+            if (valor != null) {
+                resultado.put(id, valor);
+            }
+        });
+        return resultado;
+    }
+
+    private static String nombreCliente(Map<String, Object> cliente) {
+        if (cliente == null) {
+            return null;
+        }
+        String nombre = "";
+        if (cliente.get("nombreCompleto") != null) {
+            nombre = cliente.get("nombreCompleto").toString();
+        } else if (cliente.get("nombres") != null) {
+            nombre = cliente.get("nombres").toString();
+            if (cliente.get("apellidos") != null) {
+                nombre += " " + cliente.get("apellidos");
+            }
+        }
+        return nombre.trim().isEmpty() ? null : nombre.trim();
+    }
+
+    private static List<Integer> distintos(Collection<Integer> ids) {
+        return new ArrayList<>(ids.stream().filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+    }
+
+    private static List<Integer> faltantes(List<Integer> ids, Map<Integer, ?> encontrados) {
+        return ids.stream().filter(id -> !encontrados.containsKey(id)).toList();
+    }
+
+    private static Integer entero(Object valor) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(valor.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Número y nombre de origen y destino tal como se muestran al cliente:
+     * las cuentas locales salen de {@code info}; un destino externo usa la
+     * cuenta externa y el beneficiario, o el banco si no hay beneficiario.
+     */
+    static Contrapartes contrapartes(Integer idCuentaOrigen, Integer idCuentaDestino, String cuentaExterna,
+            String beneficiario, String idBancoExterno, Map<Integer, InfoCuenta> info) {
+        String numeroCuentaOrigen = null;
+        String nombreOrigen = null;
+        InfoCuenta infoOrigen = idCuentaOrigen != null ? info.get(idCuentaOrigen) : null;
+        if (infoOrigen != null) {
+            numeroCuentaOrigen = infoOrigen.numeroCuenta();
+            nombreOrigen = infoOrigen.nombreCliente();
+        }
+
+        String numeroCuentaDestino = null;
+        String nombreDestino = null;
+        if (idCuentaDestino != null) {
+            InfoCuenta infoDestino = info.get(idCuentaDestino);
+            if (infoDestino != null) {
+                numeroCuentaDestino = infoDestino.numeroCuenta();
+                nombreDestino = infoDestino.nombreCliente();
+            }
+        } else if (cuentaExterna != null) {
+            numeroCuentaDestino = cuentaExterna;
+            if (beneficiario != null && !beneficiario.isBlank()) {
+                nombreDestino = beneficiario;
+            } else {
+                nombreDestino = idBancoExterno != null ? "Cliente " + idBancoExterno : "Cuenta Externa";
+            }
+        }
+        return new Contrapartes(numeroCuentaOrigen, nombreOrigen, numeroCuentaDestino, nombreDestino);
+    }
+
+    public record InfoCuenta(String numeroCuenta, String nombreCliente) {
+    }
+
+    record Contrapartes(String numeroCuentaOrigen, String nombreOrigen, String numeroCuentaDestino,
+            String nombreDestino) {
+
+        /** Conserva los valores propios y toma de {@code otras} solo los que faltan. */
+        Contrapartes completarCon(Contrapartes otras) {
+            return new Contrapartes(
+                    numeroCuentaOrigen != null ? numeroCuentaOrigen : otras.numeroCuentaOrigen(),
+                    nombreOrigen != null ? nombreOrigen : otras.nombreOrigen(),
+                    numeroCuentaDestino != null ? numeroCuentaDestino : otras.numeroCuentaDestino(),
+                    nombreDestino != null ? nombreDestino : otras.nombreDestino());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Datos del ordenante para el mensaje al Switch. La cuenta se consulta una
+ * sola vez (vía {@link CacheMetadatosCuenta}) y el cliente a partir de ella,
+ * en un hilo virtual, para que la latencia se solape con el débito. Si no termina antes del plazo se usan
+ * los valores por defecto, igual que cuando ms-cuentas o ms-clientes fallan.
+ */
+@Slf4j
+@Component
+public class EnriquecimientoDeudor {
+
+    static final String NOMBRE_POR_DEFECTO = "Cliente Bantec";
+
+    private final CacheMetadatosCuenta cacheMetadatos;
+    private final ExecutorService ejecutorVirtual;
+    private final long plazoMs;
+
+    public EnriquecimientoDeudor(CacheMetadatosCuenta cacheMetadatos, ExecutorService ejecutorVirtual,
+            @Value("${app.switch.enriquecimiento.plazo-ms:2000}") long plazoMs) {
+        this.cacheMetadatos = cacheMetadatos;
+        this.ejecutorVirtual = ejecutorVirtual;
+        this.plazoMs = plazoMs;
+    }
+
+    /**
+     * Lanza la consulta y retorna de inmediato. El futuro nunca termina con
+     * error: ante fallo o plazo vencido entrega los valores por defecto. El
+     * plazo es el configurado o lo que quede del {@link PlazoOperacion}.
+     */
+    public CompletableFuture<DatosDeudor> iniciar(Integer idCuenta) {
+        DatosDeudor porDefecto = new DatosDeudor(String.valueOf(idCuenta), NOMBRE_POR_DEFECTO);
+        CompletableFuture<DatosDeudor> consulta = CompletableFuture.supplyAsync(() -> consultar(idCuenta), ejecutorVirtual);
+
+        return consulta
+                .orTimeout(PlazoOperacion.acotar(plazoMs), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    consulta.cancel(true);
+                    log.warn("No se pudo obtener detalle completo del cliente/cuenta {}: {}", idCuenta, e.toString());
+                    return porDefecto;
+                });
+    }
+
+    private DatosDeudor consultar(Integer idCuenta) {
+        Map<String, Object> cuenta = cacheMetadatos.cuenta(idCuenta);
+        String numeroCuenta = cuenta != null && cuenta.get("numeroCuenta") != null
+                ? cuenta.get("numeroCuenta").toString()
+                : String.valueOf(idCuenta);
+
+        String nombre = NOMBRE_POR_DEFECTO;
+        if (cuenta != null && cuenta.get("idCliente") != null) {
+            try {
+                Integer idCliente = Integer.valueOf(cuenta.get("idCliente").toString());
+                Map<String, Object> cliente = cacheMetadatos.cliente(idCliente);
+                if (cliente != null && cliente.get("nombre") != null) {
+                    nombre = cliente.get("nombre").toString();
+                }
+            } catch (Exception e) {
+                log.warn("No se pudo obtener el cliente de la cuenta {}: {}", idCuenta, e.getMessage());
+            }
+        }
+        return new DatosDeudor(numeroCuenta, nombre);
+    }
+
+    public record DatosDeudor(String numeroCuenta, String nombre) {
+    }
+}
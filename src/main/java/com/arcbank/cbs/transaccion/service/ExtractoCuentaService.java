@@ -0,0 +1,195 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+import com.arcbank.cbs.transaccion.model.EstadoTransaccion;
+import com.arcbank.cbs.transaccion.model.TipoOperacion;
+import com.arcbank.cbs.transaccion.repository.TransaccionRepository;
+import com.arcbank.cbs.transaccion.repository.TransaccionRepository.MovimientoExtracto;
+import com.arcbank.cbs.transaccion.service.EnriquecimientoCuentas.Contrapartes;
+import com.arcbank.cbs.transaccion.service.EnriquecimientoCuentas.InfoCuenta;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Extracto de cuenta en CSV o NDJSON escrito directo a la respuesta. Las
+ * filas llegan por cursor del servidor dentro de una transacción de solo
+ * lectura y se enriquecen por bloques, así que la memoria depende del
+ * tamaño del bloque y no del número de movimientos.
+ */
+@Slf4j
+@Service
+public class ExtractoCuentaService {
+
+    public enum Formato {
+        CSV, NDJSON
+    }
+
+    private static final String CABECERA_CSV = "idTransaccion,fechaCreacion,referencia,tipoOperacion,estado,canal,"
+            + "numeroCuentaOrigen,nombreOrigen,numeroCuentaDestino,nombreDestino,monto,saldoResultante,descripcion";
+
+    private final TransaccionRepository transaccionRepository;
+    private final EnriquecimientoCuentas enriquecimientoCuentas;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate soloLectura;
+    private final int loteEnriquecimiento;
+
+    public ExtractoCuentaService(TransaccionRepository transaccionRepository,
+            EnriquecimientoCuentas enriquecimientoCuentas,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.extracto.lote-enriquecimiento:500}") int loteEnriquecimiento) {
+        this.transaccionRepository = transaccionRepository;
+        this.enriquecimientoCuentas = enriquecimientoCuentas;
+        this.objectMapper = objectMapper;
+        this.soloLectura = new TransactionTemplate(transactionManager);
+        this.soloLectura.setReadOnly(true);
+        this.loteEnriquecimiento = loteEnriquecimiento;
+    }
+
+    public void validar(Integer idCuenta, LocalDateTime desde, LocalDateTime hasta) {
+        if (idCuenta == null || desde == null || hasta == null) {
+            throw new BusinessException("Cuenta, desde y hasta son obligatorios para el extracto");
+        }
+        if (!desde.isBefore(hasta)) {
+            throw new BusinessException("El rango del extracto es inválido: desde debe ser anterior a hasta");
+        }
+    }
+
+    /**
+     * Escribe los movimientos de {@code idCuenta} en [desde, hasta). No cierra
+     * {@code salida}.
+     */
+    public long exportar(Integer idCuenta, LocalDateTime desde, LocalDateTime hasta, Formato formato,
+            OutputStream salida) {
+        validar(idCuenta, desde, hasta);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+
+        Long filas = soloLectura.execute(status -> {
+            try (Stream<MovimientoExtracto> movimientos =
+                    transaccionRepository.streamMovimientosExtracto(idCuenta, desde, hasta)) {
+                if (formato == Formato.CSV) {
+                    writer.write(CABECERA_CSV);
+                    writer.write('\n');
+                }
+                long escritas = 0;
+                List<MovimientoExtracto> bloque = new ArrayList<>(loteEnriquecimiento);
+                Iterator<MovimientoExtracto> it = movimientos.iterator();
+                while (it.hasNext()) {
+                    bloque.add(it.next());
+                    if (bloque.size() == loteEnriquecimiento || !it.hasNext()) {
+                        escribirBloque(bloque, idCuenta, formato, writer);
+                        escritas += bloque.size();
+                        bloque.clear();
+                    }
+                }
+                writer.flush();
+                return escritas;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("Extracto de la cuenta {} ({} a {}): {} movimientos en {}", idCuenta, desde, hasta, filas, formato);
+        return filas != null ? filas : 0;
+    }
+
+    private void escribirBloque(List<MovimientoExtracto> bloque, Integer idCuenta, Formato formato, Writer writer)
+            throws IOException {
+        List<Integer> ids = new ArrayList<>(bloque.size() * 2);
+        for (MovimientoExtracto m : bloque) {
+            if (m.getIdCuentaOrigen() != null && m.getNumeroCuentaOrigen() == null) {
+                ids.add(m.getIdCuentaOrigen());
+            }
+            if (m.getIdCuentaDestino() != null && m.getNumeroCuentaDestino() == null) {
+                ids.add(m.getIdCuentaDestino());
+            }
+        }
+        Map<Integer, InfoCuenta> info = enriquecimientoCuentas.resolver(ids);
+
+        for (MovimientoExtracto m : bloque) {
+            Contrapartes partes = new Contrapartes(m.getNumeroCuentaOrigen(), m.getNombreOrigen(),
+                    m.getNumeroCuentaDestino(), m.getNombreDestino())
+                    .completarCon(EnriquecimientoCuentas.contrapartes(m.getIdCuentaOrigen(), m.getIdCuentaDestino(),
+                            m.getCuentaExterna(), m.getBeneficiario(), m.getIdBancoExterno(), info));
+            LineaExtracto linea = new LineaExtracto(m.getIdTransaccion(), m.getFechaCreacion(), m.getReferencia(),
+                    TipoOperacion.deCodigo(m.getTipoOperacion()).name(),
+                    EstadoTransaccion.deCodigo(m.getEstado()).name(), m.getCanal(),
+                    partes.numeroCuentaOrigen(), partes.nombreOrigen(),
+                    partes.numeroCuentaDestino(), partes.nombreDestino(),
+                    m.getMonto(), saldoParaCuenta(m, idCuenta), m.getDescripcion());
+            if (formato == Formato.CSV) {
+                writer.write(aCsv(linea));
+            } else {
+                writer.write(aJson(linea));
+            }
+            writer.write('\n');
+        }
+    }
+
+    /** Igual que el historial: en un crédito la cuenta ve su propio saldo resultante. */
+    private static BigDecimal saldoParaCuenta(MovimientoExtracto m, Integer idCuenta) {
+        if (idCuenta.equals(m.getIdCuentaDestino()) && m.getSaldoResultanteDestino() != null) {
+            return m.getSaldoResultanteDestino();
+        }
+        return m.getSaldoResultante();
+    }
+
+    private String aJson(LineaExtracto linea) {
+        try {
+            return objectMapper.writeValueAsString(linea);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String aCsv(LineaExtracto l) {
+        return String.join(",",
+                campo(l.idTransaccion()), campo(l.fechaCreacion()), campo(l.referencia()),
+                campo(l.tipoOperacion()), campo(l.estado()), campo(l.canal()),
+                campo(l.numeroCuentaOrigen()), campo(l.nombreOrigen()),
+                campo(l.numeroCuentaDestino()), campo(l.nombreDestino()),
+                campo(l.monto() != null ? l.monto().toPlainString() : null),
+                campo(l.saldoResultante() != null ? l.saldoResultante().toPlainString() : null),
+                campo(l.descripcion()));
+    }
+
+    private static String campo(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        String texto = valor.toString();
+        if (texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0 || texto.indexOf('\n') >= 0
+                || texto.indexOf('\r') >= 0) {
+            return '"' + texto.replace("\"", "\"\"") + '"';
+        }
+        return texto;
+    }
+
+    record LineaExtracto(Integer idTransaccion, LocalDateTime fechaCreacion, String referencia,
+            String tipoOperacion, String estado, String canal,
+            String numeroCuentaOrigen, String nombreOrigen,
+            String numeroCuentaDestino, String nombreDestino,
+            BigDecimal monto, BigDecimal saldoResultante, String descripcion) {
+    }
+}
@@ -0,0 +1,168 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.arcbank.cbs.transaccion.dto.AsientoContableDTO;
+import com.arcbank.cbs.transaccion.dto.SaldoLocalDTO;
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+import com.arcbank.cbs.transaccion.model.AsientoContable;
+import com.arcbank.cbs.transaccion.model.SaldoCuenta;
+import com.arcbank.cbs.transaccion.model.Transaccion;
+import com.arcbank.cbs.transaccion.repository.AsientoContableRepository;
+import com.arcbank.cbs.transaccion.repository.SaldoCuentaRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Libro mayor local. Los movimientos de saldo aplicados en ms-cuentas se
+ * anotan en la transacción de base de datos en curso y se asientan cuando se
+ * guarda la {@link Transaccion} que los originó, de modo que asientos, saldo
+ * materializado y transacción se confirman (o revierten) juntos.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LibroMayorService {
+
+    private static final Object CLAVE_PENDIENTES = new Object();
+    private static final int MAX_LIMITE = 1000;
+
+    private final AsientoContableRepository asientoContableRepository;
+    private final SaldoCuentaRepository saldoCuentaRepository;
+
+    /**
+     * Registra una pierna pendiente de asentar. Fuera de una transacción
+     * activa no hay nada con qué asentarla, así que se ignora.
+     */
+    public void anotar(Integer idCuenta, BigDecimal montoCambio, BigDecimal saldoResultante) {
+        if (idCuenta == null || montoCambio == null || montoCambio.signum() == 0 || saldoResultante == null) {
+            return;
+        }
+        List<Pierna> pendientes = pendientes();
+        if (pendientes == null) {
+            log.debug("Movimiento de la cuenta {} fuera de transacción: no se asienta", idCuenta);
+            return;
+        }
+        pendientes.add(new Pierna(idCuenta, montoCambio, saldoResultante));
+    }
+
+    /**
+     * Escribe los asientos anotados y actualiza el saldo materializado de
+     * cada cuenta. Debe llamarse después de guardar la transacción, dentro de
+     * la misma transacción de base de datos.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void asentar(Transaccion transaccion) {
+        List<Pierna> pendientes = pendientes();
+        if (pendientes == null || pendientes.isEmpty()) {
+            return;
+        }
+        List<Pierna> piernas = new ArrayList<>(pendientes);
+        pendientes.clear();
+
+        for (Pierna p : piernas) {
+            AsientoContable asiento = asientoContableRepository.save(AsientoContable.builder()
+                    .idTransaccion(transaccion.getIdTransaccion())
+                    .idCuenta(p.idCuenta())
+                    .tipo(p.montoCambio().signum() < 0 ? AsientoContable.DEBITO : AsientoContable.CREDITO)
+                    .monto(p.montoCambio().abs())
+                    .saldoResultante(p.saldoResultante())
+                    .build());
+            saldoCuentaRepository.aplicarDelta(p.idCuenta(), p.montoCambio(), p.saldoResultante(),
+                    asiento.getIdAsiento());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public SaldoLocalDTO obtenerSaldo(Integer idCuenta) {
+        SaldoCuenta saldo = saldoCuentaRepository.findById(idCuenta)
+                .orElseThrow(() -> new BusinessException("La cuenta ID " + idCuenta + " no tiene movimientos en el libro mayor."));
+        return mapearSaldo(saldo);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<AsientoContableDTO> obtenerAsientos(Integer idCuenta, int pagina, int tamano) {
+        if (pagina < 0 || tamano < 1) {
+            throw new BusinessException("La página debe ser 0 o mayor y el tamaño al menos 1.");
+        }
+        return asientoContableRepository
+                .findByIdCuentaOrderByIdAsientoDesc(idCuenta, PageRequest.of(pagina, Math.min(tamano, MAX_LIMITE)))
+                .map(this::mapearAsiento);
+    }
+
+    /**
+     * Listado por bloques (keyset sobre IdCuenta) para conciliar contra
+     * ms-cuentas sin recorrer cuenta por cuenta.
+     */
+    @Transactional(readOnly = true)
+    public List<SaldoLocalDTO> listarSaldos(Integer desdeIdCuenta, int limite) {
+        if (limite < 1) {
+            throw new BusinessException("El límite debe ser al menos 1.");
+        }
+        return saldoCuentaRepository
+                .findByIdCuentaGreaterThanOrderByIdCuentaAsc(desdeIdCuenta != null ? desdeIdCuenta : 0,
+                        Limit.of(Math.min(limite, MAX_LIMITE)))
+                .stream()
+                .map(this::mapearSaldo)
+                .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Pierna> pendientes() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        List<Pierna> pendientes = (List<Pierna>) TransactionSynchronizationManager.getResource(CLAVE_PENDIENTES);
+        if (pendientes == null) {
+            pendientes = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(CLAVE_PENDIENTES, pendientes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    List<?> sinAsentar = (List<?>) TransactionSynchronizationManager
+                            .unbindResourceIfPossible(CLAVE_PENDIENTES);
+                    if (sinAsentar != null && !sinAsentar.isEmpty() && status == STATUS_COMMITTED) {
+                        log.warn("{} movimientos de saldo confirmados sin asiento contable", sinAsentar.size());
+                    }
+                }
+            });
+        }
+        return pendientes;
+    }
+
+    private SaldoLocalDTO mapearSaldo(SaldoCuenta s) {
+        return SaldoLocalDTO.builder()
+                .idCuenta(s.getIdCuenta())
+                .saldo(s.getSaldo())
+                .idUltimoAsiento(s.getIdUltimoAsiento())
+                .fechaActualizacion(s.getFechaActualizacion())
+                .build();
+    }
+
+    private AsientoContableDTO mapearAsiento(AsientoContable a) {
+        return AsientoContableDTO.builder()
+                .idAsiento(a.getIdAsiento())
+                .idTransaccion(a.getIdTransaccion())
+                .idCuenta(a.getIdCuenta())
+                .tipo(a.getTipo())
+                .monto(a.getMonto())
+                .saldoResultante(a.getSaldoResultante())
+                .fechaCreacion(a.getFechaCreacion())
+                .build();
+    }
+
+    private record Pierna(Integer idCuenta, BigDecimal montoCambio, BigDecimal saldoResultante) {
+    }
+}
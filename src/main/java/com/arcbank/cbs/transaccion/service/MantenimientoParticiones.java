@@ -0,0 +1,230 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mantiene las particiones mensuales de Transaccion (V10): crea por
+ * adelantado las de los próximos meses y, si hay directorio de archivo,
+ * separa las que superan la retención, las exporta a CSV comprimido y las
+ * elimina. La unicidad de sus referencias sigue en ReferenciaTransaccion.
+ * Sobre una tabla sin particionar no hace nada.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.particiones.enabled", havingValue = "true", matchIfMissing = true)
+public class MantenimientoParticiones {
+
+    private static final Pattern PARTICION = Pattern.compile("Transaccion_(\\d{4}_\\d{2})");
+    private static final DateTimeFormatter SUFIJO = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    static final String ES_PARTICIONADA = """
+            SELECT EXISTS (SELECT 1 FROM pg_partitioned_table p
+                           JOIN pg_class c ON c.oid = p.partrelid
+                           JOIN pg_namespace n ON n.oid = c.relnamespace
+                           WHERE n.nspname = 'public' AND c.relname = 'Transaccion')
+            """;
+
+    /** Particiones adjuntas y las separadas que quedaron sin archivar. */
+    static final String LISTAR = """
+            SELECT c.relname AS nombre, c.relispartition AS adjunta
+            FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE n.nspname = 'public' AND c.relkind = 'r' AND c.relname LIKE 'Transaccion\\_%'
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaccion;
+    private final Counter archivadas;
+    private final int mesesAdelante;
+    private final int mesesRetencion;
+    private final long lockTimeoutMs;
+    private final Path directorio;
+
+    public MantenimientoParticiones(JdbcTemplate jdbc,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.particiones.meses-adelante:3}") int mesesAdelante,
+            @Value("${app.particiones.archivo.meses-retencion:24}") int mesesRetencion,
+            @Value("${app.particiones.lock-timeout-ms:5000}") long lockTimeoutMs,
+            @Value("${app.particiones.archivo.directorio:}") String directorio) {
+        this.jdbc = jdbc;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.mesesAdelante = mesesAdelante;
+        this.mesesRetencion = mesesRetencion;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.directorio = directorio == null || directorio.isBlank() ? null : Path.of(directorio);
+        this.archivadas = Counter.builder("transaccion.particiones.archivadas")
+                .description("Particiones mensuales exportadas y eliminadas")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.particiones.intervalo-ms:21600000}",
+            initialDelayString = "${app.particiones.inicial-ms:90000}")
+    public void mantener() {
+        mantener(YearMonth.now());
+    }
+
+    void mantener(YearMonth actual) {
+        if (!particionada()) {
+            log.debug("Transaccion no está particionada; sin mantenimiento de particiones");
+            return;
+        }
+        List<Particion> particiones = listar();
+        crearFuturas(actual, particiones);
+        if (directorio != null) {
+            archivarAnteriores(actual, particiones);
+        }
+    }
+
+    private boolean particionada() {
+        try {
+            return Boolean.TRUE.equals(jdbc.queryForObject(ES_PARTICIONADA, Boolean.class));
+        } catch (DataAccessException e) {
+            log.warn("No se pudo consultar el catálogo de particiones: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private List<Particion> listar() {
+        return jdbc.queryForList(LISTAR).stream()
+                .map(MantenimientoParticiones::particion)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(Particion::mes))
+                .toList();
+    }
+
+    private static Particion particion(Map<String, Object> fila) {
+        String nombre = (String) fila.get("nombre");
+        Matcher m = PARTICION.matcher(nombre);
+        if (!m.matches()) {
+            return null;
+        }
+        return new Particion(nombre, YearMonth.parse(m.group(1), SUFIJO), Boolean.TRUE.equals(fila.get("adjunta")));
+    }
+
+    /**
+     * El mes en curso y los siguientes. Si una fila ya cayó en la partición
+     * por defecto para ese rango, la creación falla y se reporta: hay que
+     * moverla a mano antes de reintentar.
+     */
+    private void crearFuturas(YearMonth actual, List<Particion> existentes) {
+        for (int i = 0; i <= mesesAdelante; i++) {
+            YearMonth mes = actual.plusMonths(i);
+            if (existentes.stream().anyMatch(p -> p.mes().equals(mes))) {
+                continue;
+            }
+            String nombre = nombre(mes);
+            try {
+                ddl("CREATE TABLE IF NOT EXISTS public.\"" + nombre + "\" PARTITION OF public.\"Transaccion\""
+                        + " FOR VALUES FROM ('" + mes.atDay(1) + "') TO ('" + mes.plusMonths(1).atDay(1) + "')");
+                log.info("Partición {} creada", nombre);
+            } catch (DataAccessException e) {
+                log.error("No se pudo crear la partición {}: {}", nombre, e.getMessage());
+            }
+        }
+    }
+
+    private void archivarAnteriores(YearMonth actual, List<Particion> particiones) {
+        YearMonth limite = actual.minusMonths(mesesRetencion);
+        for (Particion p : particiones) {
+            if (!p.mes().isBefore(limite)) {
+                break;
+            }
+            try {
+                archivar(p);
+            } catch (Exception e) {
+                log.error("No se pudo archivar la partición {}; se reintentará: {}", p.nombre(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Separar primero saca la partición de las consultas; la tabla solo se
+     * elimina cuando el archivo tiene todas sus filas. Si algo falla queda
+     * separada y el siguiente ciclo retoma desde la exportación.
+     */
+    void archivar(Particion p) throws IOException {
+        String tabla = "public.\"" + p.nombre() + "\"";
+        if (p.adjunta()) {
+            ddl("ALTER TABLE public.\"Transaccion\" DETACH PARTITION " + tabla);
+        }
+        Long filas = jdbc.queryForObject("SELECT count(*) FROM " + tabla, Long.class);
+        Path archivo = directorio.resolve(p.nombre() + ".csv.gz");
+        long exportadas = exportar(tabla, archivo);
+        if (filas == null || exportadas != filas) {
+            throw new IllegalStateException("exportadas " + exportadas + " de " + filas + " filas");
+        }
+        jdbc.execute("DROP TABLE IF EXISTS " + tabla);
+        archivadas.increment();
+        log.info("Partición {} archivada en {} ({} filas)", p.nombre(), archivo, exportadas);
+    }
+
+    /** COPY a un temporal sincronizado en disco y renombrado al terminar. */
+    private long exportar(String tabla, Path archivo) throws IOException {
+        Files.createDirectories(directorio);
+        Path temporal = Files.createTempFile(directorio, archivo.getFileName().toString(), ".tmp");
+        try {
+            Long exportadas = jdbc.execute((ConnectionCallback<Long>) con -> {
+                try (FileOutputStream salida = new FileOutputStream(temporal.toFile());
+                        GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(salida, 1 << 16))) {
+                    long n = con.unwrap(PGConnection.class).getCopyAPI()
+                            .copyOut("COPY " + tabla + " TO STDOUT WITH (FORMAT csv, HEADER)", gzip);
+                    gzip.finish();
+                    gzip.flush();
+                    salida.getFD().sync();
+                    return n;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return exportadas != null ? exportadas : -1;
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /** DDL sobre la tabla padre sin quedar en cola detrás de consultas largas. */
+    private void ddl(String sql) {
+        transaccion.executeWithoutResult(status -> {
+            jdbc.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+            jdbc.execute(sql);
+        });
+    }
+
+    static String nombre(YearMonth mes) {
+        return "Transaccion_" + mes.format(SUFIJO);
+    }
+
+    record Particion(String nombre, YearMonth mes, boolean adjunta) {
+    }
+}
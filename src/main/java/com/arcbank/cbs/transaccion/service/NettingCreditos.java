@@ -0,0 +1,156 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Agrupa los créditos entrantes de una misma cuenta que llegan dentro de una
+ * ventana corta y los aplica con un único movimiento de saldo. Cada llamador
+ * recibe su saldo resultante "corrido" como si los créditos se hubieran
+ * aplicado uno a uno en orden de llegada. Solo para créditos: los débitos
+ * siguen validando fondos de forma individual.
+ */
+@Slf4j
+@Component
+public class NettingCreditos {
+
+    private final ConcurrentHashMap<Integer, Lote> lotes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService planificador;
+    private final DistributionSummary tamanoLote;
+    private final boolean habilitado;
+    private final long ventanaMs;
+    private final int maxLote;
+
+    public NettingCreditos(MeterRegistry meterRegistry,
+            @Value("${app.saldo.netting.enabled:false}") boolean habilitado,
+            @Value("${app.saldo.netting.ventana-ms:5}") long ventanaMs,
+            @Value("${app.saldo.netting.max-lote:200}") int maxLote,
+            @Value("${app.saldo.netting.hilos:4}") int hilos) {
+        this.habilitado = habilitado;
+        this.ventanaMs = ventanaMs;
+        this.maxLote = maxLote;
+        AtomicInteger contador = new AtomicInteger();
+        this.planificador = Executors.newScheduledThreadPool(hilos, r -> {
+            Thread t = new Thread(r, "netting-creditos-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.tamanoLote = DistributionSummary.builder("transaccion.saldo.netting.lote")
+                .description("Créditos combinados por movimiento de saldo")
+                .register(meterRegistry);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Encola el crédito en el lote abierto de la cuenta (o abre uno nuevo) y
+     * espera a que el lote se aplique. El aplicador recibe el total combinado
+     * y debe retornar el saldo final de la cuenta.
+     */
+    public BigDecimal acreditar(Integer idCuenta, BigDecimal monto,
+            BiFunction<Integer, BigDecimal, BigDecimal> aplicador) {
+        Credito credito = new Credito(monto);
+        Lote[] lleno = new Lote[1];
+
+        lotes.compute(idCuenta, (k, lote) -> {
+            if (lote == null) {
+                Lote nuevo = new Lote(aplicador);
+                planificador.schedule(() -> cerrar(k, nuevo), ventanaMs, TimeUnit.MILLISECONDS);
+                lote = nuevo;
+            }
+            lote.creditos.add(credito);
+            if (lote.creditos.size() >= maxLote) {
+                lleno[0] = lote;
+            }
+            return lote;
+        });
+
+        if (lleno[0] != null) {
+            Lote lote = lleno[0];
+            planificador.execute(() -> cerrar(idCuenta, lote));
+        }
+
+        try {
+            return credito.resultado.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Operación interrumpida acreditando la cuenta ID: " + idCuenta);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusinessException be) {
+                throw be;
+            }
+            throw new BusinessException("Error al actualizar el saldo de la cuenta ID: " + idCuenta);
+        }
+    }
+
+    private void cerrar(Integer idCuenta, Lote lote) {
+        // remove(k, v) garantiza que el lote se aplica una sola vez aunque
+        // coincidan el timer de la ventana y el corte por tamaño
+        if (!lotes.remove(idCuenta, lote)) {
+            return;
+        }
+
+        BigDecimal total = lote.creditos.stream()
+                .map(c -> c.monto)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        tamanoLote.record(lote.creditos.size());
+
+        try {
+            BigDecimal saldoFinal = lote.aplicador.apply(idCuenta, total);
+            BigDecimal corrido = saldoFinal.subtract(total);
+            for (Credito c : lote.creditos) {
+                corrido = corrido.add(c.monto);
+                c.resultado.complete(corrido);
+            }
+            log.debug("Netting cuenta {}: {} créditos aplicados por {}", idCuenta, lote.creditos.size(), total);
+        } catch (Throwable e) {
+            log.warn("Falló el lote de netting de la cuenta {} ({} créditos): {}", idCuenta,
+                    lote.creditos.size(), e.getMessage());
+            lote.creditos.forEach(c -> c.resultado.completeExceptionally(e));
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        planificador.shutdown();
+    }
+
+    private static final class Lote {
+        private final BiFunction<Integer, BigDecimal, BigDecimal> aplicador;
+        private final List<Credito> creditos = new ArrayList<>();
+
+        private Lote(BiFunction<Integer, BigDecimal, BigDecimal> aplicador) {
+            this.aplicador = aplicador;
+        }
+    }
+
+    private static final class Credito {
+        private final BigDecimal monto;
+        private final CompletableFuture<BigDecimal> resultado = new CompletableFuture<>();
+
+        private Credito(BigDecimal monto) {
+            this.monto = monto;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Plazo total de la operación en curso en este hilo. Cada salto (llamada
+ * Feign, espera de lock, consulta al Switch, lock en BD) toma como timeout
+ * lo que queda del plazo en lugar del suyo propio, así que la latencia de
+ * una operación la acota la configuración y no la suma de los peores casos.
+ * Un plazo anidado nunca extiende al de afuera.
+ */
+public final class PlazoOperacion {
+
+    /** Milisegundos que le quedan a quien llama; se recibe y se propaga en las llamadas salientes. */
+    public static final String CABECERA = "X-Deadline-Ms";
+
+    /** Instante de vencimiento en {@link System#nanoTime()}; nulo sin plazo. */
+    private static final ThreadLocal<Long> VENCE = new ThreadLocal<>();
+
+    private PlazoOperacion() {
+    }
+
+    /**
+     * Ejecuta la acción con {@code presupuestoMs} como plazo, o el de afuera
+     * si vence antes. Con {@code presupuestoMs} nulo o no positivo solo
+     * hereda el de afuera.
+     */
+    public static <T> T ejecutar(Long presupuestoMs, Supplier<T> accion) {
+        Long anterior = VENCE.get();
+        if (presupuestoMs != null && presupuestoMs > 0) {
+            long vence = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(presupuestoMs);
+            VENCE.set(anterior != null && anterior - vence < 0 ? anterior : vence);
+        }
+        try {
+            return accion.get();
+        } finally {
+            restaurar(anterior);
+        }
+    }
+
+    /**
+     * Ejecuta la acción sin plazo. Para compensaciones (reembolsos,
+     * devoluciones) que deben completarse aunque la operación ya no tenga
+     * tiempo.
+     */
+    public static <T> T sinPlazo(Supplier<T> accion) {
+        Long anterior = VENCE.get();
+        VENCE.remove();
+        try {
+            return accion.get();
+        } finally {
+            restaurar(anterior);
+        }
+    }
+
+    /** La acción con el plazo de este hilo, para ejecutarla en otro. */
+    public static <T> Supplier<T> heredar(Supplier<T> accion) {
+        Long vence = VENCE.get();
+        if (vence == null) {
+            return accion;
+        }
+        return () -> {
+            Long anterior = VENCE.get();
+            VENCE.set(vence);
+            try {
+                return accion.get();
+            } finally {
+                restaurar(anterior);
+            }
+        };
+    }
+
+    public static boolean activo() {
+        return VENCE.get() != null;
+    }
+
+    /** Milisegundos que quedan: 0 si venció, {@link Long#MAX_VALUE} sin plazo. */
+    public static long restanteMs() {
+        Long vence = VENCE.get();
+        if (vence == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(vence - System.nanoTime()));
+    }
+
+    /** El menor entre {@code timeoutMs} y lo que queda del plazo. */
+    public static long acotar(long timeoutMs) {
+        return Math.min(timeoutMs, restanteMs());
+    }
+
+    private static void restaurar(Long anterior) {
+        if (anterior != null) {
+            VENCE.set(anterior);
+        } else {
+            VENCE.remove();
+        }
+    }
+}
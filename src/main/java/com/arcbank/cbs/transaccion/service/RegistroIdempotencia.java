@@ -0,0 +1,131 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.arcbank.cbs.transaccion.dto.TransaccionResponseDTO;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+import com.arcbank.cbs.transaccion.model.ClaveIdempotencia;
+import com.arcbank.cbs.transaccion.repository.ClaveIdempotenciaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Idempotencia por referencia o instructionId: la clave se reclama con un
+ * INSERT antes de cualquier efecto sobre saldos, dentro de la transacción
+ * de la operación. Si la operación falla, el rollback libera la clave y el
+ * reintento puede procesarse; si termina, los duplicados reciben la
+ * respuesta guardada. La clave no se borra nunca (V13), así que una
+ * referencia reutilizada choca en el mismo INSERT sin otra lectura; al
+ * vencer solo se purga la respuesta y el duplicado recibe el estado actual.
+ */
+@Slf4j
+@Component
+public class RegistroIdempotencia {
+
+    private final ClaveIdempotenciaRepository claveIdempotenciaRepository;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbc;
+    private final Duration ttl;
+    private final int lotePurga;
+
+    public RegistroIdempotencia(ClaveIdempotenciaRepository claveIdempotenciaRepository,
+            ObjectMapper objectMapper,
+            JdbcTemplate jdbc,
+            @Value("${app.idempotencia.ttl-horas:72}") long ttlHoras,
+            @Value("${app.idempotencia.purga.lote:1000}") int lotePurga) {
+        this.claveIdempotenciaRepository = claveIdempotenciaRepository;
+        this.objectMapper = objectMapper;
+        this.jdbc = jdbc;
+        this.ttl = Duration.ofHours(ttlHoras);
+        this.lotePurga = lotePurga;
+    }
+
+    /**
+     * Retorna {@code true} si esta transacción ocupó la clave y debe
+     * procesar la operación; {@code false} si es un duplicado. Con un
+     * {@link PlazoOperacion} activo, la espera detrás de un reintento
+     * concurrente no pasa de lo que queda del plazo.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean reclamar(String clave, String operacion) {
+        if (!PlazoOperacion.activo()) {
+            return claveIdempotenciaRepository.reclamar(clave, operacion, LocalDateTime.now().plus(ttl)) == 1;
+        }
+        long restanteMs = PlazoOperacion.restanteMs();
+        if (restanteMs <= 0) {
+            throw DependenciaNoDisponibleException.plazoAgotado("ClaveIdempotencia");
+        }
+        jdbc.execute("SET LOCAL lock_timeout = " + restanteMs);
+        boolean reclamada;
+        try {
+            reclamada = claveIdempotenciaRepository.reclamar(clave, operacion, LocalDateTime.now().plus(ttl)) == 1;
+        } catch (PessimisticLockingFailureException e) {
+            // La transacción quedó abortada y se descarta entera; todavía no se movió dinero
+            throw DependenciaNoDisponibleException.plazoAgotado("ClaveIdempotencia");
+        }
+        // Los locks posteriores (asientos) no se cortan: para entonces ya se movió dinero
+        jdbc.execute("SET LOCAL lock_timeout = DEFAULT");
+        return reclamada;
+    }
+
+    /** Guarda el resultado para repetirlo a los duplicados. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(String clave, Integer idTransaccion, TransaccionResponseDTO respuesta) {
+        String json = null;
+        if (respuesta != null) {
+            try {
+                json = objectMapper.writeValueAsString(respuesta);
+            } catch (JsonProcessingException e) {
+                log.warn("No se pudo serializar la respuesta de {}: {}", clave, e.getMessage());
+            }
+        }
+        claveIdempotenciaRepository.registrarResultado(clave, idTransaccion, json);
+    }
+
+    /**
+     * Respuesta guardada del primer procesamiento. Vacía si la clave viene de
+     * antes de este registro o la operación no produjo respuesta.
+     */
+    public Optional<TransaccionResponseDTO> respuestaRegistrada(String clave) {
+        return claveIdempotenciaRepository.findById(clave)
+                .map(ClaveIdempotencia::getRespuesta)
+                .flatMap(json -> {
+                    try {
+                        return Optional.of(objectMapper.readValue(json, TransaccionResponseDTO.class));
+                    } catch (JsonProcessingException e) {
+                        log.warn("Respuesta guardada ilegible para {}: {}", clave, e.getMessage());
+                        return Optional.empty();
+                    }
+                });
+    }
+
+    /** Purga las respuestas vencidas por lotes, cada uno en su propia transacción corta. */
+    @Scheduled(fixedDelayString = "${app.idempotencia.purga.intervalo-ms:600000}",
+            initialDelayString = "${app.idempotencia.purga.inicial-ms:120000}")
+    public int purgar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        int total = 0;
+        int purgadas;
+        do {
+            purgadas = claveIdempotenciaRepository.purgarRespuestasVencidas(ahora, lotePurga);
+            total += purgadas;
+        } while (purgadas == lotePurga);
+
+        if (total > 0) {
+            log.info("Idempotencia: {} respuestas vencidas purgadas", total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,118 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arcbank.cbs.transaccion.repository.TransaccionRepository;
+import com.arcbank.cbs.transaccion.repository.TransaccionResumen;
+import com.arcbank.cbs.transaccion.service.EnriquecimientoCuentas.Contrapartes;
+import com.arcbank.cbs.transaccion.service.EnriquecimientoCuentas.InfoCuenta;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Completa las contrapartes de las filas escritas antes de que se guardaran
+ * en la transacción. Recorre por keyset solo las filas incompletas, resuelve
+ * cada página con una sola llamada a {@link EnriquecimientoCuentas} y
+ * actualiza en una transacción por página. Las cuentas que ya no existen se
+ * saltan y se reintentan en el siguiente barrido.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.contrapartes.relleno.enabled", havingValue = "true", matchIfMissing = true)
+public class RellenoContrapartes {
+
+    private final TransaccionRepository transaccionRepository;
+    private final EnriquecimientoCuentas enriquecimientoCuentas;
+    private final TransactionTemplate transaccion;
+    private final Counter rellenadas;
+    private final int lote;
+
+    public RellenoContrapartes(TransaccionRepository transaccionRepository,
+            EnriquecimientoCuentas enriquecimientoCuentas,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.contrapartes.relleno.lote:500}") int lote) {
+        this.transaccionRepository = transaccionRepository;
+        this.enriquecimientoCuentas = enriquecimientoCuentas;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.lote = lote;
+        this.rellenadas = Counter.builder("transaccion.contrapartes.rellenadas")
+                .description("Filas antiguas a las que se les guardaron las contrapartes")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.contrapartes.relleno.intervalo-ms:300000}",
+            initialDelayString = "${app.contrapartes.relleno.inicial-ms:60000}")
+    public int rellenar() {
+        Integer desdeId = 0;
+        int total = 0;
+
+        while (true) {
+            List<TransaccionResumen> pagina = transaccionRepository.findResumenSinContrapartes(desdeId,
+                    Limit.of(lote));
+            if (pagina.isEmpty()) {
+                break;
+            }
+            total += rellenarPagina(pagina);
+            if (pagina.size() < lote) {
+                break;
+            }
+            desdeId = pagina.get(pagina.size() - 1).idTransaccion();
+        }
+
+        if (total > 0) {
+            log.info("Relleno de contrapartes: {} transacciones completadas", total);
+        }
+        return total;
+    }
+
+    private int rellenarPagina(List<TransaccionResumen> pagina) {
+        List<Integer> ids = new ArrayList<>(pagina.size() * 2);
+        for (TransaccionResumen t : pagina) {
+            ids.add(t.idCuentaOrigen());
+            ids.add(t.idCuentaDestino());
+        }
+        Map<Integer, InfoCuenta> info;
+        try {
+            info = enriquecimientoCuentas.resolver(ids);
+        } catch (Exception e) {
+            log.warn("Relleno de contrapartes: no se pudo resolver la página, se reintentará: {}", e.getMessage());
+            return 0;
+        }
+
+        Integer actualizadas = transaccion.execute(status -> {
+            int n = 0;
+            for (TransaccionResumen t : pagina) {
+                Contrapartes partes = EnriquecimientoCuentas.contrapartes(t.idCuentaOrigen(), t.idCuentaDestino(),
+                        t.cuentaExterna(), t.beneficiario(), t.idBancoExterno(), info);
+                if (!resuelve(t, partes)) {
+                    continue;
+                }
+                n += transaccionRepository.completarContrapartes(t.idTransaccion(), partes.numeroCuentaOrigen(),
+                        partes.nombreOrigen(), partes.numeroCuentaDestino(), partes.nombreDestino());
+            }
+            return n;
+        });
+        int n = actualizadas != null ? actualizadas : 0;
+        rellenadas.increment(n);
+        return n;
+    }
+
+    /** Solo vale la pena escribir si se consiguió algo que la fila no tenía. */
+    private static boolean resuelve(TransaccionResumen t, Contrapartes partes) {
+        return (t.numeroCuentaOrigen() == null && partes.numeroCuentaOrigen() != null)
+                || (t.numeroCuentaDestino() == null && partes.numeroCuentaDestino() != null);
+    }
+}
@@ -0,0 +1,8 @@
+package com.arcbank.cbs.transaccion.service;
+
+/**
+ * Estado terminal informado por el Switch para una TRANSFERENCIA_SALIDA
+ * PENDIENTE. {@code motivo} solo aplica a los rechazos.
+ */
+public record ResolucionSalida(String referencia, boolean exitosa, String motivo) {
+}
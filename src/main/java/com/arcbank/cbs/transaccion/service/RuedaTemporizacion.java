@@ -0,0 +1,71 @@
+package com.arcbank.cbs.transaccion.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Rueda de temporización con hash: cada elemento cae en la ranura de su tick
+ * de vencimiento módulo el número de ranuras, así que programar y avanzar
+ * cuestan O(1) amortizado sin importar cuántos elementos haya en espera.
+ * El llamador avanza la rueda un tick a la vez.
+ */
+public final class RuedaTemporizacion<T> {
+
+    private final long tickMs;
+    private final List<List<Programado<T>>> ranuras;
+    private long tickActual;
+    private int tamano;
+
+    public RuedaTemporizacion(long tickMs, int numeroRanuras) {
+        if (tickMs <= 0 || numeroRanuras <= 0) {
+            throw new IllegalArgumentException("tickMs y numeroRanuras deben ser positivos");
+        }
+        this.tickMs = tickMs;
+        this.ranuras = new ArrayList<>(numeroRanuras);
+        for (int i = 0; i < numeroRanuras; i++) {
+            ranuras.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Programa el elemento para dentro de {@code retrasoMs}; como mínimo vence
+     * en el siguiente tick.
+     */
+    public synchronized void programar(T elemento, long retrasoMs) {
+        long ticks = Math.max(1, (retrasoMs + tickMs - 1) / tickMs);
+        long vencimiento = tickActual + ticks;
+        ranuras.get((int) (vencimiento % ranuras.size())).add(new Programado<>(elemento, vencimiento));
+        tamano++;
+    }
+
+    /**
+     * Avanza un tick y retorna los elementos vencidos. Los de la misma ranura
+     * que vencen en vueltas posteriores se quedan.
+     */
+    public synchronized List<T> avanzar() {
+        tickActual++;
+        List<Programado<T>> ranura = ranuras.get((int) (tickActual % ranuras.size()));
+        if (ranura.isEmpty()) {
+            return List.of();
+        }
+        List<T> vencidos = new ArrayList<>();
+        Iterator<Programado<T>> it = ranura.iterator();
+        while (it.hasNext()) {
+            Programado<T> p = it.next();
+            if (p.vencimiento <= tickActual) {
+                vencidos.add(p.elemento);
+                it.remove();
+            }
+        }
+        tamano -= vencidos.size();
+        return vencidos;
+    }
+
+    public synchronized int tamano() {
+        return tamano;
+    }
+
+    private record Programado<T>(T elemento, long vencimiento) {
+    }
+}
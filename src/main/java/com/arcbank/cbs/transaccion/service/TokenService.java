@@ -1,50 +1,166 @@
 package com.arcbank.cbs.transaccion.service;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
 import java.util.Base64;
 import java.util.Map;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Token OAuth (client_credentials) para las llamadas al Switch. La lectura
+ * no toma locks: el token vive en un {@link AtomicReference} y mientras no
+ * venza se entrega tal cual. Un refresco programado lo renueva al cumplirse
+ * {@code fraccion-renovacion} de su {@code expires_in}, antes de que nadie
+ * tenga que esperar; si el proveedor falla o tarda se conserva el token
+ * vigente. Las renovaciones simultáneas comparten una sola llamada.
+ */
 @Slf4j
 @Service
 public class TokenService {
 
-    @Value("${app.security.oauth.token-url}")
-    private String tokenUrl;
+    private final String tokenUrl;
+    private final String clientId;
+    private final String clientSecret;
+    private final String scope;
+    private final double fraccionRenovacion;
+    private final long margenExpiracionMs;
+    private final RestTemplate restTemplate;
+    private final CloseableHttpClient httpClient;
+    private final LongSupplier relojMs;
+
+    private final AtomicReference<TokenVigente> token = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<TokenVigente>> renovacionEnCurso = new AtomicReference<>();
+
+    /** {@code renovarEn} y {@code expiraEn} en milisegundos de {@code relojMs}. */
+    record TokenVigente(String valor, long renovarEn, long expiraEn) {
+    }
+
+    @Autowired
+    public TokenService(@Value("${app.security.oauth.token-url}") String tokenUrl,
+            @Value("${app.security.oauth.client-id}") String clientId,
+            @Value("${app.security.oauth.client-secret}") String clientSecret,
+            @Value("${app.security.oauth.scope}") String scope,
+            @Value("${app.security.oauth.fraccion-renovacion:0.75}") double fraccionRenovacion,
+            @Value("${app.security.oauth.margen-expiracion-ms:30000}") long margenExpiracionMs,
+            @Value("${app.security.oauth.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${app.security.oauth.read-timeout-ms:5000}") long readTimeoutMs) {
+        this(tokenUrl, clientId, clientSecret, scope, fraccionRenovacion, margenExpiracionMs,
+                clientePooled(connectTimeoutMs, readTimeoutMs), System::currentTimeMillis);
+    }
 
-    @Value("${app.security.oauth.client-id}")
-    private String clientId;
+    private TokenService(String tokenUrl, String clientId, String clientSecret, String scope,
+            double fraccionRenovacion, long margenExpiracionMs, CloseableHttpClient httpClient, LongSupplier relojMs) {
+        this(tokenUrl, clientId, clientSecret, scope, fraccionRenovacion, margenExpiracionMs,
+                new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient)), httpClient, relojMs);
+    }
 
-    @Value("${app.security.oauth.client-secret}")
-    private String clientSecret;
+    TokenService(String tokenUrl, String clientId, String clientSecret, String scope, double fraccionRenovacion,
+            long margenExpiracionMs, RestTemplate restTemplate, CloseableHttpClient httpClient,
+            LongSupplier relojMs) {
+        this.tokenUrl = tokenUrl;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.scope = scope;
+        this.fraccionRenovacion = fraccionRenovacion;
+        this.margenExpiracionMs = margenExpiracionMs;
+        this.restTemplate = restTemplate;
+        this.httpClient = httpClient;
+        this.relojMs = relojMs;
+    }
 
-    @Value("${app.security.oauth.scope}")
-    private String scope;
+    /** Pocas conexiones reutilizadas y timeouts acotados: el token se pide cada muchos minutos. */
+    private static CloseableHttpClient clientePooled(long connectTimeoutMs, long readTimeoutMs) {
+        return HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(4)
+                        .setMaxConnPerRoute(4)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .build();
+    }
+
+    public String getAccessToken() {
+        TokenVigente actual = token.get();
+        if (actual != null && relojMs.getAsLong() < actual.expiraEn()) {
+            return actual.valor();
+        }
+        // Sin token o vencido: se espera la renovación (una sola para todos los que llegan)
+        try {
+            return renovar().join().valor();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
 
-    private String accessToken;
-    private LocalDateTime tokenExpiry;
-    private final RestTemplate restTemplate = new RestTemplate();
+    /**
+     * Renueva antes de que el token venza. Solo después del primer uso: sin
+     * llamadas al Switch no se piden tokens.
+     */
+    @Scheduled(fixedDelayString = "${app.security.oauth.revision-ms:5000}")
+    public void renovarSiCorresponde() {
+        TokenVigente actual = token.get();
+        if (actual == null || relojMs.getAsLong() < actual.renovarEn()) {
+            return;
+        }
+        try {
+            renovar().join();
+        } catch (CompletionException e) {
+            long restanteMs = actual.expiraEn() - relojMs.getAsLong();
+            log.warn("⚠️ No se pudo renovar el token OAuth; se conserva el actual ({} ms de vigencia): {}",
+                    Math.max(0, restanteMs), e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+    }
 
-    public synchronized String getAccessToken() {
-        if (accessToken != null && tokenExpiry != null && LocalDateTime.now().isBefore(tokenExpiry)) {
-            return accessToken;
+    private CompletableFuture<TokenVigente> renovar() {
+        CompletableFuture<TokenVigente> propia = new CompletableFuture<>();
+        CompletableFuture<TokenVigente> enCurso = renovacionEnCurso.compareAndExchange(null, propia);
+        if (enCurso != null) {
+            return enCurso;
         }
-        refreshAccessToken();
-        return accessToken;
+        try {
+            TokenVigente nuevo = refreshAccessToken();
+            token.set(nuevo);
+            propia.complete(nuevo);
+        } catch (RuntimeException e) {
+            propia.completeExceptionally(e);
+        } finally {
+            renovacionEnCurso.set(null);
+        }
+        return propia;
     }
 
-    private void refreshAccessToken() {
+    private TokenVigente refreshAccessToken() {
         log.info("🔄 Refreshing OAuth Access Token via RestTemplate...");
         try {
             String fullUrl = tokenUrl + "/oauth2/token";
@@ -66,17 +182,20 @@ public class TokenService {
             HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(formParams, headers);
 
             log.debug("POST {} con scope {}", fullUrl, scope);
+            long inicio = relojMs.getAsLong();
             ResponseEntity<Map> response = restTemplate.postForEntity(fullUrl, request, Map.class);
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null
+                    && response.getBody().get("access_token") != null) {
                 Map body = response.getBody();
-                this.accessToken = (String) body.get("access_token");
-
                 Number expiresIn = (Number) body.get("expires_in");
-                long seconds = expiresIn != null ? expiresIn.longValue() : 3600;
-                // Refresh 5 minutes before actual expiry
-                this.tokenExpiry = LocalDateTime.now().plusSeconds(seconds - 300);
-                log.info("✅ Token refreshed successfully. Expires in: {}s", seconds);
+                long vigenciaMs = (expiresIn != null ? expiresIn.longValue() : 3600) * 1000;
+                // Los plazos cuentan desde que se pidió: el viaje de ida ya consumió parte de la vigencia
+                TokenVigente nuevo = new TokenVigente((String) body.get("access_token"),
+                        inicio + (long) (vigenciaMs * fraccionRenovacion),
+                        inicio + Math.max(vigenciaMs - margenExpiracionMs, vigenciaMs / 2));
+                log.info("✅ Token refreshed successfully. Expires in: {}s", vigenciaMs / 1000);
+                return nuevo;
             } else {
                 throw new RuntimeException("Failed to retrieve access token: " + response);
             }
@@ -85,4 +204,11 @@ public class TokenService {
             throw new RuntimeException("Authentication failed", e);
         }
     }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+    }
 }
@@ -4,6 +4,8 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 
+import com.arcbank.cbs.transaccion.dto.FiltroHistorialDTO;
+import com.arcbank.cbs.transaccion.dto.PaginaHistorialDTO;
 import com.arcbank.cbs.transaccion.dto.TransaccionRequestDTO;
 import com.arcbank.cbs.transaccion.dto.TransaccionResponseDTO;
 import com.arcbank.cbs.transaccion.dto.RefoundRequestDTO;
@@ -19,6 +21,8 @@ public interface TransaccionService {
 
         List<TransaccionResponseDTO> obtenerPorCuenta(Integer cuentaId);
 
+        PaginaHistorialDTO obtenerHistorial(Integer idCuenta, FiltroHistorialDTO filtro, String cursor, int tamano);
+
         void solicitarReverso(RefoundRequestDTO request);
 
         String consultarEstadoTransferencia(String instructionId);
@@ -35,4 +39,25 @@ public interface TransaccionService {
                         String bancoOrigen);
 
         void procesarDevolucionEntrante(com.arcbank.cbs.transaccion.dto.SwitchRefundRequest request);
+
+        boolean aplicarEstadoFinalSalida(String referencia, boolean exitosa, String motivo);
+
+        int aplicarEstadosFinalesSalida(List<ResolucionSalida> resoluciones);
+
+        /**
+         * Aplica la respuesta del Switch al envío de una transferencia de la
+         * bandeja. Retorna {@code true} si sigue PENDIENTE y hay que consultar
+         * su estado.
+         */
+        boolean registrarRespuestaSalida(String referencia,
+                        com.arcbank.cbs.transaccion.dto.SwitchTransferResponse respuesta);
+
+        /**
+         * Bloquea la transferencia de salida y retorna {@code true} si sigue
+         * PENDIENTE, es decir, si todavía corresponde enviarla al Switch.
+         */
+        boolean salidaPorEnviar(String referencia);
+
+        /** La transferencia no se pudo entregar al Switch: devolución y reembolso. */
+        void cancelarEnvioSalida(String referencia, String error);
 }
\ No newline at end of file
@@ -1,18 +1,35 @@
 package com.arcbank.cbs.transaccion.service;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.arcbank.cbs.transaccion.client.CuentaCliente;
+import com.arcbank.cbs.transaccion.client.ProteccionDependencias;
 import com.arcbank.cbs.transaccion.client.SwitchClient;
-import com.arcbank.cbs.transaccion.client.ClienteClient;
+import com.arcbank.cbs.transaccion.config.PlazosProperties;
+import com.arcbank.cbs.transaccion.dto.FiltroHistorialDTO;
+import com.arcbank.cbs.transaccion.dto.MovimientoSaldoDTO;
+import com.arcbank.cbs.transaccion.dto.PaginaHistorialDTO;
 import com.arcbank.cbs.transaccion.dto.SaldoDTO;
 import com.arcbank.cbs.transaccion.dto.RefoundRequestDTO;
 import com.arcbank.cbs.transaccion.dto.SwitchRefundRequest;
@@ -21,38 +38,117 @@ import com.arcbank.cbs.transaccion.dto.SwitchTransferResponse;
 import com.arcbank.cbs.transaccion.dto.TransaccionRequestDTO;
 import com.arcbank.cbs.transaccion.dto.TransaccionResponseDTO;
 import com.arcbank.cbs.transaccion.exception.BusinessException;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+import com.arcbank.cbs.transaccion.model.EstadoSwitch;
+import com.arcbank.cbs.transaccion.model.EstadoTransaccion;
+import com.arcbank.cbs.transaccion.model.TipoMensajeSwitch;
+import com.arcbank.cbs.transaccion.model.TipoOperacion;
 import com.arcbank.cbs.transaccion.model.Transaccion;
 import com.arcbank.cbs.transaccion.repository.TransaccionRepository;
+import com.arcbank.cbs.transaccion.repository.TransaccionResumen;
+import com.arcbank.cbs.transaccion.service.EnriquecimientoCuentas.Contrapartes;
+import com.arcbank.cbs.transaccion.service.EnriquecimientoCuentas.InfoCuenta;
 
+import feign.FeignException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@EnableConfigurationProperties(PlazosProperties.class)
 public class TransaccionServiceImpl implements TransaccionService {
 
+    private static final int MAX_TAMANO_HISTORIAL = 200;
+    private static final long ESPERA_CONSULTA_SWITCH_MS = 1500;
+
     private final TransaccionRepository transaccionRepository;
     private final CuentaCliente cuentaCliente;
     private final SwitchClient switchClient;
-    private final ClienteClient clienteClient;
+    private final CuentaLockManager cuentaLockManager;
+    private final NettingCreditos nettingCreditos;
+    private final LibroMayorService libroMayorService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ConsultaEstadoSwitch consultaEstadoSwitch;
+    private final EnriquecimientoDeudor enriquecimientoDeudor;
+    private final EnriquecimientoCuentas enriquecimientoCuentas;
+    private final CacheMetadatosCuenta cacheMetadatos;
+    private final RegistroIdempotencia registroIdempotencia;
+    private final BandejaSalidaSwitch bandejaSalidaSwitch;
+    private final ProteccionDependencias proteccionDependencias;
+    private final PlazosProperties plazos;
+    private final CoberturaSwitch coberturaSwitch;
+    private final PlatformTransactionManager transactionManager;
 
     @Value("${app.banco.codigo:BANTEC}")
     private String codigoBanco;
 
+    @Value("${app.cuentas.movimiento-atomico:false}")
+    private boolean movimientoAtomico;
+
+    @Value("${app.switch.salida-asincrona:false}")
+    private boolean salidaAsincrona;
+
+    /** Transferencias de salida por la bandeja (MensajeSwitch) en vez de llamar al Switch en línea. */
+    @Value("${app.switch.bandeja.enabled:false}")
+    private boolean bandejaSwitch;
+
+    @Value("${app.switch.pendiente-expiracion-min:3}")
+    private long expiracionPendienteMin;
+
+    /**
+     * Toda la operación corre dentro de su {@link PlazoOperacion}, por tipo y
+     * canal: cada llamada remota, espera de lock y consulta al Switch recibe
+     * lo que quede de él. Desde el primer movimiento de saldo ya no se corta
+     * ({@link #moverSinCortes}) y los reembolsos se hacen fuera del plazo.
+     */
     @Override
     @Transactional
     public TransaccionResponseDTO crearTransaccion(TransaccionRequestDTO request) {
         log.info("Iniciando transacción Tipo: {} | Ref: {}", request.getTipoOperacion(), request.getReferencia());
+        long presupuestoMs = plazos.presupuestoMs(request.getTipoOperacion(), request.getCanal());
+        return PlazoOperacion.ejecutar(presupuestoMs, () -> crearConIdempotencia(request));
+    }
 
-        if (request.getReferencia() != null) {
-            var existingTx = transaccionRepository.findByReferencia(request.getReferencia());
-            if (existingTx.isPresent()) {
-                return mapearADTO(existingTx.get(), null);
-            }
+    private TransaccionResponseDTO crearConIdempotencia(TransaccionRequestDTO request) {
+        String referencia = request.getReferencia();
+        if (referencia == null) {
+            return ejecutarTransaccion(request);
         }
+        // La clave se ocupa antes de tocar saldos: un reintento concurrente espera aquí al commit
+        if (!registroIdempotencia.reclamar(referencia, request.getTipoOperacion().toUpperCase())) {
+            return respuestaDuplicada(referencia);
+        }
+        TransaccionResponseDTO respuesta = ejecutarTransaccion(request);
+        registroIdempotencia.registrar(referencia, respuesta.getIdTransaccion(), respuesta);
+        return respuesta;
+    }
 
-        String tipoOp = request.getTipoOperacion().toUpperCase();
+    /**
+     * Duplicado de una referencia ya procesada: se repite la respuesta
+     * guardada si el estado era final; si quedó en curso (o la clave es de
+     * antes del registro) se responde con el estado actual.
+     */
+    private TransaccionResponseDTO respuestaDuplicada(String referencia) {
+        Optional<TransaccionResponseDTO> guardada = registroIdempotencia.respuestaRegistrada(referencia);
+        if (guardada.isPresent() && esEstadoFinal(guardada.get().getEstado())) {
+            return guardada.get();
+        }
+        return transaccionRepository.findResumenPorReferencia(referencia)
+                .map(t -> mapearADTO(t, null))
+                .orElseThrow(() -> new BusinessException("La referencia " + referencia + " ya fue utilizada"));
+    }
+
+    private static boolean esEstadoFinal(String estado) {
+        EstadoTransaccion e = EstadoTransaccion.desde(estado);
+        return e != null && e.esFinal();
+    }
+
+    private TransaccionResponseDTO ejecutarTransaccion(TransaccionRequestDTO request) {
+        TipoOperacion tipoOp = TipoOperacion.desde(request.getTipoOperacion());
+        if (tipoOp == null) {
+            throw new BusinessException("Tipo de operación no soportado: " + request.getTipoOperacion());
+        }
 
         Transaccion trx = Transaccion.builder()
                 .referencia(request.getReferencia() != null ? request.getReferencia() : UUID.randomUUID().toString())
@@ -64,30 +160,31 @@ public class TransaccionServiceImpl implements TransaccionService {
                 .cuentaExterna(request.getCuentaExterna())
                 .idBancoExterno(request.getIdBancoExterno())
                 .idTransaccionReversa(request.getIdTransaccionReversa())
-                .estado("PENDIENTE")
+                .estado(EstadoTransaccion.PENDIENTE)
                 .build();
 
         BigDecimal saldoImpactado = null;
 
         try {
             switch (tipoOp) {
-                case "DEPOSITO" -> {
+                case DEPOSITO -> {
                     if (request.getIdCuentaDestino() == null)
                         throw new BusinessException("El DEPOSITO requiere una cuenta destino obligatoria.");
                     trx.setIdCuentaDestino(request.getIdCuentaDestino());
                     trx.setIdCuentaOrigen(null);
-                    saldoImpactado = procesarSaldo(trx.getIdCuentaDestino(), request.getMonto());
+                    saldoImpactado = moverSinCortes(() -> procesarSaldo(trx.getIdCuentaDestino(), request.getMonto()));
                 }
 
-                case "RETIRO" -> {
+                case RETIRO -> {
                     if (request.getIdCuentaOrigen() == null)
                         throw new BusinessException("El RETIRO requiere una cuenta origen obligatoria.");
                     trx.setIdCuentaOrigen(request.getIdCuentaOrigen());
                     trx.setIdCuentaDestino(null);
-                    saldoImpactado = procesarSaldo(trx.getIdCuentaOrigen(), request.getMonto().negate());
+                    saldoImpactado = moverSinCortes(
+                            () -> procesarSaldo(trx.getIdCuentaOrigen(), request.getMonto().negate()));
                 }
 
-                case "TRANSFERENCIA_INTERNA" -> {
+                case TRANSFERENCIA_INTERNA -> {
                     if (request.getIdCuentaOrigen() == null || request.getIdCuentaDestino() == null) {
                         throw new BusinessException(
                                 "La TRANSFERENCIA INTERNA requiere cuenta origen y cuenta destino.");
@@ -98,14 +195,16 @@ public class TransaccionServiceImpl implements TransaccionService {
                     trx.setIdCuentaOrigen(request.getIdCuentaOrigen());
                     trx.setIdCuentaDestino(request.getIdCuentaDestino());
 
-                    BigDecimal saldoOrigen = procesarSaldo(trx.getIdCuentaOrigen(), request.getMonto().negate());
-                    BigDecimal saldoDestino = procesarSaldo(trx.getIdCuentaDestino(), request.getMonto());
+                    BigDecimal saldoOrigen = moverSinCortes(
+                            () -> procesarSaldo(trx.getIdCuentaOrigen(), request.getMonto().negate()));
+                    BigDecimal saldoDestino = PlazoOperacion.sinPlazo(
+                            () -> procesarSaldo(trx.getIdCuentaDestino(), request.getMonto()));
 
                     trx.setSaldoResultanteDestino(saldoDestino);
                     saldoImpactado = saldoOrigen;
                 }
 
-                case "TRANSFERENCIA_SALIDA" -> {
+                case TRANSFERENCIA_SALIDA -> {
                     if (request.getIdCuentaOrigen() == null)
                         throw new BusinessException("Falta cuenta origen para transferencia externa.");
                     if (request.getCuentaExterna() == null || request.getCuentaExterna().isBlank())
@@ -120,257 +219,54 @@ public class TransaccionServiceImpl implements TransaccionService {
                     trx.setMonto(montoTotal);
                     trx.setDescripcion(request.getDescripcion());
 
-                    BigDecimal saldoDebitado = null;
-                    try {
-                        saldoDebitado = procesarSaldo(trx.getIdCuentaOrigen(), montoTotal.negate());
-                    } catch (Exception e) {
-                        throw new BusinessException("Error al debitar cuenta origen: " + e.getMessage());
-                    }
+                    // Con el circuito del Switch abierto no se debita: el reembolso sería seguro
+                    proteccionDependencias.verificarDisponible(SwitchClient.class, "enviarTransferencia");
 
-                    String numeroCuentaOrigen = obtenerNumeroCuenta(request.getIdCuentaOrigen());
-                    String nombreDebtor = "Cliente Bantec";
-                    String tipoCuentaDebtor = "SAVINGS";
+                    // Los datos del ordenante se consultan mientras se aplica el débito
+                    CompletableFuture<EnriquecimientoDeudor.DatosDeudor> deudorFuturo = enriquecimientoDeudor
+                            .iniciar(request.getIdCuentaOrigen());
 
-                    try {
-                        Map<String, Object> cuentaInfo = cuentaCliente.obtenerCuenta(request.getIdCuentaOrigen());
-                        if (cuentaInfo != null && cuentaInfo.get("idCliente") != null) {
-                            Integer idCliente = (Integer) cuentaInfo.get("idCliente");
-                            Map<String, Object> clienteInfo = clienteClient.obtenerCliente(idCliente);
-                            if (clienteInfo != null && clienteInfo.get("nombre") != null) {
-                                nombreDebtor = clienteInfo.get("nombre").toString();
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.warn("No se pudo obtener detalle completo del cliente/cuenta: {}", e.getMessage());
-                    }
+                    // Lo que quede del plazo acota solo las consultas de estado posteriores
+                    long restanteMs = PlazoOperacion.restanteMs();
+                    long inicio = System.nanoTime();
 
+                    BigDecimal saldoDebitado;
                     try {
-                        String messageId = "MSG-BANTEC-" + System.currentTimeMillis();
-                        String creationTime = java.time.OffsetDateTime.now(java.time.ZoneOffset.UTC)
-                                .format(java.time.format.DateTimeFormatter.ISO_INSTANT);
-
-                        String beneficiario = request.getBeneficiario() != null ? request.getBeneficiario()
-                                : "Beneficiario Externo";
-
-                        trx.setBeneficiario(beneficiario);
-
-                        SwitchTransferRequest switchRequest = SwitchTransferRequest.builder()
-                                .header(SwitchTransferRequest.Header.builder()
-                                        .messageId(messageId)
-                                        .creationDateTime(creationTime)
-                                        .originatingBankId(codigoBanco)
-                                        .build())
-                                .body(SwitchTransferRequest.Body.builder()
-                                        .instructionId(trx.getReferencia())
-                                        .endToEndId("REF-BANTEC-" + trx.getReferencia())
-                                        .amount(SwitchTransferRequest.Amount.builder()
-                                                .currency("USD")
-                                                .value(request.getMonto())
-                                                .build())
-                                        .debtor(SwitchTransferRequest.Party.builder()
-                                                .name(nombreDebtor)
-                                                .accountId(numeroCuentaOrigen)
-                                                .accountType(tipoCuentaDebtor)
-                                                .bankId(codigoBanco)
-                                                .build())
-                                        .creditor(SwitchTransferRequest.Party.builder()
-                                                .name(beneficiario)
-                                                .accountId(request.getCuentaExterna())
-                                                .accountType("SAVINGS")
-                                                .targetBankId(request.getIdBancoExterno() != null
-                                                        ? request.getIdBancoExterno()
-                                                        : "UNKNOWN")
-                                                .build())
-                                        .remittanceInformation(request.getDescripcion() != null
-                                                ? request.getDescripcion()
-                                                : "Transferencia interbancaria BANTEC")
-                                        .build())
-                                .build();
-
-                        SwitchTransferResponse switchResp = switchClient.enviarTransferencia(switchRequest);
-
-                        if (switchResp.getData() != null && switchResp.getData().getCodigoReferencia() != null) {
-                            trx.setCodigoReferencia(switchResp.getData().getCodigoReferencia());
-                        }
-
-                        if (switchResp == null || !switchResp.isSuccess()) {
-                            BigDecimal saldoRevertido = procesarSaldo(trx.getIdCuentaOrigen(), montoTotal);
-
-                            String switchError = "Error desconocido";
-                            if (switchResp != null && switchResp.getError() != null) {
-                                switchError = switchResp.getError().getMessage();
-                            }
-
-                            String friendlyError = "Error en destino";
-                            String lowerError = switchError.toLowerCase();
-
-                            if (lowerError.contains("ac01"))
-                                friendlyError = "Cuenta destino inválida / inexistente";
-                            else if (lowerError.contains("ac03"))
-                                friendlyError = "Cuenta destino inválida (AC03)";
-                            else if (lowerError.contains("timeout") || lowerError.contains("504"))
-                                friendlyError = "Tiempo de espera agotado en destino";
-                            else if (lowerError.contains("fondos"))
-                                friendlyError = "Fondos insuficientes";
-                            else {
-                                friendlyError = "Error de comunicación con la entidad financiera";
-                            }
-
-                            trx.setEstado("FALLIDA");
-                            trx.setSaldoResultante(saldoRevertido);
-                            trx.setDescripcion("RECHAZADA: " + friendlyError);
-
-                            Transaccion fallida = transaccionRepository.save(trx);
-                            return mapearADTO(fallida, null);
-                        }
-
-                        boolean confirmado = false;
-                        String ultimoEstado = "PENDING";
-                        String motivoFallo = "";
-
-                        // --- FIX: Verificar si el POST ya retornó estado final ---
-                        if (switchResp.getData() != null) {
-                            String estadoInicial = switchResp.getData().getEstado();
-                            if ("COMPLETED".equalsIgnoreCase(estadoInicial)
-                                    || "EXITOSA".equalsIgnoreCase(estadoInicial)) {
-                                log.info("Switch retornó COMPLETED en respuesta inicial. Omitiendo polling.");
-                                confirmado = true;
-                            }
-                        }
-
-                        for (int i = 0; i < 10 && !confirmado; i++) {
-                            try {
-                                Thread.sleep(1500);
-                            } catch (InterruptedException ie) {
-                                Thread.currentThread().interrupt();
-                                break;
-                            }
-
-                            try {
-                                SwitchTransferResponse statusResp = switchClient
-                                        .consultarEstadoTransferencia(trx.getReferencia());
-                                if (statusResp != null && statusResp.getData() != null) {
-                                    ultimoEstado = statusResp.getData().getEstado();
-
-                                    if ("COMPLETED".equalsIgnoreCase(ultimoEstado)
-                                            || "EXITOSA".equalsIgnoreCase(ultimoEstado)
-                                            || "QUEUED".equalsIgnoreCase(ultimoEstado)
-                                            || "ACCEPTED".equalsIgnoreCase(ultimoEstado)) {
-                                        confirmado = true;
-                                        break;
-                                    }
-
-                                    if ("FAILED".equalsIgnoreCase(ultimoEstado)
-                                            || "FALLIDA".equalsIgnoreCase(ultimoEstado)
-                                            || "RECHAZADA".equalsIgnoreCase(ultimoEstado)) {
-                                        motivoFallo = (statusResp.getError() != null)
-                                                ? statusResp.getError().getMessage()
-                                                : "Rechazo desconocido";
-
-                                        BigDecimal saldoRevertido = procesarSaldo(trx.getIdCuentaOrigen(), montoTotal);
-                                        trx.setEstado("FALLIDA");
-                                        trx.setSaldoResultante(saldoRevertido);
-                                        trx.setDescripcion("RECHAZADA POR DESTINO: " + motivoFallo);
-                                        Transaccion fallida = transaccionRepository.save(trx);
-
-                                        throw new BusinessException("Transacción Rechazada: " + motivoFallo);
-                                    }
-                                }
-                            } catch (Exception e) {
-                                log.warn("Wait", e);
-                            }
-                        }
-
-                        if (confirmado) {
-                            saldoImpactado = saldoDebitado;
-                            trx.setEstado("COMPLETADA");
-                        } else {
-                            saldoImpactado = saldoDebitado;
-                            trx.setEstado("PENDIENTE");
-                            trx.setDescripcion("En proceso de validación. Le notificaremos.");
-                            trx.setSaldoResultante(saldoDebitado);
-
-                            Transaccion pendiente = transaccionRepository.save(trx);
-                            TransaccionResponseDTO respDto = mapearADTO(pendiente, null);
-                            respDto.setMensajeUsuario("En proceso de validación. Le notificaremos.");
-                            return respDto;
-                        }
-
+                        saldoDebitado = moverSinCortes(
+                                () -> procesarSaldo(trx.getIdCuentaOrigen(), montoTotal.negate()));
+                    } catch (DependenciaNoDisponibleException e) {
+                        deudorFuturo.cancel(true);
+                        throw e;
                     } catch (Exception e) {
-                        try {
-                            String revMessageId = "MSG-REV-AUTO-" + System.currentTimeMillis();
-                            String revCreationTime = java.time.OffsetDateTime.now(java.time.ZoneOffset.UTC)
-                                    .format(java.time.format.DateTimeFormatter.ISO_INSTANT);
-
-                            SwitchRefundRequest refundReq = SwitchRefundRequest.builder()
-                                    .header(SwitchRefundRequest.Header.builder()
-                                            .messageId(revMessageId)
-                                            .creationDateTime(revCreationTime)
-                                            .originatingBankId(codigoBanco)
-                                            .build())
-                                    .body(SwitchRefundRequest.Body.builder()
-                                            .returnInstructionId(UUID.randomUUID().toString())
-                                            .originalInstructionId(trx.getReferencia())
-                                            .returnReason("MS03")
-                                            .returnAmount(SwitchRefundRequest.Amount.builder()
-                                                    .currency("USD")
-                                                    .value(trx.getMonto())
-                                                    .build())
-                                            .build())
-                                    .build();
-
-                            try {
-                                switchClient.solicitarDevolucion(refundReq);
-                            } catch (Exception exRev) {
-                                String err = exRev.getMessage();
-                                if (err == null || (!err.contains("409")
-                                        && !err.contains("Transacción original no encontrada"))) {
-                                    throw exRev;
-                                }
-                            }
-                        } catch (Exception ex) {
-                        }
-
-                        BigDecimal saldoRevertido = procesarSaldo(trx.getIdCuentaOrigen(), montoTotal);
-
-                        trx.setEstado("FALLIDA");
-                        trx.setSaldoResultante(saldoRevertido);
-                        String errorMsg = e.getMessage() != null ? e.getMessage() : "Error desconocido";
-
-                        String friendlyEx = "Error de comunicación";
-                        String lowerEx = errorMsg.toLowerCase();
-
-                        if (lowerEx.contains("ac01"))
-                            friendlyEx = "Cuenta destino inválida";
-                        else if (lowerEx.contains("504") || lowerEx.contains("time out")
-                                || lowerEx.contains("timed out"))
-                            friendlyEx = "El banco destino no responde";
-                        else {
-                            friendlyEx = "Error de comunicación con la entidad financiera";
-                        }
+                        deudorFuturo.cancel(true);
+                        throw new BusinessException("Error al debitar cuenta origen: " + e.getMessage());
+                    }
 
-                        trx.setDescripcion("RECHAZADA: " + friendlyEx);
+                    EnriquecimientoDeudor.DatosDeudor deudor = deudorFuturo.join();
+                    String beneficiario = request.getBeneficiario() != null ? request.getBeneficiario()
+                            : "Beneficiario Externo";
+                    trx.setBeneficiario(beneficiario);
+                    SwitchTransferRequest switchRequest = solicitudTransferencia(trx, request, deudor);
 
-                        Transaccion fallida = transaccionRepository.save(trx);
-                        return mapearADTO(fallida, null);
-                    }
+                    return PlazoOperacion.sinPlazo(() -> enviarSalida(trx, switchRequest, saldoDebitado,
+                            restanteMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)));
                 }
 
-                case "TRANSFERENCIA_ENTRADA" -> {
+                case TRANSFERENCIA_ENTRADA -> {
                     if (request.getIdCuentaDestino() == null)
                         throw new BusinessException("Falta cuenta destino para recepción externa.");
                     trx.setIdCuentaDestino(request.getIdCuentaDestino());
                     trx.setIdCuentaOrigen(null);
-                    saldoImpactado = procesarSaldo(trx.getIdCuentaDestino(), request.getMonto());
+                    saldoImpactado = moverSinCortes(() -> procesarSaldo(trx.getIdCuentaDestino(), request.getMonto()));
                 }
 
                 default -> throw new BusinessException("Tipo de operación no soportado: " + tipoOp);
             }
 
             trx.setSaldoResultante(saldoImpactado);
-            trx.setEstado("COMPLETADA");
+            trx.setEstado(EstadoTransaccion.COMPLETADA);
 
-            Transaccion guardada = transaccionRepository.save(trx);
+            Transaccion guardada = PlazoOperacion.sinPlazo(() -> guardarConAsientos(trx));
 
             return mapearADTO(guardada, null);
 
@@ -381,19 +277,202 @@ public class TransaccionServiceImpl implements TransaccionService {
         }
     }
 
+    /**
+     * Lo que sigue al débito de una TRANSFERENCIA_SALIDA: corre sin plazo
+     * (el débito ya está hecho) y solo las consultas de estado se limitan a
+     * {@code restanteMs}, lo que quedaba del plazo al debitar.
+     */
+    private TransaccionResponseDTO enviarSalida(Transaccion trx, SwitchTransferRequest switchRequest,
+            BigDecimal saldoDebitado, long restanteMs) {
+        long inicio = System.nanoTime();
+        if (bandejaSwitch) {
+            return encolarSalida(trx, switchRequest, saldoDebitado);
+        }
+
+        try {
+            SwitchTransferResponse switchResp = switchClient.enviarTransferencia(switchRequest);
+
+            if (switchResp.getData() != null && switchResp.getData().getCodigoReferencia() != null) {
+                trx.setCodigoReferencia(switchResp.getData().getCodigoReferencia());
+            }
+
+            if (switchResp == null || !switchResp.isSuccess()) {
+                String switchError = "Error desconocido";
+                if (switchResp != null && switchResp.getError() != null) {
+                    switchError = switchResp.getError().getMessage();
+                }
+                return rechazarDebitada(trx, saldoDebitado, "RECHAZADA: " + motivoRechazo(switchError));
+            }
+
+            boolean confirmado = false;
+            String ultimoEstado = "PENDING";
+            String motivoFallo = "";
+
+            // --- FIX: Verificar si el POST ya retornó estado final ---
+            if (switchResp.getData() != null) {
+                if (EstadoSwitch.de(switchResp.getData().getEstado()).confirmaEnvio()) {
+                    log.info("Switch retornó COMPLETED en respuesta inicial. Omitiendo polling.");
+                    confirmado = true;
+                }
+            }
+
+            if (!confirmado && salidaAsincrona) {
+                // El completador consulta el Switch después del commit; el hilo
+                // de la petición y la conexión a BD se liberan de inmediato.
+                trx.setEstado(EstadoTransaccion.PENDIENTE);
+                trx.setDescripcion("En proceso de validación. Le notificaremos.");
+                trx.setSaldoResultante(saldoDebitado);
+
+                Transaccion pendiente = guardarConAsientos(trx);
+                eventPublisher.publishEvent(new TransferenciaSalidaPendienteEvent(trx.getReferencia()));
+                TransaccionResponseDTO respDto = mapearADTO(pendiente != null ? pendiente : trx, null);
+                respDto.setMensajeUsuario("En proceso de validación. Le notificaremos.");
+                respDto.setAsincrona(true);
+                return respDto;
+            }
+
+            boolean rechazado = false;
+
+            for (int i = 0; i < 10 && !confirmado && !rechazado; i++) {
+                // Sin tiempo para otra consulta queda PENDIENTE y la resuelve el conciliador
+                long restante = restanteMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+                if (restante <= ESPERA_CONSULTA_SWITCH_MS) {
+                    break;
+                }
+                try {
+                    Thread.sleep(ESPERA_CONSULTA_SWITCH_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                try {
+                    SwitchTransferResponse statusResp = PlazoOperacion.ejecutar(
+                            restante - ESPERA_CONSULTA_SWITCH_MS,
+                            () -> consultaEstadoSwitch.consultar(trx.getReferencia()));
+                    if (statusResp != null && statusResp.getData() != null) {
+                        ultimoEstado = statusResp.getData().getEstado();
+                        EstadoSwitch estadoSwitch = EstadoSwitch.de(ultimoEstado);
+
+                        if (estadoSwitch.confirmaEnvio()) {
+                            confirmado = true;
+                        } else if (estadoSwitch == EstadoSwitch.RECHAZADA) {
+                            motivoFallo = (statusResp.getError() != null)
+                                    ? statusResp.getError().getMessage()
+                                    : "Rechazo desconocido";
+                            rechazado = true;
+                        }
+                    }
+                } catch (Exception e) {
+                    log.warn("Wait", e);
+                }
+            }
+
+            // El reembolso se hace una sola vez, fuera del ciclo de consulta
+            if (rechazado) {
+                return rechazarDebitada(trx, saldoDebitado, "RECHAZADA POR DESTINO: " + motivoFallo);
+            }
+
+            if (confirmado) {
+                trx.setEstado(EstadoTransaccion.COMPLETADA);
+                trx.setSaldoResultante(saldoDebitado);
+                return mapearADTO(guardarConAsientos(trx), null);
+            } else {
+                trx.setEstado(EstadoTransaccion.PENDIENTE);
+                trx.setDescripcion("En proceso de validación. Le notificaremos.");
+                trx.setSaldoResultante(saldoDebitado);
+
+                Transaccion pendiente = guardarConAsientos(trx);
+                TransaccionResponseDTO respDto = mapearADTO(pendiente, null);
+                respDto.setMensajeUsuario("En proceso de validación. Le notificaremos.");
+                return respDto;
+            }
+
+        } catch (Exception e) {
+            SwitchRefundRequest devolucion = solicitudDevolucionAutomatica(trx.getReferencia(),
+                    trx.getMonto());
+            try {
+                compensar(() -> switchClient.solicitarDevolucion(devolucion));
+            } catch (Exception exRev) {
+                if (!devolucionYaResuelta(exRev)) {
+                    log.warn("Devolución automática de {} no enviada: {}", trx.getReferencia(),
+                            exRev.getMessage());
+                }
+            }
+
+            return rechazarDebitada(trx, saldoDebitado, "RECHAZADA: " + motivoFalloEnvio(e.getMessage()));
+        }
+    }
+
+    /**
+     * Un movimiento de saldo no se corta a mitad: el plazo se comprueba una
+     * vez antes del primero y desde ahí los tramos y lo que les sigue corren
+     * sin él, con el timeout normal de Feign. Vencer entre dos tramos
+     * desharía la transacción local con el movimiento remoto ya aplicado.
+     */
+    private static <T> T moverSinCortes(Supplier<T> movimiento) {
+        if (PlazoOperacion.restanteMs() <= 0) {
+            throw DependenciaNoDisponibleException.plazoAgotado("ms-cuentas");
+        }
+        return PlazoOperacion.sinPlazo(movimiento);
+    }
+
     @Override
+    @Transactional(readOnly = true)
     public List<TransaccionResponseDTO> obtenerPorCuenta(Integer idCuenta) {
-        return transaccionRepository.findPorCuenta(idCuenta).stream()
-                .map(t -> mapearADTO(t, idCuenta))
+        List<TransaccionResumen> transacciones = transaccionRepository.findResumenPorCuenta(idCuenta);
+        // Una sola resolución por cuenta distinta del historial, no una por fila
+        Map<Integer, InfoCuenta> infoCuentas = enriquecimientoCuentas.resolver(cuentasDe(transacciones));
+        return transacciones.stream()
+                .map(t -> mapearADTO(t, idCuenta, infoCuentas))
                 .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public PaginaHistorialDTO obtenerHistorial(Integer idCuenta, FiltroHistorialDTO filtro, String cursor,
+            int tamano) {
+        int limite = Math.max(1, Math.min(tamano, MAX_TAMANO_HISTORIAL));
+        LocalDateTime antesDeFecha = null;
+        Integer antesDeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                        .split("\\|");
+                antesDeFecha = LocalDateTime.parse(partes[0]);
+                antesDeId = Integer.valueOf(partes[1]);
+            } catch (RuntimeException e) {
+                throw new BusinessException("Cursor de historial inválido");
+            }
+        }
+
+        // Una fila de más indica si hay otra página sin tener que contar
+        List<Transaccion> filas = transaccionRepository.buscarHistorial(idCuenta, filtro, antesDeFecha, antesDeId,
+                limite + 1);
+        boolean hayMas = filas.size() > limite;
+        List<Transaccion> pagina = hayMas ? filas.subList(0, limite) : filas;
+
+        List<TransaccionResumen> resumenes = pagina.stream().map(TransaccionResumen::de).toList();
+        Map<Integer, InfoCuenta> infoCuentas = enriquecimientoCuentas.resolver(cuentasDe(resumenes));
+        String siguienteCursor = null;
+        if (hayMas) {
+            Transaccion ultima = pagina.get(pagina.size() - 1);
+            siguienteCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (ultima.getFechaCreacion() + "|" + ultima.getIdTransaccion()).getBytes(StandardCharsets.UTF_8));
+        }
+        return PaginaHistorialDTO.builder()
+                .transacciones(resumenes.stream().map(t -> mapearADTO(t, idCuenta, infoCuentas)).toList())
+                .siguienteCursor(siguienteCursor)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public TransaccionResponseDTO obtenerPorId(Integer id) {
         if (id == null) {
             throw new BusinessException("El ID de la transacción no puede ser nulo.");
         }
-        Transaccion t = transaccionRepository.findById(id)
+        TransaccionResumen t = transaccionRepository.findResumenPorId(id)
                 .orElseThrow(() -> new BusinessException("Transacción no encontrada con ID: " + id));
         return mapearADTO(t, null);
     }
@@ -405,87 +484,431 @@ public class TransaccionServiceImpl implements TransaccionService {
             throw new BusinessException("La referencia no puede estar vacía.");
         }
 
-        Transaccion t = null;
+        // Lectura por proyección; una PENDIENTE se sincroniza sobre su fila bloqueada
+        TransaccionResumen resumen = null;
 
         // Prioridad 1: Buscar por Código de Referencia (6 dígitos)
         if (referencia.matches("^[0-9]{6}$")) {
-            t = transaccionRepository.findByCodigoReferencia(referencia).orElse(null);
+            resumen = transaccionRepository.findResumenPorCodigoReferencia(referencia).orElse(null);
         }
 
         // Prioridad 2: Buscar por ID interno (numérico, pero verifiquemos que no sea un
         // codigoReferencia coincidente)
-        if (t == null && referencia.matches("\\d+") && !referencia.matches("^[0-9]{6}$")) {
+        if (resumen == null && referencia.matches("\\d+") && !referencia.matches("^[0-9]{6}$")) {
             try {
                 Integer id = Integer.parseInt(referencia);
-                t = transaccionRepository.findById(id).orElse(null);
+                resumen = transaccionRepository.findResumenPorId(id).orElse(null);
             } catch (Exception e) {
             }
         }
 
         // Fallback: Si es numérico y no se encontró como CodigoReferencia, intentar
         // como ID
-        if (t == null && referencia.matches("\\d+")) {
+        if (resumen == null && referencia.matches("\\d+")) {
             try {
                 Integer id = Integer.parseInt(referencia);
-                t = transaccionRepository.findById(id).orElse(null);
+                resumen = transaccionRepository.findResumenPorId(id).orElse(null);
             } catch (Exception e) {
             }
         }
 
         // Prioridad 3: Buscar por UUID/Referencia larga
-        if (t == null) {
-            t = transaccionRepository.findByReferencia(referencia)
+        if (resumen == null) {
+            resumen = transaccionRepository.findResumenPorReferencia(referencia)
                     .orElseThrow(
                             () -> new BusinessException("Transacción no encontrada con referencia/ID: " + referencia));
         }
 
-        if ("PENDIENTE".equalsIgnoreCase(t.getEstado()) || "EN_PROCESO".equalsIgnoreCase(t.getEstado())) {
+        if (resumen.estado().esFinal()) {
+            return mapearADTO(resumen, null);
+        }
+        // Sin cargar la entidad antes: el estado final lo aplica aplicarEstadoFinalSalida sobre la fila
+        // bloqueada, y una copia leída antes del bloqueo podría verla PENDIENTE cuando ya no lo está.
+        // Con el envío aún en la bandeja el Switch no la conoce: se informa PENDIENTE sin consultarlo.
+        String ref = resumen.referencia();
+        if (resumen.estado() == EstadoTransaccion.PENDIENTE && !bandejaSalidaSwitch.enBandeja(ref)) {
             try {
-                SwitchTransferResponse switchResp = switchClient.consultarEstadoTransferencia(t.getReferencia());
+                SwitchTransferResponse switchResp = consultaEstadoSwitch.consultar(ref);
 
                 if (switchResp != null && switchResp.getData() != null) {
 
                     // Actualizar Codigo Referencia si llega en la consulta
-                    if (t.getCodigoReferencia() == null && switchResp.getData().getCodigoReferencia() != null) {
-                        t.setCodigoReferencia(switchResp.getData().getCodigoReferencia());
+                    String codigoSwitch = switchResp.getData().getCodigoReferencia();
+                    if (resumen.codigoReferencia() == null && codigoSwitch != null) {
+                        transaccionRepository.findPorReferenciaForUpdate(ref)
+                                .ifPresent(t -> t.setCodigoReferencia(codigoSwitch));
                     }
 
                     String switchStatus = switchResp.getData().getEstado();
-                    log.info("Respuesta del Switch para {}: {}", t.getReferencia(), switchStatus);
-
-                    if ("COMPLETED".equalsIgnoreCase(switchStatus) || "EXITOSA".equalsIgnoreCase(switchStatus)
-                            || "QUEUED".equalsIgnoreCase(switchStatus) || "ACCEPTED".equalsIgnoreCase(switchStatus)) {
-                        t.setEstado("COMPLETADA");
-                        t.setDescripcion("Transferencia completada (Sincronizada)");
-                        t = transaccionRepository.save(t);
-
-                    } else if ("FAILED".equalsIgnoreCase(switchStatus) || "FALLIDA".equalsIgnoreCase(switchStatus)
-                            || "RECHAZADA".equalsIgnoreCase(switchStatus)) {
+                    log.info("Respuesta del Switch para {}: {}", ref, switchStatus);
 
+                    EstadoSwitch estadoSwitch = EstadoSwitch.de(switchStatus);
+                    if (estadoSwitch.confirmaEnvio()) {
+                        aplicarEstadoFinalSalida(ref, true, null);
+                    } else if (estadoSwitch == EstadoSwitch.RECHAZADA) {
                         String errorMsg = (switchResp.getError() != null) ? switchResp.getError().getMessage()
                                 : "Rechazo confirmado por Switch";
+                        aplicarEstadoFinalSalida(ref, false, errorMsg);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Consulta de estado de {} falló; sigue PENDIENTE: {}", ref, e.getMessage());
+            }
+            resumen = transaccionRepository.findResumenPorId(resumen.idTransaccion()).orElse(resumen);
+        }
 
-                        if (t.getIdCuentaOrigen() != null && t.getMonto() != null) {
-                            try {
-                                BigDecimal saldoRevertido = procesarSaldo(t.getIdCuentaOrigen(), t.getMonto());
-                                t.setSaldoResultante(saldoRevertido);
-                            } catch (Exception e) {
-                            }
-                        }
+        return mapearADTO(resumen, null);
+    }
 
-                        t.setEstado("FALLIDA");
-                        t.setDescripcion("RECHAZADA: " + errorMsg);
-                        t = transaccionRepository.save(t);
+    @Override
+    @Transactional
+    public boolean aplicarEstadoFinalSalida(String referencia, boolean exitosa, String motivo) {
+        return aplicarEstadosFinalesSalida(List.of(new ResolucionSalida(referencia, exitosa, motivo))) > 0;
+    }
+
+    @Override
+    @Transactional
+    public int aplicarEstadosFinalesSalida(List<ResolucionSalida> resoluciones) {
+        if (resoluciones.isEmpty()) {
+            return 0;
+        }
+        Map<String, ResolucionSalida> porReferencia = resoluciones.stream()
+                .collect(Collectors.toMap(ResolucionSalida::referencia, r -> r, (r1, r2) -> r1));
+
+        // Con las filas bloqueadas, solo quien las encuentra PENDIENTE las resuelve:
+        // el reembolso no se puede aplicar dos veces.
+        List<Transaccion> resueltas = new java.util.ArrayList<>();
+        for (Transaccion tx : transaccionRepository.findPorReferenciasForUpdate(porReferencia.keySet())) {
+            if (tx.getEstado() != EstadoTransaccion.PENDIENTE) {
+                continue;
+            }
+            ResolucionSalida r = porReferencia.get(tx.getReferencia());
+
+            if (r.exitosa()) {
+                tx.setEstado(EstadoTransaccion.COMPLETADA);
+                tx.setDescripcion("Transferencia Finalizada");
+            } else {
+                if (tx.getIdCuentaOrigen() != null && tx.getMonto() != null) {
+                    try {
+                        tx.setSaldoResultante(reembolsar(tx.getIdCuentaOrigen(), tx.getMonto()));
+                    } catch (RuntimeException e) {
+                        // Sin reembolso no se marca FALLIDA; queda PENDIENTE para otro intento
+                        log.warn("No se pudo reembolsar la transferencia {}: {}", tx.getReferencia(), e.getMessage());
+                        continue;
                     }
                 }
-            } catch (Exception e) {
+                tx.setEstado(EstadoTransaccion.FALLIDA);
+                tx.setDescripcion("RECHAZADA: " + (r.motivo() != null ? r.motivo() : "Rechazo desconocido"));
             }
+            libroMayorService.asentar(tx);
+            resueltas.add(tx);
+            log.info("Transferencia {} resuelta como {}", tx.getReferencia(), tx.getEstado());
         }
 
-        return mapearADTO(t, null);
+        transaccionRepository.saveAll(resueltas);
+        return resueltas.size();
+    }
+
+    /**
+     * Con la bandeja de salida el débito, la fila PENDIENTE y el mensaje al
+     * Switch se confirman juntos; la llamada la hace el despachador después
+     * del commit, sin conexión de base de datos tomada.
+     */
+    private TransaccionResponseDTO encolarSalida(Transaccion trx, SwitchTransferRequest switchRequest,
+            BigDecimal saldoDebitado) {
+        trx.setEstado(EstadoTransaccion.PENDIENTE);
+        trx.setDescripcion("En proceso de validación. Le notificaremos.");
+        trx.setSaldoResultante(saldoDebitado);
+
+        Transaccion pendiente = guardarConAsientos(trx);
+        bandejaSalidaSwitch.encolar(TipoMensajeSwitch.TRANSFERENCIA,
+                BandejaSalidaSwitch.claveCuenta(trx.getIdCuentaOrigen()), trx.getReferencia(), switchRequest);
+        TransaccionResponseDTO respDto = mapearADTO(pendiente != null ? pendiente : trx, null);
+        respDto.setMensajeUsuario("En proceso de validación. Le notificaremos.");
+        respDto.setAsincrona(true);
+        return respDto;
+    }
+
+    private SwitchTransferRequest solicitudTransferencia(Transaccion trx, TransaccionRequestDTO request,
+            EnriquecimientoDeudor.DatosDeudor deudor) {
+        String messageId = "MSG-BANTEC-" + System.currentTimeMillis();
+        String creationTime = java.time.OffsetDateTime.now(java.time.ZoneOffset.UTC)
+                .format(java.time.format.DateTimeFormatter.ISO_INSTANT);
+
+        return SwitchTransferRequest.builder()
+                .header(SwitchTransferRequest.Header.builder()
+                        .messageId(messageId)
+                        .creationDateTime(creationTime)
+                        .originatingBankId(codigoBanco)
+                        .build())
+                .body(SwitchTransferRequest.Body.builder()
+                        .instructionId(trx.getReferencia())
+                        .endToEndId("REF-BANTEC-" + trx.getReferencia())
+                        .amount(SwitchTransferRequest.Amount.builder()
+                                .currency("USD")
+                                .value(request.getMonto())
+                                .build())
+                        .debtor(SwitchTransferRequest.Party.builder()
+                                .name(deudor.nombre())
+                                .accountId(deudor.numeroCuenta())
+                                .accountType("SAVINGS")
+                                .bankId(codigoBanco)
+                                .build())
+                        .creditor(SwitchTransferRequest.Party.builder()
+                                .name(trx.getBeneficiario())
+                                .accountId(request.getCuentaExterna())
+                                .accountType("SAVINGS")
+                                .targetBankId(request.getIdBancoExterno() != null
+                                        ? request.getIdBancoExterno()
+                                        : "UNKNOWN")
+                                .build())
+                        .remittanceInformation(request.getDescripcion() != null
+                                ? request.getDescripcion()
+                                : "Transferencia interbancaria BANTEC")
+                        .build())
+                .build();
+    }
+
+    private SwitchRefundRequest solicitudDevolucionAutomatica(String referencia, BigDecimal monto) {
+        return SwitchRefundRequest.builder()
+                .header(SwitchRefundRequest.Header.builder()
+                        .messageId("MSG-REV-AUTO-" + System.currentTimeMillis())
+                        .creationDateTime(java.time.OffsetDateTime.now(java.time.ZoneOffset.UTC)
+                                .format(java.time.format.DateTimeFormatter.ISO_INSTANT))
+                        .originatingBankId(codigoBanco)
+                        .build())
+                .body(SwitchRefundRequest.Body.builder()
+                        .returnInstructionId(UUID.randomUUID().toString())
+                        .originalInstructionId(referencia)
+                        .returnReason("MS03")
+                        .returnAmount(SwitchRefundRequest.Amount.builder()
+                                .currency("USD")
+                                .value(monto)
+                                .build())
+                        .build())
+                .build();
+    }
+
+    /** El Switch ya no tiene nada que devolver: la original no llegó o ya fue devuelta. */
+    static boolean devolucionYaResuelta(Exception e) {
+        String err = e.getMessage();
+        return err != null && (err.contains("409") || err.contains("Transacción original no encontrada"));
+    }
+
+    /** Mensaje para el cliente cuando el Switch responde con rechazo. */
+    private static String motivoRechazo(String switchError) {
+        String lowerError = switchError != null ? switchError.toLowerCase() : "";
+        if (lowerError.contains("ac01"))
+            return "Cuenta destino inválida / inexistente";
+        if (lowerError.contains("ac03"))
+            return "Cuenta destino inválida (AC03)";
+        if (lowerError.contains("timeout") || lowerError.contains("504"))
+            return "Tiempo de espera agotado en destino";
+        if (lowerError.contains("fondos"))
+            return "Fondos insuficientes";
+        return "Error de comunicación con la entidad financiera";
+    }
+
+    /** Mensaje para el cliente cuando la transferencia no se pudo entregar al Switch. */
+    private static String motivoFalloEnvio(String errorMsg) {
+        String lowerEx = errorMsg != null ? errorMsg.toLowerCase() : "";
+        if (lowerEx.contains("ac01"))
+            return "Cuenta destino inválida";
+        if (lowerEx.contains("504") || lowerEx.contains("time out") || lowerEx.contains("timed out"))
+            return "El banco destino no responde";
+        if (lowerEx.contains("no disponible temporalmente") || lowerEx.contains("saturado"))
+            return "Red interbancaria no disponible";
+        if (lowerEx.contains("plazo de la operación agotado"))
+            return "Tiempo de espera agotado";
+        return "Error de comunicación con la entidad financiera";
+    }
+
+    @Override
+    @Transactional
+    public boolean registrarRespuestaSalida(String referencia, SwitchTransferResponse respuesta) {
+        if (respuesta == null || !respuesta.isSuccess()) {
+            String switchError = respuesta != null && respuesta.getError() != null
+                    ? respuesta.getError().getMessage()
+                    : "Error desconocido";
+            aplicarEstadoFinalSalida(referencia, false, motivoRechazo(switchError));
+            return false;
+        }
+        if (respuesta.getData() != null && respuesta.getData().getCodigoReferencia() != null) {
+            transaccionRepository.findPorReferenciaForUpdate(referencia)
+                    .ifPresent(t -> t.setCodigoReferencia(respuesta.getData().getCodigoReferencia()));
+        }
+        if (respuesta.getData() != null
+                && EstadoSwitch.de(respuesta.getData().getEstado()).confirmaEnvio()) {
+            aplicarEstadoFinalSalida(referencia, true, null);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean salidaPorEnviar(String referencia) {
+        return transaccionRepository.findPorReferenciaForUpdate(referencia)
+                .map(t -> t.getEstado() == EstadoTransaccion.PENDIENTE)
+                .orElse(false);
+    }
+
+    @Override
+    @Transactional
+    public void cancelarEnvioSalida(String referencia, String error) {
+        Optional<Transaccion> pendiente = transaccionRepository.findPorReferenciaForUpdate(referencia)
+                .filter(t -> t.getEstado() == EstadoTransaccion.PENDIENTE);
+        if (pendiente.isEmpty()) {
+            return;
+        }
+        Transaccion tx = pendiente.get();
+        // Como en el envío directo: por si el Switch sí la recibió, se pide la devolución
+        bandejaSalidaSwitch.encolar(TipoMensajeSwitch.DEVOLUCION, BandejaSalidaSwitch.claveCuenta(tx.getIdCuentaOrigen()),
+                referencia, solicitudDevolucionAutomatica(referencia, tx.getMonto()));
+        aplicarEstadoFinalSalida(referencia, false, motivoFalloEnvio(error));
     }
 
     private BigDecimal procesarSaldo(Integer idCuenta, BigDecimal montoCambio) {
+        BigDecimal saldoResultante = moverSaldo(idCuenta, montoCambio);
+        libroMayorService.anotar(idCuenta, montoCambio, saldoResultante);
+        return saldoResultante;
+    }
+
+    /**
+     * Devuelve un débito ya aplicado; se completa aunque el plazo de la
+     * operación haya vencido y aunque el circuito de ms-cuentas esté abierto.
+     */
+    private BigDecimal reembolsar(Integer idCuenta, BigDecimal monto) {
+        return compensar(() -> procesarSaldo(idCuenta, monto));
+    }
+
+    private static <T> T compensar(Supplier<T> accion) {
+        return PlazoOperacion.sinPlazo(() -> ProteccionDependencias.sinProteccion(accion));
+    }
+
+    /**
+     * Rechazo de una TRANSFERENCIA_SALIDA ya debitada: se reembolsa y queda
+     * FALLIDA. Si el reembolso no sale, la fila se guarda PENDIENTE con el
+     * débito y la resuelve el conciliador (que reembolsa al confirmar el
+     * rechazo); deshacer la transacción local dejaría el débito remoto sin
+     * registro.
+     */
+    private TransaccionResponseDTO rechazarDebitada(Transaccion trx, BigDecimal saldoDebitado, String descripcion) {
+        try {
+            trx.setSaldoResultante(reembolsar(trx.getIdCuentaOrigen(), trx.getMonto()));
+        } catch (RuntimeException e) {
+            log.error("No se pudo reembolsar la transferencia {}; queda PENDIENTE para el conciliador: {}",
+                    trx.getReferencia(), e.getMessage());
+            trx.setEstado(EstadoTransaccion.PENDIENTE);
+            trx.setSaldoResultante(saldoDebitado);
+            trx.setDescripcion("En proceso de validación. Le notificaremos.");
+            TransaccionResponseDTO respDto = mapearADTO(guardarConAsientos(trx), null);
+            respDto.setMensajeUsuario("En proceso de validación. Le notificaremos.");
+            return respDto;
+        }
+        trx.setEstado(EstadoTransaccion.FALLIDA);
+        trx.setDescripcion(descripcion);
+        return mapearADTO(guardarConAsientos(trx), null);
+    }
+
+    private BigDecimal moverSaldo(Integer idCuenta, BigDecimal montoCambio) {
+        return cuentaLockManager.ejecutar(idCuenta, () -> aplicarCambioSaldo(idCuenta, montoCambio));
+    }
+
+    /**
+     * Créditos que llegan desde el Switch. Con netting activo se combinan con
+     * los demás créditos pendientes de la misma cuenta; el lote se aplica en
+     * otro hilo, así que cada llamador anota su propia pierna con su saldo
+     * corrido.
+     */
+    private BigDecimal acreditarEntrante(Integer idCuenta, BigDecimal monto) {
+        if (nettingCreditos.isHabilitado()) {
+            BigDecimal saldoCorrido = nettingCreditos.acreditar(idCuenta, monto, this::moverSaldo);
+            libroMayorService.anotar(idCuenta, monto, saldoCorrido);
+            return saldoCorrido;
+        }
+        return procesarSaldo(idCuenta, monto);
+    }
+
+    /**
+     * Guarda la transacción y asienta en el libro mayor los movimientos de
+     * saldo anotados durante la operación.
+     */
+    private Transaccion guardarConAsientos(Transaccion trx) {
+        fijarContrapartes(trx);
+        Transaccion guardada = transaccionRepository.save(trx);
+        libroMayorService.asentar(guardada);
+        return guardada;
+    }
+
+    /**
+     * Copia en la fila el número y nombre de origen y destino tal como se
+     * muestran, para que las lecturas no consulten ms-cuentas ni ms-clientes.
+     * Nunca hace fallar la escritura: lo que no se resuelva queda nulo y lo
+     * completa {@link RellenoContrapartes}.
+     */
+    private void fijarContrapartes(Transaccion trx) {
+        List<Integer> ids = new ArrayList<>(2);
+        if (trx.getIdCuentaOrigen() != null && trx.getNumeroCuentaOrigen() == null) {
+            ids.add(trx.getIdCuentaOrigen());
+        }
+        if (trx.getIdCuentaDestino() != null && trx.getNumeroCuentaDestino() == null) {
+            ids.add(trx.getIdCuentaDestino());
+        }
+        Map<Integer, InfoCuenta> info = Map.of();
+        if (!ids.isEmpty()) {
+            try {
+                info = enriquecimientoCuentas.resolver(ids);
+            } catch (Exception e) {
+                log.warn("No se pudieron resolver las contrapartes de {}: {}", trx.getReferencia(), e.getMessage());
+            }
+        }
+        Contrapartes partes = new Contrapartes(trx.getNumeroCuentaOrigen(), trx.getNombreOrigen(),
+                trx.getNumeroCuentaDestino(), trx.getNombreDestino())
+                .completarCon(EnriquecimientoCuentas.contrapartes(trx.getIdCuentaOrigen(), trx.getIdCuentaDestino(),
+                        trx.getCuentaExterna(), trx.getBeneficiario(), trx.getIdBancoExterno(), info));
+        trx.setNumeroCuentaOrigen(partes.numeroCuentaOrigen());
+        trx.setNombreOrigen(partes.nombreOrigen());
+        trx.setNumeroCuentaDestino(partes.numeroCuentaDestino());
+        trx.setNombreDestino(partes.nombreDestino());
+    }
+
+    private BigDecimal aplicarCambioSaldo(Integer idCuenta, BigDecimal montoCambio) {
+        if (!movimientoAtomico) {
+            return procesarSaldoLecturaEscritura(idCuenta, montoCambio);
+        }
+
+        SaldoDTO resultado;
+        try {
+            resultado = cuentaCliente.aplicarMovimiento(idCuenta, MovimientoSaldoDTO.builder()
+                    .monto(montoCambio)
+                    .saldoMinimo(BigDecimal.ZERO)
+                    .build());
+        } catch (DependenciaNoDisponibleException e) {
+            throw e;
+        } catch (FeignException e) {
+            if (e.status() == 409) {
+                throw new BusinessException("Fondos insuficientes en la cuenta ID: " + idCuenta + ".");
+            }
+            if (e.status() == 404) {
+                throw new BusinessException("No se pudo validar la cuenta ID: " + idCuenta + ". Verifique que exista.");
+            }
+            throw new BusinessException("Error al actualizar el saldo de la cuenta ID: " + idCuenta);
+        } catch (Exception e) {
+            throw new BusinessException("Error al actualizar el saldo de la cuenta ID: " + idCuenta);
+        }
+
+        if (resultado == null || resultado.getSaldo() == null) {
+            throw new BusinessException("La cuenta ID " + idCuenta + " no retornó el saldo resultante del movimiento.");
+        }
+        return resultado.getSaldo();
+    }
+
+    /**
+     * Modo anterior (GET + PUT del saldo absoluto). Solo se usa mientras
+     * ms-cuentas no exponga el endpoint de movimientos atómicos.
+     */
+    private BigDecimal procesarSaldoLecturaEscritura(Integer idCuenta, BigDecimal montoCambio) {
         BigDecimal saldoActual;
 
         try {
@@ -493,6 +916,8 @@ public class TransaccionServiceImpl implements TransaccionService {
             if (saldoActual == null) {
                 throw new BusinessException("La cuenta ID " + idCuenta + " existe pero retornó saldo nulo.");
             }
+        } catch (DependenciaNoDisponibleException e) {
+            throw e;
         } catch (Exception e) {
             throw new BusinessException("No se pudo validar la cuenta ID: " + idCuenta + ". Verifique que exista.");
         }
@@ -506,6 +931,8 @@ public class TransaccionServiceImpl implements TransaccionService {
 
         try {
             cuentaCliente.actualizarSaldo(idCuenta, new SaldoDTO(nuevoSaldo));
+        } catch (DependenciaNoDisponibleException e) {
+            throw e;
         } catch (Exception e) {
             throw new BusinessException("Error al actualizar el saldo de la cuenta ID: " + idCuenta);
         }
@@ -514,117 +941,72 @@ public class TransaccionServiceImpl implements TransaccionService {
     }
 
     private TransaccionResponseDTO mapearADTO(Transaccion t, Integer idCuentaVisor) {
-        BigDecimal saldoAMostrar = t.getSaldoResultante();
-
-        if (idCuentaVisor != null &&
-                t.getIdCuentaDestino() != null &&
-                t.getIdCuentaDestino().equals(idCuentaVisor) &&
-                t.getSaldoResultanteDestino() != null) {
-
-            saldoAMostrar = t.getSaldoResultanteDestino();
-        }
-
-        String numeroCuentaOrigen = null;
-        String nombreOrigen = null;
-        if (t.getIdCuentaOrigen() != null) {
-            Map<String, String> infoOrigen = obtenerInfoCuenta(t.getIdCuentaOrigen());
-            numeroCuentaOrigen = infoOrigen.get("numeroCuenta");
-            nombreOrigen = infoOrigen.get("nombreCliente");
-        }
-
-        String numeroCuentaDestino = null;
-        String nombreDestino = null;
-        if (t.getIdCuentaDestino() != null) {
-            Map<String, String> infoDestino = obtenerInfoCuenta(t.getIdCuentaDestino());
-            numeroCuentaDestino = infoDestino.get("numeroCuenta");
-            nombreDestino = infoDestino.get("nombreCliente");
-        } else if (t.getCuentaExterna() != null) {
-            numeroCuentaDestino = t.getCuentaExterna();
-            if (t.getBeneficiario() != null && !t.getBeneficiario().isBlank()) {
-                nombreDestino = t.getBeneficiario();
-            } else {
-                nombreDestino = t.getIdBancoExterno() != null ? "Cliente " + t.getIdBancoExterno() : "Cuenta Externa";
-            }
-        }
+        return mapearADTO(TransaccionResumen.de(t), idCuentaVisor);
+    }
 
-        return TransaccionResponseDTO.builder()
-                .idTransaccion(t.getIdTransaccion())
-                .referencia(t.getReferencia())
-                .codigoReferencia(t.getCodigoReferencia())
-                .tipoOperacion(t.getTipoOperacion())
-                .idCuentaOrigen(t.getIdCuentaOrigen())
-                .idCuentaDestino(t.getIdCuentaDestino())
-                .cuentaExterna(t.getCuentaExterna())
-                .idBancoExterno(t.getIdBancoExterno())
-                .monto(t.getMonto())
-                .saldoResultante(saldoAMostrar)
-                .fechaCreacion(t.getFechaCreacion())
-                .descripcion(t.getDescripcion())
-                .canal(t.getCanal())
-                .estado(t.getEstado())
-                .numeroCuentaOrigen(numeroCuentaOrigen)
-                .nombreOrigen(nombreOrigen)
-                .numeroCuentaDestino(numeroCuentaDestino)
-                .nombreDestino(nombreDestino)
-                .build();
+    private TransaccionResponseDTO mapearADTO(TransaccionResumen t, Integer idCuentaVisor) {
+        return mapearADTO(t, idCuentaVisor, enriquecimientoCuentas.resolver(cuentasDe(List.of(t))));
     }
 
-    private Map<String, String> obtenerInfoCuenta(Integer idCuenta) {
-        Map<String, String> info = new java.util.HashMap<>();
-        try {
-            Map<String, Object> cuenta = cuentaCliente.obtenerCuenta(idCuenta);
-            if (cuenta != null) {
-                if (cuenta.get("numeroCuenta") != null) {
-                    info.put("numeroCuenta", cuenta.get("numeroCuenta").toString());
-                }
-                if (cuenta.get("idCliente") != null) {
-                    try {
-                        Integer idCliente = Integer.valueOf(cuenta.get("idCliente").toString());
-                        Map<String, Object> cliente = clienteClient.obtenerCliente(idCliente);
-                        if (cliente != null) {
-                            String nombre = "";
-                            if (cliente.get("nombreCompleto") != null) {
-                                nombre = cliente.get("nombreCompleto").toString();
-                            } else if (cliente.get("nombres") != null) {
-                                nombre = cliente.get("nombres").toString();
-                                if (cliente.get("apellidos") != null) {
-                                    nombre += " " + cliente.get("apellidos");
-                                }
-                            }
-                            if (!nombre.trim().isEmpty()) {
-                                info.put("nombreCliente", nombre.trim());
-                            }
-                        }
-                    } catch (Exception ex) {
-                    }
-                }
+    /** Cuentas que todavía hay que resolver: las filas ya completas no generan consultas. */
+    private static List<Integer> cuentasDe(List<TransaccionResumen> transacciones) {
+        List<Integer> ids = new ArrayList<>();
+        for (TransaccionResumen t : transacciones) {
+            if (t.idCuentaOrigen() != null && t.numeroCuentaOrigen() == null) {
+                ids.add(t.idCuentaOrigen());
+            }
+            if (t.idCuentaDestino() != null && t.numeroCuentaDestino() == null) {
+                ids.add(t.idCuentaDestino());
             }
-        } catch (Exception e) {
         }
-        return info;
+        return ids;
     }
 
-    private String obtenerNumeroCuenta(Integer idCuenta) {
-        try {
-            Map<String, Object> cuenta = cuentaCliente.obtenerCuenta(idCuenta);
-            if (cuenta != null && cuenta.get("numeroCuenta") != null) {
-                return cuenta.get("numeroCuenta").toString();
-            }
-        } catch (Exception e) {
+    private TransaccionResponseDTO mapearADTO(TransaccionResumen t, Integer idCuentaVisor,
+            Map<Integer, InfoCuenta> infoCuentas) {
+        BigDecimal saldoAMostrar = t.saldoResultante();
+
+        if (idCuentaVisor != null &&
+                t.idCuentaDestino() != null &&
+                t.idCuentaDestino().equals(idCuentaVisor) &&
+                t.saldoResultanteDestino() != null) {
+
+            saldoAMostrar = t.saldoResultanteDestino();
         }
-        return String.valueOf(idCuenta);
+
+        Contrapartes partes = new Contrapartes(t.numeroCuentaOrigen(), t.nombreOrigen(), t.numeroCuentaDestino(),
+                t.nombreDestino())
+                .completarCon(EnriquecimientoCuentas.contrapartes(t.idCuentaOrigen(), t.idCuentaDestino(),
+                        t.cuentaExterna(), t.beneficiario(), t.idBancoExterno(), infoCuentas));
+
+        return TransaccionResponseDTO.builder()
+                .idTransaccion(t.idTransaccion())
+                .referencia(t.referencia())
+                .codigoReferencia(t.codigoReferencia())
+                .tipoOperacion(t.tipoOperacion().name())
+                .idCuentaOrigen(t.idCuentaOrigen())
+                .idCuentaDestino(t.idCuentaDestino())
+                .cuentaExterna(t.cuentaExterna())
+                .idBancoExterno(t.idBancoExterno())
+                .monto(t.monto())
+                .saldoResultante(saldoAMostrar)
+                .fechaCreacion(t.fechaCreacion())
+                .descripcion(t.descripcion())
+                .canal(t.canal())
+                .estado(t.estado().name())
+                .numeroCuentaOrigen(partes.numeroCuentaOrigen())
+                .nombreOrigen(partes.nombreOrigen())
+                .numeroCuentaDestino(partes.numeroCuentaDestino())
+                .nombreDestino(partes.nombreDestino())
+                .build();
     }
 
     private Integer obtenerIdCuentaPorNumero(String numeroCuenta) {
         try {
-            Map<String, Object> cuenta = cuentaCliente.buscarPorNumero(numeroCuenta);
-            if (cuenta != null) {
-                if (cuenta.get("idCuenta") != null) {
-                    return Integer.valueOf(cuenta.get("idCuenta").toString());
-                } else if (cuenta.get("id") != null) {
-                    return Integer.valueOf(cuenta.get("id").toString());
-                }
-            }
+            return cacheMetadatos.idPorNumero(numeroCuenta);
+        } catch (DependenciaNoDisponibleException e) {
+            // ms-cuentas no respondió: no es una cuenta inexistente (AC01)
+            throw e;
         } catch (Exception e) {
             log.warn("Error buscando cuenta por numero {}: {}", numeroCuenta, e.getMessage());
         }
@@ -644,15 +1026,15 @@ public class TransaccionServiceImpl implements TransaccionService {
             throw new BusinessException("AC01", "AC01 - Número de cuenta incorrecto o inexistente en Banco Destino");
         }
 
-        if (transaccionRepository.findByReferencia(instructionId).isPresent()) {
+        if (instructionId != null && !registroIdempotencia.reclamar(instructionId, "TRANSFERENCIA_ENTRADA")) {
             return;
         }
 
-        BigDecimal nuevoSaldo = procesarSaldo(idCuentaDestino, monto);
+        BigDecimal nuevoSaldo = acreditarEntrante(idCuentaDestino, monto);
 
         Transaccion trx = Transaccion.builder()
                 .referencia(instructionId)
-                .tipoOperacion("TRANSFERENCIA_ENTRADA")
+                .tipoOperacion(TipoOperacion.TRANSFERENCIA_ENTRADA)
                 .idCuentaDestino(idCuentaDestino)
                 .idCuentaOrigen(null)
                 .cuentaExterna(cuentaDestino)
@@ -661,10 +1043,13 @@ public class TransaccionServiceImpl implements TransaccionService {
                 .idBancoExterno(bancoOrigen)
                 .descripcion("Transferencia recibida desde " + bancoOrigen)
                 .canal("SWITCH")
-                .estado("COMPLETADA")
+                .estado(EstadoTransaccion.COMPLETADA)
                 .build();
 
-        transaccionRepository.save(trx);
+        guardarConAsientos(trx);
+        if (instructionId != null) {
+            registroIdempotencia.registrar(instructionId, trx.getIdTransaccion(), null);
+        }
     }
 
     @Override
@@ -690,7 +1075,7 @@ public class TransaccionServiceImpl implements TransaccionService {
                 : null;
         String bancoOrigenRef = request.getHeader().getOriginatingBankId();
 
-        if (transaccionRepository.findByReferencia(returnId).isPresent()) {
+        if (returnId != null && !registroIdempotencia.reclamar(returnId, "DEVOLUCION")) {
             return;
         }
 
@@ -712,39 +1097,44 @@ public class TransaccionServiceImpl implements TransaccionService {
 
         BigDecimal amount = request.getBody().getReturnAmount().getValue();
 
-        if ("TRANSFERENCIA_SALIDA".equals(originalTx.getTipoOperacion())) {
+        if (originalTx.getTipoOperacion() == TipoOperacion.TRANSFERENCIA_SALIDA) {
 
-            if ("REVERSADA".equals(originalTx.getEstado()) || "DEVUELTA".equals(originalTx.getEstado())) {
+            if (originalTx.getEstado() == EstadoTransaccion.REVERSADA
+                    || originalTx.getEstado() == EstadoTransaccion.DEVUELTA) {
                 return;
             }
 
             Integer idCuentaCliente = originalTx.getIdCuentaOrigen();
             BigDecimal nuevoSaldo = procesarSaldo(idCuentaCliente, amount);
 
-            originalTx.setEstado("DEVUELTA");
+            originalTx.setEstado(EstadoTransaccion.DEVUELTA);
             originalTx.setDescripcion(originalTx.getDescripcion() + " [DEVUELTA]");
             transaccionRepository.save(originalTx);
 
             Transaccion returnTx = Transaccion.builder()
                     .referencia(returnId)
-                    .tipoOperacion("DEVOLUCION_RECIBIDA")
+                    .tipoOperacion(TipoOperacion.DEVOLUCION_RECIBIDA)
                     .monto(amount)
                     .idCuentaDestino(idCuentaCliente)
                     .saldoResultante(nuevoSaldo)
                     .descripcion("Devolución recibida: " + request.getBody().getReturnReason())
                     .canal("SWITCH")
-                    .estado("COMPLETADA")
+                    .estado(EstadoTransaccion.COMPLETADA)
                     .idTransaccionReversa(originalTx.getIdTransaccion())
                     .idBancoExterno(bancoOrigenRef)
                     .fechaCreacion(fechaReverso)
                     .codigoMotivo(request.getBody().getReturnReason())
                     .build();
 
-            transaccionRepository.save(returnTx);
+            guardarConAsientos(returnTx);
+            if (returnId != null) {
+                registroIdempotencia.registrar(returnId, returnTx.getIdTransaccion(), null);
+            }
 
-        } else if ("TRANSFERENCIA_ENTRADA".equals(originalTx.getTipoOperacion())) {
+        } else if (originalTx.getTipoOperacion() == TipoOperacion.TRANSFERENCIA_ENTRADA) {
 
-            if ("REVERSADA".equals(originalTx.getEstado()) || "DEVUELTA".equals(originalTx.getEstado())) {
+            if (originalTx.getEstado() == EstadoTransaccion.REVERSADA
+                    || originalTx.getEstado() == EstadoTransaccion.DEVUELTA) {
                 return;
             }
 
@@ -753,27 +1143,32 @@ public class TransaccionServiceImpl implements TransaccionService {
             try {
                 BigDecimal nuevoSaldo = procesarSaldo(idCuentaCliente, amount.negate());
 
-                originalTx.setEstado("REVERSADA");
+                originalTx.setEstado(EstadoTransaccion.REVERSADA);
                 originalTx.setDescripcion(originalTx.getDescripcion() + " [REVERSADA SOLICITUD EXT]");
                 transaccionRepository.save(originalTx);
 
                 Transaccion debitTx = Transaccion.builder()
                         .referencia(returnId)
-                        .tipoOperacion("REVERSO_DEBITO")
+                        .tipoOperacion(TipoOperacion.REVERSO_DEBITO)
                         .monto(amount)
                         .idCuentaOrigen(idCuentaCliente)
                         .saldoResultante(nuevoSaldo)
                         .descripcion("Reverso solicitado por banco origen: " + request.getBody().getReturnReason())
                         .canal("SWITCH")
-                        .estado("COMPLETADA")
+                        .estado(EstadoTransaccion.COMPLETADA)
                         .idTransaccionReversa(originalTx.getIdTransaccion())
                         .idBancoExterno(bancoOrigenRef)
                         .fechaCreacion(fechaReverso)
                         .codigoMotivo(request.getBody().getReturnReason())
                         .build();
 
-                transaccionRepository.save(debitTx);
+                guardarConAsientos(debitTx);
+                if (returnId != null) {
+                    registroIdempotencia.registrar(returnId, debitTx.getIdTransaccion(), null);
+                }
 
+            } catch (DependenciaNoDisponibleException e) {
+                throw e;
             } catch (BusinessException e) {
                 throw new BusinessException(
                         "No se puede ejecutar el reverso: Fondos insuficientes en la cuenta del cliente.");
@@ -787,46 +1182,54 @@ public class TransaccionServiceImpl implements TransaccionService {
     @Transactional
     public void solicitarReverso(RefoundRequestDTO requestDTO) {
 
-        Transaccion originalTx = null;
+        TransaccionResumen resumen = null;
 
         if (requestDTO.getIdTransaccion() != null) {
-            originalTx = transaccionRepository.findById(requestDTO.getIdTransaccion())
+            resumen = transaccionRepository.findResumenPorId(requestDTO.getIdTransaccion())
                     .orElse(null);
         }
 
-        if (originalTx == null && requestDTO.getCodigoReferencia() != null) {
-            originalTx = transaccionRepository
-                    .findByCodigoReferencia(requestDTO.getCodigoReferencia())
+        if (resumen == null && requestDTO.getCodigoReferencia() != null) {
+            resumen = transaccionRepository
+                    .findResumenPorCodigoReferencia(requestDTO.getCodigoReferencia())
                     .orElse(null);
         }
 
-        if (originalTx == null) {
+        if (resumen == null) {
             throw new BusinessException(
                     "Transacción no encontrada. Debe proporcionar un ID válido o un Código de Referencia.");
         }
 
-        if ("PENDIENTE".equals(originalTx.getEstado()) || "EN_PROCESO".equals(originalTx.getEstado())) {
+        // Igual que en buscarPorReferencia: una PENDIENTE se resuelve sobre su fila bloqueada
+        // (el rechazo reembolsa una sola vez) y nunca mientras su envío siga en la bandeja.
+        String ref = resumen.referencia();
+        if (resumen.estado() == EstadoTransaccion.PENDIENTE
+                && resumen.tipoOperacion() == TipoOperacion.TRANSFERENCIA_SALIDA
+                && !bandejaSalidaSwitch.enBandeja(ref)) {
+            SwitchTransferResponse statusResp = null;
             try {
-                SwitchTransferResponse statusResp = switchClient
-                        .consultarEstadoTransferencia(originalTx.getReferencia());
-                if (statusResp != null && statusResp.getData() != null) {
-                    String nuevoEstado = statusResp.getData().getEstado();
-
-                    if ("COMPLETED".equalsIgnoreCase(nuevoEstado) || "EXITOSA".equalsIgnoreCase(nuevoEstado)) {
-                        originalTx.setEstado("COMPLETADA");
-                        transaccionRepository.save(originalTx);
-                    } else if ("FAILED".equalsIgnoreCase(nuevoEstado) || "FALLIDA".equalsIgnoreCase(nuevoEstado)) {
-                        originalTx.setEstado("FALLIDA");
-                        originalTx.setDescripcion("FALLIDA (Sync): " + statusResp.getError().getMessage());
-                        transaccionRepository.save(originalTx);
-                        throw new BusinessException("La transacción falló en el Switch, no es necesario revertir.");
-                    }
-                }
+                statusResp = consultaEstadoSwitch.consultar(ref);
             } catch (Exception e) {
+                log.warn("Consulta de estado de {} falló; sigue PENDIENTE: {}", ref, e.getMessage());
+            }
+            if (statusResp != null && statusResp.getData() != null) {
+                EstadoSwitch nuevoEstado = EstadoSwitch.de(statusResp.getData().getEstado());
+                if (nuevoEstado.confirmaEnvio()) {
+                    resolverPendienteAparte(ref, true, null);
+                } else if (nuevoEstado == EstadoSwitch.RECHAZADA) {
+                    String motivo = statusResp.getError() != null ? statusResp.getError().getMessage()
+                            : "Rechazo confirmado por Switch";
+                    resolverPendienteAparte(ref, false, motivo);
+                    throw new BusinessException("La transacción falló en el Switch, no es necesario revertir.");
+                }
             }
         }
 
-        if (!"COMPLETADA".equals(originalTx.getEstado()) && !"EXITOSA".equals(originalTx.getEstado())) {
+        // Primera carga de la entidad en esta transacción, ya bloqueada y con el estado resuelto
+        Transaccion originalTx = transaccionRepository.findPorReferenciaForUpdate(ref)
+                .orElseThrow(() -> new BusinessException("Transacción no encontrada con referencia: " + ref));
+
+        if (originalTx.getEstado() != EstadoTransaccion.COMPLETADA) {
             throw new BusinessException(
                     "Solo se pueden revertir transacciones completadas. Estado actual: " + originalTx.getEstado());
         }
@@ -866,6 +1269,8 @@ public class TransaccionServiceImpl implements TransaccionService {
             switchRequest.getBody().setReturnReason(motivoIso);
             response = switchClient.solicitarDevolucion(switchRequest);
 
+        } catch (DependenciaNoDisponibleException e) {
+            throw e;
         } catch (Exception e) {
             String errorMsg = e.getMessage();
             if (errorMsg != null && errorMsg.contains("409")
@@ -883,26 +1288,28 @@ public class TransaccionServiceImpl implements TransaccionService {
 
                 BigDecimal nuevoSaldo = procesarSaldo(originalTx.getIdCuentaOrigen(), originalTx.getMonto());
 
-                originalTx.setEstado("REVERSADA");
+                originalTx.setEstado(EstadoTransaccion.REVERSADA);
                 originalTx.setDescripcion(originalTx.getDescripcion() + " [REVERSADA: " + requestDTO.getMotivo() + "]");
                 transaccionRepository.save(originalTx);
 
                 Transaccion reversaTx = Transaccion.builder()
                         .referencia(returnId)
-                        .tipoOperacion("DEVOLUCION_RECIBIDA")
+                        .tipoOperacion(TipoOperacion.DEVOLUCION_RECIBIDA)
                         .monto(originalTx.getMonto())
                         .descripcion(
                                 "Devolución de Tx " + originalTx.getIdTransaccion() + ": " + requestDTO.getMotivo())
                         .canal("WEB")
                         .idCuentaDestino(originalTx.getIdCuentaOrigen())
                         .saldoResultante(nuevoSaldo)
-                        .estado("COMPLETADA")
+                        .estado(EstadoTransaccion.COMPLETADA)
                         .idTransaccionReversa(originalTx.getIdTransaccion())
                         .codigoMotivo(motivoIso)
                         .build();
 
                 try {
-                    transaccionRepository.save(reversaTx);
+                    guardarConAsientos(reversaTx);
+                    // El INSERT se difiere al flush; la referencia duplicada debe aparecer aquí
+                    transaccionRepository.flush();
                 } catch (org.springframework.dao.DataIntegrityViolationException e) {
                 }
 
@@ -920,10 +1327,21 @@ public class TransaccionServiceImpl implements TransaccionService {
         }
     }
 
+    /**
+     * Aplica el estado final de una PENDIENTE en su propia transacción: el
+     * reembolso de un rechazo queda confirmado aunque el reverso que lo
+     * provocó termine en error y se deshaga.
+     */
+    private void resolverPendienteAparte(String referencia, boolean exitosa, String motivo) {
+        TransactionTemplate aparte = new TransactionTemplate(transactionManager);
+        aparte.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        aparte.executeWithoutResult(status -> aplicarEstadoFinalSalida(referencia, exitosa, motivo));
+    }
+
     @Override
     public java.util.List<java.util.Map<String, String>> obtenerMotivosDevolucion() {
         try {
-            return switchClient.obtenerMotivosDevolucion();
+            return coberturaSwitch.ejecutar("obtener-motivos-devolucion", switchClient::obtenerMotivosDevolucion);
         } catch (Exception e) {
             return java.util.List.of(
                     java.util.Map.of("codigo", "AC03", "descripcion", "Cuenta Inexistente (Invalid Creditor Account)"),
@@ -1008,7 +1426,8 @@ public class TransaccionServiceImpl implements TransaccionService {
         com.arcbank.cbs.transaccion.dto.AccountLookupResponse.Data data = new com.arcbank.cbs.transaccion.dto.AccountLookupResponse.Data();
 
         try {
-            Map<String, Object> cuenta = cuentaCliente.buscarPorNumero(numeroCuenta);
+            Integer idCuenta = cacheMetadatos.idPorNumero(numeroCuenta);
+            Map<String, Object> cuenta = idCuenta != null ? cacheMetadatos.cuenta(idCuenta) : null;
 
             if (cuenta != null && cuenta.get("idCuenta") != null) {
                 data.setExists(true);
@@ -1017,7 +1436,7 @@ public class TransaccionServiceImpl implements TransaccionService {
 
                 try {
                     Integer idCliente = Integer.valueOf(cuenta.get("idCliente").toString());
-                    Map<String, Object> cliente = clienteClient.obtenerCliente(idCliente);
+                    Map<String, Object> cliente = cacheMetadatos.cliente(idCliente);
 
                     if (cliente != null) {
                         String nombre = "";
@@ -1064,73 +1483,58 @@ public class TransaccionServiceImpl implements TransaccionService {
     @Override
     @Transactional
     public String consultarEstadoTransferencia(String instructionId) {
-        Transaccion tx = transaccionRepository.findByReferencia(instructionId).orElse(null);
+        // Proyección y no entidad: aplicarEstadoFinalSalida decide sobre la fila bloqueada
+        TransaccionResumen tx = transaccionRepository.findResumenPorReferencia(instructionId).orElse(null);
 
         if (tx == null) {
             return "NOT_FOUND";
         }
 
-        if ("PENDIENTE".equals(tx.getEstado())) {
-            long minutesDiff = java.time.temporal.ChronoUnit.MINUTES.between(tx.getFechaCreacion(),
-                    java.time.LocalDateTime.now());
-            if (minutesDiff >= 3) {
-                tx.setEstado("FALLIDA");
-                tx.setDescripcion("RECHAZADA: Expiró tiempo de validación");
-                transaccionRepository.save(tx);
-                return "FAILED";
+        if (tx.estado() == EstadoTransaccion.PENDIENTE) {
+            // Ni rechazo ni expiración mientras el despachador no la haya entregado
+            if (bandejaSalidaSwitch.enBandeja(instructionId)) {
+                return "PENDING";
             }
-
+            SwitchTransferResponse resp;
             try {
-                SwitchTransferResponse resp = switchClient.consultarEstadoTransferencia(instructionId);
-                if (resp != null && resp.getData() != null) {
-                    String estadoSwitch = resp.getData().getEstado();
-
-                    if ("COMPLETED".equalsIgnoreCase(estadoSwitch) || "EXITOSA".equalsIgnoreCase(estadoSwitch)) {
-                        tx.setEstado("COMPLETADA");
-                        tx.setDescripcion(tx.getDescripcion().replace("En proceso de validación. Le notificaremos.",
-                                "Transferencia Finalizada"));
-                        transaccionRepository.save(tx);
-                        return "COMPLETED";
-                    }
+                resp = consultaEstadoSwitch.consultar(instructionId);
+            } catch (Exception e) {
+                // Un error de la consulta no es un estado del Switch: la resuelve el conciliador
+                log.warn("Consulta de estado de {} falló; sigue PENDIENTE: {}", instructionId, e.getMessage());
+                return "PENDING";
+            }
 
-                    if ("FAILED".equalsIgnoreCase(estadoSwitch) || "FALLIDA".equalsIgnoreCase(estadoSwitch)
-                            || "RECHAZADA".equalsIgnoreCase(estadoSwitch)) {
-                        tx.setEstado("FALLIDA");
-                        String motivo = (resp.getError() != null) ? resp.getError().getMessage()
-                                : "Fallo confirmado por Switch";
-                        tx.setDescripcion("RECHAZADA: " + motivo);
-                        transaccionRepository.save(tx);
-                        return "FAILED";
-                    }
+            if (resp != null && resp.getData() != null) {
+                EstadoSwitch estadoSwitch = EstadoSwitch.de(resp.getData().getEstado());
+
+                if (estadoSwitch.confirmaEnvio()) {
+                    aplicarEstadoFinalSalida(instructionId, true, null);
+                    return "COMPLETED";
                 }
-            } catch (Exception e) {
-                String errorMsg = e.getMessage() != null ? e.getMessage().toLowerCase() : "";
-
-                if (errorMsg.contains("404") || errorMsg.contains("not found") ||
-                        errorMsg.contains("500") || errorMsg.contains("502") || errorMsg.contains("503")
-                        || errorMsg.contains("504") ||
-                        errorMsg.contains("refused") || errorMsg.contains("time out")
-                        || errorMsg.contains("timed out")) {
-
-                    tx.setEstado("FALLIDA");
-                    if (errorMsg.length() > 200)
-                        errorMsg = errorMsg.substring(0, 200) + "...";
-                    tx.setDescripcion("RECHAZADA: Problema de conexión (" + errorMsg + ")");
-                    transaccionRepository.save(tx);
-                    return "FAILED";
+                if (estadoSwitch == EstadoSwitch.RECHAZADA) {
+                    String motivo = (resp.getError() != null) ? resp.getError().getMessage()
+                            : "Fallo confirmado por Switch";
+                    return aplicarEstadoFinalSalida(instructionId, false, motivo) ? "FAILED" : "PENDING";
                 }
+                // El Switch la tiene y sigue en curso: no se expira
+                return "PENDING";
             }
-            return "PENDING";
-        }
 
-        String estado = tx.getEstado();
-        if ("COMPLETADA".equals(estado) || "EXITOSA".equals(estado) || "DEVUELTA".equals(estado)) {
-            return "COMPLETED";
-        } else if ("FALLIDA".equals(estado) || "REVERSADA".equals(estado)) {
-            return "FAILED";
+            // Solo expira si el Switch respondió sin conocerla; se reembolsa igual que un rechazo
+            long minutesDiff = java.time.temporal.ChronoUnit.MINUTES.between(tx.fechaCreacion(),
+                    java.time.LocalDateTime.now());
+            if (minutesDiff >= expiracionPendienteMin) {
+                return aplicarEstadoFinalSalida(instructionId, false, "Expiró tiempo de validación") ? "FAILED"
+                        : "PENDING";
+            }
+            return "PENDING";
         }
 
-        return "PENDING";
+        return switch (tx.estado()) {
+            case COMPLETADA, DEVUELTA -> "COMPLETED";
+            case FALLIDA, REVERSADA -> "FAILED";
+            default -> "PENDING";
+        };
     }
 
     @Override
@@ -1144,20 +1548,27 @@ public class TransaccionServiceImpl implements TransaccionService {
             throw new BusinessException("AC03", "AC03 - Cuenta no existe");
         }
 
-        BigDecimal nuevoSaldo = procesarSaldo(idCuenta, monto);
+        if (instructionId != null && !registroIdempotencia.reclamar(instructionId, "TRANSFERENCIA_ENTRADA")) {
+            return;
+        }
+
+        BigDecimal nuevoSaldo = acreditarEntrante(idCuenta, monto);
 
         Transaccion tx = Transaccion.builder()
                 .referencia(instructionId)
-                .tipoOperacion("TRANSFERENCIA_ENTRADA")
+                .tipoOperacion(TipoOperacion.TRANSFERENCIA_ENTRADA)
                 .monto(monto)
                 .idCuentaDestino(idCuenta)
                 .saldoResultante(nuevoSaldo)
                 .descripcion("Transferencia recibida de: " + ordenante)
                 .canal("SWITCH")
-                .estado("COMPLETADA")
+                .estado(EstadoTransaccion.COMPLETADA)
                 .fechaCreacion(java.time.LocalDateTime.now())
                 .build();
 
-        transaccionRepository.save(tx);
+        guardarConAsientos(tx);
+        if (instructionId != null) {
+            registroIdempotencia.registrar(instructionId, tx.getIdTransaccion(), null);
+        }
     }
 }
\ No newline at end of file
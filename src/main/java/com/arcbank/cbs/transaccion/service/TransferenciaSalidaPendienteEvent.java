@@ -0,0 +1,8 @@
+package com.arcbank.cbs.transaccion.service;
+
+/**
+ * Se publica al guardar una TRANSFERENCIA_SALIDA en PENDIENTE en modo
+ * asíncrono; el completador empieza a consultar el Switch tras el commit.
+ */
+public record TransferenciaSalidaPendienteEvent(String referencia) {
+}
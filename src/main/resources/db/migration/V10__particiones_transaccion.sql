@@ -0,0 +1,109 @@
+-- V10: Transaccion particionada por mes sobre FechaCreacion
+-- Las consultas acotadas por fecha (historial, extracto, conciliador) leen
+-- solo las particiones del rango. En una tabla particionada los índices
+-- únicos deben incluir la clave de partición, así que la unicidad global de
+-- Referencia, IdTransaccion y del reverso por original se mantiene en
+-- ReferenciaTransaccion, alimentada por trigger en la misma transacción.
+-- Las particiones futuras las crea MantenimientoParticiones; las antiguas
+-- se exportan y se eliminan, pero su fila en ReferenciaTransaccion queda.
+--
+-- Ejecutar en una ventana sin tráfico: copia la tabla completa.
+
+BEGIN;
+
+-- 1. Índice global: una fila por transacción, nunca se archiva
+CREATE TABLE public."ReferenciaTransaccion" (
+    "IdTransaccion"         INTEGER PRIMARY KEY,
+    "Referencia"            VARCHAR(50) UNIQUE,
+    "IdTransaccionReversa"  INTEGER NULL REFERENCES public."ReferenciaTransaccion"("IdTransaccion"),
+    "FechaCreacion"         TIMESTAMP NOT NULL
+);
+
+CREATE UNIQUE INDEX "UX_ReferenciaTransaccion_UnReversoPorOriginal"
+    ON public."ReferenciaTransaccion" ("IdTransaccionReversa")
+    WHERE "IdTransaccionReversa" IS NOT NULL;
+
+INSERT INTO public."ReferenciaTransaccion" ("IdTransaccion", "Referencia", "IdTransaccionReversa", "FechaCreacion")
+SELECT "IdTransaccion", "Referencia", "IdTransaccionReversa", "FechaCreacion"
+FROM public."Transaccion"
+ORDER BY "IdTransaccion";
+
+-- 2. Tabla particionada con las mismas columnas, defaults y CHECK
+ALTER TABLE public."Transaccion" RENAME TO "TransaccionAnterior";
+
+CREATE TABLE public."Transaccion" (
+    LIKE public."TransaccionAnterior" INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING STORAGE
+) PARTITION BY RANGE ("FechaCreacion");
+
+-- Un mes por partición desde el movimiento más antiguo hasta tres meses adelante
+DO $$
+DECLARE
+    mes   DATE := date_trunc('month', COALESCE((SELECT MIN("FechaCreacion") FROM public."TransaccionAnterior"),
+                                               CURRENT_TIMESTAMP));
+    hasta DATE := date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months';
+BEGIN
+    WHILE mes <= hasta LOOP
+        EXECUTE format('CREATE TABLE public.%I PARTITION OF public."Transaccion" FOR VALUES FROM (%L) TO (%L)',
+                       'Transaccion_' || to_char(mes, 'YYYY_MM'), mes, mes + INTERVAL '1 month');
+        mes := mes + INTERVAL '1 month';
+    END LOOP;
+END;
+$$;
+
+-- Red de seguridad si el mantenimiento no creó a tiempo la partición del mes
+CREATE TABLE public."Transaccion_Default" PARTITION OF public."Transaccion" DEFAULT;
+
+INSERT INTO public."Transaccion" SELECT * FROM public."TransaccionAnterior";
+
+-- La secuencia sobrevive a la tabla anterior
+ALTER SEQUENCE public."Transaccion_IdTransaccion_seq" OWNED BY NONE;
+DROP TABLE public."TransaccionAnterior";
+ALTER SEQUENCE public."Transaccion_IdTransaccion_seq" OWNED BY public."Transaccion"."IdTransaccion";
+
+-- 3. Clave e índices, locales a cada partición
+ALTER TABLE public."Transaccion"
+    ADD CONSTRAINT "PK_Transaccion" PRIMARY KEY ("IdTransaccion", "FechaCreacion");
+
+CREATE INDEX "IX_Transaccion_Referencia"
+    ON public."Transaccion" ("Referencia");
+
+CREATE INDEX "IX_Transaccion_Estado_Fecha"
+    ON public."Transaccion" ("Estado", "FechaCreacion", "IdTransaccion");
+
+CREATE INDEX "IX_Transaccion_Origen_Fecha"
+    ON public."Transaccion" ("IdCuentaOrigen", "FechaCreacion" DESC, "IdTransaccion" DESC)
+    WHERE "IdCuentaOrigen" IS NOT NULL;
+
+CREATE INDEX "IX_Transaccion_Destino_Fecha"
+    ON public."Transaccion" ("IdCuentaDestino", "FechaCreacion" DESC, "IdTransaccion" DESC)
+    WHERE "IdCuentaDestino" IS NOT NULL;
+
+CREATE INDEX "IX_Transaccion_Sin_Contrapartes"
+    ON public."Transaccion" ("IdTransaccion")
+    WHERE ("IdCuentaOrigen" IS NOT NULL AND "NumeroCuentaOrigen" IS NULL)
+       OR ("IdCuentaDestino" IS NOT NULL AND "NumeroCuentaDestino" IS NULL);
+
+-- 4. Unicidad global: el INSERT duplicado falla con unique_violation como antes
+CREATE OR REPLACE FUNCTION public.transaccion_referencia_global() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO public."ReferenciaTransaccion" ("IdTransaccion", "Referencia", "IdTransaccionReversa", "FechaCreacion")
+        VALUES (NEW."IdTransaccion", NEW."Referencia", NEW."IdTransaccionReversa", NEW."FechaCreacion");
+        RETURN NEW;
+    ELSIF TG_OP = 'UPDATE' THEN
+        UPDATE public."ReferenciaTransaccion"
+        SET "Referencia" = NEW."Referencia", "IdTransaccionReversa" = NEW."IdTransaccionReversa"
+        WHERE "IdTransaccion" = OLD."IdTransaccion";
+        RETURN NEW;
+    END IF;
+    -- DELETE explícito de filas; DROP de una partición archivada no pasa por aquí
+    DELETE FROM public."ReferenciaTransaccion" WHERE "IdTransaccion" = OLD."IdTransaccion";
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER "TR_Transaccion_ReferenciaGlobal"
+    BEFORE INSERT OR UPDATE OF "Referencia", "IdTransaccionReversa" OR DELETE ON public."Transaccion"
+    FOR EACH ROW EXECUTE FUNCTION public.transaccion_referencia_global();
+
+COMMIT;
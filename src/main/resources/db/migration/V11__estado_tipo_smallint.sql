@@ -0,0 +1,69 @@
+-- V11: Estado y TipoOperacion como SMALLINT
+-- Los códigos son los de EstadoTransaccion y TipoOperacion en el modelo y
+-- no se reutilizan. Cada fila pasa de hasta 31 + 21 bytes de texto a 2 + 2,
+-- y los índices que los incluyen se comparan por entero.
+-- Se elige SMALLINT con CHECK y no un tipo ENUM de Postgres: agregar un
+-- valor es cambiar el CHECK, sin ALTER TYPE ni conversión en JDBC.
+--
+-- Reescribe Transaccion completa (todas las particiones): ejecutar en una
+-- ventana sin tráfico.
+
+BEGIN;
+
+-- 1. Restricciones y default que comparan texto
+ALTER TABLE public."Transaccion" DROP CONSTRAINT IF EXISTS "CK_Transaccion_LogicaFlujo";
+ALTER TABLE public."Transaccion" DROP CONSTRAINT IF EXISTS "Transaccion_Estado_check";
+ALTER TABLE public."Transaccion" DROP CONSTRAINT IF EXISTS "Transaccion_TipoOperacion_check";
+ALTER TABLE public."Transaccion" ALTER COLUMN "Estado" DROP DEFAULT;
+
+-- El índice del conciliador se reemplaza por uno parcial al final
+DROP INDEX IF EXISTS public."IX_Transaccion_Estado_Fecha";
+
+-- 2. Conversión de columnas
+ALTER TABLE public."Transaccion"
+    ALTER COLUMN "Estado" TYPE SMALLINT USING CASE "Estado"
+        WHEN 'PENDIENTE'  THEN 1
+        WHEN 'COMPLETADA' THEN 2
+        WHEN 'FALLIDA'    THEN 3
+        WHEN 'REVERTIDA'  THEN 4
+        WHEN 'REVERSADA'  THEN 5
+        WHEN 'DEVUELTA'   THEN 6
+    END,
+    ALTER COLUMN "TipoOperacion" TYPE SMALLINT USING CASE "TipoOperacion"
+        WHEN 'DEPOSITO'              THEN 1
+        WHEN 'RETIRO'                THEN 2
+        WHEN 'TRANSFERENCIA_INTERNA' THEN 3
+        WHEN 'TRANSFERENCIA_SALIDA'  THEN 4
+        WHEN 'TRANSFERENCIA_ENTRADA' THEN 5
+        WHEN 'PAGO_SERVICIOS'        THEN 6
+        WHEN 'REVERSO'               THEN 7
+        WHEN 'DEVOLUCION_RECIBIDA'   THEN 8
+        WHEN 'REVERSO_DEBITO'        THEN 9
+    END;
+
+ALTER TABLE public."Transaccion" ALTER COLUMN "Estado" SET DEFAULT 2;
+
+-- 3. Las mismas reglas sobre los códigos
+ALTER TABLE public."Transaccion"
+    ADD CONSTRAINT "Transaccion_Estado_check" CHECK ("Estado" BETWEEN 1 AND 6);
+
+ALTER TABLE public."Transaccion"
+    ADD CONSTRAINT "Transaccion_TipoOperacion_check" CHECK ("TipoOperacion" BETWEEN 1 AND 9);
+
+-- 2 RETIRO, 4 TRANSFERENCIA_SALIDA, 1 DEPOSITO, 5 TRANSFERENCIA_ENTRADA,
+-- 3 TRANSFERENCIA_INTERNA, 7 REVERSO, 8 DEVOLUCION_RECIBIDA, 9 REVERSO_DEBITO
+ALTER TABLE public."Transaccion"
+    ADD CONSTRAINT "CK_Transaccion_LogicaFlujo" CHECK (
+        ("TipoOperacion" IN (2, 4) AND "IdCuentaOrigen" IS NOT NULL)
+        OR ("TipoOperacion" IN (1, 5) AND "IdCuentaDestino" IS NOT NULL)
+        OR ("TipoOperacion" = 3 AND "IdCuentaOrigen" IS NOT NULL AND "IdCuentaDestino" IS NOT NULL)
+        OR ("TipoOperacion" = 7 AND "IdTransaccionReversa" IS NOT NULL)
+        OR ("TipoOperacion" IN (8, 9))
+    );
+
+-- 4. Solo las transferencias salientes PENDIENTE, que son pocas
+CREATE INDEX "IX_Transaccion_Pendientes"
+    ON public."Transaccion" ("FechaCreacion", "IdTransaccion")
+    WHERE "Estado" = 1 AND "TipoOperacion" = 4;
+
+COMMIT;
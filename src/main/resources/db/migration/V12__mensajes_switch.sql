@@ -0,0 +1,32 @@
+-- V12: Bandeja de salida hacia el Switch (MensajeSwitch)
+-- Las transferencias de salida, sus devoluciones automáticas y los
+-- callbacks de transferencias entrantes se guardan en la misma transacción
+-- que el movimiento; DespachadorMensajesSwitch los envía después del commit
+-- y borra cada fila al entregarla. Un mensaje por "Clave" (la cuenta
+-- debitada) a la vez: los posteriores esperan a que se entregue el anterior.
+
+CREATE TABLE IF NOT EXISTS public."MensajeSwitch" (
+    "IdMensaje"       BIGSERIAL PRIMARY KEY,
+    "Tipo"            VARCHAR(20) NOT NULL
+                      CHECK ("Tipo" IN ('TRANSFERENCIA', 'DEVOLUCION', 'CALLBACK')),
+    "Clave"           VARCHAR(60) NOT NULL,
+    "Referencia"      VARCHAR(100) NOT NULL,
+    "Contenido"       TEXT NOT NULL,
+    "Intentos"        INTEGER DEFAULT 0 NOT NULL,
+    -- Próximo reintento, o fin de la reserva mientras un despachador lo envía
+    "ProximoIntento"  TIMESTAMP NOT NULL,
+    "UltimoError"     VARCHAR(500) NULL,
+    "FechaCreacion"   TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+-- Reserva: vencidos en orden de llegada
+CREATE INDEX IF NOT EXISTS "IX_MensajeSwitch_ProximoIntento"
+    ON public."MensajeSwitch" ("ProximoIntento", "IdMensaje");
+
+-- Orden por clave: ¿hay un mensaje anterior de la misma cuenta?
+CREATE INDEX IF NOT EXISTS "IX_MensajeSwitch_Clave"
+    ON public."MensajeSwitch" ("Clave", "IdMensaje");
+
+-- El conciliador omite las transferencias cuyo envío sigue en la bandeja
+CREATE INDEX IF NOT EXISTS "IX_MensajeSwitch_Referencia"
+    ON public."MensajeSwitch" ("Referencia");
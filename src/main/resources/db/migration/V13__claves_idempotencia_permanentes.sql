@@ -0,0 +1,25 @@
+-- V13: Las claves de idempotencia ya no se borran
+-- La clave queda para siempre (como ReferenciaTransaccion) y el INSERT ...
+-- ON CONFLICT del reclamo rechaza por sí solo una referencia reutilizada,
+-- sin consultar ReferenciaTransaccion en cada escritura. Al vencer solo se
+-- purga la respuesta guardada, que es lo que ocupa espacio.
+--
+-- Aplicar antes de desplegar esta versión. Puede tardar: recorre
+-- ReferenciaTransaccion completa.
+
+BEGIN;
+
+-- Referencias anteriores a V9 o cuya clave ya se purgó
+INSERT INTO public."ClaveIdempotencia" ("Clave", "Operacion", "IdTransaccion", "FechaCreacion", "FechaExpiracion")
+SELECT r."Referencia", 'ANTERIOR', r."IdTransaccion", r."FechaCreacion", r."FechaCreacion"
+FROM public."ReferenciaTransaccion" r
+WHERE r."Referencia" IS NOT NULL
+ON CONFLICT ("Clave") DO NOTHING;
+
+-- La purga solo recorre las claves que aún guardan respuesta
+DROP INDEX IF EXISTS public."IX_ClaveIdempotencia_Expiracion";
+CREATE INDEX IF NOT EXISTS "IX_ClaveIdempotencia_ConRespuesta"
+    ON public."ClaveIdempotencia" ("FechaExpiracion")
+    WHERE "Respuesta" IS NOT NULL;
+
+COMMIT;
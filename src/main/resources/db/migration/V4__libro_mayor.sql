@@ -0,0 +1,38 @@
+-- V4: Libro mayor local (partida doble) y saldo materializado por cuenta
+-- Un asiento por pierna de cada transacción que movió saldo. La tabla es
+-- solo de inserción: correcciones se registran como asientos inversos.
+
+CREATE TABLE IF NOT EXISTS public."AsientoContable" (
+    "IdAsiento"        BIGSERIAL PRIMARY KEY,
+    "IdTransaccion"    INTEGER NOT NULL,
+    "IdCuenta"         INTEGER NOT NULL,
+    "Tipo"             VARCHAR(7) NOT NULL CHECK ("Tipo" IN ('DEBITO', 'CREDITO')),
+    "Monto"            NUMERIC(15,2) NOT NULL CHECK ("Monto" > 0),
+    "SaldoResultante"  NUMERIC(15,2) NOT NULL,
+    "FechaCreacion"    TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS "IX_AsientoContable_Cuenta"
+    ON public."AsientoContable" ("IdCuenta", "IdAsiento" DESC);
+
+CREATE INDEX IF NOT EXISTS "IX_AsientoContable_Transaccion"
+    ON public."AsientoContable" ("IdTransaccion");
+
+CREATE OR REPLACE FUNCTION public.asiento_contable_solo_insercion() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'AsientoContable es de solo inserción (% no permitido)', TG_OP;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS "TR_AsientoContable_SoloInsercion" ON public."AsientoContable";
+CREATE TRIGGER "TR_AsientoContable_SoloInsercion"
+    BEFORE UPDATE OR DELETE ON public."AsientoContable"
+    FOR EACH ROW EXECUTE FUNCTION public.asiento_contable_solo_insercion();
+
+-- Saldo materializado: se actualiza en la misma transacción que el asiento.
+CREATE TABLE IF NOT EXISTS public."SaldoCuenta" (
+    "IdCuenta"            INTEGER PRIMARY KEY,
+    "Saldo"               NUMERIC(15,2) NOT NULL,
+    "IdUltimoAsiento"     BIGINT NOT NULL,
+    "FechaActualizacion"  TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
@@ -0,0 +1,5 @@
+-- V5: Índice para el conciliador de transferencias PENDIENTE
+-- Recorre por (Estado, FechaCreacion, IdTransaccion) sin escanear el histórico.
+
+CREATE INDEX IF NOT EXISTS "IX_Transaccion_Estado_Fecha"
+    ON public."Transaccion" ("Estado", "FechaCreacion", "IdTransaccion");
@@ -0,0 +1,11 @@
+-- V6: Índices para el historial paginado por cuenta
+-- Una rama del UNION ALL por columna: cada una lee su índice en orden
+-- (FechaCreacion, IdTransaccion) descendente y se detiene en el límite.
+
+CREATE INDEX IF NOT EXISTS "IX_Transaccion_Origen_Fecha"
+    ON public."Transaccion" ("IdCuentaOrigen", "FechaCreacion" DESC, "IdTransaccion" DESC)
+    WHERE "IdCuentaOrigen" IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS "IX_Transaccion_Destino_Fecha"
+    ON public."Transaccion" ("IdCuentaDestino", "FechaCreacion" DESC, "IdTransaccion" DESC)
+    WHERE "IdCuentaDestino" IS NOT NULL;
@@ -0,0 +1,14 @@
+-- V7: Número y nombre de origen y destino guardados en la transacción
+-- Se llenan al escribir la fila; las lecturas ya no consultan ms-cuentas ni
+-- ms-clientes. Las filas anteriores las completa RellenoContrapartes.
+
+ALTER TABLE public."Transaccion" ADD COLUMN IF NOT EXISTS "NumeroCuentaOrigen" VARCHAR(50);
+ALTER TABLE public."Transaccion" ADD COLUMN IF NOT EXISTS "NombreOrigen" VARCHAR(150);
+ALTER TABLE public."Transaccion" ADD COLUMN IF NOT EXISTS "NumeroCuentaDestino" VARCHAR(50);
+ALTER TABLE public."Transaccion" ADD COLUMN IF NOT EXISTS "NombreDestino" VARCHAR(150);
+
+-- Solo las filas que aún requieren consulta remota; se vacía a medida que avanza el relleno
+CREATE INDEX IF NOT EXISTS "IX_Transaccion_Sin_Contrapartes"
+    ON public."Transaccion" ("IdTransaccion")
+    WHERE ("IdCuentaOrigen" IS NOT NULL AND "NumeroCuentaOrigen" IS NULL)
+       OR ("IdCuentaDestino" IS NOT NULL AND "NumeroCuentaDestino" IS NULL);
@@ -0,0 +1,11 @@
+-- V8: IdTransaccion asignado por Hibernate con optimizador pooled
+-- La secuencia del SERIAL avanza de 50 en 50 (allocationSize de la entidad):
+-- cada nextval reserva el rango (valor - 49 .. valor). El DEFAULT de la
+-- columna se conserva para inserciones manuales.
+
+ALTER SEQUENCE public."Transaccion_IdTransaccion_seq" INCREMENT BY 50;
+
+-- El primer rango reservado empieza después del mayor id existente
+SELECT setval('public."Transaccion_IdTransaccion_seq"',
+              COALESCE((SELECT MAX("IdTransaccion") FROM public."Transaccion"), 0) + 50,
+              false);
@@ -0,0 +1,26 @@
+-- V9: Claves de idempotencia (Referencia / instructionId)
+-- La clave se reclama con INSERT ... ON CONFLICT DO NOTHING antes de mover
+-- saldo, en la misma transacción: un duplicado concurrente espera al commit
+-- del primero y encuentra la clave ocupada. Se guarda la respuesta para
+-- repetirla a los duplicados; las vencidas se purgan por lotes.
+
+CREATE TABLE IF NOT EXISTS public."ClaveIdempotencia" (
+    "Clave"            VARCHAR(100) PRIMARY KEY,
+    "Operacion"        VARCHAR(30) NOT NULL,
+    "IdTransaccion"    INTEGER NULL,
+    "Respuesta"        TEXT NULL,
+    "FechaCreacion"    TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    "FechaExpiracion"  TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS "IX_ClaveIdempotencia_Expiracion"
+    ON public."ClaveIdempotencia" ("FechaExpiracion");
+
+-- Reintentos de operaciones anteriores al despliegue: sin respuesta guardada
+-- se contesta con el estado actual de la transacción.
+INSERT INTO public."ClaveIdempotencia" ("Clave", "Operacion", "IdTransaccion", "FechaCreacion", "FechaExpiracion")
+SELECT t."Referencia", t."TipoOperacion", t."IdTransaccion", t."FechaCreacion", t."FechaCreacion" + INTERVAL '72 hours'
+FROM public."Transaccion" t
+WHERE t."Referencia" IS NOT NULL
+  AND t."FechaCreacion" > CURRENT_TIMESTAMP - INTERVAL '72 hours'
+ON CONFLICT ("Clave") DO NOTHING;
@@ -0,0 +1,48 @@
+package com.arcbank.cbs.transaccion.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import feign.FeignException;
+import feign.Request;
+
+/**
+ * Implementación local de {@link ClienteClient} para pruebas: responde 404
+ * por id inexistente y omite los inexistentes en la consulta por lote.
+ */
+public class ClienteClienteEnMemoria implements ClienteClient {
+
+    private final Map<Integer, String> nombres = new ConcurrentHashMap<>();
+
+    public ClienteClienteEnMemoria conCliente(Integer id, String nombreCompleto) {
+        nombres.put(id, nombreCompleto);
+        return this;
+    }
+
+    @Override
+    public Map<String, Object> obtenerCliente(Integer id) {
+        String nombre = nombres.get(id);
+        if (nombre == null) {
+            Request request = Request.create(Request.HttpMethod.GET, "/api/v1/clientes/" + id, Map.of(), null,
+                    StandardCharsets.UTF_8, null);
+            throw FeignException.errorStatus("ClienteClient",
+                    feign.Response.builder()
+                            .status(404)
+                            .reason("Not Found")
+                            .request(request)
+                            .headers(Map.of())
+                            .build());
+        }
+        return Map.of("idCliente", id, "nombreCompleto", nombre);
+    }
+
+    @Override
+    public List<Map<String, Object>> obtenerClientes(List<Integer> ids) {
+        return ids.stream()
+                .filter(nombres::containsKey)
+                .map(id -> Map.<String, Object>of("idCliente", id, "nombreCompleto", nombres.get(id)))
+                .toList();
+    }
+}
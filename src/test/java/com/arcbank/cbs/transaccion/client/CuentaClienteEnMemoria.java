@@ -0,0 +1,121 @@
+package com.arcbank.cbs.transaccion.client;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.arcbank.cbs.transaccion.dto.MovimientoSaldoDTO;
+import com.arcbank.cbs.transaccion.dto.SaldoDTO;
+
+import feign.FeignException;
+import feign.Request;
+
+/**
+ * Implementación local de {@link CuentaCliente} para pruebas. Replica el
+ * contrato de ms-cuentas: el movimiento se aplica de forma atómica por cuenta
+ * y responde 409 cuando el saldo quedaría por debajo del piso.
+ */
+public class CuentaClienteEnMemoria implements CuentaCliente {
+
+    private final Map<Integer, BigDecimal> saldos = new ConcurrentHashMap<>();
+    private final Map<Integer, String> numeros = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> clientes = new ConcurrentHashMap<>();
+
+    public CuentaClienteEnMemoria conCuenta(Integer id, String numeroCuenta, Integer idCliente, BigDecimal saldo) {
+        saldos.put(id, saldo);
+        numeros.put(id, numeroCuenta);
+        if (idCliente != null) {
+            clientes.put(id, idCliente);
+        }
+        return this;
+    }
+
+    public BigDecimal saldo(Integer id) {
+        return saldos.get(id);
+    }
+
+    @Override
+    public BigDecimal obtenerSaldo(Integer id) {
+        BigDecimal saldo = saldos.get(id);
+        if (saldo == null) {
+            throw error(404, "GET", "/api/v1/cuentas/ahorros/" + id + "/saldo");
+        }
+        return saldo;
+    }
+
+    @Override
+    public void actualizarSaldo(Integer id, SaldoDTO saldoDTO) {
+        if (saldos.replace(id, saldoDTO.getSaldo()) == null) {
+            throw error(404, "PUT", "/api/v1/cuentas/ahorros/" + id + "/saldo");
+        }
+    }
+
+    @Override
+    public SaldoDTO aplicarMovimiento(Integer id, MovimientoSaldoDTO movimiento) {
+        String url = "/api/v1/cuentas/ahorros/" + id + "/saldo/movimientos";
+        if (!saldos.containsKey(id)) {
+            throw error(404, "POST", url);
+        }
+        BigDecimal[] resultado = new BigDecimal[1];
+        saldos.computeIfPresent(id, (k, actual) -> {
+            BigDecimal nuevo = actual.add(movimiento.getMonto());
+            if (movimiento.getSaldoMinimo() != null && nuevo.compareTo(movimiento.getSaldoMinimo()) < 0) {
+                return actual;
+            }
+            resultado[0] = nuevo;
+            return nuevo;
+        });
+        if (resultado[0] == null) {
+            throw error(409, "POST", url);
+        }
+        return new SaldoDTO(resultado[0]);
+    }
+
+    @Override
+    public Map<String, Object> obtenerCuenta(Integer id) {
+        if (!numeros.containsKey(id)) {
+            throw error(404, "GET", "/api/v1/cuentas/ahorros/" + id);
+        }
+        return cuenta(id);
+    }
+
+    private Map<String, Object> cuenta(Integer id) {
+        Map<String, Object> cuenta = new HashMap<>();
+        cuenta.put("idCuenta", id);
+        cuenta.put("numeroCuenta", numeros.get(id));
+        cuenta.put("idCliente", clientes.get(id));
+        return cuenta;
+    }
+
+    @Override
+    public List<Map<String, Object>> obtenerCuentas(List<Integer> ids) {
+        return ids.stream()
+                .filter(numeros::containsKey)
+                .map(this::cuenta)
+                .toList();
+    }
+
+    @Override
+    public Map<String, Object> buscarPorNumero(String numeroCuenta) {
+        return numeros.entrySet().stream()
+                .filter(e -> e.getValue().equals(numeroCuenta))
+                .findFirst()
+                .map(e -> cuenta(e.getKey()))
+                .orElseThrow(() -> error(404, "GET", "/api/v1/cuentas/ahorros/buscar/" + numeroCuenta));
+    }
+
+    private static FeignException error(int status, String metodo, String url) {
+        Request request = Request.create(Request.HttpMethod.valueOf(metodo), url, Map.of(), null,
+                StandardCharsets.UTF_8, null);
+        return FeignException.errorStatus("CuentaCliente",
+                feign.Response.builder()
+                        .status(status)
+                        .reason(status == 409 ? "Conflict" : "Not Found")
+                        .request(request)
+                        .headers(Map.of())
+                        .build());
+    }
+}
@@ -0,0 +1,118 @@
+package com.arcbank.cbs.transaccion.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+
+import com.arcbank.cbs.transaccion.config.ResilienciaProperties;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+import com.arcbank.cbs.transaccion.service.PlazoOperacion;
+
+import feign.Client;
+import feign.Feign;
+import feign.Request;
+import feign.Response;
+import feign.Target;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PropagacionPlazoTest {
+
+    private final AtomicInteger llamadas = new AtomicInteger();
+    private final AtomicReference<Request.Options> opcionesUsadas = new AtomicReference<>();
+    private final AtomicReference<Request> ultima = new AtomicReference<>();
+
+    private final Client remoto = (request, opciones) -> {
+        llamadas.incrementAndGet();
+        opcionesUsadas.set(opciones);
+        ultima.set(request);
+        return Response.builder()
+                .status(200)
+                .request(request)
+                .headers(Map.of())
+                .body("{}", StandardCharsets.UTF_8)
+                .build();
+    };
+
+    @Test
+    void conPlazo_AcotaTimeoutsYPropagaLoQueQueda() {
+        ClienteClient clientes = cliente(new ResilienciaProperties());
+
+        PlazoOperacion.ejecutar(3000L, () -> clientes.obtenerCliente(1));
+
+        assertTrue(opcionesUsadas.get().readTimeoutMillis() <= 3000);
+        assertTrue(opcionesUsadas.get().connectTimeoutMillis() <= 3000);
+        Collection<String> cabecera = ultima.get().headers().get(PlazoOperacion.CABECERA);
+        long propagado = Long.parseLong(cabecera.iterator().next());
+        assertTrue(propagado > 2000 && propagado <= 3000, "propagado " + propagado);
+    }
+
+    @Test
+    void plazoVencido_LaLlamadaNoSale() {
+        ClienteClient clientes = cliente(new ResilienciaProperties());
+
+        DependenciaNoDisponibleException e = assertThrows(DependenciaNoDisponibleException.class,
+                () -> PlazoOperacion.ejecutar(1L, () -> {
+                    esperar(20);
+                    return clientes.obtenerCliente(1);
+                }));
+
+        assertEquals(DependenciaNoDisponibleException.PLAZO_AGOTADO, e.getCode());
+        assertEquals("ms-clientes", e.getDependencia());
+        assertEquals(0, llamadas.get());
+    }
+
+    @Test
+    void sinPlazo_NoCambiaNada() {
+        ClienteClient clientes = cliente(new ResilienciaProperties());
+
+        clientes.obtenerCliente(1);
+
+        assertEquals(60_000, opcionesUsadas.get().readTimeoutMillis());
+        assertNull(ultima.get().headers().get(PlazoOperacion.CABECERA));
+    }
+
+    @Test
+    void timeoutDelMetodo_NoExtiendeElPlazo() {
+        ResilienciaProperties propiedades = new ResilienciaProperties();
+        ResilienciaProperties.Cliente config = new ResilienciaProperties.Cliente();
+        config.setTimeoutMs(5000L);
+        propiedades.getClientes().put("ms-clientes", config);
+        ClienteClient clientes = cliente(propiedades);
+
+        clientes.obtenerCliente(1);
+        assertEquals(5000, opcionesUsadas.get().readTimeoutMillis());
+
+        PlazoOperacion.ejecutar(1000L, () -> clientes.obtenerCliente(1));
+        assertTrue(opcionesUsadas.get().readTimeoutMillis() <= 1000);
+    }
+
+    private ClienteClient cliente(ResilienciaProperties propiedades) {
+        PropagacionPlazo propagacion = new PropagacionPlazo();
+        return Feign.builder()
+                .contract(new SpringMvcContract())
+                .client(remoto)
+                .decoder((response, type) -> null)
+                .requestInterceptor(propagacion)
+                .addCapability(propagacion)
+                .addCapability(new ProteccionDependencias(propiedades, new SimpleMeterRegistry()))
+                .target(new Target.HardCodedTarget<>(ClienteClient.class, "ms-clientes", "http://ms-clientes"));
+    }
+
+    private static void esperar(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.arcbank.cbs.transaccion.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+
+import com.arcbank.cbs.transaccion.config.ResilienciaProperties;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+
+import feign.Client;
+import feign.Feign;
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+import feign.Target;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ProteccionDependenciasTest {
+
+    private final AtomicLong reloj = new AtomicLong(1_000_000);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger llamadas = new AtomicInteger();
+    private final AtomicInteger estado = new AtomicInteger(200);
+
+    private final Client remoto = (request, opciones) -> {
+        llamadas.incrementAndGet();
+        return respuesta(request, estado.get());
+    };
+
+    @Test
+    void fallosAbrenElCircuito_YLaPruebaLoCierra() {
+        ClienteClient clientes = cliente(ClienteClient.class, "ms-clientes", remoto, configuracion());
+
+        estado.set(503);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(FeignException.class, () -> clientes.obtenerCliente(1));
+        }
+        DependenciaNoDisponibleException e = assertThrows(DependenciaNoDisponibleException.class,
+                () -> clientes.obtenerCliente(1));
+        assertEquals("CLIENTES_NO_DISPONIBLE", e.getCode());
+        assertEquals(DependenciaNoDisponibleException.Motivo.CIRCUITO_ABIERTO, e.getMotivo());
+        assertEquals(1000, e.getReintentarEnMs());
+        assertEquals(4, llamadas.get());
+        assertEquals(1.0, meterRegistry.get("transaccion.dependencia.circuito")
+                .tag("cliente", "ms-clientes").tag("metodo", "obtenerCliente").gauge().value());
+
+        // Otro método del mismo cliente tiene su propio circuito
+        assertThrows(FeignException.class, () -> clientes.obtenerClientes(java.util.List.of(1)));
+        assertEquals(5, llamadas.get());
+
+        reloj.addAndGet(1000);
+        estado.set(200);
+        clientes.obtenerCliente(1);
+        assertEquals(6, llamadas.get());
+        assertEquals(0.0, meterRegistry.get("transaccion.dependencia.circuito")
+                .tag("cliente", "ms-clientes").tag("metodo", "obtenerCliente").gauge().value());
+    }
+
+    @Test
+    void pruebaFallida_VuelveAAbrir() {
+        ClienteClient clientes = cliente(ClienteClient.class, "ms-clientes", remoto, configuracion());
+        estado.set(500);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(FeignException.class, () -> clientes.obtenerCliente(1));
+        }
+        reloj.addAndGet(1000);
+        assertThrows(FeignException.class, () -> clientes.obtenerCliente(1));
+        assertThrows(DependenciaNoDisponibleException.class, () -> clientes.obtenerCliente(1));
+        assertEquals(5, llamadas.get());
+    }
+
+    @Test
+    void erroresDeNegocio_NoAbrenElCircuito() {
+        ClienteClient clientes = cliente(ClienteClient.class, "ms-clientes", remoto, configuracion());
+        estado.set(404);
+        for (int i = 0; i < 10; i++) {
+            assertThrows(FeignException.NotFound.class, () -> clientes.obtenerCliente(1));
+        }
+        assertEquals(10, llamadas.get());
+    }
+
+    @Test
+    void bulkheadLleno_RechazaSinEsperar() throws Exception {
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        Client lento = (request, opciones) -> {
+            dentro.countDown();
+            try {
+                soltar.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return respuesta(request, 200);
+        };
+        ResilienciaProperties propiedades = configuracion();
+        propiedades.getClientes().get("ms-clientes").setConcurrencia(1);
+        ClienteClient clientes = cliente(ClienteClient.class, "ms-clientes", lento, propiedades);
+
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> primera = hilos.submit(() -> clientes.obtenerCliente(1));
+            assertTrue(dentro.await(5, TimeUnit.SECONDS));
+
+            DependenciaNoDisponibleException e = assertThrows(DependenciaNoDisponibleException.class,
+                    () -> clientes.obtenerCliente(2));
+            assertEquals(DependenciaNoDisponibleException.Motivo.SATURADA, e.getMotivo());
+            assertEquals(1.0, meterRegistry.get("transaccion.dependencia.en.curso")
+                    .tag("metodo", "obtenerCliente").gauge().value());
+
+            soltar.countDown();
+            primera.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(1.0, meterRegistry.get("transaccion.dependencia.rechazos")
+                .tag("motivo", "SATURADA").counter().count());
+    }
+
+    @Test
+    void timeoutDelMetodo_ReemplazaElDeFeign() {
+        AtomicReference<Request.Options> usadas = new AtomicReference<>();
+        Client capturador = (request, opciones) -> {
+            usadas.set(opciones);
+            return respuesta(request, 200);
+        };
+        ResilienciaProperties propiedades = configuracion();
+        ResilienciaProperties.Ajustes lote = new ResilienciaProperties.Ajustes();
+        lote.setTimeoutMs(1500L);
+        propiedades.getClientes().get("ms-clientes").getMetodos().put("obtener-clientes", lote);
+        ClienteClient clientes = cliente(ClienteClient.class, "ms-clientes", capturador, propiedades);
+
+        clientes.obtenerClientes(java.util.List.of(1));
+        assertEquals(1500, usadas.get().readTimeoutMillis());
+
+        clientes.obtenerCliente(1);
+        assertEquals(60_000, usadas.get().readTimeoutMillis());
+    }
+
+    @Test
+    void compensaciones_PasanConElCircuitoAbierto() {
+        ClienteClient clientes = cliente(ClienteClient.class, "ms-clientes", remoto, configuracion());
+        estado.set(503);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(FeignException.class, () -> clientes.obtenerCliente(1));
+        }
+        assertThrows(DependenciaNoDisponibleException.class, () -> clientes.obtenerCliente(1));
+
+        estado.set(200);
+        ProteccionDependencias.sinProteccion(() -> clientes.obtenerCliente(1));
+        assertEquals(5, llamadas.get());
+
+        // Fuera del alcance el circuito sigue abierto
+        assertThrows(DependenciaNoDisponibleException.class, () -> clientes.obtenerCliente(1));
+        assertEquals(5, llamadas.get());
+    }
+
+    @Test
+    void clienteSinConfiguracion_PasaSinProteccion() {
+        ResilienciaProperties propiedades = configuracion();
+        propiedades.getClientes().clear();
+        ClienteClient clientes = cliente(ClienteClient.class, "ms-clientes", remoto, propiedades);
+        estado.set(503);
+        for (int i = 0; i < 10; i++) {
+            assertThrows(FeignException.class, () -> clientes.obtenerCliente(1));
+        }
+        assertEquals(10, llamadas.get());
+    }
+
+    @Test
+    void llamadasCanceladas_NoCuentanComoFallo() {
+        Client cancelado = (request, opciones) -> {
+            llamadas.incrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new java.io.InterruptedIOException("cancelada");
+        };
+        ClienteClient clientes = cliente(ClienteClient.class, "ms-clientes", cancelado, configuracion());
+        for (int i = 0; i < 6; i++) {
+            assertThrows(FeignException.class, () -> clientes.obtenerCliente(1));
+            Thread.interrupted();
+        }
+        assertEquals(6, llamadas.get());
+        assertEquals(0.0, meterRegistry.get("transaccion.dependencia.circuito")
+                .tag("metodo", "obtenerCliente").gauge().value());
+        assertEquals(0.0, meterRegistry.get("transaccion.dependencia.en.curso")
+                .tag("metodo", "obtenerCliente").gauge().value());
+    }
+
+    @Test
+    void llamadasLentas_AbrenElCircuito() {
+        ResilienciaProperties.Ajustes ajustes = configuracion().getDefecto().sobre(ResilienciaProperties.valoresBase());
+        CircuitoDependencia circuito = new CircuitoDependencia("X", "x", ajustes, reloj::get);
+        for (int i = 0; i < 3; i++) {
+            circuito.liberar(circuito.adquirir(), false, 5_000);
+        }
+        assertEquals(CircuitoDependencia.Estado.CERRADO, circuito.estado());
+        circuito.liberar(circuito.adquirir(), false, 5_000);
+        assertEquals(CircuitoDependencia.Estado.ABIERTO, circuito.estado());
+        assertThrows(DependenciaNoDisponibleException.class, circuito::verificar);
+    }
+
+    /** Ventana de 4, se abre con la mitad en fallo o 3 de 4 lentas; 1 s abierto y una prueba. */
+    private static ResilienciaProperties configuracion() {
+        ResilienciaProperties propiedades = new ResilienciaProperties();
+        ResilienciaProperties.Ajustes defecto = new ResilienciaProperties.Ajustes();
+        defecto.setVentana(4);
+        defecto.setMinimoLlamadas(4);
+        defecto.setUmbralFallos(50);
+        defecto.setLentaMs(1000L);
+        defecto.setUmbralLentas(75);
+        defecto.setAbiertoMs(1000L);
+        defecto.setPruebas(1);
+        propiedades.setDefecto(defecto);
+        ResilienciaProperties.Cliente clientes = new ResilienciaProperties.Cliente();
+        clientes.setCodigo("CLIENTES_NO_DISPONIBLE");
+        propiedades.getClientes().put("ms-clientes", clientes);
+        return propiedades;
+    }
+
+    private <T> T cliente(Class<T> tipo, String nombre, Client client, ResilienciaProperties propiedades) {
+        return Feign.builder()
+                .contract(new SpringMvcContract())
+                .client(client)
+                .decoder((response, type) -> null)
+                .encoder((objeto, bodyType, template) -> template.body("[]"))
+                .addCapability(new ProteccionDependencias(propiedades, meterRegistry, reloj::get))
+                .target(new Target.HardCodedTarget<>(tipo, nombre, "http://" + nombre));
+    }
+
+    private static Response respuesta(Request request, int status) {
+        return Response.builder()
+                .status(status)
+                .reason("prueba")
+                .request(request)
+                .headers(Map.of())
+                .body("{}", StandardCharsets.UTF_8)
+                .build();
+    }
+}
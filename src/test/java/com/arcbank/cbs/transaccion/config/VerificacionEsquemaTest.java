@@ -0,0 +1,62 @@
+package com.arcbank.cbs.transaccion.config;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+public class VerificacionEsquemaTest {
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final VerificacionEsquema verificacion = new VerificacionEsquema(jdbc);
+
+    @Test
+    void esquemaAlDia_Arranca() {
+        esquema(50L, true, "smallint");
+
+        assertDoesNotThrow(verificacion::verificar);
+    }
+
+    @Test
+    void sinV11_NoArrancaYDiceQueFalta() {
+        esquema(50L, true, "character varying");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, verificacion::verificar);
+
+        assertTrue(e.getMessage().contains("V11__estado_tipo_smallint"), e.getMessage());
+        assertTrue(e.getMessage().contains("V8 a V13"), e.getMessage());
+        assertFalse(e.getMessage().contains("V8__"), e.getMessage());
+        assertFalse(e.getMessage().contains("V10__"), e.getMessage());
+    }
+
+    @Test
+    void sinV8NiV10_LosListaTodos() {
+        esquema(1L, false, "smallint");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, verificacion::verificar);
+
+        assertTrue(e.getMessage().contains("V8__secuencia_transaccion"), e.getMessage());
+        assertTrue(e.getMessage().contains("V10__particiones_transaccion"), e.getMessage());
+        assertTrue(e.getMessage().contains("V12__mensajes_switch (no existe IX_MensajeSwitch_Referencia)"),
+                e.getMessage());
+        assertTrue(e.getMessage().contains("V13__claves_idempotencia_permanentes"), e.getMessage());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void esquema(Long incremento, boolean referencias, String tipoColumnas) {
+        when(jdbc.query(anyString(), any(ResultSetExtractor.class))).thenReturn(incremento);
+        when(jdbc.queryForObject(anyString(), eq(Boolean.class))).thenReturn(referencias);
+        when(jdbc.queryForList(anyString(), eq(String.class), any())).thenReturn(List.of(tipoColumnas));
+    }
+}
@@ -0,0 +1,123 @@
+package com.arcbank.cbs.transaccion.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import com.arcbank.cbs.transaccion.dto.TransaccionResponseDTO;
+import com.arcbank.cbs.transaccion.service.ExtractoCuentaService;
+import com.arcbank.cbs.transaccion.service.TransaccionService;
+
+/**
+ * Carga sobre POST /api/transacciones con la configuración de
+ * application.yaml: cada transferencia queda bloqueada en el servicio (como
+ * esperando al Switch) hasta que todas están en vuelo a la vez. Con el pool
+ * de Tomcat (200 hilos por defecto) la prueba no podría pasar.
+ */
+@SpringBootTest(classes = ControllerConcurrenciaTest.App.class,
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "logging.level.com.arcbank.cbs.transaccion=INFO")
+public class ControllerConcurrenciaTest {
+
+    private static final int TRANSFERENCIAS = 1_000;
+
+    /** Sin @SpringBootConfiguration: las pruebas @WebMvcTest del paquete no deben encontrarla. */
+    @Configuration(proxyBeanMethods = false)
+    @EnableAutoConfiguration(exclude = {
+            DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            JpaRepositoriesAutoConfiguration.class,
+            RabbitAutoConfiguration.class })
+    @Import(Controller.class)
+    static class App {
+    }
+
+    @LocalServerPort
+    private int puerto;
+
+    @Value("${server.tomcat.threads.max:200}")
+    private int hilosTomcat;
+
+    @MockBean
+    private TransaccionService transaccionService;
+
+    @MockBean
+    private ExtractoCuentaService extractoCuentaService;
+
+    @Test
+    void transferenciasEnVuelo_SuperanElPoolDeTomcat() throws Exception {
+        CountDownLatch todasEnVuelo = new CountDownLatch(TRANSFERENCIAS);
+        AtomicInteger enVuelo = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        AtomicBoolean soloVirtuales = new AtomicBoolean(true);
+        when(transaccionService.crearTransaccion(any())).thenAnswer(inv -> {
+            maximo.accumulateAndGet(enVuelo.incrementAndGet(), Math::max);
+            soloVirtuales.compareAndSet(true, Thread.currentThread().isVirtual());
+            todasEnVuelo.countDown();
+            try {
+                todasEnVuelo.await(30, TimeUnit.SECONDS);
+            } finally {
+                enVuelo.decrementAndGet();
+            }
+            return TransaccionResponseDTO.builder().estado("PENDIENTE").asincrona(true).build();
+        });
+
+        List<Integer> estados = new ArrayList<>();
+        try (ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor();
+                HttpClient http = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .executor(clientes)
+                        .build()) {
+            List<Future<Integer>> respuestas = new ArrayList<>();
+            for (int i = 0; i < TRANSFERENCIAS; i++) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/api/transacciones"))
+                        .timeout(Duration.ofSeconds(60))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("""
+                                {"referencia":"CARGA-%d","tipoOperacion":"TRANSFERENCIA_SALIDA","idCuentaOrigen":%d,
+                                 "cuentaExterna":"5500000001","idBancoExterno":"NEXUS_BANK","monto":10.00}
+                                """.formatted(i, 100 + i)))
+                        .build();
+                respuestas.add(clientes.submit(() -> http.send(request, HttpResponse.BodyHandlers.discarding())
+                        .statusCode()));
+            }
+            for (Future<Integer> respuesta : respuestas) {
+                estados.add(respuesta.get(90, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(TRANSFERENCIAS, estados.stream().filter(s -> s == 202).count());
+        assertEquals(TRANSFERENCIAS, maximo.get());
+        assertTrue(maximo.get() > hilosTomcat, "en vuelo " + maximo.get() + " con " + hilosTomcat + " hilos");
+        assertTrue(soloVirtuales.get());
+    }
+}
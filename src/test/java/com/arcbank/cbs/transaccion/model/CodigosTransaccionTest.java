@@ -0,0 +1,63 @@
+package com.arcbank.cbs.transaccion.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class CodigosTransaccionTest {
+
+    /** Los códigos están en filas guardadas y en V11: cambiarlos corrompe el histórico. */
+    @Test
+    void codigosPersistidos_NoCambian() {
+        assertEquals("PENDIENTE=1 COMPLETADA=2 FALLIDA=3 REVERTIDA=4 REVERSADA=5 DEVUELTA=6",
+                codigos(EstadoTransaccion.values()));
+        assertEquals("DEPOSITO=1 RETIRO=2 TRANSFERENCIA_INTERNA=3 TRANSFERENCIA_SALIDA=4 TRANSFERENCIA_ENTRADA=5"
+                + " PAGO_SERVICIOS=6 REVERSO=7 DEVOLUCION_RECIBIDA=8 REVERSO_DEBITO=9",
+                codigos(TipoOperacion.values()));
+    }
+
+    @Test
+    void conversion_IdaYVuelta() {
+        EstadoTransaccionConverter estados = new EstadoTransaccionConverter();
+        TipoOperacionConverter tipos = new TipoOperacionConverter();
+        for (EstadoTransaccion e : EstadoTransaccion.values()) {
+            assertEquals(e, estados.convertToEntityAttribute(estados.convertToDatabaseColumn(e)));
+        }
+        for (TipoOperacion t : TipoOperacion.values()) {
+            assertEquals(t, tipos.convertToEntityAttribute(tipos.convertToDatabaseColumn(t)));
+        }
+        assertNull(estados.convertToDatabaseColumn(null));
+        assertThrows(IllegalArgumentException.class, () -> EstadoTransaccion.deCodigo((short) 0));
+        assertThrows(IllegalArgumentException.class, () -> TipoOperacion.deCodigo((short) 10));
+    }
+
+    @Test
+    void nombresDeLaApi_SinDistinguirMayusculas() {
+        assertEquals(TipoOperacion.TRANSFERENCIA_SALIDA, TipoOperacion.desde("transferencia_salida"));
+        assertEquals(EstadoTransaccion.PENDIENTE, EstadoTransaccion.desde("Pendiente"));
+        assertNull(TipoOperacion.desde("TRANSFERENCIA"));
+        assertNull(EstadoTransaccion.desde(null));
+    }
+
+    @Test
+    void estadoSwitch_ClasificaAmbosIdiomas() {
+        assertEquals(EstadoSwitch.EXITOSA, EstadoSwitch.de("completed"));
+        assertEquals(EstadoSwitch.EXITOSA, EstadoSwitch.de("EXITOSA"));
+        assertEquals(EstadoSwitch.ACEPTADA, EstadoSwitch.de("QUEUED"));
+        assertEquals(EstadoSwitch.RECHAZADA, EstadoSwitch.de("Rechazada"));
+        assertEquals(EstadoSwitch.EN_CURSO, EstadoSwitch.de("PENDING"));
+        assertEquals(EstadoSwitch.EN_CURSO, EstadoSwitch.de(null));
+    }
+
+    private static String codigos(EstadoTransaccion[] valores) {
+        return String.join(" ", Arrays.stream(valores).map(e -> e.name() + "=" + e.getCodigo()).toList());
+    }
+
+    private static String codigos(TipoOperacion[] valores) {
+        return String.join(" ", Arrays.stream(valores).map(t -> t.name() + "=" + t.getCodigo()).toList());
+    }
+}
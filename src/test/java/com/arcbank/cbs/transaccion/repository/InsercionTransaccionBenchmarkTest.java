@@ -0,0 +1,125 @@
+package com.arcbank.cbs.transaccion.repository;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arcbank.cbs.transaccion.model.EstadoTransaccion;
+import com.arcbank.cbs.transaccion.model.Transaccion;
+import com.arcbank.cbs.transaccion.model.TipoOperacion;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Inserción de transacciones: un INSERT por viaje a la base (como obligaba
+ * IDENTITY) contra lotes JDBC de {@code hibernate.jdbc.batch_size} con ids
+ * de la secuencia pooled y reWriteBatchedInserts. Requiere una base
+ * PostgreSQL de pruebas con V8 aplicada:
+ *
+ * <pre>
+ * BENCH_DB_URL=jdbc:postgresql://localhost:5432/bench BENCH_DB_USER=postgres BENCH_DB_PASSWORD=... \
+ *     mvn test -Dtest=InsercionTransaccionBenchmarkTest
+ * </pre>
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "BENCH_DB_URL", matches = ".+")
+public class InsercionTransaccionBenchmarkTest {
+
+    private static final int FILAS = 5_000;
+    private static final int POR_TRANSACCION = 500;
+    private static final int CALENTAMIENTO = 2;
+    private static final int MEDICIONES = 5;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @DynamicPropertySource
+    static void baseDeDatos(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("BENCH_DB_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("BENCH_DB_USER", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("BENCH_DB_PASSWORD", ""));
+    }
+
+    @BeforeAll
+    @AfterAll
+    void borrar() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> entityManager
+                .createNativeQuery("DELETE FROM public.\"Transaccion\" WHERE \"Referencia\" LIKE 'BENCH-INS-%'")
+                .executeUpdate());
+    }
+
+    @Test
+    void lotesJdbc_FrenteAInsertPorFila() {
+        double porFila = medir("por-fila", true);
+        double enLotes = medir("lotes", false);
+
+        System.out.printf("Inserción de %d transacciones: %.0f filas/s por fila -> %.0f filas/s en lotes%n",
+                FILAS, porFila, enLotes);
+        assertTrue(enLotes > porFila, "Los lotes JDBC deberían insertar más filas por segundo");
+    }
+
+    private double medir(String nombre, boolean flushPorFila) {
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            insertar(nombre + "-c" + i, flushPorFila);
+        }
+        long total = 0;
+        for (int i = 0; i < MEDICIONES; i++) {
+            long antes = System.nanoTime();
+            insertar(nombre + "-m" + i, flushPorFila);
+            total += System.nanoTime() - antes;
+        }
+        borrar();
+        return FILAS / (total / (double) MEDICIONES / 1_000_000_000.0);
+    }
+
+    private void insertar(String prefijo, boolean flushPorFila) {
+        LocalDateTime fecha = LocalDateTime.now();
+        for (int bloque = 0; bloque < FILAS; bloque += POR_TRANSACCION) {
+            int desde = bloque;
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                for (int i = desde; i < desde + POR_TRANSACCION; i++) {
+                    entityManager.persist(Transaccion.builder()
+                            .referencia("BENCH-INS-" + prefijo + "-" + i)
+                            .tipoOperacion(TipoOperacion.DEPOSITO)
+                            .idCuentaDestino(1)
+                            .monto(new BigDecimal("10.00"))
+                            .saldoResultante(new BigDecimal("1000.00"))
+                            .fechaCreacion(fecha)
+                            .canal("WEB")
+                            .estado(EstadoTransaccion.COMPLETADA)
+                            .build());
+                    if (flushPorFila) {
+                        entityManager.flush();
+                    }
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+    }
+}
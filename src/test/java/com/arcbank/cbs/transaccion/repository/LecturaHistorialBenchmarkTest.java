@@ -0,0 +1,158 @@
+package com.arcbank.cbs.transaccion.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.arcbank.cbs.transaccion.model.EstadoTransaccion;
+import com.arcbank.cbs.transaccion.model.Transaccion;
+import com.arcbank.cbs.transaccion.model.TipoOperacion;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Historial de 10k movimientos: entidades administradas en transacción de
+ * lectura/escritura (lectura anterior) contra la proyección en transacción
+ * de solo lectura. Mide latencia y bytes asignados por el hilo. Solo corre
+ * con una base PostgreSQL de pruebas:
+ *
+ * <pre>
+ * BENCH_DB_URL=jdbc:postgresql://localhost:5432/bench BENCH_DB_USER=postgres BENCH_DB_PASSWORD=... \
+ *     mvn test -Dtest=LecturaHistorialBenchmarkTest
+ * </pre>
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "BENCH_DB_URL", matches = ".+")
+public class LecturaHistorialBenchmarkTest {
+
+    private static final int CUENTA = 987_654;
+    private static final int FILAS = 10_000;
+    private static final int CALENTAMIENTO = 5;
+    private static final int MEDICIONES = 20;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @DynamicPropertySource
+    static void baseDeDatos(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("BENCH_DB_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("BENCH_DB_USER", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("BENCH_DB_PASSWORD", ""));
+    }
+
+    @BeforeAll
+    void cargar() {
+        borrar();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            entityManager.createNativeQuery("""
+                    CREATE INDEX IF NOT EXISTS "IX_Transaccion_Origen_Fecha"
+                        ON public."Transaccion" ("IdCuentaOrigen", "FechaCreacion" DESC, "IdTransaccion" DESC)
+                        WHERE "IdCuentaOrigen" IS NOT NULL""").executeUpdate();
+            entityManager.createNativeQuery("""
+                    CREATE INDEX IF NOT EXISTS "IX_Transaccion_Destino_Fecha"
+                        ON public."Transaccion" ("IdCuentaDestino", "FechaCreacion" DESC, "IdTransaccion" DESC)
+                        WHERE "IdCuentaDestino" IS NOT NULL""").executeUpdate();
+        });
+
+        LocalDateTime inicio = LocalDateTime.now().minusDays(FILAS);
+        for (int bloque = 0; bloque < FILAS; bloque += 1000) {
+            int desde = bloque;
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                for (int i = desde; i < desde + 1000; i++) {
+                    boolean debito = i % 2 == 0;
+                    entityManager.persist(Transaccion.builder()
+                            .referencia("BENCH-" + i)
+                            .tipoOperacion(debito ? TipoOperacion.RETIRO : TipoOperacion.DEPOSITO)
+                            .idCuentaOrigen(debito ? CUENTA : null)
+                            .idCuentaDestino(debito ? null : CUENTA)
+                            .monto(new BigDecimal("10.00"))
+                            .saldoResultante(new BigDecimal("1000.00"))
+                            .fechaCreacion(inicio.plusDays(i))
+                            .descripcion("Movimiento de prueba " + i)
+                            .canal("WEB")
+                            .estado(EstadoTransaccion.COMPLETADA)
+                            .build());
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+    }
+
+    @AfterAll
+    void borrar() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> entityManager
+                .createNativeQuery("DELETE FROM public.\"Transaccion\" WHERE \"Referencia\" LIKE 'BENCH-%'")
+                .executeUpdate());
+    }
+
+    @Test
+    void proyeccionSoloLectura_FrenteAEntidades() {
+        TransactionTemplate lecturaEscritura = new TransactionTemplate(transactionManager);
+        TransactionTemplate soloLectura = new TransactionTemplate(transactionManager);
+        soloLectura.setReadOnly(true);
+
+        Medicion entidades = medir("entidades", () -> lecturaEscritura.execute(status ->
+                transaccionRepository.findPorCuenta(CUENTA).stream().map(TransaccionResumen::de).toList()));
+        Medicion proyeccion = medir("proyeccion", () -> soloLectura.execute(status ->
+                transaccionRepository.findResumenPorCuenta(CUENTA)));
+
+        System.out.printf("Historial de %d filas: latencia %.1f ms -> %.1f ms, asignado %.1f MB -> %.1f MB%n",
+                FILAS, entidades.ms(), proyeccion.ms(), entidades.mb(), proyeccion.mb());
+        assertTrue(proyeccion.mb() < entidades.mb(), "La proyección debería asignar menos que las entidades");
+    }
+
+    private Medicion medir(String nombre, Supplier<List<TransaccionResumen>> lectura) {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            assertEquals(FILAS, lectura.get().size(), nombre);
+        }
+        List<Long> tiempos = new ArrayList<>();
+        long bytes = 0;
+        for (int i = 0; i < MEDICIONES; i++) {
+            long bytesAntes = hilos.getCurrentThreadAllocatedBytes();
+            long antes = System.nanoTime();
+            lectura.get();
+            tiempos.add(System.nanoTime() - antes);
+            bytes += hilos.getCurrentThreadAllocatedBytes() - bytesAntes;
+        }
+        double ms = tiempos.stream().mapToLong(Long::longValue).average().orElse(0) / 1_000_000.0;
+        return new Medicion(ms, bytes / (double) MEDICIONES / (1024 * 1024));
+    }
+
+    private record Medicion(double ms, double mb) {
+    }
+}
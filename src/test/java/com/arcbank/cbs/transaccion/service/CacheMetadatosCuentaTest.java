@@ -0,0 +1,79 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import com.arcbank.cbs.transaccion.client.ClienteClienteEnMemoria;
+import com.arcbank.cbs.transaccion.client.CuentaClienteEnMemoria;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CacheMetadatosCuentaTest {
+
+    private final CuentaClienteEnMemoria cuentaCliente = spy(new CuentaClienteEnMemoria()
+            .conCuenta(101, "2200000101", 7, new BigDecimal("500.00")));
+    private final ClienteClienteEnMemoria clienteClient = spy(new ClienteClienteEnMemoria()
+            .conCliente(7, "Ana Pérez"));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CacheMetadatosCuenta cache = new CacheMetadatosCuenta(cuentaCliente, clienteClient,
+            meterRegistry, 60, 10, 1000, 60);
+
+    @Test
+    void cuentaYCliente_SeConsultanUnaVez() {
+        cache.cuenta(101);
+        cache.cuenta(101);
+        cache.cliente(7);
+        cache.cliente(7);
+
+        verify(cuentaCliente, times(1)).obtenerCuenta(101);
+        verify(clienteClient, times(1)).obtenerCliente(7);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "metadatos.cuentas")
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void numeroPorId_LlenaTambienLaCuenta() {
+        assertEquals(101, cache.idPorNumero("2200000101"));
+        cache.cuenta(101);
+
+        verify(cuentaCliente, times(1)).buscarPorNumero("2200000101");
+        verify(cuentaCliente, times(0)).obtenerCuenta(101);
+    }
+
+    @Test
+    void numeroInexistente_SeRecuerdaComoNegativo() {
+        assertNull(cache.idPorNumero("9999999999"));
+        assertNull(cache.idPorNumero("9999999999"));
+
+        verify(cuentaCliente, times(1)).buscarPorNumero("9999999999");
+    }
+
+    @Test
+    void errorRemoto_NoSeGuarda() {
+        doThrow(new RuntimeException("timeout")).doCallRealMethod().when(cuentaCliente).buscarPorNumero("2200000101");
+
+        assertThrows(RuntimeException.class, () -> cache.idPorNumero("2200000101"));
+        assertEquals(101, cache.idPorNumero("2200000101"));
+    }
+
+    @Test
+    void invalidarCuenta_DescartaIdYNumero() {
+        cache.idPorNumero("2200000101");
+        cache.cuenta(101);
+
+        cache.invalidarCuenta(101, null);
+        cache.idPorNumero("2200000101");
+        cache.cuenta(101);
+
+        verify(cuentaCliente, times(2)).buscarPorNumero("2200000101");
+    }
+}
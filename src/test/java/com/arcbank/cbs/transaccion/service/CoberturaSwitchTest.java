@@ -0,0 +1,125 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CoberturaSwitchTest {
+
+    private final ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    @Test
+    void respuestaRapida_NoSeCubre() {
+        CoberturaSwitch cobertura = cobertura(100, 20);
+        AtomicInteger llamadas = new AtomicInteger();
+
+        assertEquals("OK", cobertura.ejecutar("consultar-estado", () -> {
+            llamadas.incrementAndGet();
+            return "OK";
+        }));
+
+        assertEquals(1, llamadas.get());
+        assertEquals(0.0, contador("transaccion.switch.cobertura.emitidas"));
+    }
+
+    @Test
+    void primeraLenta_GanaLaCoberturaYLaPrimeraSeCancela() throws Exception {
+        CoberturaSwitch cobertura = cobertura(100, 20);
+        AtomicInteger llamadas = new AtomicInteger();
+        CountDownLatch primeraCancelada = new CountDownLatch(1);
+
+        String resultado = cobertura.ejecutar("consultar-estado", () -> {
+            if (llamadas.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    primeraCancelada.countDown();
+                    throw new IllegalStateException("cancelada");
+                }
+                return "LENTA";
+            }
+            return "COBERTURA";
+        });
+
+        assertEquals("COBERTURA", resultado);
+        assertTrue(primeraCancelada.await(5, TimeUnit.SECONDS));
+        assertEquals(1.0, contador("transaccion.switch.cobertura.emitidas"));
+        assertEquals(1.0, contador("transaccion.switch.cobertura.ganadas"));
+    }
+
+    @Test
+    void cubetaLimitaLaCargaExtra() {
+        // 10 % de presupuesto sin ráfaga acumulada: 1 cobertura cada 10 consultas
+        CoberturaSwitch cobertura = cobertura(10, 1);
+
+        for (int i = 0; i < 20; i++) {
+            cobertura.ejecutar("obtener-bancos", () -> {
+                dormir(200);
+                return "OK";
+            });
+        }
+
+        assertEquals(2.0, contador("transaccion.switch.cobertura.emitidas"));
+        assertEquals(18.0, contador("transaccion.switch.cobertura.sin.tokens"));
+    }
+
+    @Test
+    void errorDeLaPrimeraSinCobertura_SePropaga() {
+        CoberturaSwitch cobertura = cobertura(100, 20);
+
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> cobertura.ejecutar("consultar-estado", () -> {
+                    throw new BusinessException("caído");
+                }));
+
+        assertEquals("caído", e.getMessage());
+        assertEquals(0.0, contador("transaccion.switch.cobertura.emitidas"));
+    }
+
+    @Test
+    void conPlazo_LaCoberturaLoHereda() {
+        CoberturaSwitch cobertura = cobertura(100, 20);
+
+        long restante = PlazoOperacion.ejecutar(2000L,
+                () -> cobertura.ejecutar("consultar-estado", PlazoOperacion::restanteMs));
+
+        assertTrue(restante <= 2000, "restante " + restante);
+    }
+
+    /** Retraso fijo de 100 ms (sin muestras suficientes para el percentil). */
+    private CoberturaSwitch cobertura(double presupuestoPorcentaje, int rafaga) {
+        return new CoberturaSwitch(ejecutor, registry, true, 0.95, 100, 10, 3000, 1000,
+                presupuestoPorcentaje, rafaga);
+    }
+
+    private double contador(String nombre) {
+        return registry.find(nombre).counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
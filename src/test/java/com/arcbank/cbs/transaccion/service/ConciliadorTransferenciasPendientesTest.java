@@ -0,0 +1,120 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import com.arcbank.cbs.transaccion.dto.SwitchTransferResponse;
+import com.arcbank.cbs.transaccion.repository.TransaccionRepository;
+import com.arcbank.cbs.transaccion.repository.TransaccionRepository.PendienteSalida;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConciliadorTransferenciasPendientesTest {
+
+    private final TransaccionRepository transaccionRepository = mock(TransaccionRepository.class);
+    private final ConsultaEstadoSwitch consultaEstadoSwitch = mock(ConsultaEstadoSwitch.class);
+    private final TransaccionService transaccionService = mock(TransaccionService.class);
+
+    private final ConciliadorTransferenciasPendientes conciliador = new ConciliadorTransferenciasPendientes(
+            transaccionRepository, consultaEstadoSwitch, transaccionService, new SimpleMeterRegistry(),
+            5, 16, 2, 1000, 100, 1000, 5, 20, 0, 3);
+
+    @AfterEach
+    void tearDown() {
+        conciliador.detener();
+    }
+
+    @Test
+    void pendientes_SeConsultanYResuelvenPorLote() throws Exception {
+        LocalDateTime ahora = LocalDateTime.now();
+        when(transaccionRepository.findPendientesSalida(any(), any(), any(Limit.class)))
+                .thenReturn(List.of(pendiente(1, "REF-OK", ahora), pendiente(2, "REF-KO", ahora)));
+        when(consultaEstadoSwitch.consultar("REF-OK")).thenReturn(respuesta("COMPLETED"));
+        when(consultaEstadoSwitch.consultar("REF-KO")).thenReturn(respuesta("FAILED"));
+        Set<ResolucionSalida> aplicadas = ConcurrentHashMap.newKeySet();
+        when(transaccionService.aplicarEstadosFinalesSalida(any())).thenAnswer(inv -> {
+            List<ResolucionSalida> lote = inv.getArgument(0);
+            aplicadas.addAll(lote);
+            return lote.size();
+        });
+
+        conciliador.barrer();
+        for (int i = 0; i < 200 && aplicadas.size() < 2; i++) {
+            conciliador.tick();
+            Thread.sleep(5);
+        }
+
+        assertTrue(aplicadas.contains(new ResolucionSalida("REF-OK", true, null)));
+        assertTrue(aplicadas.stream().anyMatch(r -> r.referencia().equals("REF-KO") && !r.exitosa()));
+    }
+
+    @Test
+    void vencidas_SoloExpiraLaQueElSwitchNoConoce() throws Exception {
+        LocalDateTime vencida = LocalDateTime.now().minusMinutes(10);
+        when(transaccionRepository.findPendientesSalida(any(), any(), any(Limit.class)))
+                .thenReturn(List.of(pendiente(1, "REF-ACEPTADA", vencida), pendiente(2, "REF-CAIDO", vencida),
+                        pendiente(3, "REF-404", vencida)));
+        when(consultaEstadoSwitch.consultar("REF-ACEPTADA")).thenReturn(respuesta("QUEUED"));
+        when(consultaEstadoSwitch.consultar("REF-CAIDO")).thenThrow(new RuntimeException("Switch Error (503): x"));
+        when(consultaEstadoSwitch.consultar("REF-404")).thenThrow(new RuntimeException("Switch Error (404): x"));
+        Set<ResolucionSalida> aplicadas = ConcurrentHashMap.newKeySet();
+        when(transaccionService.aplicarEstadosFinalesSalida(any())).thenAnswer(inv -> {
+            List<ResolucionSalida> lote = inv.getArgument(0);
+            aplicadas.addAll(lote);
+            return lote.size();
+        });
+
+        conciliador.barrer();
+        for (int i = 0; i < 200 && aplicadas.size() < 2; i++) {
+            conciliador.tick();
+            Thread.sleep(5);
+        }
+
+        assertTrue(aplicadas.contains(new ResolucionSalida("REF-ACEPTADA", true, null)));
+        assertTrue(aplicadas.contains(new ResolucionSalida("REF-404", false, "Expiró tiempo de validación")));
+        assertTrue(aplicadas.stream().noneMatch(r -> r.referencia().equals("REF-CAIDO")));
+    }
+
+    @Test
+    void retraso_CreceExponencialmenteHastaElMaximo() {
+        assertEquals(5, conciliador.retraso(0));
+        assertEquals(10, conciliador.retraso(1));
+        assertEquals(20, conciliador.retraso(2));
+        assertEquals(20, conciliador.retraso(30));
+    }
+
+    private static PendienteSalida pendiente(int id, String referencia, LocalDateTime fecha) {
+        return new PendienteSalida() {
+            public Integer getIdTransaccion() {
+                return id;
+            }
+
+            public String getReferencia() {
+                return referencia;
+            }
+
+            public LocalDateTime getFechaCreacion() {
+                return fecha;
+            }
+        };
+    }
+
+    private static SwitchTransferResponse respuesta(String estado) {
+        return SwitchTransferResponse.builder()
+                .success(true)
+                .data(SwitchTransferResponse.DataBody.builder().estado(estado).build())
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.arcbank.cbs.transaccion.client.SwitchClient;
+import com.arcbank.cbs.transaccion.dto.SwitchTransferResponse;
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConsultaEstadoSwitchTest {
+
+    private final SwitchClient switchClient = mock(SwitchClient.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CoberturaSwitch sinCobertura = new CoberturaSwitch(Executors.newVirtualThreadPerTaskExecutor(),
+            registry, false, 0.95, 500, 50, 3000, 50, 10, 20);
+    private final ConsultaEstadoSwitch consulta = new ConsultaEstadoSwitch(switchClient, sinCobertura,
+            Executors.newVirtualThreadPerTaskExecutor(), registry, 1000, 60000, 100);
+
+    @Test
+    void consultasSimultaneas_ComparteUnaSolaLlamada() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(switchClient.consultarEstadoTransferencia("REF-1")).thenAnswer(inv -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return respuesta("PENDING");
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(10);
+        List<Future<SwitchTransferResponse>> futuros = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futuros.add(pool.submit(() -> consulta.consultar("REF-1")));
+        }
+        Thread.sleep(100);
+        liberar.countDown();
+        for (Future<SwitchTransferResponse> f : futuros) {
+            assertEquals("PENDING", f.get(5, TimeUnit.SECONDS).getData().getEstado());
+        }
+        pool.shutdown();
+
+        verify(switchClient, times(1)).consultarEstadoTransferencia("REF-1");
+        assertEquals(1.0, registry.get("transaccion.switch.estado.consultas").tag("resultado", "miss").counter().count());
+    }
+
+    @Test
+    void estadoTerminal_SeReutiliza() {
+        when(switchClient.consultarEstadoTransferencia("REF-2")).thenReturn(respuesta("COMPLETED"));
+
+        consulta.consultar("REF-2");
+        consulta.consultar("REF-2");
+
+        verify(switchClient, times(1)).consultarEstadoTransferencia("REF-2");
+    }
+
+    @Test
+    void error_NoSeGuarda() {
+        when(switchClient.consultarEstadoTransferencia("REF-3"))
+                .thenThrow(new IllegalStateException("504 Gateway Timeout"))
+                .thenReturn(respuesta("FAILED"));
+
+        assertThrows(IllegalStateException.class, () -> consulta.consultar("REF-3"));
+        assertEquals("FAILED", consulta.consultar("REF-3").getData().getEstado());
+    }
+
+    @Test
+    void esperaCombinada_RespetaElPlazoDeQuienEspera() throws Exception {
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(switchClient.consultarEstadoTransferencia("REF-4")).thenAnswer(inv -> {
+            dentro.countDown();
+            liberar.await(5, TimeUnit.SECONDS);
+            return respuesta("PENDING");
+        });
+
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        Future<SwitchTransferResponse> lider = pool.submit(() -> consulta.consultar("REF-4"));
+        assertTrue(dentro.await(5, TimeUnit.SECONDS));
+
+        long inicio = System.nanoTime();
+        DependenciaNoDisponibleException e = assertThrows(DependenciaNoDisponibleException.class,
+                () -> PlazoOperacion.ejecutar(200L, () -> consulta.consultar("REF-4")));
+        long esperaMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        assertEquals(DependenciaNoDisponibleException.Motivo.PLAZO_AGOTADO, e.getMotivo());
+        assertTrue(esperaMs < 2000, "esperó " + esperaMs + " ms");
+        liberar.countDown();
+        assertEquals("PENDING", lider.get(5, TimeUnit.SECONDS).getData().getEstado());
+        pool.shutdown();
+    }
+
+    @Test
+    void plazoDelPrimero_NoAcotaLaConsultaCompartida() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        List<Boolean> conPlazo = new java.util.concurrent.CopyOnWriteArrayList<>();
+        when(switchClient.consultarEstadoTransferencia("REF-5")).thenAnswer(inv -> {
+            conPlazo.add(PlazoOperacion.activo());
+            liberar.await(5, TimeUnit.SECONDS);
+            return respuesta("COMPLETED");
+        });
+
+        // El primero llega con poco plazo y se va; la llamada sigue para quien espera sin plazo
+        assertThrows(DependenciaNoDisponibleException.class,
+                () -> PlazoOperacion.ejecutar(100L, () -> consulta.consultar("REF-5")));
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        Future<SwitchTransferResponse> combinada = pool.submit(() -> consulta.consultar("REF-5"));
+        liberar.countDown();
+
+        assertEquals("COMPLETED", combinada.get(5, TimeUnit.SECONDS).getData().getEstado());
+        assertEquals(List.of(false), conPlazo);
+        verify(switchClient, times(1)).consultarEstadoTransferencia("REF-5");
+        pool.shutdown();
+    }
+
+    @Test
+    void errorGraveDelQueConsulta_NoDejaEsperandoAlResto() throws Exception {
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(switchClient.consultarEstadoTransferencia("REF-6")).thenAnswer(inv -> {
+            dentro.countDown();
+            liberar.await(5, TimeUnit.SECONDS);
+            throw new StackOverflowError();
+        });
+
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        pool.submit(() -> consulta.consultar("REF-6"));
+        assertTrue(dentro.await(5, TimeUnit.SECONDS));
+        Future<SwitchTransferResponse> combinada = pool.submit(() -> consulta.consultar("REF-6"));
+        Thread.sleep(100);
+        liberar.countDown();
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> combinada.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof BusinessException, e.toString());
+        pool.shutdown();
+    }
+
+    private static SwitchTransferResponse respuesta(String estado) {
+        return SwitchTransferResponse.builder()
+                .success(true)
+                .data(SwitchTransferResponse.DataBody.builder().estado(estado).build())
+                .build();
+    }
+}
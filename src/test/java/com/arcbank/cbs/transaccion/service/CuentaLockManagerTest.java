@@ -0,0 +1,99 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CuentaLockManagerTest {
+
+    private final CuentaLockManager lockManager = new CuentaLockManager(new SimpleMeterRegistry(), 4, 2000);
+
+    @Test
+    void mismaCuenta_SeEjecutaDeUnoEnUno() throws Exception {
+        AtomicInteger concurrentes = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futuros = new ArrayList<>();
+
+        for (int i = 0; i < 40; i++) {
+            futuros.add(pool.submit(() -> lockManager.ejecutar(101, () -> {
+                maximo.accumulateAndGet(concurrentes.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return concurrentes.decrementAndGet();
+            })));
+        }
+        for (Future<Integer> f : futuros) {
+            f.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(1, maximo.get());
+    }
+
+    @Test
+    void cuentasDistintas_NoSeBloquean() throws Exception {
+        CountDownLatch ambasDentro = new CountDownLatch(2);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        Future<Boolean> a = pool.submit(() -> lockManager.ejecutar(101, () -> esperar(ambasDentro)));
+        Future<Boolean> b = pool.submit(() -> lockManager.ejecutar(202, () -> esperar(ambasDentro)));
+
+        assertTrue(a.get(5, TimeUnit.SECONDS));
+        assertTrue(b.get(5, TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+
+    @Test
+    void timeout_RechazaConCuentaOcupada() throws Exception {
+        CuentaLockManager corto = new CuentaLockManager(new SimpleMeterRegistry(), 4, 50);
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+
+        pool.submit(() -> corto.ejecutar(101, () -> {
+            dentro.countDown();
+            try {
+                return liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        dentro.await(5, TimeUnit.SECONDS);
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> corto.ejecutar(101, () -> true));
+        assertEquals("CUENTA_OCUPADA", ex.getCode());
+
+        liberar.countDown();
+        pool.shutdown();
+    }
+
+    private static boolean esperar(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
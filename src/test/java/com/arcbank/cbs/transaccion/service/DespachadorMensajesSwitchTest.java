@@ -0,0 +1,179 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.arcbank.cbs.transaccion.client.SwitchClient;
+import com.arcbank.cbs.transaccion.dto.StatusReportDTO;
+import com.arcbank.cbs.transaccion.dto.SwitchTransferRequest;
+import com.arcbank.cbs.transaccion.dto.SwitchTransferResponse;
+import com.arcbank.cbs.transaccion.model.MensajeSwitch;
+import com.arcbank.cbs.transaccion.model.TipoMensajeSwitch;
+import com.arcbank.cbs.transaccion.repository.MensajeSwitchRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DespachadorMensajesSwitchTest {
+
+    private final MensajeSwitchRepository repositorio = mock(MensajeSwitchRepository.class);
+    private final SwitchClient switchClient = mock(SwitchClient.class);
+    private final TransaccionService transaccionService = mock(TransaccionService.class);
+    private final CompletadorTransferenciasSalida completador = mock(CompletadorTransferenciasSalida.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DespachadorMensajesSwitch despachador = new DespachadorMensajesSwitch(repositorio, switchClient,
+            transaccionService, completador, objectMapper, mock(PlatformTransactionManager.class), meterRegistry,
+            1, 50, 120_000, 3, 1000, 300_000, 0.2);
+
+    @BeforeEach
+    void setUp() {
+        when(transaccionService.salidaPorEnviar("REF-1")).thenReturn(true);
+    }
+
+    @Test
+    void transferenciaAceptada_BorraYSigueConsultando() throws Exception {
+        SwitchTransferResponse aceptada = SwitchTransferResponse.builder().success(true).build();
+        when(switchClient.enviarTransferencia(any())).thenReturn(aceptada);
+        when(transaccionService.registrarRespuestaSalida("REF-1", aceptada)).thenReturn(true);
+
+        despachador.procesar(transferencia(1));
+
+        verify(repositorio).borrar(7L);
+        verify(completador).seguir("REF-1");
+        assertEquals(1.0, contador("ENTREGADO"));
+    }
+
+    @Test
+    void transferenciaYaResuelta_NoSeEnvia() throws Exception {
+        when(transaccionService.salidaPorEnviar("REF-1")).thenReturn(false);
+
+        despachador.procesar(transferencia(1));
+
+        verify(switchClient, never()).enviarTransferencia(any());
+        verify(repositorio).borrar(7L);
+        verify(completador, never()).seguir(anyString());
+        assertEquals(1.0, contador("DESCARTADO"));
+    }
+
+    @Test
+    void transferenciaYaRegistrada_CuentaComoEntregada() throws Exception {
+        when(switchClient.enviarTransferencia(any())).thenThrow(error(409));
+
+        despachador.procesar(transferencia(2));
+
+        verify(repositorio).borrar(7L);
+        verify(completador).seguir("REF-1");
+        verify(transaccionService, never()).registrarRespuestaSalida(anyString(), any());
+    }
+
+    @Test
+    void falloTecnico_SeReprogramaSinBorrar() throws Exception {
+        when(switchClient.enviarTransferencia(any())).thenThrow(error(503));
+
+        LocalDateTime antes = LocalDateTime.now();
+        despachador.procesar(transferencia(1));
+
+        ArgumentCaptor<LocalDateTime> proximo = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repositorio).reprogramar(eq(7L), proximo.capture(), anyString());
+        assertTrue(proximo.getValue().isAfter(antes.plusNanos(799_000_000)));
+        verify(repositorio, never()).borrar(7L);
+        verify(transaccionService, never()).cancelarEnvioSalida(anyString(), anyString());
+        assertEquals(1.0, contador("REINTENTO"));
+    }
+
+    @Test
+    void intentosAgotados_CancelaYReembolsa() throws Exception {
+        when(switchClient.enviarTransferencia(any())).thenThrow(error(503));
+
+        despachador.procesar(transferencia(3));
+
+        verify(transaccionService).cancelarEnvioSalida(eq("REF-1"), anyString());
+        verify(repositorio).borrar(7L);
+        verify(repositorio, never()).reprogramar(any(), any(), any());
+        assertEquals(1.0, contador("DESCARTADO"));
+    }
+
+    @Test
+    void callbackRechazadoConCuatrocientos_SeDescartaSinReintentar() throws Exception {
+        when(switchClient.enviarCallback(any())).thenThrow(error(400));
+
+        despachador.procesar(mensaje(TipoMensajeSwitch.CALLBACK, 1,
+                objectMapper.writeValueAsString(StatusReportDTO.builder().build())));
+
+        verify(repositorio).borrar(7L);
+        verify(repositorio, never()).reprogramar(any(), any(), any());
+        verify(transaccionService, never()).cancelarEnvioSalida(anyString(), anyString());
+    }
+
+    @Test
+    void retraso_CreceHastaElMaximo() {
+        for (int i = 0; i < 50; i++) {
+            long primero = despachador.retraso(0);
+            assertTrue(primero >= 800 && primero <= 1200, "retraso " + primero);
+            long tercero = despachador.retraso(2);
+            assertTrue(tercero >= 3200 && tercero <= 4800, "retraso " + tercero);
+            assertTrue(despachador.retraso(40) <= 360_000);
+        }
+    }
+
+    private MensajeSwitch transferencia(int intentos) throws Exception {
+        SwitchTransferRequest request = SwitchTransferRequest.builder()
+                .body(SwitchTransferRequest.Body.builder()
+                        .instructionId("REF-1")
+                        .amount(SwitchTransferRequest.Amount.builder()
+                                .currency("USD")
+                                .value(new BigDecimal("100.00"))
+                                .build())
+                        .build())
+                .build();
+        return mensaje(TipoMensajeSwitch.TRANSFERENCIA, intentos, objectMapper.writeValueAsString(request));
+    }
+
+    private static MensajeSwitch mensaje(TipoMensajeSwitch tipo, int intentos, String contenido) {
+        return MensajeSwitch.builder()
+                .idMensaje(7L)
+                .tipo(tipo)
+                .clave("CUENTA-101")
+                .referencia("REF-1")
+                .contenido(contenido)
+                .intentos(intentos)
+                .build();
+    }
+
+    private double contador(String resultado) {
+        return meterRegistry.get("transaccion.bandeja.mensajes").tag("resultado", resultado).counter().count();
+    }
+
+    private static FeignException error(int status) {
+        Request request = Request.create(Request.HttpMethod.POST, "/api/v1/transacciones", Map.of(), null,
+                StandardCharsets.UTF_8, null);
+        return FeignException.errorStatus("SwitchClient",
+                feign.Response.builder()
+                        .status(status)
+                        .reason("Error")
+                        .request(request)
+                        .headers(Map.of())
+                        .build());
+    }
+}
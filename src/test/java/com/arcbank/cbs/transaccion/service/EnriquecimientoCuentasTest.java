@@ -0,0 +1,104 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.arcbank.cbs.transaccion.client.ClienteClienteEnMemoria;
+import com.arcbank.cbs.transaccion.client.CuentaClienteEnMemoria;
+import com.arcbank.cbs.transaccion.service.EnriquecimientoCuentas.InfoCuenta;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class EnriquecimientoCuentasTest {
+
+    private final CuentaClienteEnMemoria cuentaCliente = spy(new CuentaClienteEnMemoria()
+            .conCuenta(101, "2200000101", 7, new BigDecimal("500.00"))
+            .conCuenta(202, "2200000202", 7, new BigDecimal("1000.00"))
+            .conCuenta(303, "2200000303", 8, new BigDecimal("20.00")));
+    private final ClienteClienteEnMemoria clienteClient = spy(new ClienteClienteEnMemoria()
+            .conCliente(7, "Ana Pérez")
+            .conCliente(8, "Luis Mora"));
+    private final CacheMetadatosCuenta cache = new CacheMetadatosCuenta(cuentaCliente, clienteClient,
+            new SimpleMeterRegistry(), 60, 10, 1000, 60);
+    private final ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        ejecutor.close();
+    }
+
+    @Test
+    void porLote_UnaLlamadaPorServicio() {
+        EnriquecimientoCuentas enriquecimiento = new EnriquecimientoCuentas(cuentaCliente, clienteClient,
+                cache, ejecutor, true, 200, 4);
+
+        Map<Integer, InfoCuenta> info = enriquecimiento.resolver(List.of(101, 202, 101, 303, 202));
+
+        assertEquals(new InfoCuenta("2200000101", "Ana Pérez"), info.get(101));
+        assertEquals(new InfoCuenta("2200000202", "Ana Pérez"), info.get(202));
+        assertEquals(new InfoCuenta("2200000303", "Luis Mora"), info.get(303));
+        verify(cuentaCliente, times(1)).obtenerCuentas(List.of(101, 202, 303));
+        verify(clienteClient, times(1)).obtenerClientes(List.of(7, 8));
+        verify(clienteClient, never()).obtenerCliente(anyInt());
+    }
+
+    @Test
+    void porId_UnaConsultaPorIdDistinto() {
+        EnriquecimientoCuentas enriquecimiento = new EnriquecimientoCuentas(cuentaCliente, clienteClient,
+                cache, ejecutor, false, 200, 2);
+
+        Map<Integer, InfoCuenta> info = enriquecimiento.resolver(List.of(101, 202, 101, 303, 999));
+
+        assertEquals(3, info.size());
+        assertFalse(info.containsKey(999));
+        verify(cuentaCliente, times(1)).obtenerCuenta(101);
+        verify(cuentaCliente, times(1)).obtenerCuenta(202);
+        verify(cuentaCliente, times(1)).obtenerCuenta(303);
+        verify(clienteClient, times(1)).obtenerCliente(7);
+        verify(clienteClient, times(1)).obtenerCliente(8);
+        verify(cuentaCliente, never()).obtenerCuentas(anyList());
+    }
+
+    @Test
+    void loteNoDisponible_CaeAConsultaPorId() {
+        doThrow(new RuntimeException("404 lote")).when(cuentaCliente).obtenerCuentas(any());
+        EnriquecimientoCuentas enriquecimiento = new EnriquecimientoCuentas(cuentaCliente, clienteClient,
+                cache, ejecutor, true, 2, 4);
+
+        Map<Integer, InfoCuenta> info = enriquecimiento.resolver(List.of(101, 303));
+
+        assertEquals(new InfoCuenta("2200000303", "Luis Mora"), info.get(303));
+        verify(cuentaCliente, times(1)).obtenerCuenta(101);
+        verify(clienteClient, times(1)).obtenerClientes(List.of(7, 8));
+    }
+
+    @Test
+    void segundaResolucion_SoloConsultaLoQueNoEstaEnCache() {
+        EnriquecimientoCuentas enriquecimiento = new EnriquecimientoCuentas(cuentaCliente, clienteClient,
+                cache, ejecutor, true, 200, 4);
+        enriquecimiento.resolver(List.of(101, 202));
+
+        Map<Integer, InfoCuenta> info = enriquecimiento.resolver(List.of(101, 202, 303));
+
+        assertEquals(3, info.size());
+        verify(cuentaCliente, times(1)).obtenerCuentas(List.of(303));
+        verify(clienteClient, times(1)).obtenerClientes(List.of(8));
+    }
+}
@@ -0,0 +1,63 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.arcbank.cbs.transaccion.client.ClienteClient;
+import com.arcbank.cbs.transaccion.client.CuentaClienteEnMemoria;
+import com.arcbank.cbs.transaccion.service.EnriquecimientoDeudor.DatosDeudor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class EnriquecimientoDeudorTest {
+
+    private final CuentaClienteEnMemoria cuentaCliente = spy(new CuentaClienteEnMemoria()
+            .conCuenta(101, "2200000101", 7, new BigDecimal("500.00")));
+    private final ClienteClient clienteClient = mock(ClienteClient.class);
+    private final ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        ejecutor.close();
+    }
+
+    private CacheMetadatosCuenta cache() {
+        return new CacheMetadatosCuenta(cuentaCliente, clienteClient, new SimpleMeterRegistry(), 60, 10, 1000, 60);
+    }
+
+    @Test
+    void cuentaSeConsultaUnaVezYLuegoElCliente() {
+        when(clienteClient.obtenerCliente(7)).thenReturn(Map.of("nombre", "Ana Pérez"));
+        EnriquecimientoDeudor enriquecimiento = new EnriquecimientoDeudor(cache(), ejecutor, 2000);
+
+        DatosDeudor deudor = enriquecimiento.iniciar(101).join();
+
+        assertEquals(new DatosDeudor("2200000101", "Ana Pérez"), deudor);
+        verify(cuentaCliente, times(1)).obtenerCuenta(101);
+    }
+
+    @Test
+    void plazoVencido_UsaValoresPorDefecto() {
+        when(clienteClient.obtenerCliente(7)).thenAnswer(inv -> {
+            Thread.sleep(2000);
+            return Map.of("nombre", "Ana Pérez");
+        });
+        EnriquecimientoDeudor enriquecimiento = new EnriquecimientoDeudor(cache(), ejecutor, 50);
+
+        DatosDeudor deudor = enriquecimiento.iniciar(101).join();
+
+        assertEquals(new DatosDeudor("101", EnriquecimientoDeudor.NOMBRE_POR_DEFECTO), deudor);
+    }
+}
@@ -0,0 +1,116 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+import com.arcbank.cbs.transaccion.model.EstadoTransaccion;
+import com.arcbank.cbs.transaccion.model.TipoOperacion;
+import com.arcbank.cbs.transaccion.repository.TransaccionRepository;
+import com.arcbank.cbs.transaccion.repository.TransaccionRepository.MovimientoExtracto;
+import com.arcbank.cbs.transaccion.service.EnriquecimientoCuentas.InfoCuenta;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+public class ExtractoCuentaServiceTest {
+
+    private static final LocalDateTime DESDE = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime HASTA = LocalDateTime.of(2025, 2, 1, 0, 0);
+
+    private final TransaccionRepository transaccionRepository = mock(TransaccionRepository.class);
+    private final EnriquecimientoCuentas enriquecimientoCuentas = mock(EnriquecimientoCuentas.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final ExtractoCuentaService servicio = new ExtractoCuentaService(transaccionRepository,
+            enriquecimientoCuentas, objectMapper, mock(PlatformTransactionManager.class), 2);
+
+    @Test
+    void csv_EnriqueceYEscapaCampos() {
+        AtomicBoolean cerrado = new AtomicBoolean();
+        List<MovimientoExtracto> movimientos = List.of(
+                movimiento(1, 101, 202, "Pago \"enero\", alquiler"),
+                movimiento(2, 202, 101, "Devolución"),
+                movimiento(3, 101, 202, null));
+        when(transaccionRepository.streamMovimientosExtracto(101, DESDE, HASTA))
+                .thenReturn(movimientos.stream().onClose(() -> cerrado.set(true)));
+        when(enriquecimientoCuentas.resolver(anyCollection())).thenReturn(Map.of(
+                101, new InfoCuenta("2200000101", "Ana Pérez"),
+                202, new InfoCuenta("2200000202", "Luis Mora")));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        long filas = servicio.exportar(101, DESDE, HASTA, ExtractoCuentaService.Formato.CSV, salida);
+
+        List<String> lineas = salida.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, filas);
+        assertEquals(4, lineas.size());
+        assertTrue(lineas.get(1).contains("2200000101,Ana Pérez,2200000202,Luis Mora,10.00,90.00"));
+        assertTrue(lineas.get(1).endsWith(",\"Pago \"\"enero\"\", alquiler\""));
+        // En el crédito la cuenta ve el saldo del destino
+        assertTrue(lineas.get(2).contains(",10.00,190.00,"));
+        assertTrue(cerrado.get());
+        // Bloques de 2: dos resoluciones para tres movimientos
+        verify(enriquecimientoCuentas, times(2)).resolver(anyCollection());
+    }
+
+    @Test
+    void ndjson_UnObjetoPorLinea() throws Exception {
+        List<MovimientoExtracto> movimientos = IntStream.rangeClosed(1, 5)
+                .mapToObj(i -> movimiento(i, 101, null, "m" + i)).toList();
+        when(transaccionRepository.streamMovimientosExtracto(101, DESDE, HASTA)).thenReturn(movimientos.stream());
+        when(enriquecimientoCuentas.resolver(anyCollection())).thenReturn(Map.of());
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        servicio.exportar(101, DESDE, HASTA, ExtractoCuentaService.Formato.NDJSON, salida);
+
+        List<String> lineas = salida.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(5, lineas.size());
+        JsonNode primera = objectMapper.readTree(lineas.get(0));
+        assertEquals(1, primera.get("idTransaccion").asInt());
+        assertEquals("2025-01-05T10:00:00", primera.get("fechaCreacion").asText());
+        assertEquals("Cuenta Externa", primera.get("nombreDestino").asText());
+    }
+
+    @Test
+    void rangoInvalido_NoConsulta() {
+        assertThrows(BusinessException.class, () -> servicio.exportar(101, HASTA, DESDE,
+                ExtractoCuentaService.Formato.CSV, new ByteArrayOutputStream()));
+        verify(transaccionRepository, never()).streamMovimientosExtracto(101, HASTA, DESDE);
+    }
+
+    private static MovimientoExtracto movimiento(int id, Integer origen, Integer destino, String descripcion) {
+        MovimientoExtracto m = mock(MovimientoExtracto.class);
+        when(m.getIdTransaccion()).thenReturn(id);
+        when(m.getFechaCreacion()).thenReturn(LocalDateTime.of(2025, 1, 5, 10, 0));
+        when(m.getTipoOperacion()).thenReturn(
+                (destino != null ? TipoOperacion.TRANSFERENCIA_INTERNA : TipoOperacion.TRANSFERENCIA_SALIDA).getCodigo());
+        when(m.getEstado()).thenReturn(EstadoTransaccion.COMPLETADA.getCodigo());
+        when(m.getIdCuentaOrigen()).thenReturn(origen);
+        when(m.getIdCuentaDestino()).thenReturn(destino);
+        when(m.getCuentaExterna()).thenReturn(destino == null ? "9900001" : null);
+        when(m.getMonto()).thenReturn(new BigDecimal("10.00"));
+        when(m.getSaldoResultante()).thenReturn(new BigDecimal("90.00"));
+        when(m.getSaldoResultanteDestino()).thenReturn(destino != null ? new BigDecimal("190.00") : null);
+        when(m.getDescripcion()).thenReturn(descripcion);
+        return m;
+    }
+}
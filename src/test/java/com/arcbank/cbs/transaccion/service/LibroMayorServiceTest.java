@@ -0,0 +1,97 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+import com.arcbank.cbs.transaccion.model.AsientoContable;
+import com.arcbank.cbs.transaccion.model.Transaccion;
+import com.arcbank.cbs.transaccion.repository.AsientoContableRepository;
+import com.arcbank.cbs.transaccion.repository.SaldoCuentaRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class LibroMayorServiceTest {
+
+    @Mock
+    private AsientoContableRepository asientoContableRepository;
+
+    @Mock
+    private SaldoCuentaRepository saldoCuentaRepository;
+
+    @InjectMocks
+    private LibroMayorService libroMayorService;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.afterCompletion(0));
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void asentar_EscribeUnaPiernaPorMovimientoYActualizaSaldo() {
+        TransactionSynchronizationManager.initSynchronization();
+        when(asientoContableRepository.save(any(AsientoContable.class)))
+                .thenAnswer(inv -> {
+                    AsientoContable a = inv.getArgument(0);
+                    a.setIdAsiento(a.getIdCuenta() == 101 ? 10L : 11L);
+                    return a;
+                });
+
+        libroMayorService.anotar(101, new BigDecimal("-40.00"), new BigDecimal("460.00"));
+        libroMayorService.anotar(202, new BigDecimal("40.00"), new BigDecimal("1040.00"));
+        libroMayorService.asentar(Transaccion.builder().idTransaccion(7).build());
+
+        ArgumentCaptor<AsientoContable> asientos = ArgumentCaptor.forClass(AsientoContable.class);
+        verify(asientoContableRepository, times(2)).save(asientos.capture());
+        List<AsientoContable> piernas = asientos.getAllValues();
+
+        assertEquals(AsientoContable.DEBITO, piernas.get(0).getTipo());
+        assertEquals(new BigDecimal("40.00"), piernas.get(0).getMonto());
+        assertEquals(7, piernas.get(0).getIdTransaccion());
+        assertEquals(AsientoContable.CREDITO, piernas.get(1).getTipo());
+        assertEquals(new BigDecimal("1040.00"), piernas.get(1).getSaldoResultante());
+
+        verify(saldoCuentaRepository).aplicarDelta(101, new BigDecimal("-40.00"), new BigDecimal("460.00"), 10L);
+        verify(saldoCuentaRepository).aplicarDelta(202, new BigDecimal("40.00"), new BigDecimal("1040.00"), 11L);
+
+        // Los asientos ya escritos no se repiten en el siguiente guardado
+        libroMayorService.asentar(Transaccion.builder().idTransaccion(8).build());
+        verify(asientoContableRepository, times(2)).save(any(AsientoContable.class));
+    }
+
+    @Test
+    void anotar_SinTransaccionActiva_NoAsienta() {
+        libroMayorService.anotar(101, new BigDecimal("10.00"), new BigDecimal("510.00"));
+
+        verify(asientoContableRepository, never()).save(any(AsientoContable.class));
+    }
+
+    @Test
+    void paginacionInvalida_EsErrorDeNegocio() {
+        assertThrows(BusinessException.class, () -> libroMayorService.obtenerAsientos(101, -1, 50));
+        assertThrows(BusinessException.class, () -> libroMayorService.obtenerAsientos(101, 0, 0));
+        assertThrows(BusinessException.class, () -> libroMayorService.listarSaldos(null, 0));
+
+        verifyNoInteractions(asientoContableRepository, saldoCuentaRepository);
+    }
+}
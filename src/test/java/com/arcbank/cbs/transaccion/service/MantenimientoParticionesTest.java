@@ -0,0 +1,138 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MantenimientoParticionesTest {
+
+    private static final YearMonth OCTUBRE_2026 = YearMonth.of(2026, 10);
+
+    @TempDir
+    Path directorio;
+
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void tablaSinParticionar_NoHaceNada() {
+        when(jdbc.queryForObject(MantenimientoParticiones.ES_PARTICIONADA, Boolean.class)).thenReturn(false);
+
+        mantenimiento("").mantener(OCTUBRE_2026);
+
+        verify(jdbc, never()).queryForList(anyString());
+        verify(jdbc, never()).execute(anyString());
+    }
+
+    @Test
+    void creaSoloLosMesesFaltantes_SinDirectorioNoArchiva() {
+        particionada(particion("Transaccion_2024_01", true), particion("Transaccion_2026_10", true),
+                particion("Transaccion_Default", true));
+
+        mantenimiento("").mantener(OCTUBRE_2026);
+
+        verify(jdbc).execute("CREATE TABLE IF NOT EXISTS public.\"Transaccion_2026_11\" PARTITION OF"
+                + " public.\"Transaccion\" FOR VALUES FROM ('2026-11-01') TO ('2026-12-01')");
+        verify(jdbc).execute("CREATE TABLE IF NOT EXISTS public.\"Transaccion_2026_12\" PARTITION OF"
+                + " public.\"Transaccion\" FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')");
+        verify(jdbc, never()).execute(contains("\"Transaccion_2026_10\" PARTITION OF"));
+        verify(jdbc, never()).execute(contains("DETACH"));
+    }
+
+    @Test
+    void anterioresALaRetencion_SeSeparanExportanYEliminan() throws Exception {
+        particionada(particion("Transaccion_2024_08", true), particion("Transaccion_2024_09", false),
+                particion("Transaccion_2024_10", true), particion("Transaccion_2026_10", true));
+        when(jdbc.queryForObject(startsWith("SELECT count(*)"), eq(Long.class))).thenReturn(2L);
+        copiaDevuelve(2);
+
+        mantenimiento(directorio.toString()).mantener(OCTUBRE_2026);
+
+        verify(jdbc).execute("ALTER TABLE public.\"Transaccion\" DETACH PARTITION public.\"Transaccion_2024_08\"");
+        // La de septiembre ya estaba separada de un ciclo anterior
+        verify(jdbc, never()).execute(contains("DETACH PARTITION public.\"Transaccion_2024_09\""));
+        verify(jdbc).execute("DROP TABLE IF EXISTS public.\"Transaccion_2024_08\"");
+        verify(jdbc).execute("DROP TABLE IF EXISTS public.\"Transaccion_2024_09\"");
+        verify(jdbc, never()).execute(contains("\"Transaccion_2024_10\""));
+
+        Path archivo = directorio.resolve("Transaccion_2024_08.csv.gz");
+        try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(archivo))) {
+            assertEquals("IdTransaccion\n1\n2\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(Files.exists(directorio.resolve("Transaccion_2024_09.csv.gz")));
+        try (var archivos = Files.list(directorio)) {
+            assertEquals(2, archivos.count());
+        }
+        assertEquals(2.0, meterRegistry.counter("transaccion.particiones.archivadas").count());
+    }
+
+    @Test
+    void exportacionIncompleta_NoEliminaLaTabla() throws Exception {
+        particionada(particion("Transaccion_2024_01", true), particion("Transaccion_2026_10", true));
+        when(jdbc.queryForObject(startsWith("SELECT count(*)"), eq(Long.class))).thenReturn(3L);
+        copiaDevuelve(2);
+
+        mantenimiento(directorio.toString()).mantener(OCTUBRE_2026);
+
+        verify(jdbc).execute(contains("DETACH PARTITION public.\"Transaccion_2024_01\""));
+        verify(jdbc, never()).execute(startsWith("DROP TABLE"));
+        assertEquals(0.0, meterRegistry.counter("transaccion.particiones.archivadas").count());
+    }
+
+    private MantenimientoParticiones mantenimiento(String directorio) {
+        return new MantenimientoParticiones(jdbc, mock(PlatformTransactionManager.class), meterRegistry,
+                2, 24, 5000, directorio);
+    }
+
+    @SafeVarargs
+    private void particionada(Map<String, Object>... particiones) {
+        when(jdbc.queryForObject(MantenimientoParticiones.ES_PARTICIONADA, Boolean.class)).thenReturn(true);
+        when(jdbc.queryForList(MantenimientoParticiones.LISTAR)).thenReturn(List.of(particiones));
+    }
+
+    private static Map<String, Object> particion(String nombre, boolean adjunta) {
+        return Map.of("nombre", nombre, "adjunta", adjunta);
+    }
+
+    private void copiaDevuelve(long filas) throws Exception {
+        CopyManager copy = mock(CopyManager.class);
+        when(copy.copyOut(anyString(), any(OutputStream.class))).thenAnswer(inv -> {
+            inv.<OutputStream>getArgument(1).write("IdTransaccion\n1\n2\n".getBytes(StandardCharsets.UTF_8));
+            return filas;
+        });
+        PGConnection pg = mock(PGConnection.class);
+        when(pg.getCopyAPI()).thenReturn(copy);
+        Connection conexion = mock(Connection.class);
+        when(conexion.unwrap(PGConnection.class)).thenReturn(pg);
+        when(jdbc.execute(any(ConnectionCallback.class)))
+                .thenAnswer(inv -> inv.<ConnectionCallback<?>>getArgument(0).doInConnection(conexion));
+    }
+}
@@ -0,0 +1,71 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class NettingCreditosTest {
+
+    private final NettingCreditos netting = new NettingCreditos(new SimpleMeterRegistry(), true, 20, 500, 2);
+
+    @AfterEach
+    void tearDown() {
+        netting.detener();
+    }
+
+    @Test
+    void creditosConcurrentes_SeCombinanYRepartenSaldoCorrido() throws Exception {
+        AtomicReference<BigDecimal> saldo = new AtomicReference<>(new BigDecimal("100.00"));
+        AtomicInteger movimientos = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(25);
+        List<Future<BigDecimal>> futuros = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            futuros.add(pool.submit(() -> netting.acreditar(7, new BigDecimal("10.00"), (id, total) -> {
+                movimientos.incrementAndGet();
+                return saldo.accumulateAndGet(total, BigDecimal::add);
+            })));
+        }
+
+        TreeSet<BigDecimal> saldosCorridos = new TreeSet<>();
+        for (Future<BigDecimal> f : futuros) {
+            saldosCorridos.add(f.get(10, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        assertEquals(new BigDecimal("600.00"), saldo.get());
+        assertTrue(movimientos.get() < 50, "se esperaban menos movimientos que créditos");
+        // cada crédito recibe un saldo distinto: 110, 120, ... 600
+        assertEquals(50, saldosCorridos.size());
+        assertEquals(new BigDecimal("110.00"), saldosCorridos.first());
+        assertEquals(new BigDecimal("600.00"), saldosCorridos.last());
+    }
+
+    @Test
+    void falloDelMovimiento_SePropagaATodoElLote() {
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> netting.acreditar(8, BigDecimal.ONE, (id, total) -> {
+                    throw new BusinessException("No se pudo validar la cuenta ID: " + id);
+                }));
+
+        assertEquals("No se pudo validar la cuenta ID: 8", ex.getMessage());
+    }
+}
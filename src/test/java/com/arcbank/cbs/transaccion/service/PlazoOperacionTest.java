@@ -0,0 +1,51 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.arcbank.cbs.transaccion.config.PlazosProperties;
+
+public class PlazoOperacionTest {
+
+    @Test
+    void plazoAnidado_NoExtiendeAlDeAfuera() {
+        long dentro = PlazoOperacion.ejecutar(1000L,
+                () -> PlazoOperacion.ejecutar(60_000L, PlazoOperacion::restanteMs));
+        assertTrue(dentro <= 1000, "restante " + dentro);
+
+        long acortado = PlazoOperacion.ejecutar(60_000L,
+                () -> PlazoOperacion.ejecutar(500L, PlazoOperacion::restanteMs));
+        assertTrue(acortado <= 500, "restante " + acortado);
+        assertFalse(PlazoOperacion.activo());
+    }
+
+    @Test
+    void sinPlazo_SuspendeYRestaura() {
+        PlazoOperacion.ejecutar(1000L, () -> {
+            assertEquals(Long.MAX_VALUE, PlazoOperacion.sinPlazo(PlazoOperacion::restanteMs));
+            assertTrue(PlazoOperacion.activo());
+            assertEquals(200, PlazoOperacion.acotar(200));
+            return null;
+        });
+        assertEquals(Long.MAX_VALUE, PlazoOperacion.restanteMs());
+        assertEquals(10_000, PlazoOperacion.acotar(10_000));
+    }
+
+    @Test
+    void presupuesto_PorTipoYCanal() {
+        PlazosProperties plazos = new PlazosProperties();
+        PlazosProperties.Operacion salida = new PlazosProperties.Operacion();
+        salida.setMs(20_000L);
+        salida.getCanales().put("movil", 15_000L);
+        plazos.getOperaciones().put("transferencia-salida", salida);
+
+        assertEquals(15_000, plazos.presupuestoMs("TRANSFERENCIA_SALIDA", "MOVIL"));
+        assertEquals(20_000, plazos.presupuestoMs("TRANSFERENCIA_SALIDA", "WEB"));
+        assertEquals(10_000, plazos.presupuestoMs("DEPOSITO", "WEB"));
+        plazos.setEnabled(false);
+        assertEquals(0, plazos.presupuestoMs("TRANSFERENCIA_SALIDA", "MOVIL"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.arcbank.cbs.transaccion.dto.TransaccionResponseDTO;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+import com.arcbank.cbs.transaccion.model.ClaveIdempotencia;
+import com.arcbank.cbs.transaccion.repository.ClaveIdempotenciaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+public class RegistroIdempotenciaTest {
+
+    private final ClaveIdempotenciaRepository repository = mock(ClaveIdempotenciaRepository.class);
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    private final RegistroIdempotencia registro = new RegistroIdempotencia(repository,
+            new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS),
+            jdbc, 72, 2);
+
+    @Test
+    void reclamar_SoloLaPrimeraInsercionGana() {
+        when(repository.reclamar(eq("REF-1"), eq("DEPOSITO"), any())).thenReturn(1, 0);
+
+        assertTrue(registro.reclamar("REF-1", "DEPOSITO"));
+        assertFalse(registro.reclamar("REF-1", "DEPOSITO"));
+        verify(jdbc, never()).execute(anyString());
+    }
+
+    @Test
+    void reclamar_ClaveVencida_SigueSiendoDuplicadoSinConsultarReferencias() {
+        // La clave vencida conserva su fila: el mismo INSERT la encuentra ocupada
+        when(repository.reclamar(eq("REF-VIEJA"), eq("TRANSFERENCIA_ENTRADA"), any())).thenReturn(0);
+
+        assertFalse(registro.reclamar("REF-VIEJA", "TRANSFERENCIA_ENTRADA"));
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void reclamar_ConPlazo_EsperaDetrasDeOtroReintentoSoloLoQueQueda() {
+        when(repository.reclamar(eq("REF-1"), eq("DEPOSITO"), any()))
+                .thenThrow(new PessimisticLockingFailureException("lock timeout"));
+
+        DependenciaNoDisponibleException e = assertThrows(DependenciaNoDisponibleException.class,
+                () -> PlazoOperacion.ejecutar(3000L, () -> registro.reclamar("REF-1", "DEPOSITO")));
+
+        assertEquals(DependenciaNoDisponibleException.PLAZO_AGOTADO, e.getCode());
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc).execute(sql.capture());
+        long lockTimeoutMs = Long.parseLong(sql.getValue().replace("SET LOCAL lock_timeout = ", ""));
+        assertTrue(lockTimeoutMs > 2000 && lockTimeoutMs <= 3000, sql.getValue());
+    }
+
+    @Test
+    void reclamar_ConPlazo_RestauraElLockTimeout() {
+        when(repository.reclamar(eq("REF-1"), eq("DEPOSITO"), any())).thenReturn(1);
+
+        assertTrue(PlazoOperacion.ejecutar(3000L, () -> registro.reclamar("REF-1", "DEPOSITO")));
+
+        verify(jdbc).execute("SET LOCAL lock_timeout = DEFAULT");
+    }
+
+    @Test
+    void respuestaRegistrada_SeRepiteTalCual() {
+        TransaccionResponseDTO respuesta = TransaccionResponseDTO.builder()
+                .idTransaccion(7)
+                .referencia("REF-1")
+                .monto(new BigDecimal("25.50"))
+                .fechaCreacion(LocalDateTime.of(2025, 3, 1, 10, 0))
+                .estado("COMPLETADA")
+                .build();
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+
+        registro.registrar("REF-1", 7, respuesta);
+
+        verify(repository).registrarResultado(eq("REF-1"), eq(7), json.capture());
+        when(repository.findById("REF-1")).thenReturn(Optional.of(ClaveIdempotencia.builder()
+                .clave("REF-1").respuesta(json.getValue()).build()));
+        assertEquals(respuesta, registro.respuestaRegistrada("REF-1").orElseThrow());
+    }
+
+    @Test
+    void claveSinRespuesta_NoRepite() {
+        when(repository.findById(anyString())).thenReturn(Optional.of(ClaveIdempotencia.builder()
+                .clave("REF-2").idTransaccion(8).build()));
+
+        assertTrue(registro.respuestaRegistrada("REF-2").isEmpty());
+    }
+
+    @Test
+    void purgar_PorLotesHastaVaciar() {
+        when(repository.purgarRespuestasVencidas(any(), eq(2))).thenReturn(2, 2, 1);
+
+        assertEquals(5, registro.purgar());
+        verify(repository, times(3)).purgarRespuestasVencidas(any(), eq(2));
+    }
+}
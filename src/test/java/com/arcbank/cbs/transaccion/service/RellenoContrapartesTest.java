@@ -0,0 +1,70 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.arcbank.cbs.transaccion.model.EstadoTransaccion;
+import com.arcbank.cbs.transaccion.model.TipoOperacion;
+import com.arcbank.cbs.transaccion.repository.TransaccionRepository;
+import com.arcbank.cbs.transaccion.repository.TransaccionResumen;
+import com.arcbank.cbs.transaccion.service.EnriquecimientoCuentas.InfoCuenta;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RellenoContrapartesTest {
+
+    private final TransaccionRepository transaccionRepository = mock(TransaccionRepository.class);
+    private final EnriquecimientoCuentas enriquecimientoCuentas = mock(EnriquecimientoCuentas.class);
+    private final RellenoContrapartes relleno = new RellenoContrapartes(transaccionRepository,
+            enriquecimientoCuentas, mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 2);
+
+    @Test
+    void paginas_SeResuelvenYCompletanPorKeyset() {
+        when(transaccionRepository.findResumenSinContrapartes(0, Limit.of(2)))
+                .thenReturn(List.of(fila(1, 101, 202), fila(2, 101, null)));
+        when(transaccionRepository.findResumenSinContrapartes(2, Limit.of(2)))
+                .thenReturn(List.of(fila(5, null, 202)));
+        when(enriquecimientoCuentas.resolver(anyCollection())).thenReturn(Map.of(
+                101, new InfoCuenta("2200000101", "Ana Pérez"),
+                202, new InfoCuenta("2200000202", "Luis Mora")));
+        when(transaccionRepository.completarContrapartes(any(), any(), any(), any(), any())).thenReturn(1);
+
+        assertEquals(3, relleno.rellenar());
+
+        verify(transaccionRepository).completarContrapartes(1, "2200000101", "Ana Pérez", "2200000202", "Luis Mora");
+        verify(transaccionRepository).completarContrapartes(2, "2200000101", "Ana Pérez", "9900001",
+                "Cuenta Externa");
+        verify(transaccionRepository).completarContrapartes(5, null, null, "2200000202", "Luis Mora");
+    }
+
+    @Test
+    void cuentaInexistente_NoSeEscribeYSeAvanza() {
+        when(transaccionRepository.findResumenSinContrapartes(0, Limit.of(2)))
+                .thenReturn(List.of(fila(1, 404, 505)));
+        when(enriquecimientoCuentas.resolver(anyCollection())).thenReturn(Map.of());
+
+        assertEquals(0, relleno.rellenar());
+
+        verify(transaccionRepository, never()).completarContrapartes(any(), any(), any(), any(), any());
+    }
+
+    private static TransaccionResumen fila(int id, Integer origen, Integer destino) {
+        return new TransaccionResumen(id, "REF-" + id, null, TipoOperacion.TRANSFERENCIA_INTERNA, origen, destino,
+                destino == null ? "9900001" : null, null, null, new BigDecimal("10.00"), null, null,
+                LocalDateTime.of(2025, 1, 5, 10, 0), null, "WEB", EstadoTransaccion.COMPLETADA, null, null, null, null);
+    }
+}
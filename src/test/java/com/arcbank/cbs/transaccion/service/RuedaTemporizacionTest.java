@@ -0,0 +1,39 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class RuedaTemporizacionTest {
+
+    @Test
+    void elementos_VencenEnSuTickAunqueDenVariasVueltas() {
+        RuedaTemporizacion<String> rueda = new RuedaTemporizacion<>(10, 4);
+        rueda.programar("a", 10);   // tick 1
+        rueda.programar("b", 30);   // tick 3
+        rueda.programar("c", 50);   // tick 5: misma ranura que "a", una vuelta después
+
+        assertEquals(List.of("a"), rueda.avanzar());
+        assertTrue(rueda.avanzar().isEmpty());
+        assertEquals(List.of("b"), rueda.avanzar());
+        assertTrue(rueda.avanzar().isEmpty());
+        assertEquals(List.of("c"), rueda.avanzar());
+        assertEquals(0, rueda.tamano());
+    }
+
+    @Test
+    void retrasoCero_VenceEnElSiguienteTick() {
+        RuedaTemporizacion<Integer> rueda = new RuedaTemporizacion<>(100, 8);
+        List<Integer> vencidos = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rueda.programar(i, 0);
+        }
+        vencidos.addAll(rueda.avanzar());
+
+        assertEquals(1000, vencidos.size());
+    }
+}
@@ -0,0 +1,123 @@
+package com.arcbank.cbs.transaccion.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TokenServiceTest {
+
+    private final AtomicLong reloj = new AtomicLong(1_000_000);
+    private RestTemplate restTemplate;
+    private TokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        // expires_in 3600 s: renovar a los 2700 s, vence a los 3570 s (30 s de margen)
+        tokenService = new TokenService("https://idp", "cliente", "secreto", "transfers.write",
+                0.75, 30_000, restTemplate, null, reloj::get);
+    }
+
+    @Test
+    void tokenVigente_SeEntregaSinLlamarAlProveedor() {
+        when(restTemplate.postForEntity(anyString(), any(), eq(Map.class))).thenReturn(respuesta("T1"));
+
+        assertEquals("T1", tokenService.getAccessToken());
+        reloj.addAndGet(3_000_000);
+        assertEquals("T1", tokenService.getAccessToken());
+
+        verify(restTemplate, times(1)).postForEntity(eq("https://idp/oauth2/token"), any(), eq(Map.class));
+    }
+
+    @Test
+    void refrescoProgramado_RenuevaSoloAlCumplirseLaFraccion() {
+        when(restTemplate.postForEntity(anyString(), any(), eq(Map.class)))
+                .thenReturn(respuesta("T1"), respuesta("T2"));
+
+        tokenService.renovarSiCorresponde();
+        verify(restTemplate, times(0)).postForEntity(anyString(), any(), eq(Map.class));
+
+        tokenService.getAccessToken();
+        reloj.addAndGet(2_699_000);
+        tokenService.renovarSiCorresponde();
+        assertEquals("T1", tokenService.getAccessToken());
+
+        reloj.addAndGet(1_000);
+        tokenService.renovarSiCorresponde();
+        assertEquals("T2", tokenService.getAccessToken());
+        verify(restTemplate, times(2)).postForEntity(anyString(), any(), eq(Map.class));
+    }
+
+    @Test
+    void proveedorCaido_SeConservaElTokenVigente() {
+        when(restTemplate.postForEntity(anyString(), any(), eq(Map.class)))
+                .thenReturn(respuesta("T1"))
+                .thenThrow(new ResourceAccessException("connect timed out"));
+
+        tokenService.getAccessToken();
+        reloj.addAndGet(2_800_000);
+        tokenService.renovarSiCorresponde();
+        assertEquals("T1", tokenService.getAccessToken());
+
+        // Ya vencido y sin proveedor: no se entrega un token que el Switch rechazaría
+        reloj.addAndGet(800_000);
+        RuntimeException e = assertThrows(RuntimeException.class, () -> tokenService.getAccessToken());
+        assertEquals("Authentication failed", e.getMessage());
+    }
+
+    @Test
+    void vencimientoConcurrente_UnaSolaLlamadaAlProveedor() throws Exception {
+        CountDownLatch enProveedor = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(restTemplate.postForEntity(anyString(), any(), eq(Map.class))).thenAnswer(inv -> {
+            enProveedor.countDown();
+            liberar.await(5, TimeUnit.SECONDS);
+            return respuesta("T1");
+        });
+
+        ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<String>> lecturas = new ArrayList<>();
+            lecturas.add(ejecutor.submit(tokenService::getAccessToken));
+            enProveedor.await(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 20; i++) {
+                lecturas.add(ejecutor.submit(tokenService::getAccessToken));
+            }
+            liberar.countDown();
+
+            for (Future<String> lectura : lecturas) {
+                assertEquals("T1", lectura.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            ejecutor.shutdownNow();
+        }
+        verify(restTemplate, times(1)).postForEntity(anyString(), any(), eq(Map.class));
+    }
+
+    private static ResponseEntity<Map> respuesta(String token) {
+        return ResponseEntity.ok(Map.of("access_token", token, "expires_in", 3600));
+    }
+}
@@ -1,27 +1,69 @@
 package com.arcbank.cbs.transaccion.service;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.times;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import com.arcbank.cbs.transaccion.client.CuentaCliente;
+import com.arcbank.cbs.transaccion.client.CuentaClienteEnMemoria;
+import com.arcbank.cbs.transaccion.client.ProteccionDependencias;
+import com.arcbank.cbs.transaccion.client.SwitchClient;
+import com.arcbank.cbs.transaccion.config.PlazosProperties;
+import com.arcbank.cbs.transaccion.dto.MovimientoSaldoDTO;
+import com.arcbank.cbs.transaccion.dto.PaginaHistorialDTO;
+import com.arcbank.cbs.transaccion.dto.RefoundRequestDTO;
 import com.arcbank.cbs.transaccion.dto.SwitchRefundRequest;
 import com.arcbank.cbs.transaccion.dto.SaldoDTO;
+import com.arcbank.cbs.transaccion.dto.SwitchTransferRequest;
+import com.arcbank.cbs.transaccion.dto.SwitchTransferResponse;
+import com.arcbank.cbs.transaccion.dto.TransaccionRequestDTO;
+import com.arcbank.cbs.transaccion.dto.TransaccionResponseDTO;
+import com.arcbank.cbs.transaccion.exception.BusinessException;
+import com.arcbank.cbs.transaccion.exception.DependenciaNoDisponibleException;
+import com.arcbank.cbs.transaccion.model.EstadoTransaccion;
+import com.arcbank.cbs.transaccion.model.TipoMensajeSwitch;
+import com.arcbank.cbs.transaccion.model.TipoOperacion;
 import com.arcbank.cbs.transaccion.model.Transaccion;
 import com.arcbank.cbs.transaccion.repository.TransaccionRepository;
+import com.arcbank.cbs.transaccion.repository.TransaccionResumen;
+import com.arcbank.cbs.transaccion.service.EnriquecimientoCuentas.InfoCuenta;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(MockitoExtension.class)
 public class TransaccionServiceTest {
@@ -29,8 +71,53 @@ public class TransaccionServiceTest {
     @Mock
     private TransaccionRepository transaccionRepository;
 
+    @Spy
+    private CuentaClienteEnMemoria cuentaCliente = new CuentaClienteEnMemoria()
+            .conCuenta(101, "2200000101", null, new BigDecimal("500.00"))
+            .conCuenta(202, "2200000202", null, new BigDecimal("1000.00"))
+            .conCuenta(303, "2200000303", null, new BigDecimal("20.00"));
+
+    @Spy
+    private CuentaLockManager cuentaLockManager = new CuentaLockManager(new SimpleMeterRegistry(), 4, 1000);
+
+    @Mock
+    private NettingCreditos nettingCreditos;
+
+    @Mock
+    private LibroMayorService libroMayorService;
+
+    @Mock
+    private SwitchClient switchClient;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ConsultaEstadoSwitch consultaEstadoSwitch;
+
     @Mock
-    private CuentaCliente cuentaCliente;
+    private EnriquecimientoDeudor enriquecimientoDeudor;
+
+    @Mock
+    private EnriquecimientoCuentas enriquecimientoCuentas;
+
+    @Mock
+    private CacheMetadatosCuenta cacheMetadatos;
+
+    @Mock
+    private RegistroIdempotencia registroIdempotencia;
+
+    @Mock
+    private BandejaSalidaSwitch bandejaSalidaSwitch;
+
+    @Mock
+    private ProteccionDependencias proteccionDependencias;
+
+    @Mock
+    private PlazosProperties plazos;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private TransaccionServiceImpl transaccionService;
@@ -38,16 +125,13 @@ public class TransaccionServiceTest {
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(transaccionService, "codigoBanco", "BANTEC");
+        ReflectionTestUtils.setField(transaccionService, "movimientoAtomico", true);
+        lenient().when(registroIdempotencia.reclamar(any(), any())).thenReturn(true);
     }
 
-    @Test
-    void procesarDevolucionEntrante_Success_Credit() {
-        // Arrange
-        String originalRef = "ORIG-123";
-        String returnRef = "RET-999";
-        String bankId = "BANK-002";
-
-        SwitchRefundRequest request = SwitchRefundRequest.builder()
+    private SwitchRefundRequest devolucion(String originalRef, String returnRef, String bankId, String reason,
+            String monto) {
+        return SwitchRefundRequest.builder()
                 .header(SwitchRefundRequest.Header.builder()
                         .originatingBankId(bankId)
                         .creationDateTime("2026-01-22T10:00:00Z")
@@ -55,32 +139,42 @@ public class TransaccionServiceTest {
                 .body(SwitchRefundRequest.Body.builder()
                         .originalInstructionId(originalRef)
                         .returnInstructionId(returnRef)
-                        .returnReason("AC01")
-                        .returnAmount(SwitchRefundRequest.Amount.builder().value(new BigDecimal("100.00")).build())
+                        .returnReason(reason)
+                        .returnAmount(SwitchRefundRequest.Amount.builder().value(new BigDecimal(monto)).build())
                         .build())
                 .build();
+    }
+
+    @Test
+    void procesarDevolucionEntrante_Success_Credit() {
+        // Arrange
+        String originalRef = "ORIG-123";
+        SwitchRefundRequest request = devolucion(originalRef, "RET-999", "BANK-002", "AC01", "100.00");
 
         Transaccion originalTx = Transaccion.builder()
                 .idTransaccion(1)
                 .referencia(originalRef)
-                .tipoOperacion("TRANSFERENCIA_SALIDA")
+                .tipoOperacion(TipoOperacion.TRANSFERENCIA_SALIDA)
                 .idCuentaOrigen(101)
-                .estado("COMPLETADA")
+                .estado(EstadoTransaccion.COMPLETADA)
                 .descripcion("Transferencia salida")
                 .build();
 
-        when(transaccionRepository.findByReferencia(originalRef)).thenReturn(Optional.of(originalTx));
-        when(cuentaCliente.obtenerSaldo(101)).thenReturn(new BigDecimal("500.00"));
+        when(transaccionRepository.findPorReferenciaForUpdate(originalRef)).thenReturn(Optional.of(originalTx));
 
         // Act
         transaccionService.procesarDevolucionEntrante(request);
 
         // Assert
-        // Verify balance update (Credit)
-        verify(cuentaCliente).actualizarSaldo(any(Integer.class), any(SaldoDTO.class));
+        // Un solo movimiento atómico (crédito), sin lectura previa del saldo
+        verify(cuentaCliente).aplicarMovimiento(any(Integer.class), any(MovimientoSaldoDTO.class));
+        verify(cuentaCliente, never()).obtenerSaldo(anyInt());
+        assertEquals(new BigDecimal("600.00"), cuentaCliente.saldo(101));
+        verify(libroMayorService).anotar(101, new BigDecimal("100.00"), new BigDecimal("600.00"));
 
         // Verify original tx updated
         verify(transaccionRepository).save(originalTx);
+        assertEquals(EstadoTransaccion.DEVUELTA, originalTx.getEstado());
 
         // Verify new return tx saved
         verify(transaccionRepository, times(2)).save(any(Transaccion.class));
@@ -90,40 +184,502 @@ public class TransaccionServiceTest {
     void procesarDevolucionEntrante_Success_Debit() {
         // Arrange
         String originalRef = "ORIG-456";
-        String returnRef = "RET-888";
-
-        SwitchRefundRequest request = SwitchRefundRequest.builder()
-                .header(SwitchRefundRequest.Header.builder()
-                        .originatingBankId("BANK-003")
-                        .creationDateTime("2026-01-22T12:00:00Z")
-                        .build())
-                .body(SwitchRefundRequest.Body.builder()
-                        .originalInstructionId(originalRef)
-                        .returnInstructionId(returnRef)
-                        .returnReason("AM04")
-                        .returnAmount(SwitchRefundRequest.Amount.builder().value(new BigDecimal("50.00")).build())
-                        .build())
-                .build();
+        SwitchRefundRequest request = devolucion(originalRef, "RET-888", "BANK-003", "AM04", "50.00");
 
         Transaccion originalTx = Transaccion.builder()
                 .idTransaccion(2)
                 .referencia(originalRef)
-                .tipoOperacion("TRANSFERENCIA_ENTRADA")
+                .tipoOperacion(TipoOperacion.TRANSFERENCIA_ENTRADA)
                 .idCuentaDestino(202)
-                .estado("COMPLETADA")
+                .estado(EstadoTransaccion.COMPLETADA)
                 .descripcion("Transferencia entrada")
                 .build();
 
-        when(transaccionRepository.findByReferencia(originalRef)).thenReturn(Optional.of(originalTx));
-        // Mock sufficient balance for debit
-        when(cuentaCliente.obtenerSaldo(202)).thenReturn(new BigDecimal("1000.00"));
+        when(transaccionRepository.findPorReferenciaForUpdate(originalRef)).thenReturn(Optional.of(originalTx));
 
         // Act
         transaccionService.procesarDevolucionEntrante(request);
 
         // Assert
-        // Verify balance update (Debit)
-        verify(cuentaCliente).actualizarSaldo(any(Integer.class), any(SaldoDTO.class));
+        verify(cuentaCliente).aplicarMovimiento(any(Integer.class), any(MovimientoSaldoDTO.class));
+        assertEquals(new BigDecimal("950.00"), cuentaCliente.saldo(202));
         verify(transaccionRepository, times(2)).save(any(Transaccion.class));
     }
+
+    @Test
+    void procesarDevolucionEntrante_Debit_FondosInsuficientes() {
+        String originalRef = "ORIG-789";
+        SwitchRefundRequest request = devolucion(originalRef, "RET-777", "BANK-003", "AM04", "50.00");
+
+        Transaccion originalTx = Transaccion.builder()
+                .idTransaccion(3)
+                .referencia(originalRef)
+                .tipoOperacion(TipoOperacion.TRANSFERENCIA_ENTRADA)
+                .idCuentaDestino(303)
+                .estado(EstadoTransaccion.COMPLETADA)
+                .descripcion("Transferencia entrada")
+                .build();
+
+        when(transaccionRepository.findPorReferenciaForUpdate(originalRef)).thenReturn(Optional.of(originalTx));
+
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> transaccionService.procesarDevolucionEntrante(request));
+
+        assertTrue(ex.getMessage().contains("Fondos insuficientes"));
+        assertEquals(new BigDecimal("20.00"), cuentaCliente.saldo(303));
+        verify(transaccionRepository, never()).save(any(Transaccion.class));
+    }
+
+    @Test
+    void procesarDevolucionEntrante_ModoLecturaEscritura() {
+        ReflectionTestUtils.setField(transaccionService, "movimientoAtomico", false);
+
+        String originalRef = "ORIG-321";
+        SwitchRefundRequest request = devolucion(originalRef, "RET-654", "BANK-002", "AC01", "100.00");
+
+        Transaccion originalTx = Transaccion.builder()
+                .idTransaccion(4)
+                .referencia(originalRef)
+                .tipoOperacion(TipoOperacion.TRANSFERENCIA_SALIDA)
+                .idCuentaOrigen(101)
+                .estado(EstadoTransaccion.COMPLETADA)
+                .descripcion("Transferencia salida")
+                .build();
+
+        when(transaccionRepository.findPorReferenciaForUpdate(originalRef)).thenReturn(Optional.of(originalTx));
+
+        transaccionService.procesarDevolucionEntrante(request);
+
+        verify(cuentaCliente).obtenerSaldo(101);
+        verify(cuentaCliente).actualizarSaldo(any(Integer.class), any(SaldoDTO.class));
+        verify(cuentaCliente, never()).aplicarMovimiento(anyInt(), any(MovimientoSaldoDTO.class));
+        assertEquals(new BigDecimal("600.00"), cuentaCliente.saldo(101));
+    }
+
+    @Test
+    void crearTransaccion_SalidaAsincrona_RespondePendienteSinConsultarSwitch() {
+        ReflectionTestUtils.setField(transaccionService, "salidaAsincrona", true);
+        when(enriquecimientoDeudor.iniciar(101)).thenReturn(CompletableFuture.completedFuture(
+                new EnriquecimientoDeudor.DatosDeudor("2200000101", "Cliente Bantec")));
+        when(switchClient.enviarTransferencia(any())).thenReturn(SwitchTransferResponse.builder()
+                .success(true)
+                .data(SwitchTransferResponse.DataBody.builder().estado("PENDING").build())
+                .build());
+
+        TransaccionResponseDTO resp = transaccionService.crearTransaccion(TransaccionRequestDTO.builder()
+                .referencia("REF-ASYNC")
+                .tipoOperacion("TRANSFERENCIA_SALIDA")
+                .idCuentaOrigen(101)
+                .cuentaExterna("5500000001")
+                .idBancoExterno("NEXUS_BANK")
+                .monto(new BigDecimal("100.00"))
+                .build());
+
+        assertEquals("PENDIENTE", resp.getEstado());
+        assertTrue(resp.isAsincrona());
+        assertEquals(new BigDecimal("400.00"), cuentaCliente.saldo(101));
+        verify(eventPublisher).publishEvent(new TransferenciaSalidaPendienteEvent("REF-ASYNC"));
+        verify(consultaEstadoSwitch, never()).consultar(any());
+    }
+
+    @Test
+    void crearTransaccion_PlazoAgotadoEnConsultas_QuedaPendiente() {
+        when(plazos.presupuestoMs("TRANSFERENCIA_SALIDA", null)).thenReturn(2000L);
+        when(enriquecimientoDeudor.iniciar(101)).thenReturn(CompletableFuture.completedFuture(
+                new EnriquecimientoDeudor.DatosDeudor("2200000101", "Cliente Bantec")));
+        SwitchTransferResponse enCurso = SwitchTransferResponse.builder()
+                .success(true)
+                .data(SwitchTransferResponse.DataBody.builder().estado("PENDING").build())
+                .build();
+        when(switchClient.enviarTransferencia(any())).thenReturn(enCurso);
+        when(consultaEstadoSwitch.consultar("REF-PLAZO")).thenReturn(enCurso);
+        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        long inicio = System.nanoTime();
+        TransaccionResponseDTO resp = transaccionService.crearTransaccion(TransaccionRequestDTO.builder()
+                .referencia("REF-PLAZO")
+                .tipoOperacion("TRANSFERENCIA_SALIDA")
+                .idCuentaOrigen(101)
+                .cuentaExterna("5500000001")
+                .idBancoExterno("NEXUS_BANK")
+                .monto(new BigDecimal("100.00"))
+                .build());
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        // Una sola consulta cabe en 2 s; el resto lo resuelve el conciliador
+        assertEquals("PENDIENTE", resp.getEstado());
+        assertFalse(resp.isAsincrona());
+        assertEquals(new BigDecimal("400.00"), cuentaCliente.saldo(101));
+        verify(consultaEstadoSwitch, times(1)).consultar("REF-PLAZO");
+        assertTrue(duracionMs < 2000, "duró " + duracionMs + " ms");
+        assertFalse(PlazoOperacion.activo());
+    }
+
+    @Test
+    void crearTransaccion_Interna_LosTramosNoCorrenBajoElPlazo() {
+        when(plazos.presupuestoMs("TRANSFERENCIA_INTERNA", null)).thenReturn(2000L);
+        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(inv -> inv.getArgument(0));
+        List<Boolean> conPlazo = new java.util.ArrayList<>();
+        doAnswer(inv -> {
+            conPlazo.add(PlazoOperacion.activo());
+            return inv.callRealMethod();
+        }).when(cuentaCliente).aplicarMovimiento(anyInt(), any(MovimientoSaldoDTO.class));
+
+        TransaccionResponseDTO resp = transaccionService.crearTransaccion(TransaccionRequestDTO.builder()
+                .referencia("REF-INTERNA")
+                .tipoOperacion("TRANSFERENCIA_INTERNA")
+                .idCuentaOrigen(101)
+                .idCuentaDestino(202)
+                .monto(new BigDecimal("100.00"))
+                .build());
+
+        assertEquals("COMPLETADA", resp.getEstado());
+        assertEquals(List.of(false, false), conPlazo);
+        assertEquals(new BigDecimal("1100.00"), cuentaCliente.saldo(202));
+    }
+
+    @Test
+    void crearTransaccion_SwitchConCircuitoAbierto_NoDebita() {
+        doThrow(new DependenciaNoDisponibleException("SWITCH_NO_DISPONIBLE", "digiconecu-switch",
+                DependenciaNoDisponibleException.Motivo.CIRCUITO_ABIERTO, 20_000))
+                .when(proteccionDependencias).verificarDisponible(SwitchClient.class, "enviarTransferencia");
+
+        DependenciaNoDisponibleException e = assertThrows(DependenciaNoDisponibleException.class,
+                () -> transaccionService.crearTransaccion(TransaccionRequestDTO.builder()
+                        .referencia("REF-CIRCUITO")
+                        .tipoOperacion("TRANSFERENCIA_SALIDA")
+                        .idCuentaOrigen(101)
+                        .cuentaExterna("5500000001")
+                        .idBancoExterno("NEXUS_BANK")
+                        .monto(new BigDecimal("100.00"))
+                        .build()));
+
+        assertEquals("SWITCH_NO_DISPONIBLE", e.getCode());
+        assertEquals(new BigDecimal("500.00"), cuentaCliente.saldo(101));
+        verifyNoInteractions(switchClient, bandejaSalidaSwitch);
+    }
+
+    @Test
+    void crearTransaccion_RechazoSinReembolso_QuedaPendienteSinDeshacerElDebito() {
+        when(enriquecimientoDeudor.iniciar(101)).thenReturn(CompletableFuture.completedFuture(
+                new EnriquecimientoDeudor.DatosDeudor("2200000101", "Cliente Bantec")));
+        when(switchClient.enviarTransferencia(any())).thenReturn(SwitchTransferResponse.builder()
+                .success(false)
+                .error(SwitchTransferResponse.ErrorBody.builder().message("AC01 cuenta inexistente").build())
+                .build());
+        doCallRealMethod()
+                .doThrow(new DependenciaNoDisponibleException("CUENTAS_NO_DISPONIBLE", "ms-cuentas",
+                        DependenciaNoDisponibleException.Motivo.SATURADA, 0))
+                .when(cuentaCliente).aplicarMovimiento(anyInt(), any(MovimientoSaldoDTO.class));
+        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        TransaccionResponseDTO resp = transaccionService.crearTransaccion(TransaccionRequestDTO.builder()
+                .referencia("REF-SIN-REEMBOLSO")
+                .tipoOperacion("TRANSFERENCIA_SALIDA")
+                .idCuentaOrigen(101)
+                .cuentaExterna("5500000001")
+                .idBancoExterno("NEXUS_BANK")
+                .monto(new BigDecimal("100.00"))
+                .build());
+
+        // El débito queda registrado; el conciliador reembolsa al confirmar el rechazo
+        assertEquals("PENDIENTE", resp.getEstado());
+        assertEquals(new BigDecimal("400.00"), resp.getSaldoResultante());
+        assertEquals(new BigDecimal("400.00"), cuentaCliente.saldo(101));
+        verify(transaccionRepository).save(any(Transaccion.class));
+    }
+
+    @Test
+    void crearTransaccion_ConBandeja_GuardaMensajeSinLlamarAlSwitch() {
+        ReflectionTestUtils.setField(transaccionService, "bandejaSwitch", true);
+        when(enriquecimientoDeudor.iniciar(101)).thenReturn(CompletableFuture.completedFuture(
+                new EnriquecimientoDeudor.DatosDeudor("2200000101", "Cliente Bantec")));
+
+        TransaccionResponseDTO resp = transaccionService.crearTransaccion(TransaccionRequestDTO.builder()
+                .referencia("REF-BANDEJA")
+                .tipoOperacion("TRANSFERENCIA_SALIDA")
+                .idCuentaOrigen(101)
+                .cuentaExterna("5500000001")
+                .idBancoExterno("NEXUS_BANK")
+                .monto(new BigDecimal("100.00"))
+                .build());
+
+        assertEquals("PENDIENTE", resp.getEstado());
+        assertTrue(resp.isAsincrona());
+        assertEquals(new BigDecimal("400.00"), cuentaCliente.saldo(101));
+        ArgumentCaptor<Object> contenido = ArgumentCaptor.forClass(Object.class);
+        verify(bandejaSalidaSwitch).encolar(eq(TipoMensajeSwitch.TRANSFERENCIA), eq("CUENTA-101"),
+                eq("REF-BANDEJA"), contenido.capture());
+        SwitchTransferRequest enviada = (SwitchTransferRequest) contenido.getValue();
+        assertEquals("REF-BANDEJA", enviada.getBody().getInstructionId());
+        assertEquals("2200000101", enviada.getBody().getDebtor().getAccountId());
+        verifyNoInteractions(switchClient);
+    }
+
+    @Test
+    void registrarRespuestaSalida_RechazoDelSwitch_Reembolsa() {
+        Transaccion pendiente = pendienteSalida("REF-PEND");
+        when(transaccionRepository.findPorReferenciasForUpdate(Set.of("REF-PEND"))).thenReturn(List.of(pendiente));
+
+        assertFalse(transaccionService.registrarRespuestaSalida("REF-PEND", SwitchTransferResponse.builder()
+                .success(false)
+                .error(SwitchTransferResponse.ErrorBody.builder().message("AC01 cuenta inexistente").build())
+                .build()));
+
+        assertEquals(EstadoTransaccion.FALLIDA, pendiente.getEstado());
+        assertEquals("RECHAZADA: Cuenta destino inválida / inexistente", pendiente.getDescripcion());
+        assertEquals(new BigDecimal("600.00"), cuentaCliente.saldo(101));
+    }
+
+    @Test
+    void cancelarEnvioSalida_EncolaDevolucionYReembolsa() {
+        Transaccion pendiente = pendienteSalida("REF-PEND");
+        when(transaccionRepository.findPorReferenciaForUpdate("REF-PEND")).thenReturn(Optional.of(pendiente));
+        when(transaccionRepository.findPorReferenciasForUpdate(Set.of("REF-PEND"))).thenReturn(List.of(pendiente));
+
+        transaccionService.cancelarEnvioSalida("REF-PEND", "Read timed out executing POST");
+
+        verify(bandejaSalidaSwitch).encolar(eq(TipoMensajeSwitch.DEVOLUCION), eq("CUENTA-101"), eq("REF-PEND"),
+                any(SwitchRefundRequest.class));
+        assertEquals(EstadoTransaccion.FALLIDA, pendiente.getEstado());
+        assertEquals("RECHAZADA: El banco destino no responde", pendiente.getDescripcion());
+        assertEquals(new BigDecimal("600.00"), cuentaCliente.saldo(101));
+    }
+
+    @Test
+    void consultarEstadoTransferencia_EnBandeja_NoConsultaNiExpira() {
+        Transaccion pendiente = pendienteSalida("REF-PEND");
+        pendiente.setFechaCreacion(LocalDateTime.now().minusMinutes(30));
+        when(transaccionRepository.findResumenPorReferencia("REF-PEND"))
+                .thenReturn(Optional.of(TransaccionResumen.de(pendiente)));
+        when(bandejaSalidaSwitch.enBandeja("REF-PEND")).thenReturn(true);
+
+        assertEquals("PENDING", transaccionService.consultarEstadoTransferencia("REF-PEND"));
+
+        verifyNoInteractions(consultaEstadoSwitch);
+        assertEquals(EstadoTransaccion.PENDIENTE, pendiente.getEstado());
+        assertEquals(new BigDecimal("500.00"), cuentaCliente.saldo(101));
+    }
+
+    @Test
+    void consultarEstadoTransferencia_ErrorDeConsulta_SiguePendienteSinReembolso() {
+        Transaccion pendiente = pendienteSalida("REF-PEND");
+        pendiente.setFechaCreacion(LocalDateTime.now().minusMinutes(30));
+        when(transaccionRepository.findResumenPorReferencia("REF-PEND"))
+                .thenReturn(Optional.of(TransaccionResumen.de(pendiente)));
+        when(consultaEstadoSwitch.consultar("REF-PEND"))
+                .thenThrow(new RuntimeException("Switch Error (503): Service Unavailable"));
+
+        assertEquals("PENDING", transaccionService.consultarEstadoTransferencia("REF-PEND"));
+
+        verify(transaccionRepository, never()).findPorReferenciasForUpdate(any());
+        assertEquals(new BigDecimal("500.00"), cuentaCliente.saldo(101));
+    }
+
+    @Test
+    void buscarPorReferencia_Rechazada_ReembolsaSobreLaFilaBloqueada() {
+        Transaccion pendiente = pendienteSalida("REF-PEND");
+        when(transaccionRepository.findResumenPorReferencia("REF-PEND"))
+                .thenReturn(Optional.of(TransaccionResumen.de(pendiente)));
+        when(consultaEstadoSwitch.consultar("REF-PEND")).thenReturn(SwitchTransferResponse.builder()
+                .success(true)
+                .data(SwitchTransferResponse.DataBody.builder().estado("FAILED").build())
+                .error(SwitchTransferResponse.ErrorBody.builder().message("AC01").build())
+                .build());
+        // Otro camino ya la resolvió: la fila bloqueada ya no está PENDIENTE
+        Transaccion resuelta = pendienteSalida("REF-PEND");
+        resuelta.setEstado(EstadoTransaccion.FALLIDA);
+        when(transaccionRepository.findPorReferenciasForUpdate(Set.of("REF-PEND"))).thenReturn(List.of(resuelta));
+        when(transaccionRepository.findResumenPorId(5)).thenReturn(Optional.of(TransaccionResumen.de(resuelta)));
+
+        assertEquals("FALLIDA", transaccionService.buscarPorReferencia("REF-PEND").getEstado());
+
+        assertEquals(new BigDecimal("500.00"), cuentaCliente.saldo(101));
+        verify(cuentaCliente, never()).aplicarMovimiento(anyInt(), any(MovimientoSaldoDTO.class));
+    }
+
+    @Test
+    void solicitarReverso_PendienteRechazada_ReembolsaSobreLaFilaBloqueadaYNoRevierte() {
+        Transaccion pendiente = pendienteSalida("REF-PEND");
+        when(transaccionRepository.findResumenPorId(5)).thenReturn(Optional.of(TransaccionResumen.de(pendiente)));
+        when(consultaEstadoSwitch.consultar("REF-PEND")).thenReturn(SwitchTransferResponse.builder()
+                .success(true)
+                .data(SwitchTransferResponse.DataBody.builder().estado("FAILED").build())
+                .build());
+        when(transaccionRepository.findPorReferenciasForUpdate(Set.of("REF-PEND"))).thenReturn(List.of(pendiente));
+
+        RefoundRequestDTO solicitud = RefoundRequestDTO.builder().idTransaccion(5).motivo("FRAD").build();
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> transaccionService.solicitarReverso(solicitud));
+
+        assertEquals("La transacción falló en el Switch, no es necesario revertir.", e.getMessage());
+        assertEquals(EstadoTransaccion.FALLIDA, pendiente.getEstado());
+        assertEquals(new BigDecimal("600.00"), cuentaCliente.saldo(101));
+        verify(transactionManager).commit(any());
+        verify(switchClient, never()).solicitarDevolucion(any());
+    }
+
+    @Test
+    void solicitarReverso_PendienteEnBandeja_NoSeResuelve() {
+        Transaccion pendiente = pendienteSalida("REF-PEND");
+        when(transaccionRepository.findResumenPorId(5)).thenReturn(Optional.of(TransaccionResumen.de(pendiente)));
+        when(bandejaSalidaSwitch.enBandeja("REF-PEND")).thenReturn(true);
+        when(transaccionRepository.findPorReferenciaForUpdate("REF-PEND")).thenReturn(Optional.of(pendiente));
+
+        RefoundRequestDTO solicitud = RefoundRequestDTO.builder().idTransaccion(5).motivo("FRAD").build();
+        assertThrows(BusinessException.class, () -> transaccionService.solicitarReverso(solicitud));
+
+        verifyNoInteractions(consultaEstadoSwitch, switchClient);
+        assertEquals(EstadoTransaccion.PENDIENTE, pendiente.getEstado());
+        assertEquals(new BigDecimal("500.00"), cuentaCliente.saldo(101));
+    }
+
+    private static Transaccion pendienteSalida(String referencia) {
+        return Transaccion.builder()
+                .idTransaccion(5)
+                .referencia(referencia)
+                .tipoOperacion(TipoOperacion.TRANSFERENCIA_SALIDA)
+                .idCuentaOrigen(101)
+                .monto(new BigDecimal("100.00"))
+                .estado(EstadoTransaccion.PENDIENTE)
+                .build();
+    }
+
+    @Test
+    void aplicarEstadoFinalSalida_Rechazo_ReembolsaUnaSolaVez() {
+        Transaccion pendiente = Transaccion.builder()
+                .idTransaccion(5)
+                .referencia("REF-PEND")
+                .tipoOperacion(TipoOperacion.TRANSFERENCIA_SALIDA)
+                .idCuentaOrigen(101)
+                .monto(new BigDecimal("100.00"))
+                .estado(EstadoTransaccion.PENDIENTE)
+                .build();
+        when(transaccionRepository.findPorReferenciasForUpdate(Set.of("REF-PEND"))).thenReturn(List.of(pendiente));
+
+        assertTrue(transaccionService.aplicarEstadoFinalSalida("REF-PEND", false, "AC01"));
+        assertFalse(transaccionService.aplicarEstadoFinalSalida("REF-PEND", false, "AC01"));
+
+        assertEquals(EstadoTransaccion.FALLIDA, pendiente.getEstado());
+        assertEquals(new BigDecimal("600.00"), cuentaCliente.saldo(101));
+        verify(cuentaCliente, times(1)).aplicarMovimiento(anyInt(), any(MovimientoSaldoDTO.class));
+    }
+
+    @Test
+    void obtenerHistorial_CursorLlevaALaSiguientePagina() {
+        LocalDateTime fecha = LocalDateTime.of(2025, 3, 1, 10, 0);
+        List<Transaccion> filas = List.of(
+                historial(30, fecha.plusMinutes(2)),
+                historial(20, fecha.plusMinutes(1)),
+                historial(10, fecha));
+        when(transaccionRepository.buscarHistorial(eq(101), any(), isNull(), isNull(), eq(3))).thenReturn(filas);
+
+        PaginaHistorialDTO primera = transaccionService.obtenerHistorial(101, null, null, 2);
+
+        assertEquals(List.of(30, 20), primera.getTransacciones().stream()
+                .map(TransaccionResponseDTO::getIdTransaccion).toList());
+        assertNotNull(primera.getSiguienteCursor());
+
+        when(transaccionRepository.buscarHistorial(101, null, fecha.plusMinutes(1), 20, 3))
+                .thenReturn(List.of(historial(10, fecha)));
+
+        PaginaHistorialDTO segunda = transaccionService.obtenerHistorial(101, null, primera.getSiguienteCursor(), 2);
+
+        assertEquals(1, segunda.getTransacciones().size());
+        assertNull(segunda.getSiguienteCursor());
+    }
+
+    @Test
+    void obtenerHistorial_CursorInvalido() {
+        assertThrows(BusinessException.class,
+                () -> transaccionService.obtenerHistorial(101, null, "no-es-un-cursor", 50));
+        verify(transaccionRepository, never()).buscarHistorial(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void procesarDeposito_GuardaContrapartes() {
+        when(cacheMetadatos.idPorNumero("2200000202")).thenReturn(202);
+        when(enriquecimientoCuentas.resolver(List.of(202)))
+                .thenReturn(Map.of(202, new InfoCuenta("2200000202", "Luis Mora")));
+
+        transaccionService.procesarDeposito("2200000202", new BigDecimal("50.00"), "Banco X", "DEP-1");
+
+        ArgumentCaptor<Transaccion> guardada = ArgumentCaptor.forClass(Transaccion.class);
+        verify(transaccionRepository).save(guardada.capture());
+        assertEquals("2200000202", guardada.getValue().getNumeroCuentaDestino());
+        assertEquals("Luis Mora", guardada.getValue().getNombreDestino());
+    }
+
+    @Test
+    void procesarDeposito_AsientaElCredito() {
+        when(cacheMetadatos.idPorNumero("2200000202")).thenReturn(202);
+        when(enriquecimientoCuentas.resolver(List.of(202))).thenReturn(Map.of());
+        when(transaccionRepository.save(any(Transaccion.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        transaccionService.procesarDeposito("2200000202", new BigDecimal("50.00"), "Banco X", "DEP-2");
+
+        ArgumentCaptor<Transaccion> asentada = ArgumentCaptor.forClass(Transaccion.class);
+        verify(libroMayorService).anotar(202, new BigDecimal("50.00"), new BigDecimal("1050.00"));
+        verify(libroMayorService).asentar(asentada.capture());
+        assertEquals("DEP-2", asentada.getValue().getReferencia());
+        assertEquals(TipoOperacion.TRANSFERENCIA_ENTRADA, asentada.getValue().getTipoOperacion());
+    }
+
+    @Test
+    void obtenerHistorial_FilasCompletas_NoConsultanCuentas() {
+        Transaccion completa = historial(10, LocalDateTime.of(2025, 3, 1, 10, 0));
+        completa.setNumeroCuentaDestino("2200000101");
+        completa.setNombreDestino("Ana Pérez");
+        when(transaccionRepository.buscarHistorial(eq(101), any(), isNull(), isNull(), eq(51)))
+                .thenReturn(List.of(completa));
+
+        PaginaHistorialDTO pagina = transaccionService.obtenerHistorial(101, null, null, 50);
+
+        assertEquals("Ana Pérez", pagina.getTransacciones().get(0).getNombreDestino());
+        verify(enriquecimientoCuentas).resolver(List.of());
+    }
+
+    @Test
+    void procesarTransferenciaEntrante_Duplicada_NoAcreditaDosVeces() {
+        when(cacheMetadatos.idPorNumero("2200000202")).thenReturn(202);
+        when(registroIdempotencia.reclamar("INS-1", "TRANSFERENCIA_ENTRADA")).thenReturn(true, false);
+
+        transaccionService.procesarTransferenciaEntrante("INS-1", "2200000202", new BigDecimal("40.00"), "BANK-002");
+        transaccionService.procesarTransferenciaEntrante("INS-1", "2200000202", new BigDecimal("40.00"), "BANK-002");
+
+        assertEquals(new BigDecimal("1040.00"), cuentaCliente.saldo(202));
+        verify(transaccionRepository, times(1)).save(any(Transaccion.class));
+        verify(transaccionRepository, never()).findByReferencia(any());
+    }
+
+    @Test
+    void crearTransaccion_Duplicada_RepiteRespuestaGuardada() {
+        TransaccionResponseDTO original = TransaccionResponseDTO.builder()
+                .idTransaccion(9)
+                .referencia("REF-DUP")
+                .estado("COMPLETADA")
+                .build();
+        when(registroIdempotencia.reclamar("REF-DUP", "DEPOSITO")).thenReturn(false);
+        when(registroIdempotencia.respuestaRegistrada("REF-DUP")).thenReturn(Optional.of(original));
+        TransaccionRequestDTO request = new TransaccionRequestDTO();
+        request.setReferencia("REF-DUP");
+        request.setTipoOperacion("deposito");
+        request.setIdCuentaDestino(101);
+        request.setMonto(new BigDecimal("10.00"));
+
+        assertEquals(original, transaccionService.crearTransaccion(request));
+        assertEquals(new BigDecimal("500.00"), cuentaCliente.saldo(101));
+        verify(transaccionRepository, never()).save(any(Transaccion.class));
+    }
+
+    private static Transaccion historial(Integer id, LocalDateTime fecha) {
+        return Transaccion.builder()
+                .idTransaccion(id)
+                .tipoOperacion(TipoOperacion.DEPOSITO)
+                .idCuentaDestino(101)
+                .monto(new BigDecimal("10.00"))
+                .fechaCreacion(fecha)
+                .estado(EstadoTransaccion.COMPLETADA)
+                .build();
+    }
 }